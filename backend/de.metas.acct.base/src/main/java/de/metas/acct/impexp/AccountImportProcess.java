@@ -101,6 +101,12 @@ public class AccountImportProcess extends SimpleImportProcessTemplate<I_I_Elemen
 		return I_I_ElementValue.COLUMNNAME_Value;
 	}
 
+	@Override
+	protected Object extractImportRecordPartitionKey(@NonNull final I_I_ElementValue importRecord)
+	{
+		return importRecord.getElementName();
+	}
+
 	@Override
 	protected I_I_ElementValue retrieveImportRecord(Properties ctx, ResultSet rs) throws SQLException
 	{
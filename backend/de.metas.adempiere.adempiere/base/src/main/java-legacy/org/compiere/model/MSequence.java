@@ -94,6 +94,15 @@ public class MSequence extends X_AD_Sequence
 
 		s_log.trace("{} - AdempiereSys={} [{}]", TableName, adempiereSys, trxName);
 
+		// Hand out the ID from a pre-allocated block if possible.
+		// Not for system IDs and not when using an external ID system, because there the IDs shall stay contiguous.
+		if (!adempiereSys
+				&& IdBlockAllocator.instance.isEnabled()
+				&& !isUseExternalIDSystem(TableName, AD_Client_ID))
+		{
+			return IdBlockAllocator.instance.nextId(TableName, blockSize -> reserveIDBlock(TableName, blockSize));
+		}
+
 		final String selectSQL = "SELECT CurrentNext, CurrentNextSys, IncrementNo, AD_Sequence_ID "
 				+ "FROM AD_Sequence "
 				+ "WHERE Name=?"
@@ -246,6 +255,44 @@ public class MSequence extends X_AD_Sequence
 		}
 	}	// getNextID
 
+	/**
+	 * Reserves the next <code>blockSize</code> IDs of given table's sequence using one single statement.
+	 * The row lock on AD_Sequence is held only for that statement.
+	 */
+	private static IdBlockAllocator.IdBlock reserveIDBlock(final String tableName, final int blockSize)
+	{
+		final String sql = "UPDATE AD_Sequence SET CurrentNext = CurrentNext + IncrementNo * ?"
+				+ " WHERE Name=?"
+				+ " AND IsActive='Y' AND IsTableID='Y' AND IsAutoSequence='Y'"
+				+ " RETURNING CurrentNext - IncrementNo * ?, IncrementNo";
+		final Object[] sqlParams = new Object[] { blockSize, tableName, blockSize };
+
+		PreparedStatement pstmt = null;
+		ResultSet rs = null;
+		try
+		{
+			pstmt = DB.prepareStatement(sql, ITrx.TRXNAME_None);
+			DB.setParameters(pstmt, sqlParams);
+			rs = pstmt.executeQuery();
+			if (!rs.next())
+			{
+				throw new AdempiereException("No AD_Sequence found for " + tableName);
+			}
+
+			final int firstId = rs.getInt(1);
+			final int incrementNo = rs.getInt(2);
+			return IdBlockAllocator.IdBlock.ofRange(firstId, blockSize, incrementNo);
+		}
+		catch (final SQLException ex)
+		{
+			throw new DBException(ex, sql, sqlParams);
+		}
+		finally
+		{
+			DB.close(rs, pstmt);
+		}
+	}
+
 	/**
 	 * Get Next ID
 	 *
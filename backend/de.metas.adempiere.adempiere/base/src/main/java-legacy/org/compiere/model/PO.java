@@ -336,6 +336,10 @@ public abstract class PO
 	 * After they were already saved, this flag will be set to <code>false</code>.
 	 */
 	private boolean m_createNew = false;
+	/**
+	 * Set while this PO is saved via {@link #saveAllBatched(List)}, so the INSERT/UPDATE SQL is collected instead of being executed right away.
+	 */
+	private transient POSaveBatch m_saveBatch = null;
 	/**
 	 * Flag used to mark those POs which are new, saved or not.
 	 * Compared to {@link #m_createNew} this flag will be never ever reset so can always know if this PO was created now.
@@ -2916,6 +2920,107 @@ public abstract class PO
 		});
 	}
 
+	/**
+	 * Saves given POs like {@link #saveEx()} would, but executes their INSERT/UPDATE statements using JDBC batches.
+	 * <p>
+	 * The POs are saved in the given order, as follows:
+	 * <ul>
+	 * <li>before-save logic and BEFORE_NEW/BEFORE_CHANGE model interceptors are called for all POs
+	 * <li>the INSERT/UPDATE statements are executed
+	 * <li>after-save logic and AFTER_NEW/AFTER_CHANGE model interceptors are called for all POs
+	 * </ul>
+	 * So, the before-save logic of a PO shall not rely on the previous POs of the same batch being already in database.
+	 * <p>
+	 * Consecutive POs with the same transaction name are saved in the same transaction. If saving one of them fails, that transaction is rolled back.
+	 * <p>
+	 * NOTE: INSERTs which need to load values back from database (e.g. columns with database defaults, see {@link #saveNew()}) cannot be batched.
+	 * They are still executed in order, but one by one.
+	 *
+	 * @throws AdempiereException
+	 */
+	public static void saveAllBatched(final List<? extends PO> pos) throws AdempiereException
+	{
+		int index = 0;
+		while (index < pos.size())
+		{
+			final String trxName = pos.get(index).get_TrxName();
+			final List<PO> posOfTrx = new ArrayList<>();
+			while (index < pos.size() && Objects.equals(pos.get(index).get_TrxName(), trxName))
+			{
+				final PO po = pos.get(index);
+				index++;
+
+				// Check and prepare the saving (this shall happen before running the part which is handled in transaction)
+				if (po.savePrepare())
+				{
+					posOfTrx.add(po);
+				}
+			}
+
+			saveAllBatched0(trxName, posOfTrx);
+		}
+	}
+
+	private static void saveAllBatched0(final String trxNameInitial, final List<PO> pos)
+	{
+		if (pos.isEmpty())
+		{
+			return;
+		}
+
+		final boolean[] newRecordsInitial = new boolean[pos.size()];
+		for (int i = 0; i < pos.size(); i++)
+		{
+			newRecordsInitial[i] = pos.get(i).m_createNew;
+		}
+
+		final ITrxManager trxManager = pos.get(0).get_TrxManager();
+		trxManager.run(trxNameInitial, new TrxRunnable2()
+		{
+			@Override
+			public void run(final String localTrxName) throws Exception
+			{
+				final POSaveBatch saveBatch = new POSaveBatch(localTrxName);
+				for (final PO po : pos)
+				{
+					po.m_trxName = localTrxName;
+					po.m_saveBatch = saveBatch;
+					try
+					{
+						po.save0();
+					}
+					finally
+					{
+						po.m_saveBatch = null;
+					}
+				}
+
+				saveBatch.executeAndFinish();
+			}
+
+			@Override
+			public boolean doCatch(final Throwable e) throws Throwable
+			{
+				// restoring settings and flags before failing
+				for (int i = 0; i < pos.size(); i++)
+				{
+					pos.get(i).m_createNew = newRecordsInitial[i];
+				}
+				throw e;
+			}
+
+			@Override
+			public void doFinally()
+			{
+				// restore the transaction name
+				for (final PO po : pos)
+				{
+					po.m_trxName = trxNameInitial;
+				}
+			}
+		});
+	}
+
 	/**
 	 * Check & prepare the persistent object for saving.
 	 *
@@ -3439,41 +3544,64 @@ public abstract class PO
 			//
 			// Execute UPDATE SQL
 			log.trace("Save update: SQL={}", sql);
-			final int no;
-			if (isUseTimeoutForUpdate())
-			{
-				no = DB.executeUpdateEx(sql.toString(), m_trxName, QUERY_TIME_OUT);
-			}
-			else
-			{
-				no = DB.executeUpdateEx(sql.toString(), m_trxName);
-			}
-			boolean ok = no == 1;
 
-			//
-			// Create change logs
-			if (ok)
+			// If we are saving in batch, the SQL is executed later, together with the other ones
+			if (m_saveBatch != null)
 			{
-				createChangeLog(X_AD_ChangeLog.EVENTCHANGELOG_Update);
-				logMigration(X_AD_MigrationStep.ACTION_Update);
+				m_saveBatch.add(this, sql.toString(), null, isUseTimeoutForUpdate() ? QUERY_TIME_OUT : 0, no -> saveUpdateFinish(no, where));
+				return true;
 			}
 
-			if (ok)
+			final int no;
+			if (isUseTimeoutForUpdate())
 			{
-				ok = lobSave();
+				no = DB.executeUpdateEx(sql.toString(), m_trxName, QUERY_TIME_OUT);
 			}
 			else
 			{
-				log.warn("#" + no + " - [" + m_trxName + "] - " + p_info.getTableName() + "." + where);
+				no = DB.executeUpdateEx(sql.toString(), m_trxName);
 			}
-
-			return saveFinish(false, ok); // newRecord=false, success=ok
+			return saveUpdateFinish(no, where);
 		}
 
 		// nothing changed, so OK=true
+		if (m_saveBatch != null)
+		{
+			m_saveBatch.add(this, null, null, 0, no -> saveFinish(false, true));
+			return true;
+		}
 		return saveFinish(false, true);  // newRecord=false, success=true
 	}   // saveUpdate
 
+	/**
+	 * Called after the UPDATE SQL was executed.
+	 *
+	 * @param no how many records were updated
+	 */
+	private boolean saveUpdateFinish(final int no, final String where) throws Exception
+	{
+		boolean ok = no == 1;
+
+		//
+		// Create change logs
+		if (ok)
+		{
+			createChangeLog(X_AD_ChangeLog.EVENTCHANGELOG_Update);
+			logMigration(X_AD_MigrationStep.ACTION_Update);
+		}
+
+		if (ok)
+		{
+			ok = lobSave();
+		}
+		else
+		{
+			log.warn("#" + no + " - [" + m_trxName + "] - " + p_info.getTableName() + "." + where);
+		}
+
+		return saveFinish(false, ok); // newRecord=false, success=ok
+	}
+
 	private final boolean isUseTimeoutForUpdate()
 	{
 		return "true".equalsIgnoreCase(System.getProperty(USE_TIMEOUT_FOR_UPDATE, "false"))
@@ -3839,6 +3967,15 @@ public abstract class PO
 			loadAfterInsertProcessor = null;
 		}
 
+		//
+		// If we are saving in batch, the SQL is executed later, together with the other ones
+		if (m_saveBatch != null)
+		{
+			final String sqlInsertStr = sqlInsert.toString();
+			m_saveBatch.add(this, sqlInsertStr, loadAfterInsertProcessor, 0, no -> saveNewFinish(no, sqlInsertStr));
+			return true;
+		}
+
 		//
 		// Execute actual database INSERT
 		final int no = DB.executeUpdate(sqlInsert.toString(),
@@ -3847,6 +3984,16 @@ public abstract class PO
 				m_trxName,
 				0,  // timeOut,
 				loadAfterInsertProcessor);
+		return saveNewFinish(no, sqlInsert.toString());
+	}   // saveNew
+
+	/**
+	 * Called after the INSERT SQL was executed.
+	 *
+	 * @param no how many records were inserted
+	 */
+	private boolean saveNewFinish(final int no, final String sqlInsert) throws Exception
+	{
 		boolean ok = no == 1;
 
 		//
@@ -3885,7 +4032,7 @@ public abstract class PO
 			String msg = "Not inserted - ";
 			if (LogManager.isLevelFiner())
 			{
-				msg += sqlInsert.toString();
+				msg += sqlInsert;
 			}
 			else
 			{
@@ -3902,7 +4049,7 @@ public abstract class PO
 		}
 
 		return saveFinish(true, ok);
-	}   // saveNew
+	}
 
 	/**
 	 * Get ID for new record during save.
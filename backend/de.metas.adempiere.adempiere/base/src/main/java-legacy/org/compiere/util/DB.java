@@ -64,6 +64,7 @@ import org.compiere.db.CConnection;
 import org.compiere.db.Database;
 import org.compiere.dbPort.Convert;
 import org.compiere.model.I_AD_System;
+import org.compiere.model.IdBlockAllocator;
 import org.compiere.model.MSequence;
 import org.compiere.model.POInfo;
 import org.compiere.model.POResultSet;
@@ -89,6 +90,7 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
 import java.util.List;
@@ -1789,6 +1791,11 @@ public class DB
 		if (useNativeSequences)
 		{
 			final String sequenceName = getTableSequenceName(TableName);
+			if (IdBlockAllocator.instance.isEnabled())
+			{
+				return IdBlockAllocator.instance.nextId(sequenceName, blockSize -> IdBlockAllocator.IdBlock.ofIds(retrieveNextIDs(sequenceName, blockSize)));
+			}
+
 			final int nextId = CConnection.get().getDatabase().getNextID(sequenceName);
 			return nextId;
 		}
@@ -1796,6 +1803,39 @@ public class DB
 		return MSequence.getNextID(AD_Client_ID, TableName, trxName);
 	}    // getNextID
 
+	/**
+	 * Fetches the next <code>count</code> values of given native sequence in one round trip.
+	 */
+	private int[] retrieveNextIDs(final String sequenceName, final int count)
+	{
+		final String sql = "SELECT " + CConnection.get().getDatabase().TO_SEQUENCE_NEXTVAL(sequenceName) + " FROM generate_series(1, ?)";
+		final Object[] sqlParams = new Object[] { count };
+
+		final int[] ids = new int[count];
+		PreparedStatement pstmt = null;
+		ResultSet rs = null;
+		try
+		{
+			pstmt = prepareStatement(sql, ITrx.TRXNAME_None);
+			setParameters(pstmt, sqlParams);
+			rs = pstmt.executeQuery();
+			int index = 0;
+			while (rs.next() && index < count)
+			{
+				ids[index++] = rs.getInt(1);
+			}
+			return index < count ? Arrays.copyOf(ids, index) : ids;
+		}
+		catch (final SQLException ex)
+		{
+			throw new DBException(ex, sql, sqlParams);
+		}
+		finally
+		{
+			close(rs, pstmt);
+		}
+	}
+
 	public String TO_TABLESEQUENCE_NEXTVAL(final String tableName)
 	{
 		final String sequenceName = getTableSequenceName(tableName);
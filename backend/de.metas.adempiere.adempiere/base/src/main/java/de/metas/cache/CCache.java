@@ -23,7 +23,6 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.Callable;
@@ -42,11 +41,14 @@ import org.adempiere.util.lang.impl.TableRecordReference;
 import org.compiere.util.Util;
 import org.slf4j.Logger;
 
-import com.google.common.base.MoreObjects;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader.InvalidCacheLoadException;
 import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.util.concurrent.ExecutionError;
@@ -56,6 +58,7 @@ import de.metas.logging.LogManager;
 import lombok.Builder;
 import lombok.NonNull;
 import lombok.Singular;
+import lombok.Value;
 
 /**
  * metasfresh Cache.
@@ -103,6 +106,33 @@ public class CCache<K, V> implements CacheInterface
 				.build();
 	}
 
+	/**
+	 * Creates a new cache which is bounded by the estimated retained size of its entries instead of the entries count.
+	 * <p>
+	 * The cache also participates in the global memory budget of {@link CacheMgt}, see {@link CacheMgt#setMemoryBudgetBytes(long)}.
+	 *
+	 * @param cacheName cache name; shall respect the current naming conventions, see {@link #extractTableNameForCacheName(String)}
+	 * @param maximumWeightBytes maximum estimated size (in bytes) of all entries
+	 * @param weigher estimates the size (in bytes) of one entry
+	 * @param offHeapMaxBytes if positive, evicted entries are kept off-heap (serialized), up to given size; see {@link CacheOffHeapStore}
+	 * @param expireAfterMinutes if positive, the entries will expire after given number of minutes
+	 */
+	public static final <K, V> CCache<K, V> newWeightedCache(
+			final String cacheName,
+			final long maximumWeightBytes,
+			@NonNull final CacheEntryWeigher<K, V> weigher,
+			final long offHeapMaxBytes,
+			final int expireAfterMinutes)
+	{
+		return CCache.<K, V> builder()
+				.cacheName(cacheName)
+				.maximumWeight(maximumWeightBytes)
+				.weigher(weigher)
+				.offHeapMaxBytes(offHeapMaxBytes)
+				.expireMinutes(expireAfterMinutes)
+				.build();
+	}
+
 	public enum CacheMapType
 	{
 		/**
@@ -158,6 +188,22 @@ public class CCache<K, V> implements CacheInterface
 	private final String debugAquireStacktrace;
 
 	private CacheAdditionListener<K, V> additionListener;
+	private final CacheRemovalListener<K, V> removalListener;
+
+	/** If set, the cache is bounded by the estimated size of its entries */
+	private final CacheEntryWeigher<K, V> weigher;
+	private final AtomicLong estimatedBytes = new AtomicLong();
+
+	/** Optional second tier where evicted entries are kept off-heap */
+	@Nullable
+	private final CacheOffHeapStore<K, V> offHeapStore;
+	/**
+	 * Guards promoting values from the off-heap tier against concurrent invalidations.
+	 * Without it, a value which was promoted right before a reset/remove could be put back into the cache after that reset/remove.
+	 */
+	private final Object offHeapLock = new Object();
+	/** Incremented (under {@link #offHeapLock}) by each invalidation; see {@link #storeOffHeapIfNotInvalidatedSince(Object, Object, long)} */
+	private volatile long offHeapInvalidationsCount = 0;
 
 	/**
 	 * Metasfresh Cache - expires after 2 hours
@@ -187,7 +233,10 @@ public class CCache<K, V> implements CacheInterface
 				CacheMapType.HashMap,
 				(CachingKeysMapper<K>)null,
 				(CacheRemovalListener<K, V>)null,
-				(CacheAdditionListener<K, V>)null);
+				(CacheAdditionListener<K, V>)null,
+				(Long)null, // maximumWeight
+				(CacheEntryWeigher<K, V>)null,
+				(Long)null); // offHeapMaxBytes
 	}
 
 	@Builder
@@ -200,12 +249,27 @@ public class CCache<K, V> implements CacheInterface
 			final CacheMapType cacheMapType,
 			@Nullable final CachingKeysMapper<K> invalidationKeysMapper,
 			@Nullable final CacheRemovalListener<K, V> removalListener,
-			@Nullable final CacheAdditionListener<K, V> additionListener)
+			@Nullable final CacheAdditionListener<K, V> additionListener,
+			@Nullable final Long maximumWeight,
+			@Nullable final CacheEntryWeigher<K, V> weigher,
+			@Nullable final Long offHeapMaxBytes)
 	{
 		this.cacheId = NEXT_CACHE_ID.getAndIncrement();
 
 		this.invalidationKeysMapper = Optional.ofNullable(invalidationKeysMapper);
 		this.additionListener = additionListener;
+		this.removalListener = removalListener;
+
+		if ((weigher != null) != (maximumWeight != null && maximumWeight > 0))
+		{
+			throw new AdempiereException("weigher and a positive maximumWeight shall be both set or both not set")
+					.appendParametersToMessage()
+					.setParameter("cacheName", cacheName)
+					.setParameter("maximumWeight", maximumWeight)
+					.setParameter("weigher", weigher);
+		}
+		this.weigher = weigher;
+		this.offHeapStore = offHeapMaxBytes != null && offHeapMaxBytes > 0 ? new CacheOffHeapStore<>(offHeapMaxBytes) : null;
 
 		final String tableNameEffective;
 		if (cacheName == null)
@@ -246,11 +310,14 @@ public class CCache<K, V> implements CacheInterface
 		this.labels = buildCacheLabels(tableNameEffective, additionalTableNamesToResetFor);
 
 		this.expireMinutes = expireMinutes != null ? expireMinutes : EXPIREMINUTES_Never;
+		final Weigher<K, V> guavaWeigher = weigher != null ? this::weighAndTrack : null;
 		this.cache = buildGuavaCache(
 				cacheMapType != null ? cacheMapType : CacheMapType.HashMap,
 				initialCapacity != null ? initialCapacity : 0,
 				this.expireMinutes,
-				removalListener);
+				weigher != null ? maximumWeight : 0,
+				guavaWeigher,
+				this::onGuavaItemRemoved);
 
 		if (DEBUG)
 		{
@@ -318,10 +385,24 @@ public class CCache<K, V> implements CacheInterface
 			@NonNull final CacheMapType cacheMapType,
 			final int initialCapacity,
 			final int expireMinutes,
-			@Nullable final CacheRemovalListener<K, V> removalListener)
+			final long maximumWeight,
+			@Nullable final Weigher<K, V> weigher,
+			@NonNull final RemovalListener<K, V> removalListener)
 	{
-		CacheBuilder<Object, Object> cacheBuilder = CacheBuilder.newBuilder();
-		if (cacheMapType == CacheMapType.HashMap)
+		CacheBuilder<Object, Object> cacheBuilder = CacheBuilder.newBuilder()
+				.recordStats();
+		if (weigher != null)
+		{
+			cacheBuilder = cacheBuilder
+					.initialCapacity(initialCapacity)
+					.maximumWeight(maximumWeight);
+			cacheBuilder.weigher((key, value) -> {
+				@SuppressWarnings("unchecked")
+				final int weight = weigher.weigh((K)key, (V)value);
+				return weight;
+			});
+		}
+		else if (cacheMapType == CacheMapType.HashMap)
 		{
 			cacheBuilder = cacheBuilder
 					.initialCapacity(initialCapacity);
@@ -341,19 +422,194 @@ public class CCache<K, V> implements CacheInterface
 			cacheBuilder = cacheBuilder.expireAfterWrite(expireMinutes, TimeUnit.MINUTES);
 		}
 
+		cacheBuilder.removalListener(notif -> {
+			@SuppressWarnings("unchecked")
+			final RemovalListener<Object, Object> listener = (RemovalListener<Object, Object>)removalListener;
+			listener.onRemoval(notif);
+		});
+		return cacheBuilder.build();
+	}
+
+	private int weighAndTrack(final K key, final V value)
+	{
+		final int weight = Math.max(weigher.weigh(key, value), 0);
+		estimatedBytes.addAndGet(weight);
+		CacheMgt.get().onWeightedCacheBytesChanged(weight);
+		return weight;
+	}
+
+	private void onGuavaItemRemoved(final RemovalNotification<K, V> notif)
+	{
+		// NOTE: read it first thing, because guava notifies us after the eviction, outside of its locks
+		final long offHeapInvalidationsCountAtEviction = offHeapInvalidationsCount;
+
+		final K key = notif.getKey();
+		final V value = notif.getValue();
+		if (key == null || value == null)
+		{
+			return; // shall not happen because we are not using weak/soft references
+		}
+
+		if (weigher != null)
+		{
+			final int weight = Math.max(weigher.weigh(key, value), 0);
+			estimatedBytes.addAndGet(-weight);
+			CacheMgt.get().onWeightedCacheBytesChanged(-weight);
+		}
+
+		if (offHeapStore != null && notif.getCause() == RemovalCause.SIZE)
+		{
+			storeOffHeapIfNotInvalidatedSince(key, value, offHeapInvalidationsCountAtEviction);
+		}
+
 		if (removalListener != null)
 		{
-			cacheBuilder.removalListener(notif -> {
-				@SuppressWarnings("unchecked")
-				final K key = (K)notif.getKey();
+			removalListener.itemRemoved(key, value);
+		}
+	}
 
-				@SuppressWarnings("unchecked")
-				final V value = (V)notif.getValue();
+	/**
+	 * Moves an entry which was evicted from the first tier to the off-heap tier, unless the cache was invalidated in the meantime.
+	 * Else, a stale value could be stored back after a concurrent reset/remove.
+	 * <p>
+	 * NOTE: invalidations which happen before guava dequeues the eviction notification don't need to be checked here,
+	 * because each invalidation is a guava write, which processes the pending notifications (and so stores them) before the off-heap tier is invalidated.
+	 */
+	private void storeOffHeapIfNotInvalidatedSince(final K key, final V value, final long offHeapInvalidationsCountAtEviction)
+	{
+		synchronized (offHeapLock)
+		{
+			if (offHeapInvalidationsCount != offHeapInvalidationsCountAtEviction)
+			{
+				logger.debug("storeOffHeapIfNotInvalidatedSince - Skip storing evicted value for key={} because the cache was invalidated meanwhile", key);
+				return;
+			}
 
-				removalListener.itemRemoved(key, value);
-			});
+			offHeapStore.store(key, value);
+		}
+	}
+
+	/**
+	 * @return true if this cache is bounded by the estimated size of its entries
+	 */
+	public final boolean isWeighted()
+	{
+		return weigher != null;
+	}
+
+	/**
+	 * @return estimated size (in bytes) of all entries from the first (on-heap) tier; always zero if this cache is not {@link #isWeighted()}
+	 */
+	public final long getEstimatedBytes()
+	{
+		return estimatedBytes.get();
+	}
+
+	/**
+	 * Moves entries from the first (on-heap) tier to the off-heap tier (if any) or drops them, until the given amount of bytes was freed.
+	 * Called by {@link CacheMgt} to enforce its global memory budget.
+	 *
+	 * NOTE: entries are picked in the cache's iteration order, which is not strictly the LRU order.
+	 *
+	 * @return estimated bytes freed
+	 */
+	/* package */ long shrinkBy(final long bytesToFree)
+	{
+		if (weigher == null || bytesToFree <= 0)
+		{
+			return 0;
+		}
+
+		try (final IAutoCloseable cacheIdMDC = CacheMDC.putCache(this))
+		{
+			long bytesFreed = 0;
+			for (final Entry<K, V> entry : ImmutableList.copyOf(cache.asMap().entrySet()))
+			{
+				if (bytesFreed >= bytesToFree)
+				{
+					break;
+				}
+
+				final K key = entry.getKey();
+				final V value = entry.getValue();
+				final boolean moved = invalidateAtomically(() -> {
+					if (!cache.asMap().remove(key, value))
+					{
+						return false; // concurrently changed
+					}
+					if (offHeapStore != null)
+					{
+						offHeapStore.store(key, value);
+					}
+					return true;
+				});
+				if (!moved)
+				{
+					continue;
+				}
+
+				bytesFreed += Math.max(weigher.weigh(key, value), 0);
+			}
+
+			logger.debug("shrinkBy - Freed {}/{} bytes", bytesFreed, bytesToFree);
+			return bytesFreed;
+		}
+	}
+
+	/**
+	 * If the value is present in the off-heap tier, moves it back to the first tier.
+	 *
+	 * @return promoted value or <code>null</code>
+	 */
+	@Nullable
+	private V promoteFromOffHeap(final K key)
+	{
+		if (offHeapStore == null)
+		{
+			return null;
+		}
+
+		synchronized (offHeapLock)
+		{
+			final V value = offHeapStore.promote(key);
+			if (value != null)
+			{
+				logger.debug("promoteFromOffHeap - Promoted value for key={}", key);
+				cache.put(key, value);
+			}
+			return value;
+		}
+	}
+
+	/**
+	 * Runs the given invalidation of both tiers, so that no value is promoted from the off-heap tier in the meantime (see {@link #promoteFromOffHeap(Object)}).
+	 */
+	private <T> T invalidateAtomically(final Supplier<T> invalidation)
+	{
+		if (offHeapStore == null)
+		{
+			return invalidation.get();
+		}
+
+		synchronized (offHeapLock)
+		{
+			try
+			{
+				return invalidation.get();
+			}
+			finally
+			{
+				offHeapInvalidationsCount++; // only changed under lock
+			}
+		}
+	}
+
+	private void enforceMemoryBudgetIfWeighted()
+	{
+		if (weigher != null)
+		{
+			CacheMgt.get().enforceMemoryBudgetIfNeeded();
 		}
-		return cacheBuilder.build();
 	}
 
 	/**
@@ -415,7 +671,7 @@ public class CCache<K, V> implements CacheInterface
 	{
 		try (final IAutoCloseable cacheIdMDC = CacheMDC.putCache(this))
 		{
-			final long no = cache.size();
+			final long no = cache.size() + (offHeapStore != null ? offHeapStore.size() : 0);
 			clear();
 			if (no > 0)
 			{
@@ -428,8 +684,15 @@ public class CCache<K, V> implements CacheInterface
 	private void clear()
 	{
 		// Clear
-		cache.invalidateAll();
-		cache.cleanUp();
+		invalidateAtomically(() -> {
+			cache.invalidateAll();
+			cache.cleanUp();
+			if (offHeapStore != null)
+			{
+				offHeapStore.invalidateAll();
+			}
+			return null;
+		});
 
 		m_justReset = true;
 	}	// clear
@@ -466,8 +729,7 @@ public class CCache<K, V> implements CacheInterface
 
 		for (final K key : keysToReset)
 		{
-			final V removedItem = remove(key);
-			final boolean keyRemoved = removedItem != null;
+			final boolean keyRemoved = removeFromBothTiers(key);
 			if (keyRemoved)
 			{
 				counter++;
@@ -516,26 +778,58 @@ public class CCache<K, V> implements CacheInterface
 	{
 		try (final IAutoCloseable cacheIdMDC = CacheMDC.putCache(this))
 		{
-			return cache.getIfPresent(key) != null;
+			return cache.getIfPresent(key) != null
+					|| (offHeapStore != null && offHeapStore.containsKey(key));
 		}
 	}
 
+	/**
+	 * Removes the given key from both tiers.
+	 *
+	 * @return the removed value from the first (on-heap) tier. Values from the off-heap tier are removed without deserializing them, so for those <code>null</code> is returned.
+	 */
 	public V remove(final K key)
 	{
 		try (final IAutoCloseable cacheIdMDC = CacheMDC.putCache(this))
 		{
-			final V value = cache.getIfPresent(key);
-			cache.invalidate(key);
+			final V value = invalidateAtomically(() -> {
+				final V onHeapValue = cache.asMap().remove(key);
+				if (offHeapStore != null)
+				{
+					offHeapStore.invalidate(key);
+				}
+				return onHeapValue;
+			});
 			logger.debug("remove - Removed key={}; item that was actually in this cache={}", key, value);
 			return value;
 		}
 	}
 
+	/** @return true if the key was present in any of the tiers */
+	private boolean removeFromBothTiers(final K key)
+	{
+		try (final IAutoCloseable cacheIdMDC = CacheMDC.putCache(this))
+		{
+			return invalidateAtomically(() -> {
+				final boolean removedOnHeap = cache.asMap().remove(key) != null;
+				final boolean removedOffHeap = offHeapStore != null && offHeapStore.invalidate(key);
+				return removedOnHeap || removedOffHeap;
+			});
+		}
+	}
+
 	public void removeAll(final Iterable<K> keys)
 	{
 		try (final IAutoCloseable cacheIdMDC = CacheMDC.putCache(this))
 		{
-			cache.invalidateAll(keys);
+			invalidateAtomically(() -> {
+				cache.invalidateAll(keys);
+				if (offHeapStore != null)
+				{
+					keys.forEach(offHeapStore::invalidate);
+				}
+				return null;
+			});
 		}
 	}
 
@@ -547,7 +841,11 @@ public class CCache<K, V> implements CacheInterface
 	{
 		try (final IAutoCloseable cacheIdMDC = CacheMDC.putCache(this))
 		{
-			final V result = cache.getIfPresent(key);
+			V result = cache.getIfPresent(key);
+			if (result == null)
+			{
+				result = promoteFromOffHeap(key);
+			}
 			logger.debug("get - key={}; result={}", key, result);
 			return result;
 		}
@@ -562,7 +860,7 @@ public class CCache<K, V> implements CacheInterface
 	{
 		if (valueInitializer == null)
 		{
-			return cache.getIfPresent(key);
+			return get(key);
 		}
 
 		return get(key, new Callable<V>()
@@ -598,12 +896,21 @@ public class CCache<K, V> implements CacheInterface
 		{
 			if (valueInitializer == null)
 			{
-				return cache.getIfPresent(key);
+				return get(key);
+			}
+
+			// NOTE: we are not promoting from within the value loader, because the loaded value is put after the loader returned,
+			// i.e. not atomically with respect to concurrent invalidations (see promoteFromOffHeap)
+			if (offHeapStore != null && cache.getIfPresent(key) == null)
+			{
+				promoteFromOffHeap(key);
 			}
 
 			try
 			{
-				return cache.get(key, valueInitializer);
+				final V value = cache.get(key, valueInitializer);
+				enforceMemoryBudgetIfWeighted();
+				return value;
 			}
 			catch (final InvalidCacheLoadException e)
 			{
@@ -678,7 +985,11 @@ public class CCache<K, V> implements CacheInterface
 			final Set<K> keysToLoad = new HashSet<>();
 			for (final K key : ImmutableSet.copyOf(keys))
 			{
-				final V value = cache.getIfPresent(key);
+				V value = cache.getIfPresent(key);
+				if (value == null)
+				{
+					value = promoteFromOffHeap(key);
+				}
 				if (value == null)
 				{
 					logger.debug("getAllOrLoad - Cache miss for key={}; -> adding it to 'keysToLoad'", key);
@@ -714,6 +1025,8 @@ public class CCache<K, V> implements CacheInterface
 				values.addAll(valuesLoaded.values()); // add loaded values to the list we will return
 			}
 
+			enforceMemoryBudgetIfWeighted();
+
 			return values;
 		}
 	}
@@ -746,12 +1059,20 @@ public class CCache<K, V> implements CacheInterface
 			m_justReset = false;
 			if (value == null)
 			{
-				cache.invalidate(key);
+				invalidateAtomically(() -> {
+					cache.invalidate(key);
+					if (offHeapStore != null)
+					{
+						offHeapStore.invalidate(key);
+					}
+					return null;
+				});
 			}
 			else
 			{
 				cache.put(key, value);
 				fireAdditionListener(key, value);
+				enforceMemoryBudgetIfWeighted();
 			}
 		}
 	}
@@ -780,6 +1101,8 @@ public class CCache<K, V> implements CacheInterface
 			{
 				fireAdditionListener(entry.getKey(), entry.getValue());
 			}
+
+			enforceMemoryBudgetIfWeighted();
 		}
 	}
 
@@ -800,6 +1123,8 @@ public class CCache<K, V> implements CacheInterface
 	}	// keySet
 
 	/**
+	 * NOTE: entries from the off-heap tier (if any) are not counted.
+	 *
 	 * @see java.util.Map#size()
 	 */
 	@Override
@@ -835,76 +1160,41 @@ public class CCache<K, V> implements CacheInterface
 	 */
 	public CCacheStats stats()
 	{
-		return new CCacheStats(cacheId, cacheName, cache.size(), cache.stats());
+		return CCacheStats.builder()
+				.cacheId(cacheId)
+				.name(cacheName)
+				.size(cache.size())
+				.guavaStats(cache.stats())
+				.estimatedBytes(isWeighted() ? estimatedBytes.get() : -1)
+				.offHeapSize(offHeapStore != null ? offHeapStore.size() : 0)
+				.offHeapBytes(offHeapStore != null ? offHeapStore.getBytesStored() : 0)
+				.offHeapHitCount(offHeapStore != null ? offHeapStore.getHitCount() : 0)
+				.offHeapMissCount(offHeapStore != null ? offHeapStore.getMissCount() : 0)
+				.offHeapEvictionCount(offHeapStore != null ? offHeapStore.getEvictionCount() : 0)
+				.build();
 	}
 
+	@Value
+	@Builder
 	@SuppressWarnings("serial")
 	public static final class CCacheStats implements Serializable
 	{
 		// NOTE: must be Json serializable!!!
 
-		private final long cacheId;
-		private final String name;
-		private final long size;
-		private final CacheStats guavaStats;
-
-		private CCacheStats(final long cacheId, final String name, final long size, final CacheStats guavaStats)
-		{
-			this.cacheId = cacheId;
-			this.name = name;
-			this.size = size;
-			this.guavaStats = guavaStats;
-		}
-
-		@Override
-		public String toString()
-		{
-			return MoreObjects.toStringHelper(this)
-					.add("name", name)
-					.add("size", size)
-					.add("guavaStats", guavaStats)
-					.add("cacheId", cacheId)
-					.toString();
-		}
-
-		@Override
-		public int hashCode()
-		{
-			return Objects.hash(cacheId, name, size, guavaStats);
-		}
-
-		@Override
-		public boolean equals(final Object obj)
-		{
-			if (obj instanceof CCacheStats)
-			{
-				final CCacheStats other = (CCacheStats)obj;
-				return cacheId == other.cacheId
-						&& name.equals(other.name)
-						&& size == other.size
-						&& guavaStats.equals(other.guavaStats);
-			}
-			return false;
-		}
-
-		public long getCacheId()
-		{
-			return cacheId;
-		}
-
-		public String getName()
-		{
-			return name;
-		}
-
-		public long getSize()
-		{
-			return size;
-		}
-
-		public CacheStats getGuavaStats()
-		{
-			return guavaStats;
-		}
+		long cacheId;
+		@NonNull
+		String name;
+		long size;
+		@NonNull
+		CacheStats guavaStats;
+
+		/** estimated size (in bytes) of the first tier entries or -1 if the cache is not weighted */
+		long estimatedBytes;
+
+		long offHeapSize;
+		long offHeapBytes;
+		long offHeapHitCount;
+		long offHeapMissCount;
+		long offHeapEvictionCount;
 	}
 }	// CCache
@@ -0,0 +1,222 @@
+package de.metas.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.adempiere.util.concurrent.CustomizableThreadFactory;
+import org.slf4j.Logger;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import de.metas.cache.model.CacheInvalidateMultiRequest;
+import de.metas.cache.model.CacheInvalidateRequest;
+import de.metas.logging.LogManager;
+import lombok.NonNull;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Collects the cache invalidation requests which shall be broadcasted over a short time window and sends them as one de-duplicated {@link CacheInvalidateMultiRequest}.
+ * <p>
+ * If one table has more records to invalidate than {@link #maxRecordsPerTable}, they are collapsed into one "all records of table" request.
+ */
+final class CacheInvalidateRequestsCoalescer
+{
+	private static final Logger logger = LogManager.getLogger(CacheInvalidateRequestsCoalescer.class);
+
+	/** Coalescing window in milliseconds. Zero or negative means that requests are sent right away (but still de-duplicated and collapsed). */
+	static final String SYSTEM_PROPERTY_WindowMillis = "de.metas.cache.remoteInvalidation.coalesceWindowMillis";
+	private static final long DEFAULT_WindowMillis = 100;
+
+	static final String SYSTEM_PROPERTY_MaxRecordsPerTable = "de.metas.cache.remoteInvalidation.coalesceMaxRecordsPerTable";
+	private static final int DEFAULT_MaxRecordsPerTable = 500;
+
+	private final Consumer<CacheInvalidateMultiRequest> sender;
+	private final long windowMillis;
+	private final int maxRecordsPerTable;
+
+	private final Object lock = new Object();
+	private ArrayList<CacheInvalidateRequest> pendingRequests = new ArrayList<>();
+	private boolean flushScheduled = false;
+	private ScheduledExecutorService _executor; // lazy
+
+	private final AtomicLong requestsCollected = new AtomicLong();
+	private final AtomicLong requestsCollapsed = new AtomicLong();
+
+	CacheInvalidateRequestsCoalescer(@NonNull final Consumer<CacheInvalidateMultiRequest> sender)
+	{
+		this(sender,
+				Long.getLong(SYSTEM_PROPERTY_WindowMillis, DEFAULT_WindowMillis),
+				Integer.getInteger(SYSTEM_PROPERTY_MaxRecordsPerTable, DEFAULT_MaxRecordsPerTable));
+	}
+
+	@VisibleForTesting
+	CacheInvalidateRequestsCoalescer(
+			@NonNull final Consumer<CacheInvalidateMultiRequest> sender,
+			final long windowMillis,
+			final int maxRecordsPerTable)
+	{
+		this.sender = sender;
+		this.windowMillis = windowMillis;
+		this.maxRecordsPerTable = maxRecordsPerTable > 0 ? maxRecordsPerTable : DEFAULT_MaxRecordsPerTable;
+	}
+
+	public void add(@NonNull final Collection<CacheInvalidateRequest> requests)
+	{
+		if (requests.isEmpty())
+		{
+			return;
+		}
+
+		requestsCollected.addAndGet(requests.size());
+
+		if (windowMillis <= 0)
+		{
+			send(requests);
+			return;
+		}
+
+		synchronized (lock)
+		{
+			pendingRequests.addAll(requests);
+			if (!flushScheduled)
+			{
+				getExecutor().schedule(this::flush, windowMillis, TimeUnit.MILLISECONDS);
+				flushScheduled = true;
+			}
+		}
+	}
+
+	private ScheduledExecutorService getExecutor()
+	{
+		if (_executor == null)
+		{
+			_executor = Executors.newSingleThreadScheduledExecutor(CustomizableThreadFactory.builder()
+					.setThreadNamePrefix(getClass().getName())
+					.setDaemon(true)
+					.build());
+		}
+		return _executor;
+	}
+
+	@VisibleForTesting
+	void flush()
+	{
+		final ArrayList<CacheInvalidateRequest> requests;
+		synchronized (lock)
+		{
+			requests = pendingRequests;
+			pendingRequests = new ArrayList<>();
+			flushScheduled = false;
+		}
+
+		if (requests.isEmpty())
+		{
+			return;
+		}
+
+		try
+		{
+			send(requests);
+		}
+		catch (final Exception ex)
+		{
+			logger.warn("Failed sending {} cache invalidation requests. Ignored.", requests.size(), ex);
+		}
+	}
+
+	private void send(final Collection<CacheInvalidateRequest> requests)
+	{
+		final CacheInvalidateMultiRequest multiRequest = coalesce(requests, maxRecordsPerTable);
+		requestsCollapsed.addAndGet(Math.max(requests.size() - multiRequest.getRequests().size(), 0));
+		sender.accept(multiRequest);
+	}
+
+	/**
+	 * De-duplicates given requests and collapses the ones of tables with more than <code>maxRecordsPerTable</code> records into one table-wide request.
+	 */
+	@VisibleForTesting
+	static CacheInvalidateMultiRequest coalesce(
+			@NonNull final Collection<CacheInvalidateRequest> requests,
+			final int maxRecordsPerTable)
+	{
+		if (requests.stream().anyMatch(CacheInvalidateRequest::isAll))
+		{
+			return CacheInvalidateMultiRequest.all();
+		}
+
+		final Map<String, Set<CacheInvalidateRequest>> requestsByTableName = new LinkedHashMap<>();
+		for (final CacheInvalidateRequest request : requests)
+		{
+			requestsByTableName
+					.computeIfAbsent(request.getTableNameEffective(), tableName -> new LinkedHashSet<>())
+					.add(request);
+		}
+
+		final Set<CacheInvalidateRequest> result = new LinkedHashSet<>();
+		requestsByTableName.forEach((tableName, tableRequests) -> {
+			final boolean collapse = tableRequests.size() > maxRecordsPerTable
+					|| tableRequests.stream().anyMatch(CacheInvalidateRequest::isAllRecords);
+			if (!collapse)
+			{
+				result.addAll(tableRequests);
+				return;
+			}
+
+			result.add(CacheInvalidateRequest.allRecordsForTable(tableName));
+
+			// for child records, the root record has to be invalidated too
+			final List<CacheInvalidateRequest> rootRequests = new ArrayList<>();
+			for (final CacheInvalidateRequest request : tableRequests)
+			{
+				if (request.getChildRecordOrNull() != null && request.getRootRecordOrNull() != null)
+				{
+					rootRequests.add(CacheInvalidateRequest.rootRecord(request.getRootTableName(), request.getRootRecordId()));
+				}
+			}
+			result.addAll(rootRequests);
+		});
+
+		return CacheInvalidateMultiRequest.of(result);
+	}
+
+	public long getRequestsCollected()
+	{
+		return requestsCollected.get();
+	}
+
+	public long getRequestsCollapsed()
+	{
+		return requestsCollapsed.get();
+	}
+}
@@ -1,6 +1,7 @@
 package de.metas.cache;
 
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 
 import org.adempiere.ad.dao.cache.CacheInvalidateMultiRequestSerializer;
@@ -8,6 +9,7 @@ import org.slf4j.Logger;
 import org.slf4j.MDC.MDCCloseable;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 
 import de.metas.cache.model.CacheInvalidateMultiRequest;
@@ -62,6 +64,13 @@ final class CacheInvalidationRemoteHandler implements IEventListener
 
 	private final CacheInvalidateMultiRequestSerializer jsonSerializer = new CacheInvalidateMultiRequestSerializer();
 
+	private final CacheInvalidateRequestsCoalescer coalescer = new CacheInvalidateRequestsCoalescer(this::postEventNow);
+
+	private final AtomicLong messagesSent = new AtomicLong();
+	private final AtomicLong requestsSent = new AtomicLong();
+	private final AtomicLong messagesReceived = new AtomicLong();
+	private final AtomicLong requestsReceived = new AtomicLong();
+
 	private CacheInvalidationRemoteHandler()
 	{
 	}
@@ -124,8 +133,22 @@ final class CacheInvalidationRemoteHandler implements IEventListener
 		return getTableNamesToBroadcastIndex().getTableNames();
 	}
 
+	public CacheInvalidationRemoteStats getStats()
+	{
+		return CacheInvalidationRemoteStats.builder()
+				.messagesSent(messagesSent.get())
+				.requestsCollected(coalescer.getRequestsCollected())
+				.requestsSent(requestsSent.get())
+				.requestsCollapsed(coalescer.getRequestsCollapsed())
+				.messagesReceived(messagesReceived.get())
+				.requestsReceived(requestsReceived.get())
+				.build();
+	}
+
 	/**
 	 * Broadcast a cache invalidation request.
+	 * <p>
+	 * The request is not sent right away, but collected by {@link CacheInvalidateRequestsCoalescer} and sent together with the other requests from the same time window.
 	 */
 	public void postEvent(final CacheInvalidateMultiRequest request)
 	{
@@ -137,12 +160,21 @@ final class CacheInvalidationRemoteHandler implements IEventListener
 		}
 
 		// Do nothing if given table name is not in our table names to broadcast list
-		if (!isAllowBroadcast(request))
+		final ImmutableList<CacheInvalidateRequest> requestsToBroadcast = request.getRequests()
+				.stream()
+				.filter(this::isAllowBroadcast)
+				.collect(ImmutableList.toImmutableList());
+		if (requestsToBroadcast.isEmpty())
 		{
 			logger.trace("Skip broadcasting {} because it's not allowed", request);
 			return;
 		}
 
+		coalescer.add(requestsToBroadcast);
+	}
+
+	private void postEventNow(final CacheInvalidateMultiRequest request)
+	{
 		// Broadcast the event.
 		final Event event = createEventFromRequest(request);
 		try (final MDCCloseable mdc = EventMDC.putEvent(event))
@@ -151,12 +183,10 @@ final class CacheInvalidationRemoteHandler implements IEventListener
 			Services.get(IEventBusFactory.class)
 					.getEventBus(TOPIC_CacheInvalidation)
 					.postEvent(event);
-		}
-	}
 
-	private boolean isAllowBroadcast(final CacheInvalidateMultiRequest multiRequest)
-	{
-		return multiRequest.getRequests().stream().anyMatch(this::isAllowBroadcast);
+			messagesSent.incrementAndGet();
+			requestsSent.addAndGet(request.getRequests().size());
+		}
 	}
 
 	private boolean isAllowBroadcast(final CacheInvalidateRequest request)
@@ -187,6 +217,9 @@ final class CacheInvalidationRemoteHandler implements IEventListener
 			return;
 		}
 
+		messagesReceived.incrementAndGet();
+		requestsReceived.addAndGet(request.getRequests().size());
+
 		//
 		// Reset cache for TableName/Record_ID
 		logger.debug("onEvent - resetting local cache for request {} because we got remote event={}", request, event);
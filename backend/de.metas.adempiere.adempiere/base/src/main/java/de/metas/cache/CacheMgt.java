@@ -17,6 +17,9 @@
 package de.metas.cache;
 
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
@@ -25,6 +28,7 @@ import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import javax.annotation.Nullable;
@@ -48,6 +52,7 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.MapMaker;
 import com.google.common.collect.Maps;
 
+import de.metas.cache.CCache.CCacheStats;
 import de.metas.cache.model.CacheInvalidateMultiRequest;
 import de.metas.cache.model.CacheInvalidateRequest;
 import de.metas.logging.LogManager;
@@ -87,6 +92,18 @@ public final class CacheMgt
 	private final AtomicBoolean cacheResetRunning = new AtomicBoolean();
 	private final AtomicLong lastCacheReset = new AtomicLong();
 
+	/**
+	 * System property to configure the initial global memory budget (in bytes) of all weighted caches.
+	 *
+	 * @see CCache#isWeighted()
+	 */
+	public static final String SYSTEM_PROPERTY_MemoryBudgetBytes = "de.metas.cache.memoryBudgetBytes";
+	/** Global memory budget (in bytes) of all weighted caches; zero or negative means no budget */
+	private volatile long memoryBudgetBytes = Long.getLong(SYSTEM_PROPERTY_MemoryBudgetBytes, 0);
+	private final AtomicLong weightedCachesBytes = new AtomicLong();
+	private final AtomicBoolean memoryBudgetEnforcementRunning = new AtomicBoolean();
+	private final AtomicLong memoryBudgetEnforcementsCount = new AtomicLong();
+
 	private CacheMgt()
 	{
 		JMXRegistry.get().registerJMX(new JMXCacheMgt(), OnJMXAlreadyExistsPolicy.Replace);
@@ -163,6 +180,11 @@ public final class CacheMgt
 		return CacheInvalidationRemoteHandler.instance.getTableNamesToBroadcast();
 	}
 
+	public CacheInvalidationRemoteStats getRemoteInvalidationStats()
+	{
+		return CacheInvalidationRemoteHandler.instance.getStats();
+	}
+
 	/** @return last time cache reset timestamp */
 	public long getLastCacheReset()
 	{
@@ -384,6 +406,9 @@ public final class CacheMgt
 		return resetCount;
 	}
 
+	/**
+	 * Applies all requests in one pass, grouped by effective table name, so each {@link CachesGroup} is looked up and (if needed) fully invalidated only once.
+	 */
 	private long invalidateForMultiRequest(final CacheInvalidateMultiRequest multiRequest)
 	{
 		if (multiRequest.isResetAll())
@@ -391,49 +416,59 @@ public final class CacheMgt
 			return reset();
 		}
 
-		int total = 0;
-		for (final CacheInvalidateRequest request : multiRequest.getRequests())
+		final Map<String, List<CacheInvalidateRequest>> requestsByTableName = multiRequest.getRequests()
+				.stream()
+				.collect(Collectors.groupingBy(CacheInvalidateRequest::getTableNameEffective, LinkedHashMap::new, Collectors.toList()));
+
+		long total = 0;
+		for (final Map.Entry<String, List<CacheInvalidateRequest>> entry : requestsByTableName.entrySet())
 		{
-			final long totalPerRequest = invalidateForRequest(request);
-			total += totalPerRequest;
+			total += invalidateForTableRequests(entry.getKey(), entry.getValue());
 		}
 
 		return total;
 	}
 
-	private long invalidateForRequest(@NonNull final CacheInvalidateRequest request)
+	private long invalidateForTableRequests(@NonNull final String tableNameEffective, @NonNull final List<CacheInvalidateRequest> requests)
 	{
-		if (request.isAllRecords())
+		long resetCount = 0;
+
+		final boolean allRecords = requests.stream().anyMatch(CacheInvalidateRequest::isAllRecords);
+		if (allRecords)
 		{
-			final CacheLabel label = CacheLabel.ofTableName(request.getTableNameEffective());
+			final CacheLabel label = CacheLabel.ofTableName(tableNameEffective);
 			try (final MDCCloseable ignored = CacheMDC.putCacheLabel(label))
 			{
 				final CachesGroup cachesGroup = getCachesGroupIfPresent(label);
-				if (cachesGroup == null)
+				if (cachesGroup != null)
 				{
-					return 0;
+					resetCount += cachesGroup.invalidateAllNoFail();
 				}
-
-				return cachesGroup.invalidateAllNoFail();
 			}
 		}
-		else
+
+		for (final CacheInvalidateRequest request : requests)
 		{
-			long resetCount = 0;
+			if (request.isAllRecords())
+			{
+				continue;
+			}
 
 			final TableRecordReference childRecordRef = request.getChildRecordOrNull();
-			if (childRecordRef != null)
+			if (childRecordRef != null && !allRecords)
 			{
 				resetCount += invalidateForRecord(childRecordRef);
 			}
+
+			// NOTE: if there is no child record, the root record is the effective record, which was already invalidated if allRecords
 			final TableRecordReference rootRecordRef = request.getRootRecordOrNull();
-			if (rootRecordRef != null)
+			if (rootRecordRef != null && (childRecordRef != null || !allRecords))
 			{
 				resetCount += invalidateForRecord(rootRecordRef);
 			}
-
-			return resetCount;
 		}
+
+		return resetCount;
 	}
 
 	private long invalidateForRecord(@NonNull final TableRecordReference recordRef)
@@ -451,6 +486,103 @@ public final class CacheMgt
 		}
 	}
 
+	private Stream<CacheInterface> streamCaches()
+	{
+		return cachesByLabel.values()
+				.stream()
+				.flatMap(CachesGroup::streamCaches)
+				.distinct();
+	}
+
+	/**
+	 * @return statistics of all registered {@link CCache}s
+	 */
+	public List<CCacheStats> getCacheStats()
+	{
+		return streamCaches()
+				.filter(CCache.class::isInstance)
+				.map(cache -> ((CCache<?, ?>)cache).stats())
+				.sorted(Comparator.comparing(CCacheStats::getName))
+				.collect(ImmutableList.toImmutableList());
+	}
+
+	/**
+	 * Sets the global memory budget of all weighted caches.
+	 * When the budget is exceeded, the biggest weighted caches are shrunk (i.e. their entries are moved off-heap or dropped).
+	 *
+	 * @param memoryBudgetBytes budget in bytes; zero or negative means no budget
+	 */
+	public void setMemoryBudgetBytes(final long memoryBudgetBytes)
+	{
+		this.memoryBudgetBytes = memoryBudgetBytes;
+		logger.info("Set weighted caches memory budget to {} bytes", memoryBudgetBytes);
+		enforceMemoryBudgetIfNeeded();
+	}
+
+	public long getMemoryBudgetBytes()
+	{
+		return memoryBudgetBytes;
+	}
+
+	/** @return estimated size (in bytes) of all weighted caches */
+	public long getWeightedCachesBytes()
+	{
+		return weightedCachesBytes.get();
+	}
+
+	public long getMemoryBudgetEnforcementsCount()
+	{
+		return memoryBudgetEnforcementsCount.get();
+	}
+
+	/* package */ void onWeightedCacheBytesChanged(final long deltaBytes)
+	{
+		weightedCachesBytes.addAndGet(deltaBytes);
+	}
+
+	/* package */ void enforceMemoryBudgetIfNeeded()
+	{
+		final long budget = this.memoryBudgetBytes;
+		if (budget <= 0 || weightedCachesBytes.get() <= budget)
+		{
+			return;
+		}
+
+		// Do nothing if already running
+		if (memoryBudgetEnforcementRunning.getAndSet(true))
+		{
+			return;
+		}
+
+		try
+		{
+			final List<CCache<?, ?>> weightedCaches = streamCaches()
+					.filter(CCache.class::isInstance)
+					.map(cache -> (CCache<?, ?>)cache)
+					.filter(CCache::isWeighted)
+					.sorted(Comparator.<CCache<?, ?>> comparingLong(CCache::getEstimatedBytes).reversed())
+					.collect(Collectors.toList());
+
+			for (final CCache<?, ?> cache : weightedCaches)
+			{
+				final long bytesToFree = weightedCachesBytes.get() - budget;
+				if (bytesToFree <= 0)
+				{
+					break;
+				}
+
+				final long bytesFreed = cache.shrinkBy(bytesToFree);
+				logger.debug("Memory budget of {} bytes exceeded: freed {} bytes from {}", budget, bytesFreed, cache.getCacheName());
+			}
+
+			memoryBudgetEnforcementsCount.incrementAndGet();
+		}
+		finally
+		{
+			memoryBudgetEnforcementRunning.set(false);
+		}
+	}
+
 	/**
 	 * @return how many cached elements do we have in total
 	 */
@@ -476,7 +608,11 @@ public final class CacheMgt
 	 */
 	public String toStringX()
 	{
-		return "CacheMgt[Instances=" + cachesByLabel.size() + ", Elements=" + computeTotalSize() + "]";
+		return "CacheMgt[Instances=" + cachesByLabel.size()
+				+ ", Elements=" + computeTotalSize()
+				+ ", WeightedCachesBytes=" + weightedCachesBytes.get()
+				+ ", MemoryBudgetBytes=" + memoryBudgetBytes
+				+ "]";
 	}
 
 	public void addCacheResetListener(@NonNull final ICacheResetListener cacheResetListener)
@@ -0,0 +1,247 @@
+package de.metas.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+
+import com.google.common.base.MoreObjects;
+
+import de.metas.logging.LogManager;
+import lombok.NonNull;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Second tier of a {@link CCache}: entries which were evicted from the (on-heap) cache are serialized into direct {@link ByteBuffer}s,
+ * so they can be promoted back without a database round trip.
+ * <p>
+ * Only {@link Serializable} values are stored. The store is bounded by {@link #maxBytes} and evicts the least recently used entries.
+ */
+final class CacheOffHeapStore<K, V>
+{
+	private static final Logger logger = LogManager.getLogger(CacheOffHeapStore.class);
+
+	private final long maxBytes;
+
+	/** access ordered, so the first entry is the least recently used one */
+	private final LinkedHashMap<K, ByteBuffer> buffers = new LinkedHashMap<>(16, 0.75f, true);
+	private long bytesStored = 0;
+
+	private long hitCount = 0;
+	private long missCount = 0;
+	private long storeCount = 0;
+	private long evictionCount = 0;
+
+	CacheOffHeapStore(final long maxBytes)
+	{
+		this.maxBytes = maxBytes;
+	}
+
+	@Override
+	public synchronized String toString()
+	{
+		return MoreObjects.toStringHelper(this)
+				.add("size", buffers.size())
+				.add("bytesStored", bytesStored)
+				.add("maxBytes", maxBytes)
+				.toString();
+	}
+
+	/**
+	 * @return true if the value was stored
+	 */
+	public boolean store(@NonNull final K key, @NonNull final V value)
+	{
+		if (!(value instanceof Serializable))
+		{
+			return false;
+		}
+
+		final byte[] data = serialize(value);
+		if (data == null || data.length > maxBytes)
+		{
+			return false;
+		}
+
+		final ByteBuffer buffer = ByteBuffer.allocateDirect(data.length);
+		buffer.put(data);
+		buffer.flip();
+
+		synchronized (this)
+		{
+			removeBuffer(key);
+
+			buffers.put(key, buffer);
+			bytesStored += data.length;
+			storeCount++;
+
+			evictIfNeeded();
+		}
+
+		return true;
+	}
+
+	/**
+	 * Removes the value from this store and returns it, so it can be put back into the first tier.
+	 *
+	 * @return value or <code>null</code>
+	 */
+	@Nullable
+	public V promote(@NonNull final K key)
+	{
+		final ByteBuffer buffer;
+		synchronized (this)
+		{
+			buffer = removeBuffer(key);
+			if (buffer == null)
+			{
+				missCount++;
+				return null;
+			}
+			hitCount++;
+		}
+
+		final byte[] data = new byte[buffer.remaining()];
+		buffer.get(data);
+		return deserialize(key, data);
+	}
+
+	public synchronized boolean containsKey(@NonNull final K key)
+	{
+		return buffers.containsKey(key);
+	}
+
+	/**
+	 * Removes the value from this store, without deserializing it.
+	 *
+	 * @return true if the value was present
+	 */
+	public synchronized boolean invalidate(@NonNull final K key)
+	{
+		return removeBuffer(key) != null;
+	}
+
+	/** @return how many entries were invalidated */
+	public synchronized long invalidateAll()
+	{
+		final long count = buffers.size();
+		buffers.clear();
+		bytesStored = 0;
+		return count;
+	}
+
+	public synchronized long size()
+	{
+		return buffers.size();
+	}
+
+	public synchronized long getBytesStored()
+	{
+		return bytesStored;
+	}
+
+	public synchronized long getHitCount()
+	{
+		return hitCount;
+	}
+
+	public synchronized long getMissCount()
+	{
+		return missCount;
+	}
+
+	public synchronized long getStoreCount()
+	{
+		return storeCount;
+	}
+
+	public synchronized long getEvictionCount()
+	{
+		return evictionCount;
+	}
+
+	private ByteBuffer removeBuffer(final K key)
+	{
+		final ByteBuffer buffer = buffers.remove(key);
+		if (buffer != null)
+		{
+			bytesStored -= buffer.capacity();
+		}
+		return buffer;
+	}
+
+	private void evictIfNeeded()
+	{
+		final Iterator<Map.Entry<K, ByteBuffer>> it = buffers.entrySet().iterator();
+		while (bytesStored > maxBytes && it.hasNext())
+		{
+			final ByteBuffer buffer = it.next().getValue();
+			it.remove();
+			bytesStored -= buffer.capacity();
+			evictionCount++;
+		}
+	}
+
+	@Nullable
+	private static byte[] serialize(final Object value)
+	{
+		try (final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+				final ObjectOutputStream out = new ObjectOutputStream(baos))
+		{
+			out.writeObject(value);
+			out.flush();
+			return baos.toByteArray();
+		}
+		catch (final Exception ex)
+		{
+			logger.debug("Failed serializing {}. Not storing it off-heap.", value, ex);
+			return null;
+		}
+	}
+
+	@Nullable
+	private V deserialize(final K key, final byte[] data)
+	{
+		try (final ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data)))
+		{
+			@SuppressWarnings("unchecked")
+			final V value = (V)in.readObject();
+			return value;
+		}
+		catch (final Exception ex)
+		{
+			logger.warn("Failed deserializing off-heap value for key={}. Considering it a cache miss.", key, ex);
+			return null;
+		}
+	}
+}
@@ -6,6 +6,7 @@ import java.util.Set;
 import org.adempiere.util.jmx.IJMXNameAware;
 import org.slf4j.Logger;
 
+import de.metas.cache.CCache.CCacheStats;
 import de.metas.logging.LogManager;
 
 /**
@@ -101,4 +102,44 @@ public class JMXCacheMgt implements JMXCacheMgtMBean, IJMXNameAware
 		return getCacheMgt().reset(tableName, recordId);
 	}
 
+	@Override
+	public String[] getCacheStats()
+	{
+		return getCacheMgt()
+				.getCacheStats()
+				.stream()
+				.map(CCacheStats::toString)
+				.toArray(size -> new String[size]);
+	}
+
+	@Override
+	public long getMemoryBudgetBytes()
+	{
+		return getCacheMgt().getMemoryBudgetBytes();
+	}
+
+	@Override
+	public void setMemoryBudgetBytes(final long memoryBudgetBytes)
+	{
+		getCacheMgt().setMemoryBudgetBytes(memoryBudgetBytes);
+	}
+
+	@Override
+	public long getWeightedCachesBytes()
+	{
+		return getCacheMgt().getWeightedCachesBytes();
+	}
+
+	@Override
+	public long getMemoryBudgetEnforcementsCount()
+	{
+		return getCacheMgt().getMemoryBudgetEnforcementsCount();
+	}
+
+
+	@Override
+	public String getRemoteInvalidationStats()
+	{
+		return getCacheMgt().getRemoteInvalidationStats().toString();
+	}
 }
@@ -25,4 +25,16 @@ public interface JMXCacheMgtMBean
 	long resetForTable(String tableName);
 
 	long resetForRecordId(String tableName, int recordId);
+
+	String[] getCacheStats();
+
+	long getMemoryBudgetBytes();
+
+	void setMemoryBudgetBytes(long memoryBudgetBytes);
+
+	long getWeightedCachesBytes();
+
+	long getMemoryBudgetEnforcementsCount();
+
+	String getRemoteInvalidationStats();
 }
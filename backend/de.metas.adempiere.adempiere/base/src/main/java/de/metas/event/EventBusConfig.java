@@ -131,6 +131,24 @@ public final class EventBusConfig
 		return StringUtils.toBoolean(standardValue, false);
 	}
 
+	/**
+	 * @return how many events may be dispatched in parallel, if the given topic is posted asynchronously (see {@link #isEventBusPostAsync(Topic)}).
+	 *         If greater than one, the events of the given topic are no longer dispatched in the order they were posted.
+	 */
+	public static int getEventBusPostAsyncMaxConcurrency(@NonNull final Topic topic)
+	{
+		final String nameForAllTopics = "de.metas.event.asyncEventBus.maxConcurrency";
+		final ISysConfigBL sysConfigBL = Services.get(ISysConfigBL.class);
+
+		final int valueForTopic = sysConfigBL.getIntValue(nameForAllTopics + ".topic_" + topic.getName(), -1);
+		if (valueForTopic > 0)
+		{
+			return valueForTopic;
+		}
+
+		return Math.max(sysConfigBL.getIntValue(nameForAllTopics, 1), 1);
+	}
+
 	public static boolean isMonitorIncomingEvents()
 	{
 		return Services.get(ISysConfigBL.class).getBooleanValue("de.metas.event.MonitorIncomingEvents", false);
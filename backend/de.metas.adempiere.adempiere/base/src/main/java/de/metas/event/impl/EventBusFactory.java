@@ -6,6 +6,9 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nullable;
 
@@ -41,6 +44,8 @@ public class EventBusFactory implements IEventBusFactory
 {
 	private static final Logger logger = LogManager.getLogger(EventBusFactory.class);
 
+	private static final long ASYNC_EXECUTOR_KeepAliveTimeMillis = 60 * 1000;
+
 	/**
 	 * Map of "topic name" to list of {@link IEventListener}s.
 	 */
@@ -171,10 +176,28 @@ public class EventBusFactory implements IEventBusFactory
 		// Setup EventBus executor
 		if (EventBusConfig.isEventBusPostAsync(topic))
 		{
-			return Executors.newSingleThreadExecutor(CustomizableThreadFactory.builder()
+			final CustomizableThreadFactory threadFactory = CustomizableThreadFactory.builder()
 					.setThreadNamePrefix(getClass().getName() + "-" + topic.getName() + "-AsyncExecutor")
 					.setDaemon(true)
-					.build());
+					.build();
+
+			final int maxConcurrency = EventBusConfig.getEventBusPostAsyncMaxConcurrency(topic);
+			if (maxConcurrency <= 1)
+			{
+				return Executors.newSingleThreadExecutor(threadFactory);
+			}
+
+			// Elastic executor: threads are created on demand up to maxConcurrency and are discarded when idle
+			final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+					maxConcurrency,
+					maxConcurrency,
+					ASYNC_EXECUTOR_KeepAliveTimeMillis,
+					TimeUnit.MILLISECONDS,
+					new LinkedBlockingQueue<>(),
+					threadFactory);
+			executor.allowCoreThreadTimeOut(true);
+			logger.info("Using async executor with maxConcurrency={} for topic={}", maxConcurrency, topic);
+			return executor;
 		}
 		else
 		{
@@ -59,6 +59,7 @@ final class DataImportCommand
 	private final ImpDataParserFactory parserFactory = new ImpDataParserFactory();
 
 	private static final String SYSCONFIG_InsertBatchSize = "de.metas.impexp.insertBatchSize";
+	private static final String SYSCONFIG_InsertUsingCopy = "de.metas.impexp.insertUsingCopy";
 
 	private final ClientId clientId;
 	private final OrgId orgId;
@@ -129,6 +130,8 @@ final class DataImportCommand
 				.countSourceFileValidLines(insertResult.getCountValidRows())
 				.countSourceFileErrorLines(insertResult.getCountRowsWithError())
 				.importTableName(validateResult.getImportTableName())
+				.importTableInsertDuration(insertResult.getDuration())
+				.importTableInsertRowsPerSecond(insertResult.getRowsPerSecond())
 				.countImportRecordsWithErrors(validateResult.getCountImportRecordsWithErrors().orElse(-1))
 				.targetTableName(validateResult.getTargetTableName())
 				.duration(validateResult.getDuration())
@@ -147,6 +150,7 @@ final class DataImportCommand
 				.dataImportRunId(dataImportRunId)
 				.dataImportConfigId(dataImportConfigId)
 				.insertBatchSize(getInsertBatchSize())
+				.useCopy(isInsertUsingCopy())
 				.build();
 
 		return importTableAppender.appendStream(sourceParser.streamDataLines(data));
@@ -157,6 +161,11 @@ final class DataImportCommand
 		return sysConfigBL.getIntValue(SYSCONFIG_InsertBatchSize, -1);
 	}
 
+	private boolean isInsertUsingCopy()
+	{
+		return sysConfigBL.getBooleanValue(SYSCONFIG_InsertUsingCopy, false);
+	}
+
 	private ImportProcessResult validateImportRecords(@NonNull final PInstanceId selectionId)
 	{
 		final Stopwatch stopwatch = Stopwatch.createStarted();
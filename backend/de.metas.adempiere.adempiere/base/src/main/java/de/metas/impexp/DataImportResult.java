@@ -47,6 +47,8 @@ public class DataImportResult
 	//
 	// Import table
 	String importTableName;
+	Duration importTableInsertDuration;
+	double importTableInsertRowsPerSecond;
 	int countImportRecordsWithErrors;
 
 	//
@@ -37,4 +37,10 @@ final class ImportTableAppendResult
 	int countTotalRows;
 	int countValidRows;
 	int countRowsWithError;
+
+	public double getRowsPerSecond()
+	{
+		final long millis = duration != null ? duration.toMillis() : 0;
+		return millis > 0 ? countTotalRows * 1000.0 / millis : 0;
+	}
 }
@@ -1,13 +1,19 @@
 package de.metas.impexp;
 
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
 import java.time.Duration;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import javax.annotation.Nullable;
@@ -17,7 +23,10 @@ import org.adempiere.ad.trx.api.ITrxManager;
 import org.adempiere.exceptions.DBException;
 import org.adempiere.service.ClientId;
 import org.compiere.util.DB;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Stopwatch;
 import com.google.common.collect.ImmutableList;
 
@@ -33,8 +42,11 @@ import de.metas.user.UserId;
 import de.metas.util.Check;
 import de.metas.util.GuavaCollectors;
 import de.metas.util.Services;
+import de.metas.util.StringUtils;
+import de.metas.util.time.SystemTime;
 import lombok.Builder;
 import lombok.NonNull;
+import lombok.Value;
 
 /*
  * #%L
@@ -60,6 +72,10 @@ import lombok.NonNull;
 
 /**
  * Inserts {@link ImpDataLine}s into import tables.
+ * <p>
+ * The lines are consumed in batches of <code>insertBatchSize</code>, so only one batch is kept in memory at a time.
+ * Each batch is inserted either using JDBC batch inserts or, if <code>useCopy</code> is set, using PostgreSQL's <code>COPY ... FROM STDIN</code>.
+ * Both ways insert the same columns and values.
  * 
  * @author metas-dev <dev@metasfresh.com>
  *
@@ -81,10 +97,13 @@ final class ImportTableAppender
 	private final DataImportRunId dataImportRunId;
 	private final DataImportConfigId dataImportConfigId;
 	private final int insertBatchSize;
+	private final boolean useCopy;
 
 	//
 	// State
-	private SqlAndParamsExtractor<ImpDataLine> _sqlInsertIntoImportTable; // lazy
+	private ImmutableList<ImportTableColumn> _importTableColumns; // lazy
+	private SqlAndParamsExtractor<ImportTableRow> _sqlInsertIntoImportTable; // lazy
+	private String _sqlCopyIntoImportTable; // lazy
 	private int countTotalRows = 0;
 	private int countValidRows = 0;
 	private int countRowsWithError = 0;
@@ -97,7 +116,8 @@ final class ImportTableAppender
 			@NonNull final UserId userId,
 			@NonNull final DataImportRunId dataImportRunId,
 			@Nullable final DataImportConfigId dataImportConfigId,
-			final int insertBatchSize)
+			final int insertBatchSize,
+			final boolean useCopy)
 	{
 		this.importTableDescriptor = importFormat.getImportTableDescriptor();
 		this.columns = importFormat.getColumns();
@@ -108,13 +128,20 @@ final class ImportTableAppender
 		this.dataImportRunId = dataImportRunId;
 		this.dataImportConfigId = dataImportConfigId;
 		this.insertBatchSize = insertBatchSize > 0 ? insertBatchSize : DEFAULT_InsertBatchSize;
+		this.useCopy = useCopy;
 	}
 
+	/**
+	 * Consumes and closes the given stream.
+	 */
 	public ImportTableAppendResult appendStream(@NonNull final Stream<ImpDataLine> stream)
 	{
 		final Stopwatch stopwatch = Stopwatch.createStarted();
-		final Stream<List<ImpDataLine>> batchedStream = GuavaCollectors.batchAndStream(stream, insertBatchSize);
-		batchedStream.forEach(this::insertIntoDatabase);
+		try (final Stream<ImpDataLine> streamToClose = stream)
+		{
+			final Stream<List<ImpDataLine>> batchedStream = GuavaCollectors.batchAndStream(streamToClose, insertBatchSize);
+			batchedStream.forEach(this::insertIntoDatabase);
+		}
 		stopwatch.stop();
 
 		return ImportTableAppendResult.builder()
@@ -133,36 +160,33 @@ final class ImportTableAppender
 			return;
 		}
 
-		trxManager.run(ITrx.TRXNAME_ThreadInherited, () -> insertIntoDatabaseInTrx(lines));
+		if (useCopy)
+		{
+			trxManager.run(ITrx.TRXNAME_ThreadInherited, () -> copyIntoDatabaseInTrx(lines));
+		}
+		else
+		{
+			trxManager.run(ITrx.TRXNAME_ThreadInherited, () -> insertIntoDatabaseInTrx(lines));
+		}
 	}
 
 	private void insertIntoDatabaseInTrx(final List<ImpDataLine> lines)
 	{
-		final SqlAndParamsExtractor<ImpDataLine> sqlAndParamsExtractor = getInsertIntoImportTableSql();
+		final SqlAndParamsExtractor<ImportTableRow> sqlAndParamsExtractor = getInsertIntoImportTableSql();
 		final String sql = sqlAndParamsExtractor.getSql();
 
 		PreparedStatement pstmt = null;
-		final ResultSet rs = null;
 		try
 		{
 			pstmt = DB.prepareStatement(sql, ITrx.TRXNAME_ThreadInherited);
 
-			for (final ImpDataLine line : lines)
+			for (final ImportTableRow row : toImportTableRows(lines))
 			{
-				final List<Object> params = sqlAndParamsExtractor.extractParameters(line);
+				final List<Object> params = sqlAndParamsExtractor.extractParameters(row);
 				DB.setParameters(pstmt, params);
 				pstmt.addBatch();
 
-				// Update stats:
-				countTotalRows++;
-				if (line.hasErrors())
-				{
-					countRowsWithError++;
-				}
-				else
-				{
-					countValidRows++;
-				}
+				updateStats(row.getLine());
 			}
 
 			pstmt.executeBatch();
@@ -173,107 +197,295 @@ final class ImportTableAppender
 		}
 		finally
 		{
-			DB.close(rs, pstmt);
+			DB.close(pstmt);
 		}
 	}
 
-	private SqlAndParamsExtractor<ImpDataLine> getInsertIntoImportTableSql()
+	private void copyIntoDatabaseInTrx(final List<ImpDataLine> lines)
 	{
-		SqlAndParamsExtractor<ImpDataLine> sqlInsertIntoImportTable = this._sqlInsertIntoImportTable;
-		if (sqlInsertIntoImportTable == null)
+		final String sql = getCopyIntoImportTableSql();
+
+		final StringBuilder data = new StringBuilder();
+		for (final ImportTableRow row : toImportTableRows(lines))
 		{
-			sqlInsertIntoImportTable = this._sqlInsertIntoImportTable = createInsertIntoImportTableSql();
+			appendCopyRow(data, row);
+			updateStats(row.getLine());
+		}
+
+		// NOTE: the statement is only used to get the connection of the thread inherited trx
+		Statement stmt = null;
+		try
+		{
+			stmt = DB.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY, ITrx.TRXNAME_ThreadInherited);
+			final CopyManager copyManager = stmt.getConnection().unwrap(PGConnection.class).getCopyAPI();
+			copyManager.copyIn(sql, new StringReader(data.toString()));
+		}
+		catch (final SQLException | IOException ex)
+		{
+			throw new DBException(ex, sql);
+		}
+		finally
+		{
+			DB.close(stmt);
+		}
+	}
+
+	private void updateStats(final ImpDataLine line)
+	{
+		countTotalRows++;
+		if (line.hasErrors())
+		{
+			countRowsWithError++;
+		}
+		else
+		{
+			countValidRows++;
 		}
-		return sqlInsertIntoImportTable;
 	}
 
 	/**
-	 * IMPORTANT: keep in sync with {@link #extractSqlInsertParams(ImpDataLine)}
+	 * The record IDs are fetched upfront, because COPY does not evaluate the <code>nextval(...)</code> function.
 	 */
-	private SqlAndParamsExtractor<ImpDataLine> createInsertIntoImportTableSql()
+	private List<ImportTableRow> toImportTableRows(final List<ImpDataLine> lines)
+	{
+		final int[] ids = retrieveNextIds(lines.size());
+		final Timestamp now = SystemTime.asTimestamp();
+
+		final List<ImportTableRow> rows = new ArrayList<>(lines.size());
+		for (int i = 0; i < lines.size(); i++)
+		{
+			final ImpDataLine line = lines.get(i);
+			rows.add(new ImportTableRow(ids[i], now, line, line.getJdbcValues(columns)));
+		}
+		return rows;
+	}
+
+	private int[] retrieveNextIds(final int count)
 	{
 		final String tableName = importTableDescriptor.getTableName();
-		final String keyColumnName = importTableDescriptor.getKeyColumnName();
+		final String sql = "SELECT " + DB.TO_TABLESEQUENCE_NEXTVAL(tableName) + " FROM generate_series(1, ?)";
+		final List<Integer> ids = DB.retrieveRows(sql, ImmutableList.<Object> of(count), rs -> rs.getInt(1));
+		return ids.stream().mapToInt(Integer::intValue).toArray();
+	}
 
-		final StringBuilder sqlColumns = new StringBuilder();
-		final StringBuilder sqlValues = new StringBuilder();
-		final List<ParametersExtractor<ImpDataLine>> sqlParamsExtractors = new ArrayList<>();
+	private ImmutableList<ImportTableColumn> getImportTableColumns()
+	{
+		ImmutableList<ImportTableColumn> importTableColumns = this._importTableColumns;
+		if (importTableColumns == null)
+		{
+			importTableColumns = this._importTableColumns = createImportTableColumns();
+		}
+		return importTableColumns;
+	}
 
-		sqlColumns.append(keyColumnName);
-		sqlValues.append(DB.TO_TABLESEQUENCE_NEXTVAL(tableName));
+	/**
+	 * @return the columns which are inserted, both by INSERT and by COPY
+	 */
+	private ImmutableList<ImportTableColumn> createImportTableColumns()
+	{
+		final ImmutableList.Builder<ImportTableColumn> result = ImmutableList.builder();
+
+		result.add(new ImportTableColumn(importTableDescriptor.getKeyColumnName(), ImportTableRow::getId));
 
 		//
 		// Standard fields
-		sqlColumns.append(", AD_Client_ID");
-		sqlValues.append(", ").append(clientId.getRepoId());
-		//
-		sqlColumns.append(", AD_Org_ID");
-		sqlValues.append(", ").append(orgId.getRepoId());
-		//
-		sqlColumns.append(", Created,CreatedBy,Updated,UpdatedBy,IsActive");
-		sqlValues.append(", now(),").append(userId.getRepoId()).append(",now(),").append(userId.getRepoId()).append(",'Y'");
-		//
-		sqlColumns.append(", Processed, I_IsImported");
-		sqlValues.append(", 'N', 'N'");
+		result.add(new ImportTableColumn("AD_Client_ID", row -> clientId.getRepoId()));
+		result.add(new ImportTableColumn("AD_Org_ID", row -> orgId.getRepoId()));
+		result.add(new ImportTableColumn("Created", ImportTableRow::getNow));
+		result.add(new ImportTableColumn("CreatedBy", row -> userId.getRepoId()));
+		result.add(new ImportTableColumn("Updated", ImportTableRow::getNow));
+		result.add(new ImportTableColumn("UpdatedBy", row -> userId.getRepoId()));
+		result.add(new ImportTableColumn("IsActive", row -> "Y"));
+		result.add(new ImportTableColumn(ImportTableDescriptor.COLUMNNAME_Processed, row -> "N"));
+		result.add(new ImportTableColumn(ImportTableDescriptor.COLUMNNAME_I_IsImported, row -> "N"));
 
 		//
 		// I_LineNo
 		if (importTableDescriptor.getImportLineNoColumnName() != null)
 		{
-			sqlColumns.append(", ").append(importTableDescriptor.getImportLineNoColumnName());
-			sqlValues.append(", ?");
-			sqlParamsExtractors.add(dataLine -> ImmutableList.of(dataLine.getFileLineNo()));
+			result.add(new ImportTableColumn(importTableDescriptor.getImportLineNoColumnName(), row -> row.getLine().getFileLineNo()));
 		}
 
 		//
-		// I_LineContext
-		if (importTableDescriptor.getImportLineNoColumnName() != null)
+		// I_LineContent
+		if (importTableDescriptor.getImportLineContentColumnName() != null)
 		{
-			sqlColumns.append(", ").append(importTableDescriptor.getImportLineContentColumnName());
-			sqlValues.append(", ?");
-			sqlParamsExtractors.add(dataLine -> Collections.singletonList(dataLine.getLineString()));
+			result.add(new ImportTableColumn(importTableDescriptor.getImportLineContentColumnName(), row -> row.getLine().getLineString()));
 		}
 
 		//
 		// C_DataImport_Run_ID
-		{
-			Check.assumeNotNull(dataImportRunId, "dataImportRunId is not null");
-			sqlColumns.append(", ").append(ImportTableDescriptor.COLUMNNAME_C_DataImport_Run_ID);
-			sqlValues.append(", ").append(dataImportRunId.getRepoId());
-		}
+		Check.assumeNotNull(dataImportRunId, "dataImportRunId is not null");
+		result.add(new ImportTableColumn(ImportTableDescriptor.COLUMNNAME_C_DataImport_Run_ID, row -> dataImportRunId.getRepoId()));
 
 		//
 		// C_DataImport_ID
 		if (importTableDescriptor.getDataImportConfigIdColumnName() != null && dataImportConfigId != null)
 		{
-			sqlColumns.append(", ").append(importTableDescriptor.getDataImportConfigIdColumnName());
-			sqlValues.append(", ").append(dataImportConfigId.getRepoId());
+			result.add(new ImportTableColumn(importTableDescriptor.getDataImportConfigIdColumnName(), row -> dataImportConfigId.getRepoId()));
 		}
 
 		//
 		// I_ErrorMsg
-		{
-			final int errorMaxLength = importTableDescriptor.getErrorMsgMaxLength();
-			sqlColumns.append(", ").append(ImportTableDescriptor.COLUMNNAME_I_ErrorMsg);
-			sqlValues.append(", ?");
-			sqlParamsExtractors.add(dataLine -> Collections.singletonList(dataLine.getErrorMessageAsStringOrNull(errorMaxLength)));
-		}
+		final int errorMaxLength = importTableDescriptor.getErrorMsgMaxLength();
+		result.add(new ImportTableColumn(ImportTableDescriptor.COLUMNNAME_I_ErrorMsg, row -> row.getLine().getErrorMessageAsStringOrNull(errorMaxLength)));
 
 		//
 		// Values
+		for (int i = 0; i < columns.size(); i++)
 		{
-			for (final ImpFormatColumn column : columns)
+			final int valueIndex = i;
+			result.add(new ImportTableColumn(columns.get(i).getColumnName(), row -> row.getValues().get(valueIndex)));
+		}
+
+		return result.build();
+	}
+
+	private String getSqlColumnNames()
+	{
+		return getImportTableColumns()
+				.stream()
+				.map(ImportTableColumn::getColumnName)
+				.collect(Collectors.joining(", "));
+	}
+
+	private SqlAndParamsExtractor<ImportTableRow> getInsertIntoImportTableSql()
+	{
+		SqlAndParamsExtractor<ImportTableRow> sqlInsertIntoImportTable = this._sqlInsertIntoImportTable;
+		if (sqlInsertIntoImportTable == null)
+		{
+			sqlInsertIntoImportTable = this._sqlInsertIntoImportTable = createInsertIntoImportTableSql();
+		}
+		return sqlInsertIntoImportTable;
+	}
+
+	@VisibleForTesting
+	SqlAndParamsExtractor<ImportTableRow> createInsertIntoImportTableSql()
+	{
+		final ImmutableList<ImportTableColumn> importTableColumns = getImportTableColumns();
+		final String sqlValues = importTableColumns.stream()
+				.map(column -> "?")
+				.collect(Collectors.joining(", "));
+
+		return SqlAndParamsExtractor.<ImportTableRow> builder()
+				.sql("INSERT INTO " + importTableDescriptor.getTableName() + " (" + getSqlColumnNames() + ") VALUES (" + sqlValues + ")")
+				.parametersExtractors(ImmutableList.<ParametersExtractor<ImportTableRow>> of(row -> extractValues(importTableColumns, row)))
+				.build();
+	}
+
+	private String getCopyIntoImportTableSql()
+	{
+		String sqlCopyIntoImportTable = this._sqlCopyIntoImportTable;
+		if (sqlCopyIntoImportTable == null)
+		{
+			sqlCopyIntoImportTable = this._sqlCopyIntoImportTable = createCopyIntoImportTableSql();
+		}
+		return sqlCopyIntoImportTable;
+	}
+
+	@VisibleForTesting
+	String createCopyIntoImportTableSql()
+	{
+		return "COPY " + importTableDescriptor.getTableName() + " (" + getSqlColumnNames() + ") FROM STDIN";
+	}
+
+	private static List<Object> extractValues(final List<ImportTableColumn> importTableColumns, final ImportTableRow row)
+	{
+		// NOTE: not using ImmutableList because the values might be null
+		final List<Object> values = new ArrayList<>(importTableColumns.size());
+		for (final ImportTableColumn column : importTableColumns)
+		{
+			values.add(column.getValueExtractor().apply(row));
+		}
+		return values;
+	}
+
+	/**
+	 * Appends the given row using COPY's text format, i.e. tab separated values, one row per line.
+	 */
+	@VisibleForTesting
+	void appendCopyRow(final StringBuilder data, final ImportTableRow row)
+	{
+		for (final Object value : extractValues(getImportTableColumns(), row))
+		{
+			appendCopyValue(data, value);
+		}
+
+		data.setCharAt(data.length() - 1, '\n');
+	}
+
+	@VisibleForTesting
+	static void appendCopyValue(final StringBuilder data, @Nullable final Object value)
+	{
+		if (value == null)
+		{
+			data.append("\\N");
+		}
+		else
+		{
+			final String valueStr;
+			if (value instanceof BigDecimal)
 			{
-				sqlColumns.append(", ").append(column.getColumnName());
-				sqlValues.append(", ?");
+				valueStr = ((BigDecimal)value).toPlainString();
+			}
+			else if (value instanceof Boolean)
+			{
+				valueStr = StringUtils.ofBoolean((Boolean)value);
+			}
+			else
+			{
+				valueStr = value.toString();
+			}
+
+			for (int i = 0, length = valueStr.length(); i < length; i++)
+			{
+				final char ch = valueStr.charAt(i);
+				switch (ch)
+				{
+					case '\\':
+						data.append("\\\\");
+						break;
+					case '\n':
+						data.append("\\n");
+						break;
+					case '\r':
+						data.append("\\r");
+						break;
+					case '\t':
+						data.append("\\t");
+						break;
+					default:
+						data.append(ch);
+				}
 			}
-			sqlParamsExtractors.add(dataLine -> dataLine.getJdbcValues(columns));
 		}
 
-		return SqlAndParamsExtractor.<ImpDataLine> builder()
-				.sql("INSERT INTO " + tableName + "(" + sqlColumns + ") VALUES (" + sqlValues + ")")
-				.parametersExtractors(sqlParamsExtractors)
-				.build();
+		data.append('\t');
 	}
 
+	@Value
+	private static class ImportTableColumn
+	{
+		@NonNull
+		String columnName;
+		@NonNull
+		Function<ImportTableRow, Object> valueExtractor;
+	}
+
+	/**
+	 * A row to be inserted into the import table.
+	 */
+	@Value
+	@VisibleForTesting
+	static class ImportTableRow
+	{
+		int id;
+		@NonNull
+		Timestamp now;
+		@NonNull
+		ImpDataLine line;
+		/** the values of {@link ImpFormat#getColumns()} */
+		@NonNull
+		List<Object> values;
+	}
 }
@@ -26,6 +26,7 @@
 package de.metas.impexp.parser;
 
 import com.google.common.base.CharMatcher;
+import com.google.common.collect.AbstractIterator;
 import com.google.common.io.ByteSource;
 import com.google.common.io.Files;
 import com.google.common.io.LineProcessor;
@@ -33,12 +34,20 @@ import de.metas.util.Check;
 import lombok.NonNull;
 import lombok.experimental.UtilityClass;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * @author metas-dev <dev@metasfresh.com>
@@ -146,6 +155,70 @@ final class FileImportReader
 		{
 			return loadedDataLines;
 		}
+
+		/**
+		 * @return the first loaded line, if it's complete (i.e. it's not the last loaded one, to which the next source lines might still be appended); else null
+		 */
+		private String pollCompletedLine()
+		{
+			return loadedDataLines.size() > 1 ? loadedDataLines.remove(0) : null;
+		}
+
+		/**
+		 * @return the first loaded line or null; to be called after the last source line was processed
+		 */
+		private String pollLine()
+		{
+			return !loadedDataLines.isEmpty() ? loadedDataLines.remove(0) : null;
+		}
+	}
+
+	/**
+	 * Lazily reads the lines of a file that has at least one field with multiline text.
+	 */
+	private static final class MultiLineIterator extends AbstractIterator<String>
+	{
+		private final BufferedReader reader;
+		private final MultiLineProcessor processor = new MultiLineProcessor();
+		private boolean eof = false;
+
+		private MultiLineIterator(@NonNull final BufferedReader reader)
+		{
+			this.reader = reader;
+		}
+
+		@Override
+		protected String computeNext()
+		{
+			try
+			{
+				while (!eof)
+				{
+					final String completedLine = processor.pollCompletedLine();
+					if (completedLine != null)
+					{
+						return completedLine;
+					}
+
+					final String sourceLine = reader.readLine();
+					if (sourceLine == null)
+					{
+						eof = true;
+					}
+					else
+					{
+						processor.processLine(sourceLine);
+					}
+				}
+
+				final String line = processor.pollLine();
+				return line != null ? line : endOfData();
+			}
+			catch (final IOException ex)
+			{
+				throw new UncheckedIOException(ex);
+			}
+		}
 	}
 
 	/**
@@ -186,6 +259,46 @@ final class FileImportReader
 		return ByteSource.wrap(data).asCharSource(charset).readLines(new SingleLineProcessor());
 	}
 
+	/**
+	 * Same as {@link #readMultiLines(byte[], Charset)} but the lines are read lazily, while the stream is consumed, so the whole data is never loaded in memory.
+	 * <br>
+	 * IMPORTANT: the returned stream shall be closed, in order to close the given input stream.
+	 */
+	public Stream<String> streamMultiLines(@NonNull final InputStream in, @NonNull final Charset charset)
+	{
+		final BufferedReader reader = new BufferedReader(new InputStreamReader(in, charset));
+		return toStream(new MultiLineIterator(reader), reader);
+	}
+
+	/**
+	 * Same as {@link #readRegularLines(byte[], Charset)} but the lines are read lazily, while the stream is consumed, so the whole data is never loaded in memory.
+	 * <br>
+	 * IMPORTANT: the returned stream shall be closed, in order to close the given input stream.
+	 */
+	public Stream<String> streamRegularLines(@NonNull final InputStream in, @NonNull final Charset charset)
+	{
+		final BufferedReader reader = new BufferedReader(new InputStreamReader(in, charset));
+		return reader.lines().onClose(() -> close(reader));
+	}
+
+	private static Stream<String> toStream(final AbstractIterator<String> iterator, final BufferedReader reader)
+	{
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+				.onClose(() -> close(reader));
+	}
+
+	private static void close(final BufferedReader reader)
+	{
+		try
+		{
+			reader.close();
+		}
+		catch (final IOException ex)
+		{
+			throw new UncheckedIOException(ex);
+		}
+	}
+
 	/**
 	 * Build the preview from the loaded lines
 	 *
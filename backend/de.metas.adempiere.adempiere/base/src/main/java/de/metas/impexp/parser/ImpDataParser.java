@@ -1,13 +1,13 @@
 package de.metas.impexp.parser;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Stream;
 
 import org.adempiere.exceptions.AdempiereException;
-import org.compiere.util.Util;
 import org.springframework.core.io.Resource;
 
 import lombok.Builder;
@@ -53,6 +53,9 @@ public final class ImpDataParser
 		this.lineParser = lineParser;
 	}
 
+	/**
+	 * @return data lines, parsed lazily while the stream is consumed. IMPORTANT: close the stream after consuming it.
+	 */
 	public Stream<ImpDataLine> streamDataLines(final Resource resource)
 	{
 		final AtomicInteger nextLineNo = new AtomicInteger(1);
@@ -61,31 +64,27 @@ public final class ImpDataParser
 				.map(lineStr -> createImpDataLine(lineStr, nextLineNo));
 	}
 
+	/**
+	 * @return source lines; they are read lazily from the resource's input stream, so the stream shall be closed
+	 */
 	private Stream<String> streamSourceLines(final Resource resource)
 	{
-		final byte[] data = toByteArray(resource);
-		try
+		final InputStream in = openInputStream(resource);
+		if (multiline)
 		{
-			if (multiline)
-			{
-				return FileImportReader.readMultiLines(data, CHARSET).stream();
-			}
-			else
-			{
-				return FileImportReader.readRegularLines(data, CHARSET).stream();
-			}
+			return FileImportReader.streamMultiLines(in, CHARSET);
 		}
-		catch (final IOException ex)
+		else
 		{
-			throw new AdempiereException("Failed reading resource: " + resource, ex);
+			return FileImportReader.streamRegularLines(in, CHARSET);
 		}
 	}
 
-	private static byte[] toByteArray(final Resource resource)
+	private static InputStream openInputStream(final Resource resource)
 	{
 		try
 		{
-			return Util.readBytes(resource.getInputStream());
+			return resource.getInputStream();
 		}
 		catch (final IOException ex)
 		{
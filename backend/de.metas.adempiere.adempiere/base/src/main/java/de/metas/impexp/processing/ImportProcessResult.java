@@ -129,6 +129,16 @@ public final class ImportProcessResult
 			countImportRecordsConsidered.add(count);
 		}
 
+		/**
+		 * Adds the import counters (considered, inserts, updates) of the given collector to this one.
+		 */
+		public void addImportCountersFrom(@NonNull final ImportProcessResultCollector other)
+		{
+			addCountImportRecordsConsidered(other.countImportRecordsConsidered.value);
+			addInsertsIntoTargetTable(other.countInsertsIntoTargetTable.value);
+			addUpdatesIntoTargetTable(other.countUpdatesIntoTargetTable.value);
+		}
+
 		public void setCountImportRecordsDeleted(final int countImportRecordsDeleted)
 		{
 			Check.assumeGreaterOrEqualToZero(countImportRecordsDeleted, "countImportRecordsDeleted");
@@ -4,6 +4,7 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -22,7 +23,9 @@ import org.adempiere.db.util.AbstractPreparedStatementBlindIterator;
 import org.adempiere.exceptions.AdempiereException;
 import org.adempiere.model.InterfaceWrapperHelper;
 import org.adempiere.service.ClientId;
+import org.adempiere.service.ISysConfigBL;
 import org.adempiere.util.api.IParams;
+import org.adempiere.util.concurrent.KeyedPartitionsParallelExecutor;
 import org.adempiere.util.lang.IMutable;
 import org.adempiere.util.lang.Mutable;
 import org.adempiere.util.lang.impl.TableRecordReferenceSet;
@@ -34,8 +37,11 @@ import org.compiere.util.ISqlUpdateReturnProcessor;
 import org.slf4j.Logger;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.PeekingIterator;
 
 import ch.qos.logback.classic.Level;
 import de.metas.cache.CacheMgt;
@@ -69,10 +75,17 @@ public abstract class ImportProcessTemplate<ImportRecordType> implements IImport
 	// services
 	private final transient Logger logger = LogManager.getLogger(getClass());
 	private final ITrxManager trxManager = Services.get(ITrxManager.class);
+	private final ISysConfigBL sysConfigBL = Services.get(ISysConfigBL.class);
 	private final IErrorManager errorManager = Services.get(IErrorManager.class);
 	private final DBFunctionsRepository dbFunctionsRepo = SpringContextHolder.instance.getBean(DBFunctionsRepository.class);
 	private final ImportTableDescriptorRepository importTableDescriptorRepo = SpringContextHolder.instance.getBean(ImportTableDescriptorRepository.class);
 
+	/**
+	 * Number of threads used to import the groups. If greater than 1, the groups are imported in parallel, see {@link #importDataInParallel(int)}.
+	 * Can be overridden per import table by appending "." and the import table name (e.g. <code>...ImportParallelism.I_BPartner</code>).
+	 */
+	private static final String SYSCONFIG_ImportParallelism = "de.metas.impexp.processing.ImportParallelism";
+
 	//
 	// Parameters
 	private Properties _ctx;
@@ -348,7 +361,15 @@ public abstract class ImportProcessTemplate<ImportRecordType> implements IImport
 
 		//
 		// Actual import (allow the method to manage the transaction)
-		importData();
+		final int parallelism = getImportParallelism();
+		if (parallelism > 1)
+		{
+			importDataInParallel(parallelism);
+		}
+		else
+		{
+			importData();
+		}
 
 		//
 		// run whatever after import code
@@ -515,7 +536,7 @@ public abstract class ImportProcessTemplate<ImportRecordType> implements IImport
 					public void completeChunk()
 					{
 						final ImportGroup<ImportRecordType> currentGroup = currentImportGroupHolder.getValue();
-						importGroup(currentGroup, stateHolder);
+						importGroup(currentGroup, stateHolder, getResultCollector());
 					}
 
 					@Override
@@ -528,6 +549,100 @@ public abstract class ImportProcessTemplate<ImportRecordType> implements IImport
 				.process(retrieveRecordsToImport());
 	}
 
+	private int getImportParallelism()
+	{
+		final int defaultParallelism = sysConfigBL.getIntValue(SYSCONFIG_ImportParallelism, 1);
+		return sysConfigBL.getIntValue(SYSCONFIG_ImportParallelism + "." + getImportTableName(), defaultParallelism);
+	}
+
+	/**
+	 * Actual data import, using more threads.
+	 * <p>
+	 * Each import group is imported in its own transaction. Groups with the same partition key (see {@link #extractImportPartitionKey(ImportGroup)})
+	 * are imported by the same thread, in the same order as in sequential mode.
+	 */
+	private void importDataInParallel(final int parallelism)
+	{
+		final List<ImportProcessResultCollector> partitionResultCollectors = Collections.synchronizedList(new ArrayList<>());
+
+		KeyedPartitionsParallelExecutor.<ImportGroup<ImportRecordType>> builder()
+				.name(getClass().getSimpleName())
+				.parallelism(parallelism)
+				.chunkSize(1)
+				.queueCapacityPerPartition(100)
+				.ctx(getCtx())
+				.partitionKeyExtractor(this::extractImportPartitionKey)
+				.partitionChunkProcessorFactory(() -> {
+					final ImportProcessResultCollector partitionResultCollector = ImportProcessResult.newCollector(getTargetTableName());
+					partitionResultCollectors.add(partitionResultCollector);
+
+					// NOTE: the state is per partition, see importRecords(...)
+					final IMutable<Object> stateHolder = new Mutable<>();
+					return importGroups -> importGroups.forEach(importGroup -> importGroupInNewTrx(importGroup, stateHolder, partitionResultCollector));
+				})
+				.build()
+				.execute(groupRecordsToImport(retrieveRecordsToImport()));
+
+		final ImportProcessResultCollector overallResultCollector = getResultCollector();
+		partitionResultCollectors.forEach(overallResultCollector::addImportCountersFrom);
+	}
+
+	/**
+	 * Groups are assigned to import threads by the hash code of this key, so it shall be deterministic.
+	 * <p>
+	 * By default the group key is used. Override it if different groups might touch the same master data (e.g. the same product),
+	 * and return a key which is equal for all those groups, so they don't get imported concurrently.
+	 * Also override it if {@link #importRecords(List, IMutable)} relies on the state of the previous groups.
+	 */
+	protected Object extractImportPartitionKey(@NonNull final ImportGroup<ImportRecordType> importGroup)
+	{
+		return importGroup.getGroupKey();
+	}
+
+	/**
+	 * @return groups of consecutive import records that have the same {@link ImportGroupKey}
+	 */
+	private Iterator<ImportGroup<ImportRecordType>> groupRecordsToImport(@NonNull final Iterator<ImportRecordType> importRecords)
+	{
+		final PeekingIterator<ImportRecordType> peekingImportRecords = Iterators.peekingIterator(importRecords);
+		return new AbstractIterator<ImportGroup<ImportRecordType>>()
+		{
+			@Override
+			protected ImportGroup<ImportRecordType> computeNext()
+			{
+				if (!peekingImportRecords.hasNext())
+				{
+					return endOfData();
+				}
+
+				final ImportGroupKey groupKey = extractImportGroupKey(peekingImportRecords.peek());
+				final ImportGroup<ImportRecordType> group = ImportGroup.newInstance(groupKey);
+				while (peekingImportRecords.hasNext()
+						&& Objects.equals(groupKey, extractImportGroupKey(peekingImportRecords.peek())))
+				{
+					group.addImportRecord(peekingImportRecords.next());
+				}
+
+				return group;
+			}
+		};
+	}
+
+	private void importGroupInNewTrx(
+			@NonNull final ImportGroup<ImportRecordType> importGroup,
+			@NonNull final IMutable<Object> stateHolder,
+			@NonNull final ImportProcessResultCollector resultCollector)
+	{
+		try
+		{
+			trxManager.runInNewTrx(() -> importGroup(importGroup, stateHolder, resultCollector));
+		}
+		catch (final Exception ex)
+		{
+			trxManager.runInNewTrx(() -> markAsError(importGroup, ex));
+		}
+	}
+
 	@VisibleForTesting
 	protected Iterator<ImportRecordType> retrieveRecordsToImport()
 	{
@@ -553,7 +668,8 @@ public abstract class ImportProcessTemplate<ImportRecordType> implements IImport
 
 	private void importGroup(
 			@NonNull final ImportGroup<ImportRecordType> importGroup,
-			@NonNull final IMutable<Object> stateHolder)
+			@NonNull final IMutable<Object> stateHolder,
+			@NonNull final ImportProcessResultCollector resultCollector)
 	{
 		// shall not happen
 		if (importGroup.isEmpty())
@@ -562,11 +678,10 @@ public abstract class ImportProcessTemplate<ImportRecordType> implements IImport
 			return;
 		}
 
-		final ImportProcessResultCollector overallResultCollector = getResultCollector();
 		try
 		{
 			final ImmutableList<ImportRecordType> importRecordsList = importGroup.getImportRecords();
-			overallResultCollector.addCountImportRecordsConsidered(importRecordsList.size());
+			resultCollector.addCountImportRecordsConsidered(importRecordsList.size());
 
 			final ImportGroupResult importGroupResult = importRecords(importRecordsList, stateHolder);
 
@@ -576,8 +691,8 @@ public abstract class ImportProcessTemplate<ImportRecordType> implements IImport
 				runSQLAfterRowImport(importRecord); // run after markImported because we need the recordId saved
 			}
 
-			overallResultCollector.addInsertsIntoTargetTable(importGroupResult.getCountInserted());
-			overallResultCollector.addUpdatesIntoTargetTable(importGroupResult.getCountUpdated());
+			resultCollector.addInsertsIntoTargetTable(importGroupResult.getCountInserted());
+			resultCollector.addUpdatesIntoTargetTable(importGroupResult.getCountUpdated());
 		}
 		catch (Exception ex)
 		{
@@ -609,6 +724,12 @@ public abstract class ImportProcessTemplate<ImportRecordType> implements IImport
 
 	protected abstract ImportRecordType retrieveImportRecord(final Properties ctx, final ResultSet rs) throws SQLException;
 
+	/**
+	 * @param stateHolder can be used to pass state from one import group to the next one.
+	 *            When importing in parallel, there is one state holder per import thread. It's passed only to the groups with the same partition
+	 *            (see {@link #extractImportPartitionKey(ImportGroup)}), in the same order as in sequential mode, but other partitions' groups are skipped.
+	 *            So importers which rely on this state shall also override the partition key, such that related groups end up in the same partition.
+	 */
 	protected abstract ImportGroupResult importRecords(
 			final List<ImportRecordType> importRecords,
 			final IMutable<Object> stateHolder) throws Exception;
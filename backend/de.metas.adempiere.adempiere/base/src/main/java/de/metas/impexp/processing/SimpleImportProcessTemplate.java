@@ -39,6 +39,24 @@ public abstract class SimpleImportProcessTemplate<ImportRecordType> extends Impo
 		return ImportGroupKey.of("importRecordId", recordId);
 	}
 
+	/**
+	 * Each import record is a group on its own, so the partition key is extracted from the group's only record.
+	 */
+	@Override
+	protected final Object extractImportPartitionKey(@NonNull final ImportGroup<ImportRecordType> importGroup)
+	{
+		final ImportRecordType importRecord = CollectionUtils.singleElement(importGroup.getImportRecords());
+		return extractImportRecordPartitionKey(importRecord);
+	}
+
+	/**
+	 * See {@link #extractImportPartitionKey(ImportGroup)}. By default each import record is a partition key on its own.
+	 */
+	protected Object extractImportRecordPartitionKey(@NonNull final ImportRecordType importRecord)
+	{
+		return extractImportGroupKey(importRecord);
+	}
+
 	@Override
 	protected final ImportGroupResult importRecords(
 			final List<ImportRecordType> importRecords,
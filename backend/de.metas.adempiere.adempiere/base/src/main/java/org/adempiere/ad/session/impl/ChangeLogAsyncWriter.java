@@ -0,0 +1,371 @@
+package org.adempiere.ad.session.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.adempiere.ad.session.ChangeLogRecord;
+import org.adempiere.util.jmx.IJMXNameAware;
+import org.adempiere.util.jmx.JMXRegistry;
+import org.adempiere.util.jmx.JMXRegistry.OnJMXAlreadyExistsPolicy;
+import org.slf4j.Logger;
+
+import com.google.common.base.Stopwatch;
+
+import de.metas.logging.LogManager;
+import lombok.Builder;
+import lombok.NonNull;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Writes {@link ChangeLogRecord}s in background, in batches.
+ * <p>
+ * A batch is written when it reached <code>maxRecordsPerFlush</code> records or when <code>flushIntervalMillis</code> passed since its first record was enqueued.
+ * <p>
+ * The queue is bounded. If it's full, the records are written by the calling thread, so nothing is lost and the producers are slowed down.
+ * Records which are still in the queue when the application shuts down are written by {@link #shutdown()} (see {@link ChangeLogAsyncWriterShutdownListener}).
+ * After that, records are written by the calling thread.
+ */
+public final class ChangeLogAsyncWriter implements ChangeLogAsyncWriterMBean, IJMXNameAware
+{
+	private static final Logger logger = LogManager.getLogger(ChangeLogAsyncWriter.class);
+
+	/** How long the writer thread is waiting for new records, before checking if it was shut down */
+	private static final long IDLE_POLL_MILLIS = 500;
+
+	private final Consumer<List<ChangeLogRecord>> writer;
+	private final int queueCapacity;
+	private final int maxRecordsPerFlush;
+	private final long flushIntervalMillis;
+	private final LinkedBlockingQueue<ChangeLogRecord> queue;
+
+	private final Object startLock = new Object();
+	private volatile boolean started = false;
+	private volatile boolean shutdown = false;
+	private Thread thread;
+
+	private final AtomicLong countRecordsWritten = new AtomicLong();
+	private final AtomicLong countRecordsWrittenByCaller = new AtomicLong();
+	private final AtomicLong countFlushes = new AtomicLong();
+	private final AtomicLong countFailedFlushes = new AtomicLong();
+	private final AtomicLong totalFlushMillis = new AtomicLong();
+	private volatile long lastFlushMillis = 0;
+	private volatile long maxFlushMillis = 0;
+
+	/**
+	 * @param writer writes the given records to database, out of transaction
+	 */
+	@Builder
+	private ChangeLogAsyncWriter(
+			@NonNull final Consumer<List<ChangeLogRecord>> writer,
+			final int queueCapacity,
+			final int maxRecordsPerFlush,
+			final long flushIntervalMillis)
+	{
+		this.writer = writer;
+		this.queueCapacity = queueCapacity > 0 ? queueCapacity : 10000;
+		this.maxRecordsPerFlush = maxRecordsPerFlush > 0 ? maxRecordsPerFlush : 1000;
+		this.flushIntervalMillis = Math.max(flushIntervalMillis, 0);
+		this.queue = new LinkedBlockingQueue<>(this.queueCapacity);
+	}
+
+	@Override
+	public String toString()
+	{
+		return "ChangeLogAsyncWriter["
+				+ "queueSize=" + queue.size() + "/" + queueCapacity
+				+ ", countRecordsWritten=" + countRecordsWritten.get()
+				+ ", countRecordsWrittenByCaller=" + countRecordsWrittenByCaller.get()
+				+ ", countFlushes=" + countFlushes.get()
+				+ ", avgFlushMillis=" + getAvgFlushMillis()
+				+ "]";
+	}
+
+	@Override
+	public String getJMXName()
+	{
+		return "org.adempiere.ad.session:type=ChangeLogAsyncWriter";
+	}
+
+	public void enqueue(@NonNull final List<ChangeLogRecord> records)
+	{
+		if (records.isEmpty())
+		{
+			return;
+		}
+
+		if (shutdown)
+		{
+			flush(records);
+			countRecordsWrittenByCaller.addAndGet(records.size());
+			return;
+		}
+
+		startIfNeeded();
+
+		List<ChangeLogRecord> overflow = null;
+		for (final ChangeLogRecord record : records)
+		{
+			if (!queue.offer(record))
+			{
+				if (overflow == null)
+				{
+					overflow = new ArrayList<>();
+				}
+				overflow.add(record);
+			}
+		}
+
+		if (overflow != null)
+		{
+			logger.warn("Change log queue is full ({} records). Writing {} records in calling thread.", queueCapacity, overflow.size());
+			flush(overflow);
+			countRecordsWrittenByCaller.addAndGet(overflow.size());
+		}
+
+		if (shutdown)
+		{
+			// we were shut down concurrently, so our records might not be picked up anymore
+			flushRemaining();
+		}
+	}
+
+	private void startIfNeeded()
+	{
+		if (started)
+		{
+			return;
+		}
+
+		synchronized (startLock)
+		{
+			if (started || shutdown)
+			{
+				return;
+			}
+
+			thread = new Thread(this::run, getClass().getSimpleName());
+			thread.setDaemon(true);
+			thread.start();
+
+			JMXRegistry.get().registerJMX(this, OnJMXAlreadyExistsPolicy.Replace);
+
+			started = true;
+			logger.info("Started {}", this);
+		}
+	}
+
+	/**
+	 * Stops the background thread and writes the records which are still in the queue.
+	 * Records enqueued after this are written by the calling thread.
+	 */
+	public void shutdown()
+	{
+		final Thread threadToStop;
+		synchronized (startLock)
+		{
+			if (shutdown)
+			{
+				return;
+			}
+			shutdown = true;
+			threadToStop = thread;
+		}
+
+		// NOTE: not interrupting the thread, because it might be writing to database right now
+		if (threadToStop != null)
+		{
+			try
+			{
+				threadToStop.join(TimeUnit.SECONDS.toMillis(30));
+			}
+			catch (final InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		flushRemaining();
+		logger.info("Shut down {}", this);
+	}
+
+	private void run()
+	{
+		final List<ChangeLogRecord> batch = new ArrayList<>();
+		try
+		{
+			while (!shutdown)
+			{
+				collectNextBatch(batch);
+				if (!batch.isEmpty())
+				{
+					flush(batch);
+					batch.clear();
+				}
+			}
+		}
+		catch (final InterruptedException e)
+		{
+			logger.info("Writer thread interrupted. Quit.");
+		}
+		finally
+		{
+			// the records collected so far are not lost
+			if (!batch.isEmpty())
+			{
+				flush(batch);
+			}
+		}
+	}
+
+	/**
+	 * Waits a while for the first record, then collects more records until the batch is full or the flush interval since the first record has passed.
+	 */
+	private void collectNextBatch(final List<ChangeLogRecord> batch) throws InterruptedException
+	{
+		final ChangeLogRecord firstRecord = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+		if (firstRecord == null)
+		{
+			return; // nothing to do; give the caller the chance to check if we were shut down
+		}
+		batch.add(firstRecord);
+
+		final long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+		while (batch.size() < maxRecordsPerFlush)
+		{
+			queue.drainTo(batch, maxRecordsPerFlush - batch.size());
+			if (batch.size() >= maxRecordsPerFlush)
+			{
+				break;
+			}
+
+			final long nanosLeft = deadlineNanos - System.nanoTime();
+			if (nanosLeft <= 0 || shutdown)
+			{
+				break;
+			}
+
+			final ChangeLogRecord record = queue.poll(Math.min(nanosLeft, TimeUnit.MILLISECONDS.toNanos(IDLE_POLL_MILLIS)), TimeUnit.NANOSECONDS);
+			if (record != null)
+			{
+				batch.add(record);
+			}
+		}
+	}
+
+	private void flushRemaining()
+	{
+		final List<ChangeLogRecord> batch = new ArrayList<>();
+		while (queue.drainTo(batch, maxRecordsPerFlush) > 0)
+		{
+			flush(batch);
+			batch.clear();
+		}
+	}
+
+	private void flush(final List<ChangeLogRecord> batch)
+	{
+		final Stopwatch stopwatch = Stopwatch.createStarted();
+		try
+		{
+			writer.accept(batch);
+			countRecordsWritten.addAndGet(batch.size());
+		}
+		catch (final Exception ex)
+		{
+			countFailedFlushes.incrementAndGet();
+			logger.error("Failed writing {} change log records", batch.size(), ex);
+		}
+		finally
+		{
+			final long millis = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+			countFlushes.incrementAndGet();
+			totalFlushMillis.addAndGet(millis);
+			lastFlushMillis = millis;
+			if (millis > maxFlushMillis)
+			{
+				maxFlushMillis = millis;
+			}
+			logger.trace("Flushed {} change log records in {}ms", batch.size(), millis);
+		}
+	}
+
+	@Override
+	public int getQueueSize()
+	{
+		return queue.size();
+	}
+
+	@Override
+	public int getQueueCapacity()
+	{
+		return queueCapacity;
+	}
+
+	@Override
+	public long getCountRecordsWritten()
+	{
+		return countRecordsWritten.get();
+	}
+
+	@Override
+	public long getCountRecordsWrittenByCaller()
+	{
+		return countRecordsWrittenByCaller.get();
+	}
+
+	@Override
+	public long getCountFlushes()
+	{
+		return countFlushes.get();
+	}
+
+	@Override
+	public long getCountFailedFlushes()
+	{
+		return countFailedFlushes.get();
+	}
+
+	@Override
+	public long getLastFlushMillis()
+	{
+		return lastFlushMillis;
+	}
+
+	@Override
+	public long getMaxFlushMillis()
+	{
+		return maxFlushMillis;
+	}
+
+	@Override
+	public long getAvgFlushMillis()
+	{
+		final long flushes = countFlushes.get();
+		return flushes > 0 ? totalFlushMillis.get() / flushes : 0;
+	}
+}
@@ -2,13 +2,22 @@ package org.adempiere.ad.session.impl;
 
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.adempiere.ad.session.ChangeLogRecord;
 import org.adempiere.ad.session.ISessionDAO;
+import org.adempiere.ad.table.api.IADTableDAO;
 import org.adempiere.ad.trx.api.ITrx;
+import org.adempiere.ad.trx.api.ITrxManager;
+import org.adempiere.ad.trx.api.OnTrxMissingPolicy;
+import org.adempiere.exceptions.DBException;
+import org.adempiere.service.ISysConfigBL;
 import org.adempiere.util.proxy.Cached;
 import org.compiere.model.I_AD_ChangeLog;
 import org.compiere.model.I_AD_Table;
@@ -18,6 +27,7 @@ import org.slf4j.Logger;
 import com.google.common.collect.ImmutableList;
 
 import de.metas.logging.LogManager;
+import de.metas.util.Services;
 
 /*
  * #%L
@@ -86,6 +96,20 @@ public class SessionDAO implements ISessionDAO
 			+ ", ?" // UpdatedBy
 			+ ")";
 
+	private static final String SYSCONFIG_AsyncEnabled = "de.metas.changelog.async.Enabled";
+	/** Per table override of {@link #SYSCONFIG_AsyncEnabled}, e.g. to keep audit-critical tables synchronous */
+	private static final String SYSCONFIG_AsyncEnabled_TablePrefix = SYSCONFIG_AsyncEnabled + ".table_";
+	private static final String SYSCONFIG_AsyncQueueCapacity = "de.metas.changelog.async.QueueCapacity";
+	private static final int DEFAULT_AsyncQueueCapacity = 10000;
+	private static final String SYSCONFIG_AsyncMaxRecordsPerFlush = "de.metas.changelog.async.MaxRecordsPerFlush";
+	private static final int DEFAULT_AsyncMaxRecordsPerFlush = 1000;
+	private static final String SYSCONFIG_AsyncFlushIntervalMillis = "de.metas.changelog.async.FlushIntervalMillis";
+	private static final int DEFAULT_AsyncFlushIntervalMillis = 500;
+
+	private static final String TRX_PROPERTY_AsyncChangeLogRecords = SessionDAO.class.getName() + ".AsyncChangeLogRecords";
+
+	private ChangeLogAsyncWriter _asyncWriter; // lazy
+
 	@Override
 	public void saveChangeLogs(final Collection<ChangeLogRecord> records)
 	{
@@ -94,44 +118,146 @@ public class SessionDAO implements ISessionDAO
 			return;
 		}
 
+		// NOTE: we read the sysconfigs once per call, and not for each record
+		final boolean asyncEnabled = Services.get(ISysConfigBL.class).getBooleanValue(SYSCONFIG_AsyncEnabled, false);
+		final Map<Integer, Boolean> asyncByTableId = new HashMap<>();
+
+		final List<ChangeLogRecord> syncRecords = new ArrayList<>();
+		final List<ChangeLogRecord> asyncRecords = new ArrayList<>();
+		for (final ChangeLogRecord record : records)
+		{
+			if (!isValidChangeLogRecord(record))
+			{
+				continue;
+			}
+
+			if (asyncByTableId.computeIfAbsent(record.getAD_Table_ID(), adTableId -> isAsync(adTableId, asyncEnabled)))
+			{
+				asyncRecords.add(record);
+			}
+			else
+			{
+				syncRecords.add(record);
+			}
+		}
+
+		if (!syncRecords.isEmpty())
+		{
+			try
+			{
+				insertChangeLogs(syncRecords, ITrx.TRXNAME_ThreadInherited);
+			}
+			catch (final Exception e)
+			{
+				logger.error("Failed creating change log", e);
+			}
+		}
+
+		if (!asyncRecords.isEmpty())
+		{
+			saveChangeLogsAsync(asyncRecords);
+		}
+	}
+
+	private boolean isValidChangeLogRecord(final ChangeLogRecord record)
+	{
+		if (record == null)
+		{
+			return false;
+		}
+
+		// Null handling
+		final Object oldValue = record.getOldValue();
+		final Object newValue = record.getNewValue();
+		if (oldValue == null && newValue == null)
+		{
+			return false;
+		}
+		// Equal Value
+		if (oldValue != null && newValue != null && oldValue.equals(newValue))
+		{
+			return false;
+		}
+
+		return isLogged(record.getAD_Table_ID());
+	}
+
+	private static boolean isAsync(final int adTableId, final boolean asyncEnabled)
+	{
+		final String tableName = Services.get(IADTableDAO.class).retrieveTableName(adTableId);
+		return Services.get(ISysConfigBL.class).getBooleanValue(SYSCONFIG_AsyncEnabled_TablePrefix + tableName, asyncEnabled);
+	}
+
+	/**
+	 * Collects the records in current transaction and hands them to the {@link ChangeLogAsyncWriter} after commit.
+	 * If the transaction is rolled back, the records are discarded, like the synchronously written ones would be.
+	 */
+	private void saveChangeLogsAsync(final List<ChangeLogRecord> records)
+	{
+		final ITrxManager trxManager = Services.get(ITrxManager.class);
+		final ITrx trx = trxManager.getThreadInheritedTrx(OnTrxMissingPolicy.ReturnTrxNone);
+		if (trxManager.isActive(trx))
+		{
+			final List<ChangeLogRecord> trxRecords = trx.getPropertyAndProcessAfterCommit(
+					TRX_PROPERTY_AsyncChangeLogRecords,
+					ArrayList::new,
+					this::enqueueAsync);
+			trxRecords.addAll(records);
+		}
+		else
+		{
+			enqueueAsync(records);
+		}
+	}
+
+	private void enqueueAsync(final List<ChangeLogRecord> records)
+	{
+		getAsyncWriter().enqueue(records);
+	}
+
+	private synchronized ChangeLogAsyncWriter getAsyncWriter()
+	{
+		if (_asyncWriter == null)
+		{
+			final ISysConfigBL sysConfigBL = Services.get(ISysConfigBL.class);
+			_asyncWriter = ChangeLogAsyncWriter.builder()
+					.writer(records -> insertChangeLogs(records, ITrx.TRXNAME_None))
+					.queueCapacity(sysConfigBL.getIntValue(SYSCONFIG_AsyncQueueCapacity, DEFAULT_AsyncQueueCapacity))
+					.maxRecordsPerFlush(sysConfigBL.getIntValue(SYSCONFIG_AsyncMaxRecordsPerFlush, DEFAULT_AsyncMaxRecordsPerFlush))
+					.flushIntervalMillis(sysConfigBL.getIntValue(SYSCONFIG_AsyncFlushIntervalMillis, DEFAULT_AsyncFlushIntervalMillis))
+					.build();
+		}
+		return _asyncWriter;
+	}
+
+	/**
+	 * Writes the change logs which are still queued to be written asynchronously.
+	 * Called when the application shuts down.
+	 */
+	public synchronized void shutdownAsyncWriter()
+	{
+		if (_asyncWriter != null)
+		{
+			_asyncWriter.shutdown();
+		}
+	}
+
+	/**
+	 * Inserts given (already validated) records using one JDBC batch.
+	 */
+	private static void insertChangeLogs(final List<ChangeLogRecord> records, final String trxName)
+	{
 		PreparedStatement pstmt = null;
 		try
 		{
-			int countCreated = 0;
+			pstmt = DB.prepareStatement(SQL_INSERT_CHANGELOG, trxName);
 			for (final ChangeLogRecord record : records)
 			{
-				if (record == null)
-				{
-					continue;
-				}
-
-				// Null handling
 				final Object oldValue = record.getOldValue();
 				final Object newValue = record.getNewValue();
-				if (oldValue == null && newValue == null)
-				{
-					continue;
-				}
-				// Equal Value
-				if (oldValue != null && newValue != null && oldValue.equals(newValue))
-				{
-					continue;
-				}
-
-				//
-				final int AD_Table_ID = record.getAD_Table_ID();
-				if (!isLogged(AD_Table_ID))
-				{
-					continue;
-				}
-
-				if (pstmt == null)
-				{
-					pstmt = DB.prepareStatement(SQL_INSERT_CHANGELOG, ITrx.TRXNAME_ThreadInherited);
-				}
 
 				DB.setParameters(pstmt, new Object[] {
-						AD_Table_ID //
+						record.getAD_Table_ID() //
 						, record.getAD_Column_ID() //
 						, record.getRecord_ID() //
 						//
@@ -148,18 +274,14 @@ public class SessionDAO implements ISessionDAO
 						, record.getAD_User_ID() // UpdatedBy
 				});
 				pstmt.addBatch();
-				countCreated++;
 			}
 
-			if (pstmt != null)
-			{
-				pstmt.executeBatch();
-				logger.trace("Created {} records", countCreated);
-			}
+			pstmt.executeBatch();
+			logger.trace("Created {} records", records.size());
 		}
-		catch (final Exception e)
+		catch (final SQLException e)
 		{
-			logger.error("Failed creating change log", e);
+			throw new DBException(e, SQL_INSERT_CHANGELOG);
 		}
 		finally
 		{
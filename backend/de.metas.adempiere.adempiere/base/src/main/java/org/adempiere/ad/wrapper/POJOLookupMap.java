@@ -36,7 +36,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.annotation.Nullable;
 import javax.management.InstanceAlreadyExistsException;
@@ -222,6 +224,11 @@ public final class POJOLookupMap implements IPOJOLookupMap, IModelValidationEngi
 	 */
 	private final POJOLookupMapInstancesTracker instancesTracker = new POJOLookupMapInstancesTracker();
 
+	/**
+	 * Number of lookups and queries per table, i.e. the number of SQL statements a real database would have to execute.
+	 */
+	private final Map<String, AtomicInteger> queriesCountByTableName = new ConcurrentHashMap<>();
+
 	private POJOLookupMap(final String name)
 	{
 		super();
@@ -264,6 +271,8 @@ public final class POJOLookupMap implements IPOJOLookupMap, IModelValidationEngi
 			return null;
 		}
 
+		countQuery(tableName);
+
 		final Map<Integer, Object> tableRecords = cachedObjects.get(tableName);
 		if (tableRecords == null || tableRecords.isEmpty())
 		{
@@ -297,6 +306,8 @@ public final class POJOLookupMap implements IPOJOLookupMap, IModelValidationEngi
 
 	public <T> T lookup(final String tableName, final int recordId)
 	{
+		countQuery(tableName);
+
 		final Map<Integer, Object> tableRecords = cachedObjects.get(tableName);
 		if (tableRecords == null)
 		{
@@ -527,6 +538,7 @@ public final class POJOLookupMap implements IPOJOLookupMap, IModelValidationEngi
 	public <T> List<T> getRecords(final String tableName, final Class<T> clazz, final IQueryFilter<T> filter, final Comparator<T> orderByComparator, final String trxName)
 	{
 		assertSameTableName(tableName, clazz);
+		countQuery(tableName);
 
 		final Map<Integer, Object> recordsMap = cachedObjects.get(tableName);
 		if (recordsMap == null || recordsMap.isEmpty())
@@ -631,6 +643,7 @@ public final class POJOLookupMap implements IPOJOLookupMap, IModelValidationEngi
 		Check.assumeNotNull(filter, "filter not null");
 
 		final String tableName = InterfaceWrapperHelper.getTableName(clazz);
+		countQuery(tableName);
 
 		final Map<Integer, Object> recordsMap = cachedObjects.get(tableName);
 		if (recordsMap == null || recordsMap.isEmpty())
@@ -716,6 +729,26 @@ public final class POJOLookupMap implements IPOJOLookupMap, IModelValidationEngi
 	{
 		nextId = DEFAULT_FirstId;
 		cachedObjects.clear();
+		resetQueriesCount();
+	}
+
+	private void countQuery(final String tableName)
+	{
+		queriesCountByTableName.computeIfAbsent(tableName, k -> new AtomicInteger()).incrementAndGet();
+	}
+
+	/**
+	 * @return how many times records of the given table were looked up or queried since the last {@link #resetQueriesCount()}
+	 */
+	public int getQueriesCount(@NonNull final String tableName)
+	{
+		final AtomicInteger queriesCount = queriesCountByTableName.get(tableName);
+		return queriesCount != null ? queriesCount.get() : 0;
+	}
+
+	public void resetQueriesCount()
+	{
+		queriesCountByTableName.clear();
 	}
 
 	@Override
@@ -23,6 +23,7 @@ package org.adempiere.archive.api;
  */
 
 import java.io.InputStream;
+import java.io.OutputStream;
 
 import org.adempiere.ad.persistence.ModelDynAttributeAccessor;
 import org.compiere.model.I_AD_Archive;
@@ -125,4 +126,10 @@ public interface IArchiveBL extends ISingletonService
 	InputStream getBinaryDataAsStream(I_AD_Archive archive);
 
 	void setBinaryData(I_AD_Archive archive, byte[] data);
+
+	/** @see org.adempiere.archive.spi.IArchiveStorage#setBinaryDataFromStream(I_AD_Archive, InputStream) */
+	void setBinaryDataFromStream(I_AD_Archive archive, InputStream data);
+
+	/** @see org.adempiere.archive.spi.IArchiveStorage#writeBinaryDataTo(I_AD_Archive, OutputStream) */
+	long writeBinaryDataTo(I_AD_Archive archive, OutputStream out);
 }
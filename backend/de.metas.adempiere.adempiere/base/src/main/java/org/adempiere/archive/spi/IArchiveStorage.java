@@ -24,6 +24,7 @@ package org.adempiere.archive.spi;
 
 
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Properties;
 
 import org.compiere.model.I_AD_Archive;
@@ -56,4 +57,20 @@ public interface IArchiveStorage
 	InputStream getBinaryDataAsStream(I_AD_Archive archive);
 
 	void setBinaryData(I_AD_Archive archive, byte[] data);
+
+	/**
+	 * Same as {@link #setBinaryData(I_AD_Archive, byte[])}, but the data is read from given stream, without loading it all in memory (if the storage supports that).
+	 * 
+	 * NOTE: the stream is not closed.
+	 */
+	void setBinaryDataFromStream(I_AD_Archive archive, InputStream data);
+
+	/**
+	 * Writes the archive's data to given stream, without loading it all in memory (if the storage supports that).
+	 * 
+	 * NOTE: the stream is not closed.
+	 * 
+	 * @return number of bytes written
+	 */
+	long writeBinaryDataTo(I_AD_Archive archive, OutputStream out);
 }
@@ -24,14 +24,19 @@ package org.adempiere.archive.spi.impl;
 
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Properties;
 
 import org.adempiere.archive.api.IArchiveStorageFactory;
 import org.adempiere.archive.spi.IArchiveStorage;
+import org.adempiere.exceptions.AdempiereException;
 import org.adempiere.model.InterfaceWrapperHelper;
 import org.compiere.model.I_AD_Archive;
 
+import com.google.common.io.ByteStreams;
+
 import de.metas.util.Services;
 
 /**
@@ -66,6 +71,35 @@ public abstract class AbstractArchiveStorage implements IArchiveStorage
 		return new ByteArrayInputStream(inflatedData);
 	}
 
+	/**
+	 * Reads all data in memory and calls {@link #setBinaryData(I_AD_Archive, byte[])}. Storages which can do better shall override it.
+	 */
+	@Override
+	public void setBinaryDataFromStream(final I_AD_Archive archive, final InputStream data)
+	{
+		try
+		{
+			setBinaryData(archive, ByteStreams.toByteArray(data));
+		}
+		catch (final IOException ex)
+		{
+			throw new AdempiereException("Failed reading data for " + archive, ex);
+		}
+	}
+
+	@Override
+	public long writeBinaryDataTo(final I_AD_Archive archive, final OutputStream out)
+	{
+		try (final InputStream in = getBinaryDataAsStream(archive))
+		{
+			return in != null ? ByteStreams.copy(in, out) : 0;
+		}
+		catch (final IOException ex)
+		{
+			throw new AdempiereException("Failed writing data of " + archive, ex);
+		}
+	}
+
 	protected IArchiveStorageFactory getArchiveStorageFactory()
 	{
 		return Services.get(IArchiveStorageFactory.class);
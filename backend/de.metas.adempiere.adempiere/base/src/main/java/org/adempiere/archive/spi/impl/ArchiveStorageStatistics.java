@@ -0,0 +1,124 @@
+package org.adempiere.archive.spi.impl;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+
+import org.adempiere.util.lang.IAutoCloseable;
+
+import lombok.Builder;
+import lombok.Value;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Counts the archive data which was written by the archive storages, and how much of it was not written because identical content was already stored.
+ * <p>
+ * Only what is stored by the thread which is collecting (see {@link #collectInCurrentThread()}) is counted, so concurrent runs don't pollute each other's statistics.
+ */
+public final class ArchiveStorageStatistics
+{
+	public static ArchiveStorageStatistics newInstance()
+	{
+		return new ArchiveStorageStatistics();
+	}
+
+	private static final ThreadLocal<ArchiveStorageStatistics> currentThreadStatistics = new ThreadLocal<>();
+
+	private final AtomicLong countStored = new AtomicLong();
+	private final AtomicLong bytesStored = new AtomicLong();
+	private final AtomicLong countDeduplicated = new AtomicLong();
+	private final AtomicLong bytesDeduplicated = new AtomicLong();
+
+	private ArchiveStorageStatistics()
+	{
+	}
+
+	/**
+	 * Collects the statistics of what is stored by the current thread until the returned closeable is closed.
+	 */
+	public IAutoCloseable collectInCurrentThread()
+	{
+		final ArchiveStorageStatistics previousStatistics = currentThreadStatistics.get();
+		currentThreadStatistics.set(this);
+		return () -> restoreCurrentThreadStatistics(previousStatistics);
+	}
+
+	private static void restoreCurrentThreadStatistics(@Nullable final ArchiveStorageStatistics previousStatistics)
+	{
+		if (previousStatistics != null)
+		{
+			currentThreadStatistics.set(previousStatistics);
+		}
+		else
+		{
+			currentThreadStatistics.remove();
+		}
+	}
+
+	static void recordStoredInCurrentThread(final long bytes)
+	{
+		final ArchiveStorageStatistics statistics = currentThreadStatistics.get();
+		if (statistics != null)
+		{
+			statistics.countStored.incrementAndGet();
+			statistics.bytesStored.addAndGet(bytes);
+		}
+	}
+
+	static void recordDeduplicatedInCurrentThread(final long bytes)
+	{
+		final ArchiveStorageStatistics statistics = currentThreadStatistics.get();
+		if (statistics != null)
+		{
+			statistics.countDeduplicated.incrementAndGet();
+			statistics.bytesDeduplicated.addAndGet(bytes);
+		}
+	}
+
+	public Snapshot getSnapshot()
+	{
+		return Snapshot.builder()
+				.countStored(countStored.get())
+				.bytesStored(bytesStored.get())
+				.countDeduplicated(countDeduplicated.get())
+				.bytesDeduplicated(bytesDeduplicated.get())
+				.build();
+	}
+
+	@Value
+	@Builder
+	public static class Snapshot
+	{
+		long countStored;
+		long bytesStored;
+		long countDeduplicated;
+		long bytesDeduplicated;
+
+		public String toSummaryString()
+		{
+			return "Stored #" + countStored + " (" + bytesStored + " bytes)"
+					+ ", deduplicated #" + countDeduplicated + " (" + bytesDeduplicated + " bytes)";
+		}
+	}
+}
@@ -0,0 +1,181 @@
+package org.adempiere.archive.spi.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.adempiere.exceptions.AdempiereException;
+import org.slf4j.Logger;
+
+import com.google.common.io.BaseEncoding;
+import com.google.common.io.ByteStreams;
+
+import de.metas.logging.LogManager;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Stores files by the SHA-256 hash of their content, so identical content is stored only once.
+ * <p>
+ * The files are never deleted by this store, because they might be shared.
+ */
+final class ContentAddressedFileStore
+{
+	private static final Logger logger = LogManager.getLogger(ContentAddressedFileStore.class);
+
+	private final Path rootDir;
+
+	ContentAddressedFileStore(@NonNull final Path rootDir)
+	{
+		this.rootDir = rootDir;
+	}
+
+	@Value
+	@Builder
+	static class StoreResult
+	{
+		/** path of the stored file, relative to the store's root directory */
+		@NonNull
+		Path relativePath;
+
+		long size;
+
+		/** true if the content was already stored before */
+		boolean deduplicated;
+	}
+
+	/**
+	 * Streams the given data to a temporary file while hashing it, and then moves it to its content-addressed location, unless that file already exists.
+	 * 
+	 * NOTE: the stream is not closed.
+	 */
+	public StoreResult store(@NonNull final InputStream data, @NonNull final String fileExtension)
+	{
+		Path tempFile = null;
+		try
+		{
+			Files.createDirectories(rootDir);
+			tempFile = Files.createTempFile(rootDir, "upload-", ".tmp");
+
+			final MessageDigest digest = newSHA256Digest();
+			final long size;
+			try (final OutputStream out = Files.newOutputStream(tempFile))
+			{
+				size = ByteStreams.copy(new DigestInputStream(data, digest), out);
+			}
+			if (size == 0)
+			{
+				throw new AdempiereException("Data may not be empty");
+			}
+
+			final String hash = BaseEncoding.base16().lowerCase().encode(digest.digest());
+			final Path relativePath = rootDir.getFileSystem().getPath(hash.substring(0, 2), hash + fileExtension);
+			final Path file = rootDir.resolve(relativePath);
+
+			boolean deduplicated = Files.exists(file);
+			if (!deduplicated)
+			{
+				Files.createDirectories(file.getParent());
+				try
+				{
+					Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE);
+					tempFile = null;
+				}
+				catch (final FileAlreadyExistsException ex)
+				{
+					// stored meanwhile by somebody else
+					deduplicated = true;
+				}
+			}
+
+			if (deduplicated)
+			{
+				ArchiveStorageStatistics.recordDeduplicatedInCurrentThread(size);
+			}
+			else
+			{
+				ArchiveStorageStatistics.recordStoredInCurrentThread(size);
+			}
+			logger.debug("Stored {} ({} bytes, deduplicated={})", file, size, deduplicated);
+
+			return StoreResult.builder()
+					.relativePath(relativePath)
+					.size(size)
+					.deduplicated(deduplicated)
+					.build();
+		}
+		catch (final IOException ex)
+		{
+			throw new AdempiereException("Failed storing data in " + rootDir, ex);
+		}
+		finally
+		{
+			deleteIfExists(tempFile);
+		}
+	}
+
+	private static MessageDigest newSHA256Digest()
+	{
+		try
+		{
+			return MessageDigest.getInstance("SHA-256");
+		}
+		catch (final NoSuchAlgorithmException ex)
+		{
+			throw new AdempiereException(ex);
+		}
+	}
+
+	private static void deleteIfExists(final Path file)
+	{
+		if (file == null)
+		{
+			return;
+		}
+
+		try
+		{
+			Files.deleteIfExists(file);
+		}
+		catch (final IOException ex)
+		{
+			logger.warn("Failed deleting {}. Ignored.", file, ex);
+		}
+	}
+
+	@Override
+	public String toString()
+	{
+		return "ContentAddressedFileStore[" + rootDir + "]";
+	}
+}
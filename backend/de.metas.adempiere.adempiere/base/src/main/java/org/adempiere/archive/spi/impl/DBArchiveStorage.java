@@ -25,6 +25,8 @@ package org.adempiere.archive.spi.impl;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Properties;
 import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
@@ -35,10 +37,15 @@ import lombok.NonNull;
 import org.adempiere.exceptions.AdempiereException;
 import org.compiere.model.I_AD_Archive;
 import org.slf4j.Logger;
+
+import com.google.common.io.ByteStreams;
+
 import de.metas.logging.LogManager;
 
 /**
- * Database archive storage
+ * Database archive storage.
+ * 
+ * The data is stored zipped in {@link I_AD_Archive#COLUMNNAME_BinaryData}. It's zipped and unzipped while streaming, so only the compressed data is held in memory.
  * 
  * @author tsa
  * 
@@ -63,49 +70,45 @@ public class DBArchiveStorage extends AbstractArchiveStorage
 	@Override
 	public byte[] getBinaryData(final I_AD_Archive archive)
 	{
-		byte[] deflatedData = archive.getBinaryData();
-		// m_deflated = null;
-		// m_inflated = null;
-		if (deflatedData == null)
-			return null;
-		//
-		logger.debug("ZipSize=" + deflatedData.length);
-		// m_deflated = new Integer(deflatedData.length);
-		if (deflatedData.length == 0)
+		try (final InputStream in = getBinaryDataAsStream(archive))
+		{
+			return in != null ? ByteStreams.toByteArray(in) : null;
+		}
+		catch (final IOException e)
+		{
+			throw new AdempiereException(e);
+		}
+	} // getBinaryData
+
+	/**
+	 * @return stream which inflates the data while it's read
+	 */
+	@Override
+	public InputStream getBinaryDataAsStream(final I_AD_Archive archive)
+	{
+		final byte[] deflatedData = archive.getBinaryData();
+		if (deflatedData == null || deflatedData.length == 0)
+		{
 			return null;
+		}
+		logger.debug("ZipSize={}", deflatedData.length);
 
-		byte[] inflatedData = null;
 		try
 		{
-			ByteArrayInputStream in = new ByteArrayInputStream(deflatedData);
-			ZipInputStream zip = new ZipInputStream(in);
-			ZipEntry entry = zip.getNextEntry();
-			if (entry != null) // just one entry
+			final ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(deflatedData));
+			final ZipEntry entry = zip.getNextEntry();
+			if (entry == null)
 			{
-				ByteArrayOutputStream out = new ByteArrayOutputStream();
-				byte[] buffer = new byte[2048];
-				int length = zip.read(buffer);
-				while (length != -1)
-				{
-					out.write(buffer, 0, length);
-					length = zip.read(buffer);
-				}
-				//
-				inflatedData = out.toByteArray();
-				logger.debug("Size=" + inflatedData.length + " - zip=" + entry.getCompressedSize()
-						+ "(" + entry.getSize() + ") "
-						+ (entry.getCompressedSize() * 100 / entry.getSize()) + "%");
-				// m_inflated = new Integer(inflatedData.length);
+				zip.close();
+				return null;
 			}
+			return zip; // just one entry, so the stream ends with it
 		}
-		catch (Exception e)
+		catch (final IOException e)
 		{
-			// logger.error("", e);
-			inflatedData = null;
 			throw new AdempiereException(e);
 		}
-		return inflatedData;
-	} // getBinaryData
+	}
 
 	@Override
 	public void setBinaryData(@NonNull final I_AD_Archive archive, @NonNull final byte[] uncompressedData)
@@ -116,39 +119,46 @@ public class DBArchiveStorage extends AbstractArchiveStorage
 					.appendParametersToMessage()
 					.setParameter("AD_Archive", archive);
 		}
+
+		setBinaryDataFromStream(archive, new ByteArrayInputStream(uncompressedData));
+	}
+
+	@Override
+	public void setBinaryDataFromStream(@NonNull final I_AD_Archive archive, @NonNull final InputStream uncompressedData)
+	{
 		final ByteArrayOutputStream out = new ByteArrayOutputStream();
-		final ZipOutputStream zip = new ZipOutputStream(out);
-		zip.setMethod(ZipOutputStream.DEFLATED);
-		zip.setLevel(Deflater.BEST_COMPRESSION);
-		zip.setComment("adempiere");
-		//
-		byte[] compressedData = null;
-		try
+		final long uncompressedSize;
+		try (final ZipOutputStream zip = new ZipOutputStream(out))
 		{
+			zip.setMethod(ZipOutputStream.DEFLATED);
+			zip.setLevel(Deflater.BEST_COMPRESSION);
+			zip.setComment("adempiere");
+
 			final ZipEntry entry = new ZipEntry("AdempiereArchive");
 			entry.setTime(System.currentTimeMillis());
 			entry.setMethod(ZipEntry.DEFLATED);
 			zip.putNextEntry(entry);
-			zip.write(uncompressedData, 0, uncompressedData.length);
+			uncompressedSize = ByteStreams.copy(uncompressedData, zip);
 			zip.closeEntry();
-			logger.debug(entry.getCompressedSize() + " (" + entry.getSize() + ") "
-					+ (entry.getCompressedSize() * 100 / entry.getSize()) + "%");
-			//
-			// zip.finish();
-			zip.close();
-			compressedData = out.toByteArray();
-			logger.debug("Length=" + uncompressedData.length);
-			// m_deflated = new Integer(compressedData.length);
 		}
-		catch (Exception e)
+		catch (final Exception e)
 		{
-			// log.error("saveLOBData", e);
-			// compressedData = null;
-			// m_deflated = null;
 			throw AdempiereException.wrapIfNeeded(e);
 		}
 
+		if (uncompressedSize == 0)
+		{
+			throw new AdempiereException("uncompressedData may not be empty")
+					.appendParametersToMessage()
+					.setParameter("AD_Archive", archive);
+		}
+
+		final byte[] compressedData = out.toByteArray();
+		logger.debug("Length={}, ZipSize={}", uncompressedSize, compressedData.length);
+
 		archive.setBinaryData(compressedData);
 		archive.setIsFileSystem(false);
+
+		ArchiveStorageStatistics.recordStoredInCurrentThread(uncompressedSize);
 	}
 }
@@ -23,10 +23,17 @@ package org.adempiere.archive.spi.impl;
  */
 
 
-import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.Properties;
 import org.slf4j.Logger;
 import de.metas.logging.LogManager;
@@ -38,6 +45,7 @@ import org.adempiere.archive.api.IArchiveBL;
 import org.adempiere.exceptions.AdempiereException;
 import org.adempiere.model.InterfaceWrapperHelper;
 import org.adempiere.service.IClientDAO;
+import org.adempiere.service.ISysConfigBL;
 import org.compiere.model.I_AD_Archive;
 import org.compiere.model.I_AD_Client;
 import org.compiere.util.Ini;
@@ -45,7 +53,10 @@ import org.compiere.util.MimeType;
 import org.compiere.util.Util;
 
 /**
- * File system archive storage
+ * File system archive storage.
+ * 
+ * If {@link #SYSCONFIG_ContentAddressed} is enabled, the files are stored in the {@link #CONTENT_FOLDER} by their content's hash (see {@link ContentAddressedFileStore}),
+ * so identical documents are stored only once.
  * 
  * @author tsa
  * 
@@ -62,7 +73,13 @@ public class FilesystemArchiveStorage extends AbstractArchiveStorage
 	 */
 	private static final String ARCHIVE_FOLDER_PLACEHOLDER = "%ARCHIVE_FOLDER%";
 
+	public static final String SYSCONFIG_ContentAddressed = "org.adempiere.archive.spi.impl.FilesystemArchiveStorage.ContentAddressed";
+
+	/** folder (relative to the archive root) where the content-addressed files are stored */
+	private static final String CONTENT_FOLDER = "content";
+
 	private String archivePathRoot;
+	private ContentAddressedFileStore contentStore; // null if not content addressed
 
 	public FilesystemArchiveStorage()
 	{
@@ -74,7 +91,11 @@ public class FilesystemArchiveStorage extends AbstractArchiveStorage
 	{
 		final I_AD_Client client = Services.get(IClientDAO.class).retriveClient(ctx, adClientId);
 		this.archivePathRoot = getArchivePath(client);
-		logger.info("Archive Path: {}, Config={}", new Object[] { archivePathRoot, client });
+
+		final boolean contentAddressed = Services.get(ISysConfigBL.class).getBooleanValue(SYSCONFIG_ContentAddressed, false, adClientId);
+		this.contentStore = contentAddressed ? new ContentAddressedFileStore(Paths.get(archivePathRoot, CONTENT_FOLDER)) : null;
+
+		logger.info("Archive Path: {}, ContentAddressed={}, Config={}", archivePathRoot, contentAddressed, client);
 	}
 	
 	private final void checkContext()
@@ -138,9 +159,73 @@ public class FilesystemArchiveStorage extends AbstractArchiveStorage
 	 */
 	@Override
 	public byte[] getBinaryData(final I_AD_Archive archive)
+	{
+		final File file = getFileOrNull(archive);
+		return file != null ? Util.readBytes(file) : null;
+	}
+
+	@Override
+	public InputStream getBinaryDataAsStream(final I_AD_Archive archive)
+	{
+		final File file = getFileOrNull(archive);
+		if (file == null)
+		{
+			return null;
+		}
+
+		try
+		{
+			return Files.newInputStream(file.toPath());
+		}
+		catch (final IOException ioe)
+		{
+			throw new AdempiereException(ioe.getLocalizedMessage(), ioe);
+		}
+	}
+
+	/**
+	 * Writes the file to given stream. If the stream is a {@link FileOutputStream}, the file is transferred channel-to-channel, without copying it through the heap.
+	 */
+	@Override
+	public long writeBinaryDataTo(final I_AD_Archive archive, final OutputStream out)
+	{
+		final File file = getFileOrNull(archive);
+		if (file == null)
+		{
+			return 0;
+		}
+
+		try
+		{
+			if (out instanceof FileOutputStream)
+			{
+				final FileChannel targetChannel = ((FileOutputStream)out).getChannel();
+				try (final FileChannel sourceChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+				{
+					final long size = sourceChannel.size();
+					long position = 0;
+					while (position < size)
+					{
+						position += sourceChannel.transferTo(position, size - position, targetChannel);
+					}
+					return size;
+				}
+			}
+			else
+			{
+				return Files.copy(file.toPath(), out);
+			}
+		}
+		catch (final IOException ioe)
+		{
+			throw new AdempiereException(ioe.getLocalizedMessage(), ioe);
+		}
+	}
+
+	private File getFileOrNull(final I_AD_Archive archive)
 	{
 		checkContext();
-		
+
 		byte[] data = archive.getBinaryData();
 		// m_deflated = null;
 		// m_inflated = null;
@@ -175,8 +260,7 @@ public class FilesystemArchiveStorage extends AbstractArchiveStorage
 				throw new AdempiereException("File not found: " + file.getAbsolutePath());
 			}
 
-			final byte[] dataEntry = Util.readBytes(file);
-			return dataEntry;
+			return file;
 		}
 		catch (IOException ioe)
 		{
@@ -184,7 +268,6 @@ public class FilesystemArchiveStorage extends AbstractArchiveStorage
 			// logger.error(ioe.getLocalizedMessage(), ioe);
 			throw new AdempiereException(ioe.getLocalizedMessage(), ioe);
 		}
-		// return null;
 	}
 
 	/**
@@ -195,45 +278,41 @@ public class FilesystemArchiveStorage extends AbstractArchiveStorage
 	@Override
 	public void setBinaryData(final I_AD_Archive archive, final byte[] inflatedData)
 	{
-		checkContext();
-		
 		if (inflatedData == null || inflatedData.length == 0)
 		{
 			throw new IllegalArgumentException("InflatedData is NULL");
 		}
 
-		if (archive.getAD_Archive_ID() <= 0)
+		setBinaryDataFromStream(archive, new ByteArrayInputStream(inflatedData));
+	}
+
+	@Override
+	public void setBinaryDataFromStream(final I_AD_Archive archive, final InputStream data)
+	{
+		checkContext();
+
+		if (data == null)
 		{
-			// set binary data otherwise save will fail
-			archive.setBinaryData(new byte[] { '0' });
-			InterfaceWrapperHelper.save(archive);
+			throw new IllegalArgumentException("InflatedData is NULL");
 		}
 
-		// final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-		BufferedOutputStream out = null;
 		try
 		{
-			// create destination folder
-			final File destFolder = new File(archivePathRoot + File.separator + getArchivePathSnippet(archive));
-			if (!destFolder.exists())
-			{
-				if (!destFolder.mkdirs())
-				{
-					logger.warn("Unable to create folder: " + destFolder.getPath());
-				}
-			}
-			// write to pdf
 			final String mimeType = Services.get(IArchiveBL.class).getContentType(archive);
 			final String fileExtension = MimeType.getExtensionByType(mimeType);
-			final String filenamePart = archive.getAD_Archive_ID() + fileExtension;
-			final File destFile = new File(destFolder, filenamePart);
 
-			out = new BufferedOutputStream(new FileOutputStream(destFile));
-			out.write(inflatedData);
-			out.flush();
+			final String archiveInfo;
+			if (contentStore != null)
+			{
+				final ContentAddressedFileStore.StoreResult result = contentStore.store(data, fileExtension);
+				archiveInfo = ARCHIVE_FOLDER_PLACEHOLDER + CONTENT_FOLDER + File.separator + result.getRelativePath();
+			}
+			else
+			{
+				archiveInfo = writeToArchiveFolder(archive, data, fileExtension);
+			}
 
 			// 04692: metas-ts removed xml processing because totally don't need it and it's prone to "content-is-not-allowed-in-prolog" errors
-			final String archiveInfo = ARCHIVE_FOLDER_PLACEHOLDER + getArchivePathSnippet(archive) + filenamePart;
 			archive.setBinaryData(archiveInfo.getBytes(UTF_8));
 			archive.setIsFileSystem(true);
 		}
@@ -243,21 +322,41 @@ public class FilesystemArchiveStorage extends AbstractArchiveStorage
 			// m_deflated = null;
 			throw new AdempiereException("Error saving data to filesystem (archive=" + archive + ")", e);
 		}
-		finally
+	}
+
+	/**
+	 * @return archive info, i.e. the file's path, relative to {@link #ARCHIVE_FOLDER_PLACEHOLDER}
+	 */
+	private String writeToArchiveFolder(final I_AD_Archive archive, final InputStream data, final String fileExtension) throws IOException
+	{
+		if (archive.getAD_Archive_ID() <= 0)
 		{
-			if (out != null)
+			// set binary data otherwise save will fail
+			archive.setBinaryData(new byte[] { '0' });
+			InterfaceWrapperHelper.save(archive);
+		}
+
+		// create destination folder
+		final File destFolder = new File(archivePathRoot + File.separator + getArchivePathSnippet(archive));
+		if (!destFolder.exists())
+		{
+			if (!destFolder.mkdirs())
 			{
-				try
-				{
-					out.close();
-				}
-				catch (Exception e)
-				{
-				}
-				out = null;
+				logger.warn("Unable to create folder: " + destFolder.getPath());
 			}
 		}
 
+		// write to pdf
+		final String filenamePart = archive.getAD_Archive_ID() + fileExtension;
+		final File destFile = new File(destFolder, filenamePart);
+		final long size = Files.copy(data, destFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		if (size == 0)
+		{
+			throw new IllegalArgumentException("InflatedData is empty");
+		}
+		ArchiveStorageStatistics.recordStoredInCurrentThread(size);
+
+		return ARCHIVE_FOLDER_PLACEHOLDER + getArchivePathSnippet(archive) + filenamePart;
 	}
 
 	/**
@@ -22,6 +22,7 @@
 
 package org.adempiere.model;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -596,6 +597,35 @@ public class InterfaceWrapperHelper
 		models.forEach(InterfaceWrapperHelper::saveRecord);
 	}
 
+	/**
+	 * Same as {@link #saveAll(Collection)}, but if all models are backed by {@link PO}s, their INSERT/UPDATE statements are executed in JDBC batches.
+	 * <p>
+	 * NOTE: the before-save model interceptors are called for all models first, and only after that the statements are executed; see {@link PO#saveAllBatched(List)}.
+	 * If that is not acceptable for your models, use {@link #saveAll(Collection)}.
+	 */
+	public static void saveAllBatched(@NonNull final Collection<?> models)
+	{
+		if (models.isEmpty())
+		{
+			return;
+		}
+
+		final List<PO> pos = new ArrayList<>(models.size());
+		for (final Object model : models)
+		{
+			final PO po = POWrapper.getStrictPO(extractModelToSave(model));
+			if (po == null)
+			{
+				// e.g. POJOs in unit tests; there is nothing to batch
+				saveAll(models);
+				return;
+			}
+			pos.add(po);
+		}
+
+		PO.saveAllBatched(pos);
+	}
+
 	/**
 	 * Does the same as {@link #save(Object)},
 	 * but this method can be static-imported into repository implementations which usually have their own method named "save()".
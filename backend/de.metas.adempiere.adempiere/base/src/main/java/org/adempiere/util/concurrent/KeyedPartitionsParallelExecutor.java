@@ -0,0 +1,243 @@
+package org.adempiere.util.concurrent;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.adempiere.exceptions.AdempiereException;
+import org.adempiere.util.lang.IAutoCloseable;
+import org.compiere.util.Env;
+import org.slf4j.Logger;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import de.metas.logging.LogManager;
+import de.metas.util.Check;
+import lombok.Builder;
+import lombok.NonNull;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Processes items in chunks, using a fixed number of worker threads.
+ * <p>
+ * Each item is assigned to a partition, based on its partition key (see <code>partitionKeyExtractor</code>). Each partition is processed by exactly one worker,
+ * in the order in which its items were produced. So items which share the same partition key (e.g. records which touch the same master data)
+ * are never processed concurrently and always in the same order, no matter how many workers there are.
+ * <p>
+ * Each partition gets its own chunk processor (see <code>partitionChunkProcessorFactory</code>), so chunk processors don't have to be thread-safe.
+ * A chunk contains at most <code>chunkSize</code> items; it might contain less if the producer is slower than the worker.
+ * <p>
+ * The workers run with a copy of the given <code>ctx</code>.
+ */
+public final class KeyedPartitionsParallelExecutor<T>
+{
+	private static final Logger logger = LogManager.getLogger(KeyedPartitionsParallelExecutor.class);
+
+	private static final long POLL_TIMEOUT_MILLIS = 100;
+
+	private final String name;
+	private final int parallelism;
+	private final int chunkSize;
+	private final int queueCapacityPerPartition;
+	private final Properties ctx;
+	private final Function<T, Object> partitionKeyExtractor;
+	private final Supplier<Consumer<List<T>>> partitionChunkProcessorFactory;
+
+	private volatile boolean producerDone = false;
+
+	/**
+	 * @param name used to name the worker threads
+	 * @param chunkSize max number of items per chunk; default 1
+	 * @param queueCapacityPerPartition max number of items which are waiting for each partition; default is two chunks
+	 */
+	@Builder
+	private KeyedPartitionsParallelExecutor(
+			@NonNull final String name,
+			final int parallelism,
+			final int chunkSize,
+			final int queueCapacityPerPartition,
+			@NonNull final Properties ctx,
+			@NonNull final Function<T, Object> partitionKeyExtractor,
+			@NonNull final Supplier<Consumer<List<T>>> partitionChunkProcessorFactory)
+	{
+		Check.assumeNotEmpty(name, "name is not empty");
+		Check.assumeGreaterThanZero(parallelism, "parallelism");
+
+		this.name = name;
+		this.parallelism = parallelism;
+		this.chunkSize = chunkSize > 0 ? chunkSize : 1;
+		this.queueCapacityPerPartition = queueCapacityPerPartition > 0 ? queueCapacityPerPartition : 2 * this.chunkSize;
+		this.ctx = ctx;
+		this.partitionKeyExtractor = partitionKeyExtractor;
+		this.partitionChunkProcessorFactory = partitionChunkProcessorFactory;
+	}
+
+	/**
+	 * Dispatches the given items to the workers and waits until all of them were processed.
+	 * <p>
+	 * The items are consumed lazily, i.e. at most <code>queueCapacityPerPartition</code> items are waiting for each partition.
+	 * If a chunk processor fails, the remaining items are not processed anymore and the failure is propagated.
+	 */
+	public void execute(@NonNull final Iterator<T> items)
+	{
+		final List<BlockingQueue<T>> queues = new ArrayList<>(parallelism);
+		for (int i = 0; i < parallelism; i++)
+		{
+			queues.add(new ArrayBlockingQueue<>(queueCapacityPerPartition));
+		}
+
+		final ExecutorService executor = Executors.newFixedThreadPool(
+				parallelism,
+				new ThreadFactoryBuilder()
+						.setNameFormat(name + "-%d")
+						.setDaemon(true)
+						.build());
+		boolean success = false;
+		try
+		{
+			final List<Future<?>> workers = new ArrayList<>(parallelism);
+			for (final BlockingQueue<T> queue : queues)
+			{
+				workers.add(executor.submit(() -> processQueue(queue)));
+			}
+
+			while (items.hasNext())
+			{
+				final T item = items.next();
+				final BlockingQueue<T> queue = queues.get(getPartitionIndex(item));
+				while (!queue.offer(item, POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS))
+				{
+					// the queue is full; just make sure its worker is still alive, to avoid waiting forever
+					assertNoWorkerFailed(workers);
+				}
+			}
+
+			producerDone = true;
+
+			for (final Future<?> worker : workers)
+			{
+				worker.get();
+			}
+
+			success = true;
+		}
+		catch (final InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+			throw AdempiereException.wrapIfNeeded(ex);
+		}
+		catch (final ExecutionException ex)
+		{
+			throw AdempiereException.wrapIfNeeded(ex.getCause());
+		}
+		finally
+		{
+			producerDone = true;
+			if (success)
+			{
+				executor.shutdown();
+			}
+			else
+			{
+				executor.shutdownNow();
+			}
+		}
+	}
+
+	private int getPartitionIndex(final T item)
+	{
+		final Object partitionKey = partitionKeyExtractor.apply(item);
+		return partitionKey != null ? Math.floorMod(partitionKey.hashCode(), parallelism) : 0;
+	}
+
+	private static void assertNoWorkerFailed(final List<Future<?>> workers) throws InterruptedException, ExecutionException
+	{
+		for (final Future<?> worker : workers)
+		{
+			if (worker.isDone())
+			{
+				worker.get(); // throws the worker's exception, if any
+				throw new AdempiereException("Worker stopped before all items were processed");
+			}
+		}
+	}
+
+	private Void processQueue(final BlockingQueue<T> queue) throws InterruptedException
+	{
+		try (final IAutoCloseable ctxRestorer = Env.switchContext(Env.copyCtx(ctx)))
+		{
+			final Consumer<List<T>> chunkProcessor = partitionChunkProcessorFactory.get();
+			final List<T> chunk = new ArrayList<>(chunkSize);
+			while (true)
+			{
+				final T item = queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+				if (item != null)
+				{
+					chunk.add(item);
+					queue.drainTo(chunk, chunkSize - chunk.size());
+					if (chunk.size() >= chunkSize)
+					{
+						processChunk(chunkProcessor, chunk);
+					}
+				}
+				else if (producerDone && queue.isEmpty())
+				{
+					break;
+				}
+				else if (!chunk.isEmpty())
+				{
+					// the producer is slower than us; don't let the items we already have wait
+					processChunk(chunkProcessor, chunk);
+				}
+			}
+
+			if (!chunk.isEmpty())
+			{
+				processChunk(chunkProcessor, chunk);
+			}
+		}
+
+		logger.debug("Worker {} finished", Thread.currentThread().getName());
+		return null;
+	}
+
+	private static <T> void processChunk(final Consumer<List<T>> chunkProcessor, final List<T> chunk)
+	{
+		final List<T> chunkCopy = ImmutableList.copyOf(chunk);
+		chunk.clear();
+		chunkProcessor.accept(chunkCopy);
+	}
+}
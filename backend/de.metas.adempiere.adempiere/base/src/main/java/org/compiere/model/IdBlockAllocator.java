@@ -0,0 +1,307 @@
+package org.compiere.model;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.adempiere.exceptions.AdempiereException;
+import org.adempiere.service.ISysConfigBL;
+import org.slf4j.Logger;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.MoreObjects;
+
+import de.metas.logging.LogManager;
+import de.metas.util.Services;
+import de.metas.util.time.SystemTime;
+import lombok.NonNull;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Hands out primary key IDs from blocks which were reserved in the database with one round trip, instead of hitting the database (and locking <code>AD_Sequence</code>) for every single ID.
+ * <p>
+ * The block size is adaptive, per sequence: it's doubled if blocks are used up fast and halved if they are used up slowly, within {@link #SYSCONFIG_MinBlockSize} and {@link #SYSCONFIG_MaxBlockSize}.
+ * <p>
+ * NOTE: IDs which were reserved but not handed out are lost when the JVM stops, and IDs are not ascending anymore across multiple JVMs.
+ * That's why this feature needs to be enabled explicitly, see {@link #SYSCONFIG_Enabled}.
+ */
+public final class IdBlockAllocator
+{
+	public static final IdBlockAllocator instance = new IdBlockAllocator();
+
+	private static final Logger logger = LogManager.getLogger(IdBlockAllocator.class);
+
+	private static final String SYSCONFIG_Enabled = "de.metas.sequence.IdBlockAllocation.Enabled";
+	private static final String SYSCONFIG_MinBlockSize = "de.metas.sequence.IdBlockAllocation.MinBlockSize";
+	private static final String SYSCONFIG_MaxBlockSize = "de.metas.sequence.IdBlockAllocation.MaxBlockSize";
+	private static final int DEFAULT_MinBlockSize = 50;
+	private static final int DEFAULT_MaxBlockSize = 1000;
+
+	/** If a block was used up faster than this, the next block will be bigger */
+	private static final long FAST_REFILL_MILLIS = 1000;
+	/** If a block was used up slower than this, the next block will be smaller */
+	private static final long SLOW_REFILL_MILLIS = 60 * 1000;
+
+	/**
+	 * Reserves a block of IDs in the database.
+	 */
+	@FunctionalInterface
+	public interface IdBlockReserver
+	{
+		IdBlock reserve(int blockSize);
+	}
+
+	private final ConcurrentHashMap<String, SequenceIdBlocks> sequences = new ConcurrentHashMap<>();
+
+	private IdBlockAllocator()
+	{
+	}
+
+	@Override
+	public String toString()
+	{
+		return MoreObjects.toStringHelper(this)
+				.add("sequences", sequences.values())
+				.toString();
+	}
+
+	public boolean isEnabled()
+	{
+		return Services.get(ISysConfigBL.class).getBooleanValue(SYSCONFIG_Enabled, false);
+	}
+
+	/**
+	 * @param sequenceKey identifies the sequence, e.g. the table name
+	 * @param reserver used to reserve a new block of IDs when the current one is used up
+	 */
+	public int nextId(@NonNull final String sequenceKey, @NonNull final IdBlockReserver reserver)
+	{
+		final ISysConfigBL sysConfigBL = Services.get(ISysConfigBL.class);
+		final int minBlockSize = Math.max(sysConfigBL.getIntValue(SYSCONFIG_MinBlockSize, DEFAULT_MinBlockSize), 1);
+		final int maxBlockSize = Math.max(sysConfigBL.getIntValue(SYSCONFIG_MaxBlockSize, DEFAULT_MaxBlockSize), minBlockSize);
+
+		return sequences
+				.computeIfAbsent(sequenceKey, k -> new SequenceIdBlocks(k, minBlockSize))
+				.nextId(reserver, minBlockSize, maxBlockSize);
+	}
+
+	/**
+	 * Discards all reserved blocks. The remaining IDs of those blocks are lost.
+	 */
+	public void reset()
+	{
+		sequences.clear();
+	}
+
+	@VisibleForTesting
+	int getCurrentBlockSize(@NonNull final String sequenceKey)
+	{
+		final SequenceIdBlocks sequenceIdBlocks = sequences.get(sequenceKey);
+		return sequenceIdBlocks != null ? sequenceIdBlocks.getBlockSize() : -1;
+	}
+
+	private static final class SequenceIdBlocks
+	{
+		private final String sequenceKey;
+
+		private volatile IdBlock currentBlock = IdBlock.EMPTY;
+		private int blockSize;
+		private long lastReserveMillis = 0;
+
+		private SequenceIdBlocks(final String sequenceKey, final int initialBlockSize)
+		{
+			this.sequenceKey = sequenceKey;
+			this.blockSize = initialBlockSize;
+		}
+
+		@Override
+		public synchronized String toString()
+		{
+			return MoreObjects.toStringHelper(this)
+					.add("sequenceKey", sequenceKey)
+					.add("blockSize", blockSize)
+					.add("currentBlock", currentBlock)
+					.toString();
+		}
+
+		public int nextId(final IdBlockReserver reserver, final int minBlockSize, final int maxBlockSize)
+		{
+			while (true)
+			{
+				// Fast path: lock free
+				final IdBlock block = currentBlock;
+				final int id = block.nextIdOrNone();
+				if (id > 0)
+				{
+					return id;
+				}
+
+				synchronized (this)
+				{
+					// only the first thread which found the block used up shall reserve the next one
+					if (currentBlock == block)
+					{
+						currentBlock = reserveNextBlock(reserver, minBlockSize, maxBlockSize);
+					}
+				}
+			}
+		}
+
+		private IdBlock reserveNextBlock(final IdBlockReserver reserver, final int minBlockSize, final int maxBlockSize)
+		{
+			final long now = SystemTime.millis();
+			final long millisSinceLastReserve = now - lastReserveMillis;
+			if (lastReserveMillis > 0 && millisSinceLastReserve < FAST_REFILL_MILLIS)
+			{
+				blockSize = Math.min(blockSize * 2, maxBlockSize);
+			}
+			else if (lastReserveMillis > 0 && millisSinceLastReserve > SLOW_REFILL_MILLIS)
+			{
+				blockSize = Math.max(blockSize / 2, minBlockSize);
+			}
+			blockSize = Math.max(Math.min(blockSize, maxBlockSize), minBlockSize);
+			lastReserveMillis = now;
+
+			final IdBlock block = reserver.reserve(blockSize);
+			if (block == null || block.isEmpty())
+			{
+				throw new AdempiereException("No IDs could be reserved for " + sequenceKey);
+			}
+
+			logger.debug("Reserved {} for {}", block, sequenceKey);
+			return block;
+		}
+
+		public synchronized int getBlockSize()
+		{
+			return blockSize;
+		}
+	}
+
+	/**
+	 * A block of reserved IDs. Thread safe.
+	 */
+	public static abstract class IdBlock
+	{
+		private static final IdBlock EMPTY = ofRange(1, 0, 1);
+
+		/**
+		 * @param firstId first ID of the block
+		 * @param count how many IDs were reserved
+		 * @param increment the sequence's increment
+		 */
+		public static IdBlock ofRange(final int firstId, final int count, final int increment)
+		{
+			return new RangeIdBlock(firstId, count, increment);
+		}
+
+		public static IdBlock ofIds(@NonNull final int[] ids)
+		{
+			return new ArrayIdBlock(ids);
+		}
+
+		/** @return next ID or a value less than or equal to zero if this block was used up */
+		abstract int nextIdOrNone();
+
+		abstract boolean isEmpty();
+	}
+
+	private static final class RangeIdBlock extends IdBlock
+	{
+		private final AtomicLong nextId;
+		private final long endIdExclusive;
+		private final int increment;
+
+		private RangeIdBlock(final int firstId, final int count, final int increment)
+		{
+			if (increment <= 0)
+			{
+				throw new AdempiereException("Invalid increment: " + increment);
+			}
+			this.nextId = new AtomicLong(firstId);
+			this.endIdExclusive = firstId + (long)count * increment;
+			this.increment = increment;
+		}
+
+		@Override
+		public String toString()
+		{
+			return MoreObjects.toStringHelper(this)
+					.add("nextId", nextId)
+					.add("endIdExclusive", endIdExclusive)
+					.add("increment", increment)
+					.toString();
+		}
+
+		@Override
+		int nextIdOrNone()
+		{
+			final long id = nextId.getAndAdd(increment);
+			if (id >= endIdExclusive || id > Integer.MAX_VALUE)
+			{
+				return -1;
+			}
+			return (int)id;
+		}
+
+		@Override
+		boolean isEmpty()
+		{
+			return nextId.get() >= endIdExclusive;
+		}
+	}
+
+	private static final class ArrayIdBlock extends IdBlock
+	{
+		private final int[] ids;
+		private final AtomicInteger nextIndex = new AtomicInteger(0);
+
+		private ArrayIdBlock(final int[] ids)
+		{
+			this.ids = ids;
+		}
+
+		@Override
+		public String toString()
+		{
+			return MoreObjects.toStringHelper(this)
+					.add("size", ids.length)
+					.add("nextIndex", nextIndex)
+					.toString();
+		}
+
+		@Override
+		int nextIdOrNone()
+		{
+			final int index = nextIndex.getAndIncrement();
+			return index < ids.length ? ids[index] : -1;
+		}
+
+		@Override
+		boolean isEmpty()
+		{
+			return nextIndex.get() >= ids.length;
+		}
+	}
+}
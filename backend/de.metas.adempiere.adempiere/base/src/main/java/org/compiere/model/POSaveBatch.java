@@ -0,0 +1,284 @@
+package org.compiere.model;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import org.adempiere.exceptions.AdempiereException;
+import org.adempiere.exceptions.DBException;
+import org.compiere.util.DB;
+import org.compiere.util.DB.OnFail;
+import org.compiere.util.ISqlUpdateReturnProcessor;
+import org.slf4j.Logger;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import de.metas.logging.LogManager;
+import lombok.NonNull;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Collects the INSERT/UPDATE statements of multiple {@link PO}s which are saved together (see {@link PO#saveAllBatched(List)}),
+ * executes them in their original order using JDBC batches and then finishes saving each PO (after-save interceptors etc), also in the original order.
+ * <p>
+ * Statements which need to load values back (i.e. <code>INSERT ... RETURNING</code>) cannot be batched and are executed one by one, but still in the original order.
+ * Each of them interrupts the current batch, so a high number of them reduces the benefit of batching; how many there were is logged on debug level.
+ */
+final class POSaveBatch
+{
+	private static final Logger logger = LogManager.getLogger(POSaveBatch.class);
+
+	private static final int MAX_STATEMENTS_PER_BATCH = 500;
+
+	@FunctionalInterface
+	interface POSaveFinisher
+	{
+		/**
+		 * @param updateCount how many rows were inserted/updated by the PO's statement
+		 * @return true if the PO was saved successfully
+		 */
+		boolean finish(int updateCount) throws Exception;
+	}
+
+	/**
+	 * Executes the statements against the database.
+	 */
+	@VisibleForTesting
+	interface StatementsExecutor
+	{
+		int executeOne(String sql, ISqlUpdateReturnProcessor updateReturnProcessor, String trxName, int timeoutSeconds);
+
+		/**
+		 * @return the update counts, in the same order as the given statements
+		 */
+		int[] executeBatch(List<String> sqls, String trxName, int timeoutSeconds);
+	}
+
+	private static final class DBStatementsExecutor implements StatementsExecutor
+	{
+		private static final DBStatementsExecutor instance = new DBStatementsExecutor();
+
+		@Override
+		public int executeOne(
+				@NonNull final String sql,
+				@Nullable final ISqlUpdateReturnProcessor updateReturnProcessor,
+				final String trxName,
+				final int timeoutSeconds)
+		{
+			return DB.executeUpdate(sql,
+					(Object[])null,  // params,
+					OnFail.ThrowException,  // onFail
+					trxName,
+					timeoutSeconds,
+					updateReturnProcessor);
+		}
+
+		@Override
+		public int[] executeBatch(@NonNull final List<String> sqls, final String trxName, final int timeoutSeconds)
+		{
+			Statement stmt = null;
+			String currentSql = null;
+			try
+			{
+				stmt = DB.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY, trxName);
+				if (timeoutSeconds > 0)
+				{
+					stmt.setQueryTimeout(timeoutSeconds);
+				}
+
+				for (final String sql : sqls)
+				{
+					currentSql = sql;
+					stmt.addBatch(sql);
+				}
+				currentSql = null;
+
+				return stmt.executeBatch();
+			}
+			catch (final SQLException ex)
+			{
+				throw new DBException(ex, currentSql != null ? currentSql : sqls.get(0));
+			}
+			finally
+			{
+				DB.close(stmt);
+			}
+		}
+	}
+
+	private static final class Item
+	{
+		/** only used for reporting */
+		private final Object po;
+		@Nullable
+		private final String sql;
+		@Nullable
+		private final ISqlUpdateReturnProcessor updateReturnProcessor;
+		private final int timeoutSeconds;
+		private final POSaveFinisher finisher;
+
+		private int updateCount = -1;
+
+		private Item(
+				@NonNull final Object po,
+				@Nullable final String sql,
+				@Nullable final ISqlUpdateReturnProcessor updateReturnProcessor,
+				final int timeoutSeconds,
+				@NonNull final POSaveFinisher finisher)
+		{
+			this.po = po;
+			this.sql = sql;
+			this.updateReturnProcessor = updateReturnProcessor;
+			this.timeoutSeconds = timeoutSeconds;
+			this.finisher = finisher;
+		}
+
+		private boolean isBatchable()
+		{
+			return sql != null && updateReturnProcessor == null;
+		}
+	}
+
+	private final String trxName;
+	private final StatementsExecutor statementsExecutor;
+	private final List<Item> items = new ArrayList<>();
+
+	private int countRoundTrips = 0;
+	private int countNotBatchable = 0;
+
+	POSaveBatch(final String trxName)
+	{
+		this(trxName, DBStatementsExecutor.instance);
+	}
+
+	@VisibleForTesting
+	POSaveBatch(final String trxName, @NonNull final StatementsExecutor statementsExecutor)
+	{
+		this.trxName = trxName;
+		this.statementsExecutor = statementsExecutor;
+	}
+
+	/**
+	 * @param po the PO which is saved; only used for reporting
+	 * @param sql statement to execute; <code>null</code> if there is nothing to execute for this PO, but it shall be finished in order
+	 * @param timeoutSeconds query timeout, same as the one which would be used when saving the PO individually; zero means no timeout
+	 */
+	void add(
+			@NonNull final Object po,
+			@Nullable final String sql,
+			@Nullable final ISqlUpdateReturnProcessor updateReturnProcessor,
+			final int timeoutSeconds,
+			@NonNull final POSaveFinisher finisher)
+	{
+		items.add(new Item(po, sql, updateReturnProcessor, timeoutSeconds, finisher));
+	}
+
+	void executeAndFinish() throws Exception
+	{
+		executeStatements();
+		finishAll();
+	}
+
+	@VisibleForTesting
+	int getCountRoundTrips()
+	{
+		return countRoundTrips;
+	}
+
+	private void executeStatements()
+	{
+		int index = 0;
+		while (index < items.size())
+		{
+			final Item item = items.get(index);
+			if (item.sql == null)
+			{
+				item.updateCount = 1; // nothing to execute
+				index++;
+			}
+			else if (!item.isBatchable())
+			{
+				item.updateCount = statementsExecutor.executeOne(item.sql, item.updateReturnProcessor, trxName, item.timeoutSeconds);
+				countRoundTrips++;
+				countNotBatchable++;
+				index++;
+			}
+			else
+			{
+				final List<Item> batch = new ArrayList<>();
+				while (index < items.size()
+						&& items.get(index).isBatchable()
+						&& batch.size() < MAX_STATEMENTS_PER_BATCH)
+				{
+					batch.add(items.get(index));
+					index++;
+				}
+				executeBatch(batch);
+			}
+		}
+
+		logger.debug("Executed the statements of {} POs in {} round trips; {} statements could not be batched because they load values back from the database",
+				items.size(), countRoundTrips, countNotBatchable);
+	}
+
+	private void executeBatch(final List<Item> batch)
+	{
+		final List<String> sqls = new ArrayList<>(batch.size());
+		int timeoutSeconds = 0;
+		for (final Item item : batch)
+		{
+			sqls.add(item.sql);
+			timeoutSeconds = Math.max(timeoutSeconds, item.timeoutSeconds);
+		}
+
+		final int[] updateCounts = statementsExecutor.executeBatch(sqls, trxName, timeoutSeconds);
+		countRoundTrips++;
+
+		for (int i = 0; i < batch.size(); i++)
+		{
+			// NOTE: the driver might not report the actual count, in which case we assume success
+			final int updateCount = i < updateCounts.length ? updateCounts[i] : Statement.SUCCESS_NO_INFO;
+			batch.get(i).updateCount = updateCount == Statement.SUCCESS_NO_INFO ? 1 : updateCount;
+		}
+	}
+
+	private void finishAll() throws Exception
+	{
+		for (final Item item : items)
+		{
+			final boolean ok = item.finisher.finish(item.updateCount);
+			if (!ok)
+			{
+				throw new AdempiereException("Saving failed")
+						.setParameter("po", item.po)
+						.setParameter("updateCount", item.updateCount)
+						.appendParametersToMessage();
+			}
+		}
+	}
+}
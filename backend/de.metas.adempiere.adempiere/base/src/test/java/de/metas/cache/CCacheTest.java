@@ -27,11 +27,16 @@ import static org.assertj.core.api.Assertions.assertThat;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Supplier;
 
 import org.junit.Assert;
 import org.junit.Test;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 
 public class CCacheTest
@@ -244,4 +249,151 @@ public class CCacheTest
 		cache.remove("k1");
 		assertThat(removedItems).containsEntry("k1", "v1");
 	}
+
+	@Test
+	public void test_weightedCache_evictedEntriesArePromotedFromOffHeap()
+	{
+		final CCache<String, String> cache = CCache.newWeightedCache(
+				"Test",
+				100, // maximumWeightBytes
+				(key, value) -> 10,
+				1024 * 1024, // offHeapMaxBytes
+				CCache.EXPIREMINUTES_Never);
+
+		for (int i = 1; i <= 50; i++)
+		{
+			cache.put("k" + i, "v" + i);
+		}
+
+		assertThat(cache.size()).isLessThan(50);
+		assertThat(cache.getEstimatedBytes()).isLessThanOrEqualTo(100);
+		assertThat(cache.stats().getOffHeapSize()).isGreaterThan(0);
+
+		for (int i = 1; i <= 50; i++)
+		{
+			assertThat(cache.get("k" + i)).isEqualTo("v" + i);
+		}
+
+		cache.reset();
+		assertEmpty(cache);
+		assertThat(cache.get("k1")).isNull();
+		assertThat(cache.getEstimatedBytes()).isEqualTo(0);
+	}
+
+	private static CCache<String, String> newWeightedCacheWithOffHeapEntries()
+	{
+		final CCache<String, String> cache = CCache.newWeightedCache(
+				"Test",
+				100, // maximumWeightBytes
+				(key, value) -> 10,
+				1024 * 1024, // offHeapMaxBytes
+				CCache.EXPIREMINUTES_Never);
+
+		for (int i = 1; i <= 50; i++)
+		{
+			cache.put("k" + i, "v" + i);
+		}
+		assertThat(cache.stats().getOffHeapSize()).isGreaterThan(0);
+
+		return cache;
+	}
+
+	private static String getSomeOffHeapKey(final CCache<String, String> cache)
+	{
+		for (int i = 1; i <= 50; i++)
+		{
+			final String key = "k" + i;
+			if (cache.containsKey(key) && !cache.keySet().contains(key))
+			{
+				return key;
+			}
+		}
+		throw new AssertionError("No off-heap entry found in " + cache);
+	}
+
+	@Test
+	public void test_weightedCache_removeOffHeapEntry_withoutPromotingIt()
+	{
+		final CCache<String, String> cache = newWeightedCacheWithOffHeapEntries();
+		final String offHeapKey = getSomeOffHeapKey(cache);
+		final long offHeapHitCount = cache.stats().getOffHeapHitCount();
+
+		assertThat(cache.remove(offHeapKey)).isNull(); // not deserialized, so not returned
+		assertThat(cache.stats().getOffHeapHitCount()).isEqualTo(offHeapHitCount);
+
+		assertThat(cache.containsKey(offHeapKey)).isFalse();
+		assertThat(cache.get(offHeapKey)).isNull();
+	}
+
+	@Test
+	public void test_weightedCache_putNullInvalidatesOffHeapEntry()
+	{
+		final CCache<String, String> cache = newWeightedCacheWithOffHeapEntries();
+		final String offHeapKey = getSomeOffHeapKey(cache);
+
+		cache.put(offHeapKey, null);
+
+		assertThat(cache.containsKey(offHeapKey)).isFalse();
+		assertThat(cache.get(offHeapKey, () -> "reloaded")).isEqualTo("reloaded");
+	}
+
+	@Test
+	public void test_weightedCache_removeAllInvalidatesOffHeapEntries()
+	{
+		final CCache<String, String> cache = newWeightedCacheWithOffHeapEntries();
+		final String offHeapKey = getSomeOffHeapKey(cache);
+
+		cache.removeAll(ImmutableList.of(offHeapKey, "k50"));
+
+		assertThat(cache.containsKey(offHeapKey)).isFalse();
+		assertThat(cache.containsKey("k50")).isFalse();
+	}
+
+	@Test
+	public void test_weightedCache_resetWhileOffHeap_reloadsFreshValue()
+	{
+		final CCache<String, String> cache = newWeightedCacheWithOffHeapEntries();
+		final String offHeapKey = getSomeOffHeapKey(cache);
+
+		cache.reset();
+
+		assertThat(cache.stats().getOffHeapSize()).isEqualTo(0);
+		assertThat(cache.get(offHeapKey, () -> "fresh")).isEqualTo("fresh");
+	}
+
+	/**
+	 * A value which is promoted from off-heap concurrently with a reset shall never survive that reset.
+	 */
+	@Test
+	public void test_weightedCache_promoteConcurrentlyWithReset_noStaleValue() throws Exception
+	{
+		final ExecutorService executor = Executors.newFixedThreadPool(2);
+		try
+		{
+			for (int i = 0; i < 200; i++)
+			{
+				final CCache<String, String> cache = newWeightedCacheWithOffHeapEntries();
+				final String offHeapKey = getSomeOffHeapKey(cache);
+
+				final CyclicBarrier barrier = new CyclicBarrier(2);
+				final Future<?> getter = executor.submit(() -> {
+					barrier.await();
+					return cache.get(offHeapKey);
+				});
+				final Future<?> resetter = executor.submit(() -> {
+					barrier.await();
+					return cache.reset();
+				});
+				getter.get();
+				resetter.get();
+
+				// no matter if the get happened before or after the reset, nothing shall remain cached
+				assertThat(cache.containsKey(offHeapKey)).as("iteration %s", i).isFalse();
+			}
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+	}
 }
@@ -0,0 +1,105 @@
+package de.metas.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import de.metas.cache.model.CacheInvalidateMultiRequest;
+import de.metas.cache.model.CacheInvalidateRequest;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+class CacheInvalidateRequestsCoalescerTest
+{
+	@Test
+	void coalesce_deduplicates()
+	{
+		final CacheInvalidateMultiRequest result = CacheInvalidateRequestsCoalescer.coalesce(
+				ImmutableList.of(
+						CacheInvalidateRequest.rootRecord("T1", 1),
+						CacheInvalidateRequest.rootRecord("T1", 1),
+						CacheInvalidateRequest.rootRecord("T1", 2)),
+				100);
+
+		assertThat(result.getRequests()).containsExactlyInAnyOrder(
+				CacheInvalidateRequest.rootRecord("T1", 1),
+				CacheInvalidateRequest.rootRecord("T1", 2));
+	}
+
+	@Test
+	void coalesce_collapsesToTableWideReset()
+	{
+		final List<CacheInvalidateRequest> requests = new ArrayList<>();
+		for (int i = 1; i <= 5; i++)
+		{
+			requests.add(CacheInvalidateRequest.rootRecord("T1", i));
+		}
+		requests.add(CacheInvalidateRequest.rootRecord("T2", 1));
+
+		final CacheInvalidateMultiRequest result = CacheInvalidateRequestsCoalescer.coalesce(requests, 3);
+
+		assertThat(result.getRequests()).containsExactlyInAnyOrder(
+				CacheInvalidateRequest.allRecordsForTable("T1"),
+				CacheInvalidateRequest.rootRecord("T2", 1));
+	}
+
+	@Test
+	void coalesce_collapsedChildRecordsKeepTheirRootRecords()
+	{
+		final CacheInvalidateRequest childRequest = CacheInvalidateRequest.builder()
+				.rootRecord("Root", 10)
+				.childRecord("Child", 11)
+				.build();
+
+		final CacheInvalidateMultiRequest result = CacheInvalidateRequestsCoalescer.coalesce(
+				ImmutableList.of(childRequest, CacheInvalidateRequest.allRecordsForTable("Child")),
+				100);
+
+		assertThat(result.getRequests()).containsExactlyInAnyOrder(
+				CacheInvalidateRequest.allRecordsForTable("Child"),
+				CacheInvalidateRequest.rootRecord("Root", 10));
+	}
+
+	@Test
+	void add_sendsOneMessagePerWindow()
+	{
+		final List<CacheInvalidateMultiRequest> sent = new ArrayList<>();
+		final CacheInvalidateRequestsCoalescer coalescer = new CacheInvalidateRequestsCoalescer(sent::add, 60_000, 100);
+
+		coalescer.add(ImmutableList.of(CacheInvalidateRequest.rootRecord("T1", 1)));
+		coalescer.add(ImmutableList.of(CacheInvalidateRequest.rootRecord("T1", 1), CacheInvalidateRequest.rootRecord("T1", 2)));
+		assertThat(sent).isEmpty();
+
+		coalescer.flush();
+
+		assertThat(sent).hasSize(1);
+		assertThat(sent.get(0).getRequests()).hasSize(2);
+		assertThat(coalescer.getRequestsCollected()).isEqualTo(3);
+		assertThat(coalescer.getRequestsCollapsed()).isEqualTo(1);
+	}
+}
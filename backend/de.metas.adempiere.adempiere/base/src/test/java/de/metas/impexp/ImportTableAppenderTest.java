@@ -0,0 +1,166 @@
+package de.metas.impexp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.Arrays;
+
+import javax.annotation.Nullable;
+
+import org.adempiere.service.ClientId;
+import org.adempiere.test.AdempiereTestHelper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import de.metas.impexp.ImportTableAppender.ImportTableRow;
+import de.metas.impexp.format.ImpFormat;
+import de.metas.impexp.format.ImpFormatColumn;
+import de.metas.impexp.format.ImpFormatColumnDataType;
+import de.metas.impexp.format.ImpFormatId;
+import de.metas.impexp.format.ImpFormatType;
+import de.metas.impexp.format.ImportTableDescriptor;
+import de.metas.impexp.parser.ImpDataCell;
+import de.metas.impexp.parser.ImpDataLine;
+import de.metas.impexp.util.SqlAndParamsExtractor;
+import de.metas.organization.OrgId;
+import de.metas.user.UserId;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class ImportTableAppenderTest
+{
+	private ImportTableAppender appender;
+
+	@BeforeEach
+	public void init()
+	{
+		AdempiereTestHelper.get().init();
+
+		final ImpFormat importFormat = ImpFormat.builder()
+				.id(ImpFormatId.ofRepoId(123))
+				.name("test")
+				.formatType(ImpFormatType.SEMICOLON_SEPARATED)
+				.importTableDescriptor(ImportTableDescriptor.builder()
+						.tableName("I_Test")
+						.keyColumnName("I_Test_ID")
+						.importLineNoColumnName("I_LineNo")
+						.importLineContentColumnName("I_LineContent")
+						.errorMsgMaxLength(100)
+						.build())
+				.column(ImpFormatColumn.builder().columnName("Value").startNo(1).dataType(ImpFormatColumnDataType.String).build())
+				.column(ImpFormatColumn.builder().columnName("Qty").startNo(2).dataType(ImpFormatColumnDataType.Number).build())
+				.build();
+
+		appender = ImportTableAppender.builder()
+				.importFormat(importFormat)
+				.clientId(ClientId.ofRepoId(1))
+				.orgId(OrgId.ofRepoId(2))
+				.userId(UserId.ofRepoId(3))
+				.dataImportRunId(DataImportRunId.ofRepoId(4))
+				.build();
+	}
+
+	private static String toCopyValue(@Nullable final Object value)
+	{
+		final StringBuilder data = new StringBuilder();
+		ImportTableAppender.appendCopyValue(data, value);
+		return data.toString();
+	}
+
+	@Test
+	public void appendCopyValue_null()
+	{
+		assertThat(toCopyValue(null)).isEqualTo("\\N\t");
+	}
+
+	@Test
+	public void appendCopyValue_plainString()
+	{
+		assertThat(toCopyValue("abc")).isEqualTo("abc\t");
+		assertThat(toCopyValue("")).isEqualTo("\t");
+	}
+
+	@Test
+	public void appendCopyValue_tab()
+	{
+		assertThat(toCopyValue("a\tb")).isEqualTo("a\\tb\t");
+	}
+
+	@Test
+	public void appendCopyValue_newLines()
+	{
+		assertThat(toCopyValue("a\nb\r\nc")).isEqualTo("a\\nb\\r\\nc\t");
+	}
+
+	@Test
+	public void appendCopyValue_backslash()
+	{
+		assertThat(toCopyValue("C:\\temp\\")).isEqualTo("C:\\\\temp\\\\\t");
+		assertThat(toCopyValue("\\N")).isEqualTo("\\\\N\t"); // not a null
+	}
+
+	@Test
+	public void appendCopyValue_numbersAndBooleans()
+	{
+		assertThat(toCopyValue(new BigDecimal("1.5E+3"))).isEqualTo("1500\t");
+		assertThat(toCopyValue(12)).isEqualTo("12\t");
+		assertThat(toCopyValue(true)).isEqualTo("Y\t");
+		assertThat(toCopyValue(false)).isEqualTo("N\t");
+	}
+
+	@Test
+	public void insertAndCopy_sameColumns()
+	{
+		final String insertSql = appender.createInsertIntoImportTableSql().getSql();
+		final String copySql = appender.createCopyIntoImportTableSql();
+
+		final String expectedColumns = "I_Test_ID, AD_Client_ID, AD_Org_ID, Created, CreatedBy, Updated, UpdatedBy, IsActive, Processed, I_IsImported"
+				+ ", I_LineNo, I_LineContent, C_DataImport_Run_ID, I_ErrorMsg, Value, Qty";
+		assertThat(insertSql).isEqualTo("INSERT INTO I_Test (" + expectedColumns + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+		assertThat(copySql).isEqualTo("COPY I_Test (" + expectedColumns + ") FROM STDIN");
+	}
+
+	@Test
+	public void insertAndCopy_sameValues()
+	{
+		final Timestamp now = Timestamp.valueOf("2020-03-04 05:06:07");
+		final ImpDataLine line = ImpDataLine.builder()
+				.fileLineNo(7)
+				.lineStr("val\\ue;\t12")
+				.cells(ImmutableList.of(ImpDataCell.value("val\\ue"), ImpDataCell.value(new BigDecimal("12"))))
+				.build();
+		final ImportTableRow row = new ImportTableRow(1000, now, line, Arrays.asList("val\\ue", new BigDecimal("12")));
+
+		final SqlAndParamsExtractor<ImportTableRow> insertSql = appender.createInsertIntoImportTableSql();
+		assertThat(insertSql.extractParameters(row))
+				.containsExactly(1000, 1, 2, now, 3, now, 3, "Y", "N", "N", 7, "val\\ue;\t12", 4, null, "val\\ue", new BigDecimal("12"));
+
+		final StringBuilder copyData = new StringBuilder();
+		appender.appendCopyRow(copyData, row);
+		assertThat(copyData.toString())
+				.isEqualTo("1000\t1\t2\t2020-03-04 05:06:07.0\t3\t2020-03-04 05:06:07.0\t3\tY\tN\tN\t7\tval\\\\ue;\\t12\t4\t\\N\tval\\\\ue\t12\n");
+	}
+}
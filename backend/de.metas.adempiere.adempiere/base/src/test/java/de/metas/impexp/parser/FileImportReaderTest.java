@@ -28,12 +28,15 @@ import org.junit.Assert;
 import org.junit.jupiter.api.Test;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.net.URL;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -213,4 +216,39 @@ public class FileImportReaderTest
 		assertTrue(lines.get(1).endsWith("90"));
 		assertTrue(lines.get(2).endsWith("100"));
 	}
+
+	@Test
+	public void streamMultiLines_sameAsReadMultiLines() throws IOException
+	{
+		for (final String filename : Arrays.asList("multiplelines.csv", "OnlyAppendIfInQuotesPreserveFirstLine.csv", "NumberOfEmptyLinesIsPreserved.csv", "evenNumberOfQuotes.csv"))
+		{
+			final File file = FileUtils.toFile(getClass().getResource(packagePath + "/" + filename));
+			final Charset charset = StandardCharsets.UTF_8;
+
+			final List<String> streamedLines;
+			try (final Stream<String> stream = FileImportReader.streamMultiLines(new FileInputStream(file), charset))
+			{
+				streamedLines = stream.collect(Collectors.toList());
+			}
+
+			Assertions.assertThat(streamedLines)
+					.as(filename)
+					.containsExactlyElementsOf(FileImportReader.readMultiLines(file, charset));
+		}
+	}
+
+	@Test
+	public void streamRegularLines_sameAsReadRegularLines() throws IOException
+	{
+		final File file = FileUtils.toFile(getClass().getResource(packagePath + "/regularlines.csv"));
+		final Charset charset = StandardCharsets.UTF_8;
+
+		final List<String> streamedLines;
+		try (final Stream<String> stream = FileImportReader.streamRegularLines(new FileInputStream(file), charset))
+		{
+			streamedLines = stream.collect(Collectors.toList());
+		}
+
+		Assertions.assertThat(streamedLines).containsExactlyElementsOf(FileImportReader.readRegularLines(file, charset));
+	}
 }
@@ -0,0 +1,234 @@
+package org.adempiere.ad.session.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.adempiere.ad.session.ChangeLogRecord;
+import org.adempiere.test.AdempiereTestHelper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.ImmutableList;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class ChangeLogAsyncWriterTest
+{
+	/** Batches written by the writer under test */
+	private BlockingQueue<List<ChangeLogRecord>> writtenBatches;
+	private ChangeLogAsyncWriter asyncWriter;
+
+	@BeforeEach
+	public void init()
+	{
+		AdempiereTestHelper.get().init();
+		writtenBatches = new LinkedBlockingQueue<>();
+	}
+
+	@AfterEach
+	public void shutdown()
+	{
+		if (asyncWriter != null)
+		{
+			asyncWriter.shutdown();
+		}
+	}
+
+	private static List<ChangeLogRecord> newRecords(final int count)
+	{
+		return IntStream.rangeClosed(1, count)
+				.mapToObj(recordId -> ChangeLogRecord.builder()
+						.setAD_Table_ID(1)
+						.setAD_Column_ID(2)
+						.setRecord_ID(recordId)
+						.setNewValue("value" + recordId)
+						.build())
+				.collect(ImmutableList.toImmutableList());
+	}
+
+	@Test
+	public void flushOnSize()
+	{
+		asyncWriter = ChangeLogAsyncWriter.builder()
+				.writer(records -> writtenBatches.add(ImmutableList.copyOf(records)))
+				.maxRecordsPerFlush(3)
+				.flushIntervalMillis(TimeUnit.MINUTES.toMillis(10)) // so only the size can trigger the flush
+				.build();
+
+		asyncWriter.enqueue(newRecords(7));
+
+		assertThat(pollBatch()).hasSize(3);
+		assertThat(pollBatch()).hasSize(3);
+		assertThat(writtenBatches).isEmpty(); // the last record is waiting for more
+
+		asyncWriter.shutdown();
+		assertThat(pollBatch()).hasSize(1);
+		assertThat(asyncWriter.getCountRecordsWritten()).isEqualTo(7);
+	}
+
+	@Test
+	public void flushOnInterval()
+	{
+		asyncWriter = ChangeLogAsyncWriter.builder()
+				.writer(records -> writtenBatches.add(ImmutableList.copyOf(records)))
+				.maxRecordsPerFlush(1000)
+				.flushIntervalMillis(50)
+				.build();
+
+		asyncWriter.enqueue(newRecords(2));
+		asyncWriter.enqueue(newRecords(3));
+
+		// the records are written even though the batch is not full; usually in one batch, unless the interval passed in between
+		final List<ChangeLogRecord> written = new ArrayList<>();
+		while (written.size() < 5)
+		{
+			written.addAll(pollBatch());
+		}
+		assertThat(written).hasSize(5);
+		assertThat(asyncWriter.getQueueSize()).isZero();
+	}
+
+	@Test
+	public void shutdown_writesQueuedRecords_andThenWritesInCallingThread() throws Exception
+	{
+		final CountDownLatch writerBlocked = new CountDownLatch(1);
+		final CountDownLatch releaseWriter = new CountDownLatch(1);
+		asyncWriter = ChangeLogAsyncWriter.builder()
+				.writer(records -> {
+					writerBlocked.countDown();
+					await(releaseWriter);
+					writtenBatches.add(ImmutableList.copyOf(records));
+				})
+				.maxRecordsPerFlush(1)
+				.build();
+
+		asyncWriter.enqueue(newRecords(3));
+		writerBlocked.await(10, TimeUnit.SECONDS); // the first record is being written, the other two are queued
+
+		final Thread shutdownThread = new Thread(asyncWriter::shutdown);
+		shutdownThread.start();
+		releaseWriter.countDown();
+		shutdownThread.join(TimeUnit.SECONDS.toMillis(10));
+
+		assertThat(writtenBatches).hasSize(3);
+		assertThat(asyncWriter.getQueueSize()).isZero();
+
+		// after shutdown, the records are written by the calling thread
+		writtenBatches.clear();
+		asyncWriter.enqueue(newRecords(2));
+		assertThat(writtenBatches).hasSize(1);
+		assertThat(asyncWriter.getCountRecordsWrittenByCaller()).isEqualTo(2);
+	}
+
+	@Test
+	public void fullQueue_writesInCallingThread() throws Exception
+	{
+		final CountDownLatch writerBlocked = new CountDownLatch(1);
+		final CountDownLatch releaseWriter = new CountDownLatch(1);
+		final String callingThreadName = Thread.currentThread().getName();
+		final List<String> writingThreadNames = new ArrayList<>();
+		asyncWriter = ChangeLogAsyncWriter.builder()
+				.writer(records -> {
+					final String threadName = Thread.currentThread().getName();
+					synchronized (writingThreadNames)
+					{
+						writingThreadNames.add(threadName);
+					}
+					if (!callingThreadName.equals(threadName))
+					{
+						writerBlocked.countDown();
+						await(releaseWriter);
+					}
+				})
+				.queueCapacity(2)
+				.maxRecordsPerFlush(1)
+				.build();
+
+		asyncWriter.enqueue(newRecords(1));
+		writerBlocked.await(10, TimeUnit.SECONDS); // the background writer is busy now
+
+		asyncWriter.enqueue(newRecords(5)); // 2 are queued, 3 are written by us
+
+		assertThat(asyncWriter.getCountRecordsWrittenByCaller()).isEqualTo(3);
+		synchronized (writingThreadNames)
+		{
+			assertThat(writingThreadNames).contains(callingThreadName);
+		}
+
+		releaseWriter.countDown();
+	}
+
+	@Test
+	public void failedFlush_isCountedAndDoesNotStopTheWriter()
+	{
+		asyncWriter = ChangeLogAsyncWriter.builder()
+				.writer(records -> {
+					if (records.get(0).getRecord_ID() == 1)
+					{
+						throw new RuntimeException("test failure");
+					}
+					writtenBatches.add(ImmutableList.copyOf(records));
+				})
+				.maxRecordsPerFlush(1)
+				.build();
+
+		asyncWriter.enqueue(newRecords(2));
+
+		assertThat(pollBatch()).extracting(ChangeLogRecord::getRecord_ID).containsExactly(2);
+		assertThat(asyncWriter.getCountFailedFlushes()).isEqualTo(1);
+	}
+
+	private List<ChangeLogRecord> pollBatch()
+	{
+		try
+		{
+			final List<ChangeLogRecord> batch = writtenBatches.poll(10, TimeUnit.SECONDS);
+			assertThat(batch).as("written batch").isNotNull();
+			return batch;
+		}
+		catch (final InterruptedException e)
+		{
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static void await(final CountDownLatch latch)
+	{
+		try
+		{
+			latch.await(10, TimeUnit.SECONDS);
+		}
+		catch (final InterruptedException e)
+		{
+			throw new RuntimeException(e);
+		}
+	}
+}
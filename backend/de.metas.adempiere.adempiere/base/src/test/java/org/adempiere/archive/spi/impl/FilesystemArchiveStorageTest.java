@@ -23,12 +23,21 @@ package org.adempiere.archive.spi.impl;
  */
 
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
 import java.util.Properties;
 import java.util.Random;
 
 import org.adempiere.ad.trx.api.ITrx;
 import org.adempiere.model.InterfaceWrapperHelper;
+import org.adempiere.service.ClientId;
+import org.adempiere.service.ISysConfigBL;
 import org.adempiere.test.AdempiereTestHelper;
+import org.adempiere.util.lang.IAutoCloseable;
 import org.compiere.model.I_AD_Archive;
 import org.compiere.model.I_AD_Client;
 import org.compiere.util.Env;
@@ -40,6 +49,11 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
+import com.google.common.io.ByteStreams;
+
+import de.metas.organization.OrgId;
+import de.metas.util.Services;
+
 public class FilesystemArchiveStorageTest
 {
 	@BeforeClass
@@ -51,14 +65,16 @@ public class FilesystemArchiveStorageTest
 	@Rule
 	public TemporaryFolder storageFolder = new TemporaryFolder();
 	private FilesystemArchiveStorage storage;
+	private Properties ctx;
+	private I_AD_Client client;
 
 	@Before
 	public void init()
 	{
 		AdempiereTestHelper.get().init();
 
-		final Properties ctx = Env.getCtx();
-		final I_AD_Client client = InterfaceWrapperHelper.create(ctx, I_AD_Client.class, ITrx.TRXNAME_None);
+		ctx = Env.getCtx();
+		client = InterfaceWrapperHelper.create(ctx, I_AD_Client.class, ITrx.TRXNAME_None);
 		client.setWindowsArchivePath(storageFolder.getRoot().getAbsolutePath());
 		client.setUnixArchivePath(client.getWindowsArchivePath());
 		client.setStoreArchiveOnFileSystem(true);
@@ -98,4 +114,82 @@ public class FilesystemArchiveStorageTest
 		random.nextBytes(data);
 		return data;
 	}
+
+	private FilesystemArchiveStorage createContentAddressedStorage()
+	{
+		Services.get(ISysConfigBL.class).setValue(FilesystemArchiveStorage.SYSCONFIG_ContentAddressed, true, ClientId.ofRepoId(client.getAD_Client_ID()), OrgId.ANY);
+
+		final FilesystemArchiveStorage storage = new FilesystemArchiveStorage();
+		storage.init(ctx, client.getAD_Client_ID());
+		return storage;
+	}
+
+	private I_AD_Archive createArchive(final FilesystemArchiveStorage storage, final byte[] data)
+	{
+		final I_AD_Archive archive = storage.newArchive(ctx, ITrx.TRXNAME_None);
+		storage.setBinaryDataFromStream(archive, new ByteArrayInputStream(data));
+		InterfaceWrapperHelper.save(archive);
+		return archive;
+	}
+
+	@Test
+	public void test_setBinaryDataFromStream_getBinaryDataAsStream() throws IOException
+	{
+		Ini.setClient(false);
+
+		final byte[] data = createTestDataBytes();
+		final I_AD_Archive archive = createArchive(storage, data);
+		Assert.assertEquals("Invalid IsFileSystem flag", true, archive.isFileSystem());
+
+		try (final InputStream in = storage.getBinaryDataAsStream(archive))
+		{
+			Assert.assertArrayEquals("Invalid data", data, ByteStreams.toByteArray(in));
+		}
+	}
+
+	@Test
+	public void test_writeBinaryDataTo_File() throws IOException
+	{
+		Ini.setClient(false);
+
+		final byte[] data = createTestDataBytes();
+		final I_AD_Archive archive = createArchive(storage, data);
+
+		final File targetFile = storageFolder.newFile("target.pdf");
+		try (final FileOutputStream out = new FileOutputStream(targetFile))
+		{
+			Assert.assertEquals("Invalid bytes written", data.length, storage.writeBinaryDataTo(archive, out));
+		}
+
+		Assert.assertArrayEquals("Invalid data", data, Files.readAllBytes(targetFile.toPath()));
+	}
+
+	@Test
+	public void test_contentAddressed_identicalDataIsStoredOnce()
+	{
+		Ini.setClient(false);
+		final FilesystemArchiveStorage storage = createContentAddressedStorage();
+		final byte[] data = createTestDataBytes();
+
+		final ArchiveStorageStatistics archiveStatistics = ArchiveStorageStatistics.newInstance();
+		try (final IAutoCloseable collector = archiveStatistics.collectInCurrentThread())
+		{
+			final I_AD_Archive archive1 = createArchive(storage, data);
+			final I_AD_Archive archive2 = createArchive(storage, data);
+			final I_AD_Archive archive3 = createArchive(storage, createTestDataBytes());
+
+			Assert.assertArrayEquals("Same data shall be stored in the same file", archive1.getBinaryData(), archive2.getBinaryData());
+			Assert.assertFalse("Other data shall be stored in another file", new String(archive1.getBinaryData()).equals(new String(archive3.getBinaryData())));
+			Assert.assertArrayEquals("Invalid data", data, storage.getBinaryData(archive1));
+			Assert.assertArrayEquals("Invalid data", data, storage.getBinaryData(archive2));
+		}
+
+		// not collected anymore
+		createArchive(storage, createTestDataBytes());
+
+		final ArchiveStorageStatistics.Snapshot statistics = archiveStatistics.getSnapshot();
+		Assert.assertEquals("Invalid countStored", 2, statistics.getCountStored());
+		Assert.assertEquals("Invalid countDeduplicated", 1, statistics.getCountDeduplicated());
+		Assert.assertEquals("Invalid bytesDeduplicated", data.length, statistics.getBytesDeduplicated());
+	}
 }
@@ -0,0 +1,150 @@
+package org.adempiere.util.concurrent;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.adempiere.exceptions.AdempiereException;
+import org.adempiere.test.AdempiereTestHelper;
+import org.compiere.util.Env;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class KeyedPartitionsParallelExecutorTest
+{
+	@BeforeEach
+	public void init()
+	{
+		AdempiereTestHelper.get().init();
+	}
+
+	private static List<Integer> items(final int count)
+	{
+		return IntStream.range(0, count).boxed().collect(Collectors.toList());
+	}
+
+	@Test
+	public void sameKey_sameThread_sameOrder()
+	{
+		final Map<Integer, List<Integer>> itemsByKey = new ConcurrentHashMap<>();
+		final Map<Integer, String> threadByKey = new ConcurrentHashMap<>();
+		final AtomicInteger maxChunkSize = new AtomicInteger();
+
+		KeyedPartitionsParallelExecutor.<Integer> builder()
+				.name("test")
+				.parallelism(3)
+				.chunkSize(10)
+				.ctx(Env.getCtx())
+				.partitionKeyExtractor(item -> item % 7)
+				.partitionChunkProcessorFactory(() -> chunk -> {
+					maxChunkSize.accumulateAndGet(chunk.size(), Math::max);
+
+					final String threadName = Thread.currentThread().getName();
+					for (final Integer item : chunk)
+					{
+						final int key = item % 7;
+						itemsByKey.computeIfAbsent(key, k -> new ArrayList<>()).add(item);
+						assertThat(threadByKey.computeIfAbsent(key, k -> threadName)).isEqualTo(threadName);
+					}
+				})
+				.build()
+				.execute(items(500).iterator());
+
+		assertThat(maxChunkSize.get()).isBetween(1, 10);
+		assertThat(itemsByKey).hasSize(7);
+		assertThat(itemsByKey.values().stream().mapToInt(List::size).sum()).isEqualTo(500);
+		assertThat(threadByKey.values()).allMatch(threadName -> threadName.startsWith("test-"));
+
+		// items of the same key are processed in the order they were produced
+		for (final List<Integer> keyItems : itemsByKey.values())
+		{
+			assertThat(keyItems).isSorted();
+		}
+	}
+
+	@Test
+	public void defaultChunkSize_isOne()
+	{
+		final List<Integer> chunkSizes = new ArrayList<>();
+
+		KeyedPartitionsParallelExecutor.<Integer> builder()
+				.name("test")
+				.parallelism(1)
+				.ctx(Env.getCtx())
+				.partitionKeyExtractor(item -> null)
+				.partitionChunkProcessorFactory(() -> chunk -> chunkSizes.add(chunk.size()))
+				.build()
+				.execute(items(20).iterator());
+
+		assertThat(chunkSizes).hasSize(20).containsOnly(1);
+	}
+
+	@Test
+	public void oneProcessorPerPartition()
+	{
+		final AtomicInteger processorsCount = new AtomicInteger();
+
+		KeyedPartitionsParallelExecutor.<Integer> builder()
+				.name("test")
+				.parallelism(4)
+				.ctx(Env.getCtx())
+				.partitionKeyExtractor(item -> item)
+				.partitionChunkProcessorFactory(() -> {
+					processorsCount.incrementAndGet();
+					return chunk -> {};
+				})
+				.build()
+				.execute(items(100).iterator());
+
+		assertThat(processorsCount.get()).isEqualTo(4);
+	}
+
+	@Test
+	public void chunkProcessorFailure_isPropagated()
+	{
+		final KeyedPartitionsParallelExecutor<Integer> executor = KeyedPartitionsParallelExecutor.<Integer> builder()
+				.name("test")
+				.parallelism(2)
+				.chunkSize(1)
+				.queueCapacityPerPartition(1)
+				.ctx(Env.getCtx())
+				.partitionKeyExtractor(item -> item)
+				.partitionChunkProcessorFactory(() -> chunk -> {
+					throw new AdempiereException("failed on " + chunk);
+				})
+				.build();
+
+		assertThatThrownBy(() -> executor.execute(items(50).iterator()))
+				.isInstanceOf(AdempiereException.class)
+				.hasMessageContaining("failed on");
+	}
+}
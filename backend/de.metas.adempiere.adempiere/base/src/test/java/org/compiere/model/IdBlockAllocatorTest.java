@@ -0,0 +1,133 @@
+package org.compiere.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.adempiere.test.AdempiereTestHelper;
+import org.compiere.model.IdBlockAllocator.IdBlock;
+import org.compiere.model.IdBlockAllocator.IdBlockReserver;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class IdBlockAllocatorTest
+{
+	private static final String SEQUENCE = "Test_Table";
+
+	private IdBlockAllocator allocator;
+
+	/** simulates AD_Sequence.CurrentNext */
+	private final AtomicInteger currentNext = new AtomicInteger(1000000);
+	private final AtomicInteger countReservations = new AtomicInteger(0);
+
+	private final IdBlockReserver reserver = blockSize -> {
+		countReservations.incrementAndGet();
+		return IdBlock.ofRange(currentNext.getAndAdd(blockSize), blockSize, 1);
+	};
+
+	@BeforeEach
+	public void init()
+	{
+		AdempiereTestHelper.get().init();
+
+		allocator = IdBlockAllocator.instance;
+		allocator.reset();
+	}
+
+	@Test
+	public void nextId_handsOutConsecutiveIdsFromOneBlock()
+	{
+		assertThat(allocator.nextId(SEQUENCE, reserver)).isEqualTo(1000000);
+		assertThat(allocator.nextId(SEQUENCE, reserver)).isEqualTo(1000001);
+		assertThat(allocator.nextId(SEQUENCE, reserver)).isEqualTo(1000002);
+
+		assertThat(countReservations.get()).isEqualTo(1);
+	}
+
+	@Test
+	public void nextId_reservesNextBlockWhenUsedUp_andGrowsBlockSize()
+	{
+		final int initialBlockSize = 50;
+		for (int i = 0; i < initialBlockSize + 1; i++)
+		{
+			allocator.nextId(SEQUENCE, reserver);
+		}
+
+		assertThat(countReservations.get()).isEqualTo(2);
+		assertThat(allocator.getCurrentBlockSize(SEQUENCE)).isEqualTo(initialBlockSize * 2);
+	}
+
+	@Test
+	public void nextId_arrayBlock()
+	{
+		final int[] ids = { 7, 3, 11 };
+		final IdBlockReserver arrayReserver = blockSize -> IdBlock.ofIds(ids);
+
+		assertThat(allocator.nextId("native_seq", arrayReserver)).isEqualTo(7);
+		assertThat(allocator.nextId("native_seq", arrayReserver)).isEqualTo(3);
+		assertThat(allocator.nextId("native_seq", arrayReserver)).isEqualTo(11);
+		assertThat(allocator.nextId("native_seq", arrayReserver)).isEqualTo(7);
+	}
+
+	@Test
+	public void nextId_concurrently_noDuplicates() throws Exception
+	{
+		final int threads = 8;
+		final int idsPerThread = 5000;
+		final Set<Integer> ids = ConcurrentHashMap.newKeySet();
+
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try
+		{
+			final List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < threads; t++)
+			{
+				futures.add(executor.submit(() -> {
+					for (int i = 0; i < idsPerThread; i++)
+					{
+						ids.add(allocator.nextId(SEQUENCE, reserver));
+					}
+				}));
+			}
+			for (final Future<?> future : futures)
+			{
+				future.get();
+			}
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+
+		assertThat(ids).hasSize(threads * idsPerThread);
+	}
+}
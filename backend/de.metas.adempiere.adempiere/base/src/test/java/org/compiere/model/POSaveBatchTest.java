@@ -0,0 +1,218 @@
+package org.compiere.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.adempiere.exceptions.AdempiereException;
+import org.adempiere.test.AdempiereTestHelper;
+import org.compiere.util.ISqlUpdateReturnProcessor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import lombok.Value;
+
+/*
+ * #%L
+ * de.metas.adempiere.adempiere.base
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class POSaveBatchTest
+{
+	private static final ISqlUpdateReturnProcessor RETURNING_PROCESSOR = rs -> {};
+
+	@Value
+	private static class ExecutedRoundTrip
+	{
+		boolean batch;
+		List<String> sqls;
+		int timeoutSeconds;
+	}
+
+	/** Records the statements instead of executing them; each statement updates one row, unless it contains "NO_ROW". */
+	private static class RecordingStatementsExecutor implements POSaveBatch.StatementsExecutor
+	{
+		private final List<ExecutedRoundTrip> roundTrips = new ArrayList<>();
+
+		@Override
+		public int executeOne(final String sql, final ISqlUpdateReturnProcessor updateReturnProcessor, final String trxName, final int timeoutSeconds)
+		{
+			roundTrips.add(new ExecutedRoundTrip(false, ImmutableList.of(sql), timeoutSeconds));
+			return toUpdateCount(sql);
+		}
+
+		@Override
+		public int[] executeBatch(final List<String> sqls, final String trxName, final int timeoutSeconds)
+		{
+			roundTrips.add(new ExecutedRoundTrip(true, ImmutableList.copyOf(sqls), timeoutSeconds));
+			return sqls.stream().mapToInt(RecordingStatementsExecutor::toUpdateCount).toArray();
+		}
+
+		private static int toUpdateCount(final String sql)
+		{
+			return sql.contains("NO_ROW") ? 0 : 1;
+		}
+
+		private List<String> getExecutedSqls()
+		{
+			return roundTrips.stream()
+					.flatMap(roundTrip -> roundTrip.getSqls().stream())
+					.collect(ImmutableList.toImmutableList());
+		}
+	}
+
+	private RecordingStatementsExecutor executor;
+	private POSaveBatch saveBatch;
+	private List<String> finished;
+	private int countAdded;
+
+	@BeforeEach
+	public void init()
+	{
+		AdempiereTestHelper.get().init();
+
+		executor = new RecordingStatementsExecutor();
+		saveBatch = new POSaveBatch("trxName", executor);
+		finished = new ArrayList<>();
+		countAdded = 0;
+	}
+
+	private void add(final String sql, final ISqlUpdateReturnProcessor updateReturnProcessor, final int timeoutSeconds)
+	{
+		final String name = "po-" + countAdded++;
+		saveBatch.add(name, sql, updateReturnProcessor, timeoutSeconds, updateCount -> {
+			finished.add(name + ":" + updateCount);
+			return updateCount == 1;
+		});
+	}
+
+	@Test
+	public void batchableStatements_oneRoundTrip() throws Exception
+	{
+		add("UPDATE 1", null, 0);
+		add("UPDATE 2", null, 0);
+		add("INSERT 3", null, 0);
+
+		saveBatch.executeAndFinish();
+
+		assertThat(executor.roundTrips).containsExactly(new ExecutedRoundTrip(true, ImmutableList.of("UPDATE 1", "UPDATE 2", "INSERT 3"), 0));
+		assertThat(saveBatch.getCountRoundTrips()).isEqualTo(1);
+		assertThat(finished).containsExactly("po-0:1", "po-1:1", "po-2:1");
+	}
+
+	/**
+	 * Saving the POs one by one would execute the same statements in the same order, so the resulting rows are the same.
+	 */
+	@Test
+	public void sameStatementsInSameOrderAsWhenSavingOneByOne() throws Exception
+	{
+		final List<String> sqls = Arrays.asList("INSERT 1", "UPDATE 2", "INSERT 3 RETURNING x", "UPDATE 4", null, "INSERT 6 RETURNING y", "UPDATE 7");
+		for (final String sql : sqls)
+		{
+			add(sql, sql != null && sql.contains("RETURNING") ? RETURNING_PROCESSOR : null, 0);
+		}
+
+		saveBatch.executeAndFinish();
+
+		assertThat(executor.getExecutedSqls()).containsExactly("INSERT 1", "UPDATE 2", "INSERT 3 RETURNING x", "UPDATE 4", "INSERT 6 RETURNING y", "UPDATE 7");
+		assertThat(finished).containsExactly("po-0:1", "po-1:1", "po-2:1", "po-3:1", "po-4:1", "po-5:1", "po-6:1");
+	}
+
+	@Test
+	public void returningStatementsAreExecutedOneByOne_andSplitTheBatch() throws Exception
+	{
+		add("UPDATE 1", null, 0);
+		add("INSERT 2 RETURNING x", RETURNING_PROCESSOR, 0);
+		add("UPDATE 3", null, 0);
+
+		saveBatch.executeAndFinish();
+
+		assertThat(executor.roundTrips).containsExactly(
+				new ExecutedRoundTrip(true, ImmutableList.of("UPDATE 1"), 0),
+				new ExecutedRoundTrip(false, ImmutableList.of("INSERT 2 RETURNING x"), 0),
+				new ExecutedRoundTrip(true, ImmutableList.of("UPDATE 3"), 0));
+	}
+
+	@Test
+	public void nothingToExecute_isFinishedAsSuccess() throws Exception
+	{
+		add(null, null, 0);
+
+		saveBatch.executeAndFinish();
+
+		assertThat(executor.roundTrips).isEmpty();
+		assertThat(finished).containsExactly("po-0:1");
+	}
+
+	@Test
+	public void timeoutIsHonored() throws Exception
+	{
+		add("UPDATE 1", null, 0);
+		add("UPDATE 2", null, 10);
+		add("INSERT 3 RETURNING x", RETURNING_PROCESSOR, 0);
+
+		saveBatch.executeAndFinish();
+
+		assertThat(executor.roundTrips).containsExactly(
+				new ExecutedRoundTrip(true, ImmutableList.of("UPDATE 1", "UPDATE 2"), 10),
+				new ExecutedRoundTrip(false, ImmutableList.of("INSERT 3 RETURNING x"), 0));
+	}
+
+	@Test
+	public void notUpdatedRow_fails()
+	{
+		add("UPDATE 1", null, 0);
+		add("UPDATE NO_ROW", null, 0);
+
+		assertThatThrownBy(() -> saveBatch.executeAndFinish())
+				.isInstanceOf(AdempiereException.class)
+				.hasMessageContaining("po-1");
+		assertThat(finished).containsExactly("po-0:1", "po-1:0");
+	}
+
+	@Test
+	public void driverNotReportingUpdateCounts_assumesSuccess() throws Exception
+	{
+		final POSaveBatch saveBatch = new POSaveBatch("trxName", new RecordingStatementsExecutor()
+		{
+			@Override
+			public int[] executeBatch(final List<String> sqls, final String trxName, final int timeoutSeconds)
+			{
+				final int[] updateCounts = new int[sqls.size()];
+				Arrays.fill(updateCounts, Statement.SUCCESS_NO_INFO);
+				return updateCounts;
+			}
+		});
+		saveBatch.add("po", "UPDATE 1", null, 0, updateCount -> {
+			finished.add("po:" + updateCount);
+			return true;
+		});
+
+		saveBatch.executeAndFinish();
+
+		assertThat(finished).containsExactly("po:1");
+	}
+}
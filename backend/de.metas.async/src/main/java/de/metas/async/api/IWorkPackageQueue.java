@@ -87,6 +87,15 @@ public interface IWorkPackageQueue
 	 */
 	I_C_Queue_WorkPackage pollAndLock(long timeoutMillis);
 
+	/**
+	 * Same as {@link #pollAndLock(long)}, but claims up to <code>maxWorkPackages</code> work packages at once.
+	 * <p>
+	 * Each of the returned packages has its own <code>ctx</code>, set up as described in {@link #pollAndLock(long)}.
+	 *
+	 * @return locked work packages, in processing order; empty list if no package could be retrieved until timeout
+	 */
+	List<I_C_Queue_WorkPackage> pollAndLockMultiple(int maxWorkPackages, long timeoutMillis);
+
 	/**
 	 * Unlocks given package
 	 *
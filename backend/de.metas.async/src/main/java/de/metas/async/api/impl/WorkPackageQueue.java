@@ -22,29 +22,42 @@ package de.metas.async.api.impl;
  * #L%
  */
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Properties;
 import java.util.concurrent.Future;
 import java.util.concurrent.locks.ReentrantLock;
 
+import org.adempiere.ad.persistence.TableModelLoader;
 import org.adempiere.ad.trx.api.ITrx;
 import org.adempiere.ad.trx.api.ITrxListenerManager;
 import org.adempiere.ad.trx.api.ITrxListenerManager.TrxEventTiming;
 import org.adempiere.ad.trx.api.ITrxManager;
 import org.adempiere.ad.trx.api.OnTrxMissingPolicy;
 import org.adempiere.exceptions.AdempiereException;
+import org.adempiere.exceptions.DBException;
 import org.adempiere.model.InterfaceWrapperHelper;
 import org.adempiere.service.ClientId;
 import org.adempiere.service.ISysConfigBL;
 import org.adempiere.util.lang.impl.TableRecordReference;
+import org.compiere.Adempiere;
 import org.compiere.model.IQuery;
+import org.compiere.util.DB;
 import org.compiere.util.Env;
 import org.slf4j.Logger;
 import org.slf4j.MDC.MDCCloseable;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+
 import de.metas.async.AsyncBatchId;
 import de.metas.async.Async_Constants;
 import de.metas.async.api.IAsyncBatchBL;
@@ -114,6 +127,7 @@ public class WorkPackageQueue implements IWorkPackageQueue
 
 	private boolean asyncBatchForNewWorkpackagesSet = false;
 
+	/** Serializes the enqueuing side ({@link #markReadyForProcessing(I_C_Queue_WorkPackage, IQueueProcessorListener)}). Polling is not serialized. */
 	private final ReentrantLock mainLock = new ReentrantLock();
 
 	private WorkPackageQueue(@NonNull final Properties ctx,
@@ -198,35 +212,32 @@ public class WorkPackageQueue implements IWorkPackageQueue
 	@Override
 	public I_C_Queue_WorkPackage pollAndLock(final long timeoutMillis)
 	{
-		logger.debug("Going to obtain mainLock");
-		mainLock.lock();
-		logger.debug("Obtained mainLock");
-		try
-		{
-			return pollAndLock0(timeoutMillis);
-		}
-		finally
-		{
-			mainLock.unlock();
-		}
+		final List<I_C_Queue_WorkPackage> workPackages = pollAndLockMultiple(1, timeoutMillis);
+		return workPackages.isEmpty() ? null : workPackages.get(0);
 	}
 
-	private I_C_Queue_WorkPackage pollAndLock0(final long timeoutMillis)
+	@Override
+	public List<I_C_Queue_WorkPackage> pollAndLockMultiple(final int maxWorkPackages, final long timeoutMillis)
 	{
-		final Properties workPackageCtx = Env.newTemporaryCtx();
+		Check.assume(maxWorkPackages > 0, "maxWorkPackages > 0");
+
+		// NOTE: we are not serializing the pollers, the workpackages are claimed atomically by the lock manager
+		final Properties queryCtx = Env.newTemporaryCtx();
+		final IQuery<I_C_Queue_WorkPackage> query = createQuery(queryCtx);
 
-		final IQuery<I_C_Queue_WorkPackage> query = createQuery(workPackageCtx);
+		final WorkPackageReadyNotifier readyNotifier = WorkPackageReadyNotifier.instance;
 
 		final long startTS = SystemTime.millis();
-		I_C_Queue_WorkPackage workPackage = retrieveAndLock(query);
-		if (timeoutMillis == TIMEOUT_OneTimeOnly && workPackage == null)
+		long signalToken = readyNotifier.getSignalToken(packageProcessorIds);
+		List<I_C_Queue_WorkPackage> workPackages = retrieveAndLock(query, maxWorkPackages);
+		if (timeoutMillis == TIMEOUT_OneTimeOnly && workPackages.isEmpty())
 		{
 			// We are running in one time only mode (synchronous mode) and we did not get the package from the first time
 			// No point to go further
-			return null;
+			return ImmutableList.of();
 		}
 
-		while (workPackage == null)
+		while (workPackages.isEmpty())
 		{
 			// If we have a timeout specified, make sure we are not waiting more then that timeout
 			if (timeoutMillis != TIMEOUT_Infinite)
@@ -236,44 +247,110 @@ public class WorkPackageQueue implements IWorkPackageQueue
 				final long elapsedMillis = SystemTime.millis() - startTS;
 				if (elapsedMillis >= timeoutMillis)
 				{
-					logger.debug("Poll waiting time exceeded. Returning null");
-					return null;
+					logger.debug("Poll waiting time exceeded. Returning empty");
+					return ImmutableList.of();
 				}
 			}
 
-			// No workpackages were found. Sleep 1sec and then try again
+			// No workpackages were found. Wait until a new workpackage is signaled as ready or the poll interval expired and then try again
 			try
 			{
 				// note: we always get the new service, because things might have changed since this method started
-				final int pollIntervalMs = Services.get(ISysConfigBL.class).getIntValue(SYSCONFIG_POLLINTERVAL, 1000);
-				Thread.sleep(pollIntervalMs);
+				final int pollIntervalMs = readyNotifier.getPollIntervalMillis(Services.get(ISysConfigBL.class).getIntValue(SYSCONFIG_POLLINTERVAL, 1000));
+				final long waitMillis = timeoutMillis != TIMEOUT_Infinite
+						? Math.min(pollIntervalMs, timeoutMillis - (SystemTime.millis() - startTS))
+						: pollIntervalMs;
+				final boolean signaled = readyNotifier.awaitSignal(packageProcessorIds, signalToken, waitMillis);
+				logger.debug("Waited for new workpackages: signaled={}", signaled);
 			}
 			catch (final InterruptedException e)
 			{
-				logger.debug("Got interrupted signal. Returning null", e);
-				return null;
+				logger.debug("Got interrupted signal. Returning empty", e);
+				return ImmutableList.of();
 			}
 
-			// Try fetching the workpackage again
-			logger.debug("Retry retrieving next workpackage");
-			workPackage = retrieveAndLock(query);
+			// Try fetching the workpackages again
+			logger.debug("Retry retrieving next workpackages");
+			signalToken = readyNotifier.getSignalToken(packageProcessorIds);
+			workPackages = retrieveAndLock(query, maxWorkPackages);
 		}
 
-		Check.assumeNotNull(workPackage, "workPackage not null");
-
-		// Successfully acquired our lock :-)
-
-		// now we have all the time in the world to add our AD_PInstance_ID
-		// to 'workPackage'. Note that this is not for locking, but to document which AD_PInstance actually did
-		// the processing
-		// workPackage.setAD_PInstance_ID(adPInstanceId);
-		// saveInLocalTrx(workPackage);
+		// Successfully acquired our locks :-)
 
 		//
 		// Update context from work package
-		// NOTE: this will be the context that work package processors will use on processing
-		setupWorkpackageContext(workPackageCtx, workPackage);
-		return workPackage;
+		// NOTE: this will be the context that work package processors will use on processing,
+		// so each workpackage needs its own context
+		final List<I_C_Queue_WorkPackage> result = new ArrayList<>(workPackages.size());
+		result.add(workPackages.get(0));
+		if (workPackages.size() > 1)
+		{
+			result.addAll(retrieveWithOwnCtx(workPackages.subList(1, workPackages.size())));
+		}
+
+		for (final I_C_Queue_WorkPackage workPackage : result)
+		{
+			setupWorkpackageContext(InterfaceWrapperHelper.getCtx(workPackage), workPackage);
+		}
+		return result;
+	}
+
+	/**
+	 * Loads the given workpackages again, each of them with its own new context, using one single query.
+	 *
+	 * @return the reloaded workpackages, in the same order
+	 */
+	@VisibleForTesting
+	static List<I_C_Queue_WorkPackage> retrieveWithOwnCtx(@NonNull final List<I_C_Queue_WorkPackage> workPackages)
+	{
+		if (Adempiere.isUnitTestMode())
+		{
+			// the in-memory database is not backed by SQL, but there loading by ID does not hit any database either
+			return workPackages.stream()
+					.map(workPackage -> InterfaceWrapperHelper.create(Env.newTemporaryCtx(), workPackage.getC_Queue_WorkPackage_ID(), I_C_Queue_WorkPackage.class, ITrx.TRXNAME_None))
+					.collect(ImmutableList.toImmutableList());
+		}
+
+		final List<Integer> workPackageIds = workPackages.stream()
+				.map(I_C_Queue_WorkPackage::getC_Queue_WorkPackage_ID)
+				.collect(ImmutableList.toImmutableList());
+
+		final List<Object> sqlParams = new ArrayList<>();
+		final String sql = "SELECT * FROM " + I_C_Queue_WorkPackage.Table_Name
+				+ " WHERE " + DB.buildSqlList(I_C_Queue_WorkPackage.COLUMNNAME_C_Queue_WorkPackage_ID, workPackageIds, sqlParams);
+
+		final Map<Integer, I_C_Queue_WorkPackage> workPackagesById = new HashMap<>(workPackageIds.size());
+		PreparedStatement pstmt = null;
+		ResultSet rs = null;
+		try
+		{
+			pstmt = DB.prepareStatement(sql, ITrx.TRXNAME_None);
+			DB.setParameters(pstmt, sqlParams);
+			rs = pstmt.executeQuery();
+			while (rs.next())
+			{
+				final I_C_Queue_WorkPackage workPackage = TableModelLoader.instance.retrieveModel(
+						Env.newTemporaryCtx(),
+						I_C_Queue_WorkPackage.Table_Name,
+						I_C_Queue_WorkPackage.class,
+						rs,
+						ITrx.TRXNAME_None);
+				workPackagesById.put(workPackage.getC_Queue_WorkPackage_ID(), workPackage);
+			}
+		}
+		catch (final SQLException ex)
+		{
+			throw new DBException(ex, sql, sqlParams);
+		}
+		finally
+		{
+			DB.close(rs, pstmt);
+		}
+
+		return workPackageIds.stream()
+				.map(workPackagesById::get)
+				.filter(Objects::nonNull)
+				.collect(ImmutableList.toImmutableList());
 	}
 
 	/**
@@ -334,35 +411,43 @@ public class WorkPackageQueue implements IWorkPackageQueue
 		Env.setContext(workPackageCtx, Env.CTXNAME_AD_Session_ID, Env.CTXVALUE_AD_SESSION_ID_NONE);
 	}
 
-	private I_C_Queue_WorkPackage retrieveAndLock(final IQuery<I_C_Queue_WorkPackage> query)
+	private List<I_C_Queue_WorkPackage> retrieveAndLock(final IQuery<I_C_Queue_WorkPackage> query, final int maxWorkPackages)
 	{
-		I_C_Queue_WorkPackage workPackage = Services.get(ILockManager.class).retrieveAndLock(query, I_C_Queue_WorkPackage.class);
-		if (workPackage != null && !isValid(workPackage))
+		final ILockManager lockManager = Services.get(ILockManager.class);
+
+		final List<I_C_Queue_WorkPackage> workPackages;
+		if (maxWorkPackages == 1)
+		{
+			final I_C_Queue_WorkPackage workPackage = lockManager.retrieveAndLock(query, I_C_Queue_WorkPackage.class);
+			workPackages = workPackage != null ? ImmutableList.of(workPackage) : ImmutableList.of();
+		}
+		else
 		{
-			final I_C_Queue_WorkPackage workpackageToUnlock = workPackage;
-			unlockNoFail(workpackageToUnlock);
-			workPackage = null;
+			workPackages = lockManager.retrieveAndLockMultiple(query, I_C_Queue_WorkPackage.class, maxWorkPackages);
+		}
 
-			final String threadName = Thread.currentThread().getName();
-			logger.warn("Aquired {} on thread {} but is not valid. Unlocking and returning null.", new Object[] { workpackageToUnlock, threadName });
+		final List<I_C_Queue_WorkPackage> validWorkPackages = new ArrayList<>(workPackages.size());
+		for (final I_C_Queue_WorkPackage workPackage : workPackages)
+		{
+			if (isValid(workPackage))
+			{
+				validWorkPackages.add(workPackage);
+				continue;
+			}
+
+			unlockNoFail(workPackage);
 
+			final String threadName = Thread.currentThread().getName();
+			logger.warn("Aquired {} on thread {} but is not valid. Unlocking and skipping it.", new Object[] { workPackage, threadName });
 		}
-		return workPackage;
+		return validWorkPackages;
 	}
 
 	@Override
 	public int size()
 	{
-		mainLock.lock();
-		try
-		{
-			final IQuery<I_C_Queue_WorkPackage> query = createQuery(ctx);
-			return query.count();
-		}
-		finally
-		{
-			mainLock.unlock();
-		}
+		final IQuery<I_C_Queue_WorkPackage> query = createQuery(ctx);
+		return query.count();
 	}
 
 	private int localPackagecount = 0; // task 09049
@@ -719,6 +804,22 @@ public class WorkPackageQueue implements IWorkPackageQueue
 		}
 	}
 
+	/**
+	 * @return the C_Queue_PackageProcessor_ID of the given workpackage, preferably without loading its block, because this queue usually knows it already
+	 */
+	private int getPackageProcessorIdToNotify(final I_C_Queue_WorkPackage workPackage)
+	{
+		if (enquingPackageProcessorId > 0)
+		{
+			return enquingPackageProcessorId;
+		}
+		if (packageProcessorIds.size() == 1)
+		{
+			return packageProcessorIds.get(0);
+		}
+		return workPackage.getC_Queue_Block().getC_Queue_PackageProcessor_ID();
+	}
+
 	@Override
 	public Future<IWorkpackageProcessorExecutionResult> markReadyForProcessingAndReturn(final I_C_Queue_WorkPackage workPackage)
 	{
@@ -755,6 +856,9 @@ public class WorkPackageQueue implements IWorkPackageQueue
 				dao.save(workPackage);
 				logger.debug("C_Queue_WorkPackage.IsReadyForProcessing is now set to true");
 				success = true;
+
+				// Wake up the queue processors which are waiting for new workpackages
+				WorkPackageReadyNotifier.instance.notifyReady(getPackageProcessorIdToNotify(workPackage), InterfaceWrapperHelper.getTrxName(workPackage));
 			}
 			finally
 			{
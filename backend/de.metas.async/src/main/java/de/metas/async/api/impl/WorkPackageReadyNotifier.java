@@ -0,0 +1,341 @@
+package de.metas.async.api.impl;
+
+/*
+ * #%L
+ * de.metas.async
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.adempiere.ad.trx.api.ITrx;
+import org.adempiere.ad.trx.api.ITrxManager;
+import org.adempiere.service.ISysConfigBL;
+import org.compiere.Adempiere;
+import org.compiere.util.DB;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import de.metas.logging.LogManager;
+import de.metas.util.Services;
+import lombok.NonNull;
+
+/**
+ * Wakes up the queue processors which are waiting for new workpackages, instead of letting them sleep until the next poll.
+ * <ul>
+ * <li>workpackages marked as ready on this node are signaled in-JVM
+ * <li>if {@link #SYSCONFIG_PostgresNotifyEnabled} is set, they are also signaled to the other nodes using PostgreSQL's <code>NOTIFY</code>.
+ * Each node has one thread which <code>LISTEN</code>s on a dedicated connection and forwards the notifications to the local waiters.
+ * </ul>
+ * Polling is still done, but only as a safety net (e.g. for missed notifications or skipped workpackages whose retry timeout expired).
+ */
+public final class WorkPackageReadyNotifier
+{
+	public static final WorkPackageReadyNotifier instance = new WorkPackageReadyNotifier();
+
+	private static final Logger logger = LogManager.getLogger(WorkPackageReadyNotifier.class);
+
+	static final String SYSCONFIG_PostgresNotifyEnabled = "de.metas.async.PostgresNotify.Enabled";
+	static final String SYSCONFIG_SafetyNetPollIntervalMillis = "de.metas.async.PostgresNotify.SafetyNetPollIntervalMillis";
+	private static final int DEFAULT_SafetyNetPollIntervalMillis = 10000;
+
+	private static final String CHANNEL = "metasfresh_async_workpackage_ready";
+	private static final int LISTENER_NOTIFICATIONS_TIMEOUT_MILLIS = 1000;
+	private static final int LISTENER_RECONNECT_DELAY_MILLIS = 5000;
+
+	/**
+	 * Sent along with each notification, so that the listener of this node can ignore the echo of its own notifications
+	 * (those were already signaled locally).
+	 */
+	private final String nodeId = UUID.randomUUID().toString();
+
+	/** C_Queue_PackageProcessor_ID to number of "ready" signals */
+	private final ConcurrentHashMap<Integer, AtomicLong> signalsByPackageProcessorId = new ConcurrentHashMap<>();
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition signaled = lock.newCondition();
+
+	private final AtomicBoolean listenerStarted = new AtomicBoolean(false);
+
+	private final AtomicLong countNotificationsSent = new AtomicLong();
+	private final AtomicLong countNotificationsReceived = new AtomicLong();
+
+	@VisibleForTesting
+	WorkPackageReadyNotifier()
+	{
+	}
+
+	@Override
+	public String toString()
+	{
+		return "WorkPackageReadyNotifier["
+				+ "listenerStarted=" + listenerStarted.get()
+				+ ", countNotificationsSent=" + countNotificationsSent.get()
+				+ ", countNotificationsReceived=" + countNotificationsReceived.get()
+				+ "]";
+	}
+
+	private boolean isPostgresNotifyEnabled()
+	{
+		if (Adempiere.isUnitTestMode())
+		{
+			return false;
+		}
+		return Services.get(ISysConfigBL.class).getBooleanValue(SYSCONFIG_PostgresNotifyEnabled, false);
+	}
+
+	/**
+	 * @return how long a queue shall wait for a signal before polling again; <code>defaultPollIntervalMillis</code> if postgres notifications are not enabled
+	 */
+	public int getPollIntervalMillis(final int defaultPollIntervalMillis)
+	{
+		if (!isPostgresNotifyEnabled())
+		{
+			return defaultPollIntervalMillis;
+		}
+
+		startListenerIfNeeded();
+		return Services.get(ISysConfigBL.class).getIntValue(SYSCONFIG_SafetyNetPollIntervalMillis, DEFAULT_SafetyNetPollIntervalMillis);
+	}
+
+	/**
+	 * Signals that a workpackage for the given C_Queue_PackageProcessor_ID is ready for processing.
+	 * If the given transaction is still running, the signal is sent after commit.
+	 */
+	public void notifyReady(final int packageProcessorId, final String trxName)
+	{
+		Services.get(ITrxManager.class)
+				.getTrxListenerManagerOrAutoCommit(trxName)
+				.runAfterCommit(() -> notifyReadyNow(packageProcessorId));
+	}
+
+	private void notifyReadyNow(final int packageProcessorId)
+	{
+		signalLocal(packageProcessorId);
+
+		if (isPostgresNotifyEnabled())
+		{
+			try
+			{
+				DB.getSQLValueEx(ITrx.TRXNAME_None, "SELECT 1 FROM (SELECT pg_notify(?, ?)) n", CHANNEL, toNotificationPayload(packageProcessorId));
+				countNotificationsSent.incrementAndGet();
+			}
+			catch (final Exception ex)
+			{
+				// not critical, the queue processors will pick the workpackage on their next poll
+				logger.warn("Failed sending notification for C_Queue_PackageProcessor_ID={}. Ignored.", packageProcessorId, ex);
+			}
+		}
+	}
+
+	@VisibleForTesting
+	String toNotificationPayload(final int packageProcessorId)
+	{
+		return nodeId + ":" + packageProcessorId;
+	}
+
+	/**
+	 * Signals the local waiters about a notification which was received from the database.
+	 * Notifications which were sent by this node are ignored, because they were already signaled when they were sent.
+	 */
+	@VisibleForTesting
+	void onNotificationReceived(final String payload)
+	{
+		countNotificationsReceived.incrementAndGet();
+
+		final int idx = payload != null ? payload.lastIndexOf(':') : -1;
+		if (idx <= 0)
+		{
+			logger.warn("Ignoring invalid notification payload: {}", payload);
+			return;
+		}
+
+		final String senderNodeId = payload.substring(0, idx);
+		if (nodeId.equals(senderNodeId))
+		{
+			return; // our own echo
+		}
+
+		try
+		{
+			signalLocal(Integer.parseInt(payload.substring(idx + 1)));
+		}
+		catch (final NumberFormatException ex)
+		{
+			logger.warn("Ignoring invalid notification payload: {}", payload);
+		}
+	}
+
+	private void signalLocal(final int packageProcessorId)
+	{
+		signalsByPackageProcessorId.computeIfAbsent(packageProcessorId, k -> new AtomicLong()).incrementAndGet();
+		signalAll();
+	}
+
+	private void signalAll()
+	{
+		lock.lock();
+		try
+		{
+			signaled.signalAll();
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return a token which shall be taken <b>before</b> checking the queue and then passed to {@link #awaitSignal(Collection, long, long)}, so signals that arrive in between are not missed.
+	 */
+	public long getSignalToken(@NonNull final Collection<Integer> packageProcessorIds)
+	{
+		long token = 0;
+		for (final int packageProcessorId : packageProcessorIds)
+		{
+			final AtomicLong signals = signalsByPackageProcessorId.get(packageProcessorId);
+			token += signals != null ? signals.get() : 0;
+		}
+		return token;
+	}
+
+	/**
+	 * Waits until a workpackage for one of the given processors was signaled as ready after the given token was taken, or until the timeout expired.
+	 *
+	 * @return true if signaled, false if timeout expired
+	 */
+	public boolean awaitSignal(
+			@NonNull final Collection<Integer> packageProcessorIds,
+			final long signalToken,
+			final long timeoutMillis) throws InterruptedException
+	{
+		long nanosLeft = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+
+		lock.lock();
+		try
+		{
+			while (getSignalToken(packageProcessorIds) == signalToken)
+			{
+				if (nanosLeft <= 0)
+				{
+					return false;
+				}
+				nanosLeft = signaled.awaitNanos(nanosLeft);
+			}
+			return true;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	private void startListenerIfNeeded()
+	{
+		if (listenerStarted.getAndSet(true))
+		{
+			return;
+		}
+
+		final Thread thread = new Thread(this::listen, getClass().getSimpleName() + "-listener");
+		thread.setDaemon(true);
+		thread.start();
+		logger.info("Started listening for workpackage notifications on channel {}", CHANNEL);
+	}
+
+	private void listen()
+	{
+		while (!Thread.currentThread().isInterrupted())
+		{
+			try
+			{
+				listenOnNewConnection();
+			}
+			catch (final Exception ex)
+			{
+				logger.warn("Failed listening for workpackage notifications. Retrying in {}ms", LISTENER_RECONNECT_DELAY_MILLIS, ex);
+			}
+
+			try
+			{
+				Thread.sleep(LISTENER_RECONNECT_DELAY_MILLIS);
+			}
+			catch (final InterruptedException e)
+			{
+				logger.info("Listener thread interrupted. Quit.");
+				return;
+			}
+		}
+	}
+
+	private void listenOnNewConnection() throws Exception
+	{
+		final Connection conn = DB.createConnection(true, Connection.TRANSACTION_READ_COMMITTED);
+		try
+		{
+			final PGConnection pgConn = conn.unwrap(PGConnection.class);
+			try (final Statement stmt = conn.createStatement())
+			{
+				stmt.execute("LISTEN " + CHANNEL);
+			}
+
+			// we might have missed notifications while (re)connecting
+			signalsByPackageProcessorId.values().forEach(AtomicLong::incrementAndGet);
+			signalAll();
+
+			while (!Thread.currentThread().isInterrupted())
+			{
+				final PGNotification[] notifications = pgConn.getNotifications(LISTENER_NOTIFICATIONS_TIMEOUT_MILLIS);
+				if (notifications == null)
+				{
+					continue;
+				}
+
+				for (final PGNotification notification : notifications)
+				{
+					onNotificationReceived(notification.getParameter());
+				}
+			}
+		}
+		finally
+		{
+			// the connection is returned to the pool, so make sure it's not listening anymore
+			try (final Statement stmt = conn.createStatement())
+			{
+				stmt.execute("UNLISTEN *");
+			}
+			catch (final Exception ex)
+			{
+				logger.debug("Failed executing UNLISTEN. Ignored.", ex);
+			}
+			DB.close(conn);
+		}
+	}
+}
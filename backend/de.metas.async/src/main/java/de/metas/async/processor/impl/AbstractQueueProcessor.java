@@ -22,10 +22,12 @@ package de.metas.async.processor.impl;
  * #L%
  */
 
+import java.util.List;
 import java.util.Properties;
 
 import org.adempiere.exceptions.AdempiereException;
 import org.adempiere.model.InterfaceWrapperHelper;
+import org.adempiere.service.ISysConfigBL;
 import org.slf4j.Logger;
 import org.slf4j.MDC;
 import org.slf4j.MDC.MDCCloseable;
@@ -51,6 +53,10 @@ public abstract class AbstractQueueProcessor implements IQueueProcessor
 {
 	private static final Logger logger = LogManager.getLogger(AbstractQueueProcessor.class);
 
+	/** Upper limit of how many workpackages are claimed at once. Set it to 1 to claim them one by one. */
+	private static final String SYSCONFIG_MaxWorkPackagesToClaim = "de.metas.async.QueueProcessor.MaxWorkPackagesToClaim";
+	private static final int DEFAULT_MaxWorkPackagesToClaim = 10;
+
 	private final IWorkPackageQueue queue;
 	private long queuePollingTimeout = IWorkPackageQueue.TIMEOUT_Infinite;
 
@@ -175,33 +181,53 @@ public abstract class AbstractQueueProcessor implements IQueueProcessor
 		}
 	}
 
+	/**
+	 * @return how many workpackages could be processed right now; the processor will claim that many workpackages at once (but at least one)
+	 */
+	protected int getFreeCapacity()
+	{
+		return 1;
+	}
+
+	private int getMaxWorkPackagesToClaim()
+	{
+		final int maxWorkPackagesToClaim = Services.get(ISysConfigBL.class).getIntValue(SYSCONFIG_MaxWorkPackagesToClaim, DEFAULT_MaxWorkPackagesToClaim);
+		return Math.max(1, Math.min(getFreeCapacity(), maxWorkPackagesToClaim));
+	}
+
 	private boolean pollAndSubmitNextWorkPackageTask()
 	{
 		final IWorkPackageQueue queue = getQueue();
-		final I_C_Queue_WorkPackage workPackage;
+		final List<I_C_Queue_WorkPackage> workPackages;
 		try (final MDCCloseable ignored = MDC.putCloseable("queue", queue.toString());
 				final MDCCloseable ignored1 = MDC.putCloseable("queue.pollAndLockStart", Long.toString(SystemTime.millis()));)
 		{
-			logger.debug("pollAndSubmitNextWorkPackageTask - going to invoke queue.pollAndLock() with timeout={} on queue={}", queuePollingTimeout, queue);
-			workPackage = queue.pollAndLock(queuePollingTimeout);
-			if (workPackage == null)
+			final int maxWorkPackages = getMaxWorkPackagesToClaim();
+			logger.debug("pollAndSubmitNextWorkPackageTask - going to invoke queue.pollAndLockMultiple() with maxWorkPackages={}, timeout={} on queue={}", maxWorkPackages, queuePollingTimeout, queue);
+			workPackages = queue.pollAndLockMultiple(maxWorkPackages, queuePollingTimeout);
+			if (workPackages.isEmpty())
 			{
-				logger.debug("pollAndSubmitNextWorkPackageTask - queue returned workPackage", queuePollingTimeout, queue);
+				logger.debug("pollAndSubmitNextWorkPackageTask - queue returned no workPackage; timeout={}, queue={}", queuePollingTimeout, queue);
 				return false;
 			}
 		}
-		boolean success = false;
+
+		int countSubmitted = 0;
 		try
 		{
-			final IWorkpackageProcessor workPackageProcessor = getWorkpackageProcessor(workPackage);
-			final WorkpackageProcessorTask task = new WorkpackageProcessorTask(this, workPackageProcessor, workPackage, logsRepository);
-			executeTask(task);
-			success = true;
+			for (final I_C_Queue_WorkPackage workPackage : workPackages)
+			{
+				final IWorkpackageProcessor workPackageProcessor = getWorkpackageProcessor(workPackage);
+				final WorkpackageProcessorTask task = new WorkpackageProcessorTask(this, workPackageProcessor, workPackage, logsRepository);
+				executeTask(task);
+				countSubmitted++;
+			}
 			return true;
 		}
 		finally
 		{
-			if (!success)
+			// unlock the workpackages which we claimed but could not submit
+			for (final I_C_Queue_WorkPackage workPackage : workPackages.subList(countSubmitted, workPackages.size()))
 			{
 				logger.info("Submitting for processing next workpackage failed. Trying to unlock {}.", workPackage);
 				queue.unlockNoFail(workPackage);
@@ -1,7 +1,6 @@
 package de.metas.async.processor.impl;
 
 import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.SynchronousQueue;
 
 /*
@@ -31,6 +30,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReentrantLock;
 
+import org.adempiere.service.ISysConfigBL;
 import org.adempiere.util.concurrent.BlockingExecutorWrapper;
 import org.adempiere.util.concurrent.CustomizableThreadFactory;
 import org.slf4j.Logger;
@@ -41,6 +41,7 @@ import de.metas.async.api.IWorkPackageQueue;
 import de.metas.async.api.IWorkpackageLogsRepository;
 import de.metas.async.model.I_C_Queue_Processor;
 import de.metas.logging.LogManager;
+import de.metas.util.Services;
 import lombok.NonNull;
 
 class ThreadPoolQueueProcessor extends AbstractQueueProcessor
@@ -50,8 +51,19 @@ class ThreadPoolQueueProcessor extends AbstractQueueProcessor
 	/** we don't have LogManager in the executor's package, so we create the logger here and inject it when creating the executor. */
 	private static final Logger loggerForExecutor = LogManager.getLogger(BlockingExecutorWrapper.class);
 
+	/**
+	 * If set to a value greater than zero for a given C_Queue_Processor (i.e. <code>de.metas.async.QueueProcessor.elasticMaxConcurrency.processor_{C_Queue_Processor.Name}</code>),
+	 * the processor's PoolSize is ignored and the workpackages are executed on an elastic executor with the given concurrency limit.
+	 * <p>
+	 * Meant for processors whose workpackages are mostly waiting for the database.
+	 */
+	private static final String SYSCONFIG_ElasticMaxConcurrency_Prefix = "de.metas.async.QueueProcessor.elasticMaxConcurrency";
+	/** Stack size (in KB) of the elastic executor's threads. Zero or less means JVM default. */
+	private static final String SYSCONFIG_ElasticThreadStackSizeKB = "de.metas.async.QueueProcessor.elasticThreadStackSizeKB";
+	private static final int ELASTIC_KeepAliveTimeMillis = 60 * 1000;
+
 	private String name;
-	private final ExecutorService executor;
+	private final BlockingExecutorWrapper executor;
 	private final AtomicBoolean running;
 
 	public ThreadPoolQueueProcessor(
@@ -66,35 +78,58 @@ class ThreadPoolQueueProcessor extends AbstractQueueProcessor
 		//
 		// Create the tasks executor
 		{
+			final int elasticMaxConcurrency = getElasticMaxConcurrency(name);
+			final boolean elastic = elasticMaxConcurrency > 0;
+			final int poolSize = elastic ? elasticMaxConcurrency : config.getPoolSize();
+
 			final CustomizableThreadFactory threadFactory = CustomizableThreadFactory.builder()
 					.setThreadNamePrefix("async-Worker-" + name)
 					.setDaemon(true)
+					.setStackSize(elastic ? getElasticThreadStackSizeBytes() : 0)
 					.build();
 
 			// About threadPoolQueue: we must be able to hold max 1 runnable for each thread of the pool,
 			// because within BlockingExecutorWrapper the semaphore is released by the runnable before it's done.
 			// That means that the next runnable can be submitted before the runnable "really" made place within the thread pool.
 			// That means we need to be able to enqueue the next runnable.
-			final ArrayBlockingQueue threadPoolQueue = new ArrayBlockingQueue<>(config.getPoolSize());
-			final ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(config.getPoolSize()/*corePoolSize*/,
-					config.getPoolSize(),
-					config.getKeepAliveTimeMillis(),
+			final ArrayBlockingQueue threadPoolQueue = new ArrayBlockingQueue<>(poolSize);
+			final ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(poolSize/*corePoolSize*/,
+					poolSize,
+					elastic ? ELASTIC_KeepAliveTimeMillis : config.getKeepAliveTimeMillis(),
 					TimeUnit.MILLISECONDS,
 					threadPoolQueue,
 					threadFactory);
-			// If we have a KeepAliveTimeMillis in processor definition, then we apply the timeout for core threads too
-			 threadPoolExecutor.allowCoreThreadTimeOut(config.getKeepAliveTimeMillis() > 0);
+			// If we have a KeepAliveTimeMillis in processor definition, then we apply the timeout for core threads too.
+			// In elastic mode, threads are always created on demand and discarded when idle, so a high concurrency limit costs nothing while the processor is idle.
+			threadPoolExecutor.allowCoreThreadTimeOut(elastic || config.getKeepAliveTimeMillis() > 0);
 
 			this.executor = BlockingExecutorWrapper.builder()
 					.delegate(threadPoolExecutor)
 					.loggerToUse(loggerForExecutor)
-					.poolSize(config.getPoolSize())
+					.poolSize(poolSize)
 					.build();
+
+			if (elastic)
+			{
+				logger.info("Using elastic executor with maxConcurrency={} for {}", poolSize, name);
+			}
 		}
 
 		this.running = new AtomicBoolean(true);
 	}
 
+	private static int getElasticMaxConcurrency(final String processorName)
+	{
+		final ISysConfigBL sysConfigBL = Services.get(ISysConfigBL.class);
+		return sysConfigBL.getIntValue(SYSCONFIG_ElasticMaxConcurrency_Prefix + ".processor_" + processorName, 0);
+	}
+
+	private static long getElasticThreadStackSizeBytes()
+	{
+		final int stackSizeKB = Services.get(ISysConfigBL.class).getIntValue(SYSCONFIG_ElasticThreadStackSizeKB, 0);
+		return stackSizeKB > 0 ? stackSizeKB * 1024L : 0;
+	}
+
 	@Override
 	public String toString()
 	{
@@ -129,6 +164,12 @@ class ThreadPoolQueueProcessor extends AbstractQueueProcessor
 		return true;
 	}
 
+	@Override
+	protected int getFreeCapacity()
+	{
+		return executor.getAvailablePermits();
+	}
+
 	@Override
 	protected void executeTask(@NonNull final WorkpackageProcessorTask task)
 	{
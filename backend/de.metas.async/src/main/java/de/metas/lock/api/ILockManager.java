@@ -23,6 +23,8 @@ package de.metas.lock.api;
  */
 
 
+import java.util.List;
+
 import org.adempiere.ad.dao.IQueryBuilder;
 import org.adempiere.ad.dao.IQueryFilter;
 import org.compiere.model.IQuery;
@@ -94,6 +96,15 @@ public interface ILockManager extends ISingletonService
 	 */
 	<T> T retrieveAndLock(IQuery<T> query, Class<T> clazz);
 
+	/**
+	 * Retrieves up to <code>maxRecords</code> models from query and locks them (using {@link LockOwner#NONE}).
+	 * <p>
+	 * Compared to calling {@link #retrieveAndLock(IQuery, Class)} multiple times, the records are claimed using as few database round trips as possible.
+	 *
+	 * @return retrieved records (already locked), in query order; empty list if there are no records available
+	 */
+	<T> List<T> retrieveAndLockMultiple(IQuery<T> query, Class<T> clazz, int maxRecords);
+
 	/**
 	 * Builds a SQL where clause to be used in other queries to filter the results.
 	 *
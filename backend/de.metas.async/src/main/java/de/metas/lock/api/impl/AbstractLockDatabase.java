@@ -22,7 +22,9 @@ package de.metas.lock.api.impl;
  * #L%
  */
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 
 import org.adempiere.ad.dao.IQueryBL;
 import org.adempiere.ad.dao.IQueryBuilder;
@@ -310,6 +312,28 @@ public abstract class AbstractLockDatabase implements ILockDatabase
 		return null;
 	}
 
+	/**
+	 * Default implementation: retrieves and locks the records one by one.
+	 * Implementations are encouraged to override it and claim all records at once.
+	 */
+	@Override
+	public <T> List<T> retrieveAndLockMultiple(final IQuery<T> query, final Class<T> clazz, final int maxRecords)
+	{
+		Check.assume(maxRecords > 0, "maxRecords > 0");
+
+		final List<T> result = new ArrayList<>(maxRecords);
+		while (result.size() < maxRecords)
+		{
+			final T model = retrieveAndLock(query, clazz);
+			if (model == null)
+			{
+				break;
+			}
+			result.add(model);
+		}
+		return result;
+	}
+
 	@Override
 	public final String getLockedWhereClause(final Class<?> modelClass, final String joinColumnNameFQ, final LockOwner lockOwner)
 	{
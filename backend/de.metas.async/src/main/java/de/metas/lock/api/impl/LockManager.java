@@ -23,6 +23,8 @@ package de.metas.lock.api.impl;
  */
 
 
+import java.util.List;
+
 import org.adempiere.ad.dao.IQueryBuilder;
 import org.adempiere.ad.dao.IQueryFilter;
 import org.compiere.model.IQuery;
@@ -128,6 +130,12 @@ public class LockManager implements ILockManager
 		return getLockDatabase().retrieveAndLock(query, clazz);
 	}
 
+	@Override
+	public final <T> List<T> retrieveAndLockMultiple(final IQuery<T> query, final Class<T> clazz, final int maxRecords)
+	{
+		return getLockDatabase().retrieveAndLockMultiple(query, clazz, maxRecords);
+	}
+
 	@Override
 	public final String getNotLockedWhereClause(final String tableName, final String joinColumnNameFQ)
 	{
@@ -5,8 +5,11 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
+import org.adempiere.ad.dao.IQueryBL;
 import org.adempiere.ad.dao.IQueryFilter;
 import org.adempiere.ad.dao.ISqlQueryFilter;
 import org.adempiere.ad.dao.impl.TypedSqlQuery;
@@ -20,6 +23,8 @@ import org.compiere.model.IQuery;
 import org.compiere.util.DB;
 import org.compiere.util.DisplayType;
 
+import com.google.common.collect.ImmutableList;
+
 import de.metas.lock.api.ILock;
 import de.metas.lock.api.ILockCommand;
 import de.metas.lock.api.IUnlockCommand;
@@ -450,6 +455,93 @@ public class SqlLockDatabase extends AbstractLockDatabase
 		return finalQuery;
 	}
 
+	/**
+	 * Claims up to <code>maxRecords</code> not locked records using one single <code>INSERT INTO T_Lock ... SELECT ... ON CONFLICT DO NOTHING RETURNING ...</code> statement.
+	 * <p>
+	 * The candidate rows are selected using <code>FOR UPDATE SKIP LOCKED</code>, so concurrent clients which are claiming at the same time are not picking the same candidates
+	 * but are skipping to the next ones instead of failing on the T_Lock unique constraint and retrying.
+	 */
+	@Override
+	public <T> List<T> retrieveAndLockMultiple(final IQuery<T> query, final Class<T> clazz, final int maxRecords)
+	{
+		Check.assume(maxRecords > 0, "maxRecords > 0");
+
+		final TypedSqlQuery<T> sqlQuery = TypedSqlQuery.cast(retrieveNotLockedQuery(query));
+		if (sqlQuery.hasUnions())
+		{
+			// FOR UPDATE is not allowed for UNIONs
+			return super.retrieveAndLockMultiple(query, clazz, maxRecords);
+		}
+
+		final String tableName = sqlQuery.getTableName();
+		final String keyColumnNameFQ = tableName + "." + sqlQuery.getKeyColumnName();
+		final int adTableId = Services.get(IADTableDAO.class).retrieveTableId(tableName);
+		final LockOwner lockOwner = LockOwner.NONE; // same lock as retrieveAndLock() is acquiring
+
+		final List<Object> sqlParams = new ArrayList<>();
+		final String sql = "INSERT INTO " + I_T_Lock.Table_Name + " ("
+				+ I_T_Lock.COLUMNNAME_AD_Table_ID
+				+ ", " + I_T_Lock.COLUMNNAME_Record_ID
+				+ ", " + I_T_Lock.COLUMNNAME_Owner
+				+ ", " + I_T_Lock.COLUMNNAME_IsAutoCleanup
+				+ ", " + I_T_Lock.COLUMNNAME_IsAllowMultipleOwners
+				+ ")"
+				//
+				+ " SELECT "
+				+ toSqlParam(adTableId, sqlParams) // AD_Table_ID
+				+ ", candidates.Record_ID" // Record_ID
+				+ ", " + toSqlParam(lockOwner.getOwnerName(), sqlParams) // Owner
+				+ ", " + toSqlParam(true, sqlParams) // IsAutoCleanup
+				+ ", " + toSqlParam(false, sqlParams) // IsAllowMultipleOwners
+				//
+				+ " FROM ("
+				+ sqlQuery.setLimit(maxRecords).buildSQL("SELECT " + keyColumnNameFQ + " AS Record_ID", null, null, true)
+				+ " FOR UPDATE OF " + tableName + " SKIP LOCKED"
+				+ ") candidates"
+				+ " ON CONFLICT DO NOTHING"
+				+ " RETURNING " + I_T_Lock.COLUMNNAME_Record_ID;
+		sqlParams.addAll(sqlQuery.getParametersEffective());
+
+		final Set<Integer> lockedRecordIds = new HashSet<>();
+		PreparedStatement pstmt = null;
+		ResultSet rs = null;
+		try
+		{
+			pstmt = DB.prepareStatement(sql, ITrx.TRXNAME_None);
+			DB.setParameters(pstmt, sqlParams);
+			rs = pstmt.executeQuery();
+			while (rs.next())
+			{
+				lockedRecordIds.add(rs.getInt(1));
+			}
+		}
+		catch (final SQLException e)
+		{
+			throw new LockFailedException("Failed locking records of " + tableName, e)
+					.setSql(sql, sqlParams.toArray());
+		}
+		finally
+		{
+			DB.close(rs, pstmt);
+			rs = null;
+			pstmt = null;
+		}
+
+		if (lockedRecordIds.isEmpty())
+		{
+			return ImmutableList.of();
+		}
+
+		// Load the locked records, preserving the original query's ordering
+		final TypedSqlQuery<T> lockedRecordsQuery = TypedSqlQuery.cast(Services.get(IQueryBL.class)
+				.createQueryBuilder(clazz, sqlQuery.getCtx(), sqlQuery.getTrxName())
+				.addInArrayFilter(sqlQuery.getKeyColumnName(), lockedRecordIds)
+				.create());
+		return lockedRecordsQuery
+				.setOrderBy(sqlQuery.getOrderBy())
+				.list(clazz);
+	}
+
 	@Override
 	public final String getNotLockedWhereClause(final String tableName, final String joinColumnNameFQ)
 	{
@@ -0,0 +1,179 @@
+package de.metas.async.api.impl;
+
+/*
+ * #%L
+ * de.metas.async
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+import org.adempiere.ad.dao.IQueryBL;
+import org.adempiere.model.InterfaceWrapperHelper;
+import org.compiere.model.IQuery;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+
+import de.metas.async.QueueProcessorTestBase;
+import de.metas.async.api.IWorkPackageQueue;
+import de.metas.async.model.I_C_Queue_Processor;
+import de.metas.async.model.I_C_Queue_WorkPackage;
+import de.metas.async.processor.IWorkPackageQueueFactory;
+import de.metas.async.processor.impl.StaticMockedWorkpackageProcessor;
+import de.metas.util.Services;
+
+public class WorkPackageQueue_PollAndLockMultiple_Test extends QueueProcessorTestBase
+{
+	private IWorkPackageQueue queueForEnqueuing;
+	private IWorkPackageQueue queueForProcessing;
+
+	@Override
+	protected void beforeTestCustomized()
+	{
+		final I_C_Queue_Processor processorDef = helper.createQueueProcessor("test", 5, 1000);
+		helper.assignPackageProcessor(processorDef, StaticMockedWorkpackageProcessor.class);
+
+		final IWorkPackageQueueFactory workPackageQueueFactory = Services.get(IWorkPackageQueueFactory.class);
+		queueForEnqueuing = workPackageQueueFactory.getQueueForEnqueuing(ctx, StaticMockedWorkpackageProcessor.class);
+		queueForProcessing = workPackageQueueFactory.getQueueForPackageProcessing(processorDef);
+	}
+
+	@Test
+	public void pollAndLockMultiple_claimsAtMostMaxWorkPackages()
+	{
+		helper.createAndEnqueueWorkpackages(queueForEnqueuing, 5, true);
+
+		final List<I_C_Queue_WorkPackage> firstClaim = queueForProcessing.pollAndLockMultiple(3, IWorkPackageQueue.TIMEOUT_OneTimeOnly);
+		assertThat(firstClaim).hasSize(3);
+		assertAllLocked(firstClaim);
+
+		final List<I_C_Queue_WorkPackage> secondClaim = queueForProcessing.pollAndLockMultiple(3, IWorkPackageQueue.TIMEOUT_OneTimeOnly);
+		assertThat(secondClaim).hasSize(2);
+		assertAllLocked(secondClaim);
+
+		assertThat(extractIds(firstClaim)).doesNotContainAnyElementsOf(extractIds(secondClaim));
+
+		assertThat(queueForProcessing.pollAndLockMultiple(3, IWorkPackageQueue.TIMEOUT_OneTimeOnly)).isEmpty();
+
+		firstClaim.forEach(queueForProcessing::unlock);
+		secondClaim.forEach(queueForProcessing::unlock);
+		helper.assertNothingLocked();
+	}
+
+	@Test
+	public void pollAndLockMultiple_eachWorkPackageHasItsOwnCtx()
+	{
+		helper.createAndEnqueueWorkpackages(queueForEnqueuing, 3, true);
+
+		final List<I_C_Queue_WorkPackage> workPackages = queueForProcessing.pollAndLockMultiple(3, IWorkPackageQueue.TIMEOUT_OneTimeOnly);
+		assertThat(workPackages).hasSize(3);
+
+		// NOTE: comparing by identity, because the contexts might have equal content
+		final Set<Properties> ctxs = Sets.newIdentityHashSet();
+		workPackages.forEach(workPackage -> ctxs.add(InterfaceWrapperHelper.getCtx(workPackage)));
+		assertThat(ctxs).hasSize(3);
+
+		workPackages.forEach(queueForProcessing::unlock);
+	}
+
+	@Test
+	public void pollAndLock_singleWorkPackage()
+	{
+		final List<I_C_Queue_WorkPackage> enqueued = helper.createAndEnqueueWorkpackages(queueForEnqueuing, 2, true);
+
+		final I_C_Queue_WorkPackage workPackage = queueForProcessing.pollAndLock(IWorkPackageQueue.TIMEOUT_OneTimeOnly);
+		assertThat(workPackage).isNotNull();
+		assertThat(extractIds(enqueued)).contains(workPackage.getC_Queue_WorkPackage_ID());
+		assertAllLocked(ImmutableSet.of(workPackage));
+
+		queueForProcessing.unlock(workPackage);
+		helper.assertNothingLocked();
+	}
+
+	@Test
+	public void pollAndLockMultiple_notReadyWorkPackagesAreNotClaimed()
+	{
+		helper.createAndEnqueueWorkpackages(queueForEnqueuing, 3, false);
+
+		assertThat(queueForProcessing.pollAndLockMultiple(3, IWorkPackageQueue.TIMEOUT_OneTimeOnly)).isEmpty();
+		helper.assertNothingLocked();
+	}
+
+	@Test
+	public void lockManager_retrieveAndLockMultiple()
+	{
+		helper.createAndEnqueueWorkpackages(queueForEnqueuing, 3, true);
+		final IQuery<I_C_Queue_WorkPackage> query = Services.get(IQueryBL.class)
+				.createQueryBuilder(I_C_Queue_WorkPackage.class, ctx)
+				.orderBy(I_C_Queue_WorkPackage.COLUMNNAME_C_Queue_WorkPackage_ID)
+				.create();
+
+		final List<I_C_Queue_WorkPackage> firstClaim = lockManager.retrieveAndLockMultiple(query, I_C_Queue_WorkPackage.class, 2);
+		assertThat(firstClaim).hasSize(2);
+		assertAllLocked(firstClaim);
+
+		final List<I_C_Queue_WorkPackage> secondClaim = lockManager.retrieveAndLockMultiple(query, I_C_Queue_WorkPackage.class, 2);
+		assertThat(secondClaim).hasSize(1);
+		assertThat(extractIds(firstClaim)).doesNotContainAnyElementsOf(extractIds(secondClaim));
+
+		assertThat(lockManager.retrieveAndLockMultiple(query, I_C_Queue_WorkPackage.class, 2)).isEmpty();
+
+		firstClaim.forEach(queueForProcessing::unlock);
+		secondClaim.forEach(queueForProcessing::unlock);
+		helper.assertNothingLocked();
+	}
+
+	@Test
+	public void retrieveWithOwnCtx_preservesOrder()
+	{
+		final List<I_C_Queue_WorkPackage> enqueued = helper.createAndEnqueueWorkpackages(queueForEnqueuing, 3, true);
+
+		final List<I_C_Queue_WorkPackage> reloaded = WorkPackageQueue.retrieveWithOwnCtx(enqueued);
+
+		assertThat(extractIds(reloaded)).containsExactlyElementsOf(extractIds(enqueued));
+		for (int i = 0; i < reloaded.size(); i++)
+		{
+			assertThat(InterfaceWrapperHelper.getCtx(reloaded.get(i))).isNotSameAs(InterfaceWrapperHelper.getCtx(enqueued.get(i)));
+		}
+	}
+
+	private void assertAllLocked(final Iterable<I_C_Queue_WorkPackage> workPackages)
+	{
+		for (final I_C_Queue_WorkPackage workPackage : workPackages)
+		{
+			assertThat(lockManager.isLocked(I_C_Queue_WorkPackage.class, workPackage.getC_Queue_WorkPackage_ID()))
+					.as("locked: %s", workPackage)
+					.isTrue();
+		}
+	}
+
+	private static List<Integer> extractIds(final List<I_C_Queue_WorkPackage> workPackages)
+	{
+		return workPackages.stream()
+				.map(I_C_Queue_WorkPackage::getC_Queue_WorkPackage_ID)
+				.collect(ImmutableList.toImmutableList());
+	}
+}
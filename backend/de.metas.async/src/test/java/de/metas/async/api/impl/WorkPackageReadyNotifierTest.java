@@ -0,0 +1,143 @@
+package de.metas.async.api.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.adempiere.ad.trx.api.ITrx;
+import org.adempiere.test.AdempiereTestHelper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.ImmutableList;
+
+/*
+ * #%L
+ * de.metas.async
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class WorkPackageReadyNotifierTest
+{
+	private static final int PROCESSOR_ID = 10;
+	private static final int OTHER_PROCESSOR_ID = 20;
+
+	private WorkPackageReadyNotifier notifier;
+
+	@BeforeEach
+	public void init()
+	{
+		AdempiereTestHelper.get().init();
+		notifier = new WorkPackageReadyNotifier();
+	}
+
+	@Test
+	public void awaitSignal_timeoutIfNotSignaled() throws Exception
+	{
+		final long token = notifier.getSignalToken(ImmutableList.of(PROCESSOR_ID));
+
+		assertThat(notifier.awaitSignal(ImmutableList.of(PROCESSOR_ID), token, 10)).isFalse();
+	}
+
+	@Test
+	public void awaitSignal_signalBetweenTokenAndAwaitIsNotMissed() throws Exception
+	{
+		final long token = notifier.getSignalToken(ImmutableList.of(PROCESSOR_ID));
+		notifier.notifyReady(PROCESSOR_ID, ITrx.TRXNAME_None);
+
+		// the signal was sent before we started waiting, so we shall return immediately
+		assertThat(notifier.awaitSignal(ImmutableList.of(PROCESSOR_ID), token, TimeUnit.MINUTES.toMillis(1))).isTrue();
+	}
+
+	@Test
+	public void awaitSignal_signalForOtherProcessorIsIgnored() throws Exception
+	{
+		final long token = notifier.getSignalToken(ImmutableList.of(PROCESSOR_ID));
+		notifier.notifyReady(OTHER_PROCESSOR_ID, ITrx.TRXNAME_None);
+
+		assertThat(notifier.awaitSignal(ImmutableList.of(PROCESSOR_ID), token, 10)).isFalse();
+	}
+
+	@Test
+	public void awaitSignal_wokenUpByConcurrentSignal() throws Exception
+	{
+		final long token = notifier.getSignalToken(ImmutableList.of(PROCESSOR_ID, OTHER_PROCESSOR_ID));
+
+		final CountDownLatch waiting = new CountDownLatch(1);
+		final CompletableFuture<Boolean> signaled = CompletableFuture.supplyAsync(() -> {
+			waiting.countDown();
+			try
+			{
+				return notifier.awaitSignal(ImmutableList.of(PROCESSOR_ID, OTHER_PROCESSOR_ID), token, TimeUnit.MINUTES.toMillis(1));
+			}
+			catch (final InterruptedException e)
+			{
+				throw new RuntimeException(e);
+			}
+		});
+
+		waiting.await();
+		notifier.notifyReady(OTHER_PROCESSOR_ID, ITrx.TRXNAME_None);
+
+		assertThat(signaled.get(10, TimeUnit.SECONDS)).isTrue();
+	}
+
+	@Test
+	public void onNotificationReceived_ownEchoIsIgnored() throws Exception
+	{
+		final long token = notifier.getSignalToken(ImmutableList.of(PROCESSOR_ID));
+
+		notifier.onNotificationReceived(notifier.toNotificationPayload(PROCESSOR_ID));
+
+		assertThat(notifier.getSignalToken(ImmutableList.of(PROCESSOR_ID))).isEqualTo(token);
+		assertThat(notifier.awaitSignal(ImmutableList.of(PROCESSOR_ID), token, 10)).isFalse();
+	}
+
+	@Test
+	public void onNotificationReceived_fromOtherNode() throws Exception
+	{
+		final WorkPackageReadyNotifier otherNode = new WorkPackageReadyNotifier();
+		final long token = notifier.getSignalToken(ImmutableList.of(PROCESSOR_ID));
+
+		notifier.onNotificationReceived(otherNode.toNotificationPayload(PROCESSOR_ID));
+
+		assertThat(notifier.getSignalToken(ImmutableList.of(PROCESSOR_ID))).isEqualTo(token + 1);
+		assertThat(notifier.awaitSignal(ImmutableList.of(PROCESSOR_ID), token, 10)).isTrue();
+	}
+
+	@Test
+	public void onNotificationReceived_invalidPayloadIsIgnored()
+	{
+		final long token = notifier.getSignalToken(ImmutableList.of(PROCESSOR_ID));
+
+		notifier.onNotificationReceived("invalid");
+		notifier.onNotificationReceived("otherNode:notANumber");
+		notifier.onNotificationReceived(null);
+
+		assertThat(notifier.getSignalToken(ImmutableList.of(PROCESSOR_ID))).isEqualTo(token);
+	}
+
+	@Test
+	public void getPollIntervalMillis_defaultIfPostgresNotifyIsDisabled()
+	{
+		assertThat(notifier.getPollIntervalMillis(1234)).isEqualTo(1234);
+	}
+}
@@ -39,6 +39,7 @@ import org.adempiere.exceptions.AdempiereException;
 import org.adempiere.model.InterfaceWrapperHelper;
 
 import de.metas.async.QueueProcessorTestBase;
+import de.metas.async.api.NOPWorkpackageLogsRepository;
 import de.metas.async.api.IWorkPackageQueue;
 import de.metas.async.model.I_C_Queue_Processor;
 import de.metas.async.model.I_C_Queue_WorkPackage;
@@ -380,4 +381,31 @@ public class ThreadPoolQueueProcessorTest extends QueueProcessorTestBase
 			assertThatThrownBy(() -> futureResult.get()).isInstanceOf(CancellationException.class);
 		}
 	}
+
+	@Test
+	public void getFreeCapacity_isThePoolSizeWhenIdle()
+	{
+		final I_C_Queue_Processor processorDef = helper.createQueueProcessor("test-capacity", 3, 1000);
+		helper.assignPackageProcessor(processorDef, StaticMockedWorkpackageProcessor.class);
+		final IWorkPackageQueue queue = Services.get(IWorkPackageQueueFactory.class).getQueueForPackageProcessing(processorDef);
+
+		final ThreadPoolQueueProcessor queueProcessor = new ThreadPoolQueueProcessor(processorDef, queue, NOPWorkpackageLogsRepository.instance);
+		try
+		{
+			assertThat(queueProcessor.getFreeCapacity()).isEqualTo(3);
+		}
+		finally
+		{
+			queueProcessor.shutdown();
+		}
+	}
+
+	@Test
+	public void getFreeCapacity_synchronousProcessorClaimsOneByOne()
+	{
+		final IWorkPackageQueue queue = Services.get(IWorkPackageQueueFactory.class).getQueueForEnqueuing(ctx, StaticMockedWorkpackageProcessor.class);
+
+		final SynchronousQueueProcessor queueProcessor = new SynchronousQueueProcessor(queue, NOPWorkpackageLogsRepository.instance);
+		assertThat(queueProcessor.getFreeCapacity()).isEqualTo(1);
+	}
 }
@@ -26,6 +26,7 @@ import static org.adempiere.model.InterfaceWrapperHelper.getTableId;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Arrays;
 import java.util.Properties;
 
 import javax.annotation.Nullable;
@@ -303,6 +304,15 @@ public class BPartnerImportProcess extends SimpleImportProcessTemplate<I_I_BPart
 				+ ", " + I_I_BPartner.COLUMNNAME_I_BPartner_ID;
 	}
 
+	/**
+	 * Consecutive lines of the same BPartner share one import context, see {@link BPartnerImportContext#isSameBPartner(I_I_BPartner)}.
+	 */
+	@Override
+	protected Object extractImportRecordPartitionKey(@NonNull final I_I_BPartner importRecord)
+	{
+		return Arrays.asList(importRecord.getBPValue(), importRecord.getGlobalId());
+	}
+
 	@Override
 	protected String getTargetTableName()
 	{
@@ -114,6 +114,12 @@ public class ProductImportProcess extends SimpleImportProcessTemplate<I_I_Produc
 		return I_I_Product.COLUMNNAME_ProductCategory_Value;
 	}
 
+	@Override
+	protected Object extractImportRecordPartitionKey(@NonNull final I_I_Product importRecord)
+	{
+		return importRecord.getValue();
+	}
+
 	@Override
 	protected I_I_Product retrieveImportRecord(final Properties ctx, final ResultSet rs) throws SQLException
 	{
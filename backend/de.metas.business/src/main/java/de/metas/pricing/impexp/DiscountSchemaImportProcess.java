@@ -60,6 +60,12 @@ public class DiscountSchemaImportProcess extends SimpleImportProcessTemplate<I_I
 		return I_I_DiscountSchema.COLUMNNAME_C_BPartner_ID;
 	}
 
+	@Override
+	protected Object extractImportRecordPartitionKey(@NonNull final I_I_DiscountSchema importRecord)
+	{
+		return importRecord.getC_BPartner_ID();
+	}
+
 	@Override
 	protected I_I_DiscountSchema retrieveImportRecord(final Properties ctx, final ResultSet rs) throws SQLException
 	{
@@ -11,19 +11,16 @@ import de.metas.document.archive.storage.cc.api.ICCAbleDocument;
 import de.metas.document.archive.storage.cc.api.ICCAbleDocumentFactoryService;
 import de.metas.util.Check;
 import de.metas.util.FileUtil;
-import de.metas.util.IOStreamUtils;
 import de.metas.util.Services;
 import lombok.NonNull;
 import org.adempiere.archive.api.IArchiveStorageFactory;
 import org.adempiere.archive.spi.IArchiveStorage;
 import org.adempiere.exceptions.AdempiereException;
 
-import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
-import java.io.InputStream;
-import java.io.OutputStream;
+import java.io.IOException;
 import java.util.List;
 
 /*
@@ -125,16 +122,11 @@ public class DocOutboundCCWorkpackageProcessor implements IWorkpackageProcessor
 	private void copyArchiveToFile(final I_AD_Archive archive, final File file)
 	{
 		final IArchiveStorage archiveStorage = archiveStorageFactory.getArchiveStorage(archive);
-		final InputStream data = archiveStorage.getBinaryDataAsStream(archive);
 
-		OutputStream out = null;
-		try
+		try (final FileOutputStream out = new FileOutputStream(file, false)) // append=false
 		{
-			out = new FileOutputStream(file, false); // append=false
-
-			final int bufferSize = 1024 * 4;
-			final OutputStream outBuffer = new BufferedOutputStream(out, bufferSize);
-			IOStreamUtils.copy(outBuffer, data);
+			// NOTE: writing to a FileOutputStream allows the storage to transfer the data without loading it in memory
+			archiveStorage.writeBinaryDataTo(archive, out);
 		}
 		catch (final FileNotFoundException e)
 		{
@@ -144,9 +136,9 @@ public class DocOutboundCCWorkpackageProcessor implements IWorkpackageProcessor
 		{
 			throw new AdempiereException("@CCFileWriteAccessDenied@ " + file, e);
 		}
-		finally
+		catch (final IOException e)
 		{
-			IOStreamUtils.close(out, data);
+			throw new AdempiereException("@CCFileCreationError@ " + file, e);
 		}
 	}
 }
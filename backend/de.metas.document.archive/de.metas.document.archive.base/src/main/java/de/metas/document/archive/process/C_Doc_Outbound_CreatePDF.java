@@ -25,6 +25,9 @@ package de.metas.document.archive.process;
 
 import java.util.Properties;
 
+import org.adempiere.archive.spi.impl.ArchiveStorageStatistics;
+import org.adempiere.util.lang.IAutoCloseable;
+
 import de.metas.async.api.IWorkPackageQueue;
 import de.metas.async.processor.IQueueProcessor;
 import de.metas.async.processor.IQueueProcessorFactory;
@@ -58,7 +61,13 @@ public class C_Doc_Outbound_CreatePDF extends JavaProcess
 		final IWorkPackageQueue workpackageQueue = workPackageQueueFactory.getQueueForEnqueuing(ctx, DocOutboundWorkpackageProcessor.class);
 		final IQueueProcessor queueProcessor = queueProcessorFactory.createSynchronousQueueProcessor(workpackageQueue);
 
-		queueProcessor.run();
+		// NOTE: the synchronous queue processor runs the work packages in this thread
+		final ArchiveStorageStatistics archiveStatistics = ArchiveStorageStatistics.newInstance();
+		try (final IAutoCloseable collector = archiveStatistics.collectInCurrentThread())
+		{
+			queueProcessor.run();
+		}
+		addLog("Archive storage: {}", archiveStatistics.getSnapshot().toSummaryString());
 
 		final IQueueProcessorStatistics statistics = queueProcessor.getStatisticsSnapshot();
 
@@ -36,10 +36,19 @@ public class ESModelIndexerDataSources
 	}
 
 	public static SqlESModelIndexerDataSource allForModelIndexer(final IESModelIndexer modelIndexer)
+	{
+		return allForModelIndexer(modelIndexer, -1);
+	}
+
+	/**
+	 * @param chunkSize if positive, the models are fetched in chunks of this size
+	 */
+	public static SqlESModelIndexerDataSource allForModelIndexer(final IESModelIndexer modelIndexer, final int chunkSize)
 	{
 		return newSqlESModelIndexerDataSource()
 				.modelTableName(modelIndexer.getModelTableName())
 				.triggers(modelIndexer.getTriggers())
+				.chunkSize(chunkSize)
 				.build();
 	}
 
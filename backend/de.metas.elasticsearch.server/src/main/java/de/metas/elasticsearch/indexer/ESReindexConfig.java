@@ -0,0 +1,70 @@
+package de.metas.elasticsearch.indexer;
+
+import org.adempiere.service.ISysConfigBL;
+
+import de.metas.util.Services;
+import lombok.Builder;
+import lombok.Value;
+
+/*
+ * #%L
+ * de.metas.elasticsearch
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Tuning parameters used when (re)indexing many models at once, see {@link IESModelIndexer#reindex(ESModelIndexerDataSource, ESReindexConfig)}.
+ */
+@Value
+@Builder
+public class ESReindexConfig
+{
+	private static final String SYSCONFIG_PREFIX = "de.metas.elasticsearch.indexer.Reindex.";
+
+	/** how many models are fetched from database (keyset paging) and denormalized at once */
+	int chunkSize;
+	/** how many threads are denormalizing the models */
+	int parallelism;
+
+	/** a bulk request is sent when it reaches this size */
+	long bulkMaxBytes;
+	/** a bulk request is sent when it reaches this number of documents */
+	int bulkMaxActions;
+	/** how many bulk requests can be in flight at the same time; when reached, the indexing waits */
+	int maxConcurrentBulks;
+
+	/** how many times a bulk request rejected by the cluster (i.e. because it's busy) is retried */
+	int maxRetriesOnRejection;
+	/** initial delay before retrying a rejected bulk; the delay is increased exponentially */
+	long retryInitialDelayMillis;
+
+	public static ESReindexConfig ofSysConfig()
+	{
+		final ISysConfigBL sysConfigBL = Services.get(ISysConfigBL.class);
+		return builder()
+				.chunkSize(sysConfigBL.getIntValue(SYSCONFIG_PREFIX + "ChunkSize", 1000))
+				.parallelism(sysConfigBL.getIntValue(SYSCONFIG_PREFIX + "Parallelism", Runtime.getRuntime().availableProcessors()))
+				.bulkMaxBytes(sysConfigBL.getIntValue(SYSCONFIG_PREFIX + "BulkMaxSizeKB", 5 * 1024) * 1024L)
+				.bulkMaxActions(sysConfigBL.getIntValue(SYSCONFIG_PREFIX + "BulkMaxActions", 1000))
+				.maxConcurrentBulks(sysConfigBL.getIntValue(SYSCONFIG_PREFIX + "MaxConcurrentBulks", 2))
+				.maxRetriesOnRejection(sysConfigBL.getIntValue(SYSCONFIG_PREFIX + "MaxRetriesOnRejection", 8))
+				.retryInitialDelayMillis(sysConfigBL.getIntValue(SYSCONFIG_PREFIX + "RetryInitialDelayMillis", 100))
+				.build();
+	}
+}
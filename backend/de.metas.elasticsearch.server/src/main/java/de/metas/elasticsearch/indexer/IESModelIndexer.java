@@ -60,6 +60,17 @@ public interface IESModelIndexer
 	 */
 	IESIndexerResult addToIndex(ESModelIndexerDataSource dataSource);
 
+	/**
+	 * Add many models to index, e.g. when (re)indexing a whole table.
+	 * <p>
+	 * Unlike {@link #addToIndex(ESModelIndexerDataSource)}, implementations may denormalize the models in parallel and send them in several bulks.
+	 * Progress is reported to {@link de.metas.util.Loggables}.
+	 */
+	default IESIndexerResult reindex(final ESModelIndexerDataSource dataSource, final ESReindexConfig config)
+	{
+		return addToIndex(dataSource);
+	}
+
 	IESIndexerResult removeFromIndexByIds(Collection<String> ids);
 
 	Set<String> getFullTextSearchFieldNames();
@@ -1,5 +1,6 @@
 package de.metas.elasticsearch.indexer;
 
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
@@ -7,9 +8,13 @@ import org.adempiere.ad.dao.ICompositeQueryFilter;
 import org.adempiere.ad.dao.IQueryBL;
 import org.adempiere.ad.dao.IQueryBuilder;
 import org.adempiere.ad.dao.IQueryFilter;
+import org.adempiere.ad.dao.impl.CompareQueryFilter.Operator;
 import org.adempiere.ad.dao.impl.TypedSqlQueryFilter;
+import org.adempiere.model.InterfaceWrapperHelper;
 import org.compiere.model.IQuery;
 
+import com.google.common.collect.AbstractIterator;
+
 import de.metas.elasticsearch.trigger.IESModelIndexerTrigger;
 import de.metas.util.Check;
 import de.metas.util.Services;
@@ -49,6 +54,7 @@ public class SqlESModelIndexerDataSource implements ESModelIndexerDataSource
 	private final String sqlWhereClause;
 	private final String sqlOrderByClause;
 	private final int limit;
+	private final int chunkSize;
 
 	@Builder
 	private SqlESModelIndexerDataSource(
@@ -56,7 +62,8 @@ public class SqlESModelIndexerDataSource implements ESModelIndexerDataSource
 			@NonNull final List<IESModelIndexerTrigger> triggers,
 			final String sqlWhereClause,
 			final String sqlOrderByClause,
-			final int limit)
+			final int limit,
+			final int chunkSize)
 	{
 		Check.assumeNotEmpty(triggers, "triggers is not empty");
 
@@ -65,10 +72,36 @@ public class SqlESModelIndexerDataSource implements ESModelIndexerDataSource
 		this.sqlWhereClause = sqlWhereClause;
 		this.sqlOrderByClause = sqlOrderByClause;
 		this.limit = limit;
+		this.chunkSize = chunkSize;
 	}
 
 	@Override
 	public Iterator<Object> getModelsToIndex()
+	{
+		if (chunkSize > 0 && Check.isEmpty(sqlOrderByClause, true))
+		{
+			return iterateInChunks();
+		}
+
+		final IQueryBuilder<Object> queryBuilder = createQueryBuilder();
+		if (limit > 0)
+		{
+			queryBuilder.setLimit(limit);
+		}
+
+		final IQuery<Object> query = queryBuilder.create();
+
+		if (!Check.isEmpty(sqlOrderByClause, true))
+		{
+			query.setOrderBy(queryBL.createSqlQueryOrderBy(sqlOrderByClause));
+		}
+
+		//
+		// Execute query
+		return query.iterate(Object.class);
+	}
+
+	private IQueryBuilder<Object> createQueryBuilder()
 	{
 		final ICompositeQueryFilter<Object> triggerFilters = queryBL.createCompositeQueryFilter(modelTableName)
 				.setDefaultAccept(true)
@@ -93,20 +126,58 @@ public class SqlESModelIndexerDataSource implements ESModelIndexerDataSource
 			queryBuilder.filter(TypedSqlQueryFilter.of(sqlWhereClause));
 		}
 
-		if (limit > 0)
-		{
-			queryBuilder.setLimit(limit);
-		}
+		return queryBuilder;
+	}
 
-		final IQuery<Object> query = queryBuilder.create();
+	/**
+	 * Fetches the models ordered by their ID, in chunks of {@link #chunkSize}.
+	 * Each chunk is fetched using <code>ID > lastFetchedID</code> (keyset paging), so fetching a chunk costs the same, no matter how many chunks were fetched before.
+	 */
+	private Iterator<Object> iterateInChunks()
+	{
+		final String keyColumnName = InterfaceWrapperHelper.getKeyColumnName(modelTableName);
 
-		if (!Check.isEmpty(sqlOrderByClause, true))
+		return new AbstractIterator<Object>()
 		{
-			query.setOrderBy(queryBL.createSqlQueryOrderBy(sqlOrderByClause));
-		}
+			private Iterator<Object> currentChunk = Collections.emptyIterator();
+			private boolean lastChunkFetched = false;
+			private int lastId = -1;
+			private int countFetched = 0;
 
-		//
-		// Execute query
-		return query.iterate(Object.class);
+			@Override
+			protected Object computeNext()
+			{
+				if (limit > 0 && countFetched >= limit)
+				{
+					return endOfData();
+				}
+
+				if (!currentChunk.hasNext())
+				{
+					if (lastChunkFetched)
+					{
+						return endOfData();
+					}
+
+					final List<Object> chunk = createQueryBuilder()
+							.addCompareFilter(keyColumnName, Operator.GREATER, lastId)
+							.orderBy(keyColumnName)
+							.setLimit(chunkSize)
+							.create()
+							.list();
+					lastChunkFetched = chunk.size() < chunkSize;
+					if (chunk.isEmpty())
+					{
+						return endOfData();
+					}
+					currentChunk = chunk.iterator();
+				}
+
+				final Object model = currentChunk.next();
+				lastId = InterfaceWrapperHelper.getId(model);
+				countFetched++;
+				return model;
+			}
+		};
 	}
 }
@@ -0,0 +1,359 @@
+package de.metas.elasticsearch.indexer.impl;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import javax.annotation.Nullable;
+
+import org.adempiere.exceptions.AdempiereException;
+import org.adempiere.util.lang.IAutoCloseable;
+import org.compiere.util.Env;
+import org.elasticsearch.action.bulk.BackoffPolicy;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkProcessor;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.slf4j.Logger;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableList;
+
+import de.metas.elasticsearch.indexer.ESModelIndexerDataSource;
+import de.metas.elasticsearch.indexer.ESReindexConfig;
+import de.metas.logging.LogManager;
+import de.metas.util.Check;
+import de.metas.util.Loggables;
+import lombok.Builder;
+import lombok.NonNull;
+
+/*
+ * #%L
+ * de.metas.elasticsearch
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Indexes many models, as fast as the cluster allows:
+ * <ul>
+ * <li>the models are denormalized in parallel, one chunk at a time
+ * <li>the index requests are sent using a {@link BulkProcessor}, i.e. bulks are sized by bytes and actions, and only a limited number of bulks are in flight.
+ * When that limit is reached, adding more requests blocks (back-pressure)
+ * <li>bulks which were rejected by the cluster because it's busy are retried with exponential backoff
+ * </ul>
+ * Progress is logged to {@link Loggables} at most every {@value #PROGRESS_LOG_INTERVAL_MILLIS}ms.
+ */
+final class ESBulkIndexer
+{
+	private static final Logger logger = LogManager.getLogger(ESBulkIndexer.class);
+
+	private static final long PROGRESS_LOG_INTERVAL_MILLIS = 10 * 1000;
+	private static final int MAX_FAILURE_MESSAGES = 100;
+
+	private final BulkSenderFactory bulkSenderFactory;
+	private final String indexerName;
+	private final Function<Object, IndexRequest> indexRequestFactory;
+	private final ESReindexConfig config;
+
+	private final AtomicInteger countTotal = new AtomicInteger(0);
+	private final AtomicInteger countOK = new AtomicInteger(0);
+	private final AtomicInteger countFailed = new AtomicInteger(0);
+	private final AtomicInteger countRejectedBulks = new AtomicInteger(0);
+	private final Queue<String> failureMessages = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * Sends the index requests to the cluster, in bulks.
+	 */
+	@VisibleForTesting
+	interface BulkSender
+	{
+		void add(IndexRequest indexRequest);
+
+		/** Sends the pending requests and waits for the in-flight bulks to finish. */
+		boolean awaitClose(long timeout, TimeUnit unit) throws InterruptedException;
+	}
+
+	@VisibleForTesting
+	@FunctionalInterface
+	interface BulkSenderFactory
+	{
+		BulkSender create(ESReindexConfig config, BulkProcessor.Listener listener, BackoffPolicy backoffPolicy);
+	}
+
+	/**
+	 * @param bulkSenderFactory if null, the requests are sent using a {@link BulkProcessor} of given <code>elasticsearchClient</code>
+	 */
+	@Builder
+	private ESBulkIndexer(
+			@Nullable final Client elasticsearchClient,
+			@Nullable final BulkSenderFactory bulkSenderFactory,
+			@NonNull final String indexerName,
+			@NonNull final Function<Object, IndexRequest> indexRequestFactory,
+			@NonNull final ESReindexConfig config)
+	{
+		if (bulkSenderFactory != null)
+		{
+			this.bulkSenderFactory = bulkSenderFactory;
+		}
+		else
+		{
+			Check.assumeNotNull(elasticsearchClient, "elasticsearchClient is set if no bulkSenderFactory is given");
+			this.bulkSenderFactory = (bulkConfig, listener, backoffPolicy) -> createBulkProcessor(elasticsearchClient, bulkConfig, listener, backoffPolicy);
+		}
+		this.indexerName = indexerName;
+		this.indexRequestFactory = indexRequestFactory;
+		this.config = config;
+	}
+
+	public ESBulkIndexerResult index(@NonNull final ESModelIndexerDataSource dataSource)
+	{
+		final Stopwatch stopwatch = Stopwatch.createStarted();
+		final Properties ctx = Env.getCtx();
+
+		final ForkJoinPool denormalizePool = new ForkJoinPool(Math.max(config.getParallelism(), 1));
+		final BulkSender bulkSender = createBulkSender();
+		try
+		{
+			long lastProgressLogMillis = System.currentTimeMillis();
+			for (final Iterator<Object> models = dataSource.getModelsToIndex(); models.hasNext();)
+			{
+				final List<Object> chunk = nextChunk(models);
+				countTotal.addAndGet(chunk.size());
+
+				final List<IndexRequest> indexRequests = denormalizePool.submit(() -> chunk.parallelStream()
+						.map(model -> createIndexRequestOrNull(ctx, model))
+						.filter(Objects::nonNull)
+						.collect(Collectors.toList()))
+						.get();
+
+				// NOTE: blocks if too many bulks are in flight
+				indexRequests.forEach(bulkSender::add);
+
+				final long now = System.currentTimeMillis();
+				if (now - lastProgressLogMillis >= PROGRESS_LOG_INTERVAL_MILLIS)
+				{
+					Loggables.addLog("{} - Progress: {}", indexerName, toResult(stopwatch).getSummary());
+					lastProgressLogMillis = now;
+				}
+			}
+		}
+		catch (final InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+			throw AdempiereException.wrapIfNeeded(ex);
+		}
+		catch (final ExecutionException ex)
+		{
+			throw AdempiereException.wrapIfNeeded(ex.getCause());
+		}
+		finally
+		{
+			denormalizePool.shutdown();
+			awaitClose(bulkSender);
+		}
+
+		return toResult(stopwatch);
+	}
+
+	private List<Object> nextChunk(final Iterator<Object> models)
+	{
+		final int chunkSize = Math.max(config.getChunkSize(), 1);
+		final List<Object> chunk = new ArrayList<>(chunkSize);
+		while (chunk.size() < chunkSize && models.hasNext())
+		{
+			chunk.add(models.next());
+		}
+		return chunk;
+	}
+
+	private IndexRequest createIndexRequestOrNull(final Properties ctx, final Object model)
+	{
+		try (final IAutoCloseable ctxRestorer = Env.switchContext(ctx))
+		{
+			return indexRequestFactory.apply(model);
+		}
+		catch (final Exception ex)
+		{
+			logger.warn("Failed creating the index request for {}", model, ex);
+			countFailed.incrementAndGet();
+			addFailureMessage(model + ": " + ex.getLocalizedMessage());
+			return null;
+		}
+	}
+
+	private BulkSender createBulkSender()
+	{
+		final BackoffPolicy backoffPolicy = new CountingBackoffPolicy(
+				BackoffPolicy.exponentialBackoff(TimeValue.timeValueMillis(config.getRetryInitialDelayMillis()), config.getMaxRetriesOnRejection()),
+				countRejectedBulks);
+
+		return bulkSenderFactory.create(config, new BulkListener(), backoffPolicy);
+	}
+
+	private static BulkSender createBulkProcessor(
+			@NonNull final Client elasticsearchClient,
+			@NonNull final ESReindexConfig config,
+			@NonNull final BulkProcessor.Listener listener,
+			@NonNull final BackoffPolicy backoffPolicy)
+	{
+		final BulkProcessor bulkProcessor = BulkProcessor.builder(elasticsearchClient, listener)
+				.setBulkActions(config.getBulkMaxActions())
+				.setBulkSize(new ByteSizeValue(config.getBulkMaxBytes(), ByteSizeUnit.BYTES))
+				.setConcurrentRequests(config.getMaxConcurrentBulks())
+				.setBackoffPolicy(backoffPolicy)
+				.build();
+
+		return new BulkSender()
+		{
+			@Override
+			public void add(final IndexRequest indexRequest)
+			{
+				bulkProcessor.add(indexRequest);
+			}
+
+			@Override
+			public boolean awaitClose(final long timeout, final TimeUnit unit) throws InterruptedException
+			{
+				return bulkProcessor.awaitClose(timeout, unit);
+			}
+		};
+	}
+
+	private void awaitClose(final BulkSender bulkSender)
+	{
+		try
+		{
+			if (!bulkSender.awaitClose(10, TimeUnit.MINUTES))
+			{
+				logger.warn("{} - Timeout while waiting for the in-flight bulks to finish", indexerName);
+			}
+		}
+		catch (final InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+			logger.warn("{} - Interrupted while waiting for the in-flight bulks to finish", indexerName, ex);
+		}
+	}
+
+	private void addFailureMessage(final String failureMessage)
+	{
+		if (failureMessages.size() < MAX_FAILURE_MESSAGES)
+		{
+			failureMessages.add(failureMessage);
+		}
+	}
+
+	private ESBulkIndexerResult toResult(final Stopwatch stopwatch)
+	{
+		return ESBulkIndexerResult.builder()
+				.totalCount(countTotal.get())
+				.okCount(countOK.get())
+				.failuresCount(countFailed.get())
+				.failureMessages(ImmutableList.copyOf(failureMessages))
+				.rejectedBulksCount(countRejectedBulks.get())
+				.durationInMillis(stopwatch.elapsed(TimeUnit.MILLISECONDS))
+				.build();
+	}
+
+	private class BulkListener implements BulkProcessor.Listener
+	{
+		@Override
+		public void beforeBulk(final long executionId, final BulkRequest request)
+		{
+			logger.trace("{} - Sending bulk {} with {} actions", indexerName, executionId, request.numberOfActions());
+		}
+
+		@Override
+		public void afterBulk(final long executionId, final BulkRequest request, final BulkResponse response)
+		{
+			for (final BulkItemResponse item : response.getItems())
+			{
+				if (item.isFailed())
+				{
+					countFailed.incrementAndGet();
+					addFailureMessage(item.getId() + ": " + item.getFailureMessage());
+				}
+				else
+				{
+					countOK.incrementAndGet();
+				}
+			}
+		}
+
+		@Override
+		public void afterBulk(final long executionId, final BulkRequest request, final Throwable failure)
+		{
+			logger.warn("{} - Bulk {} with {} actions failed", indexerName, executionId, request.numberOfActions(), failure);
+			countFailed.addAndGet(request.numberOfActions());
+			addFailureMessage("Bulk " + executionId + ": " + failure.getLocalizedMessage());
+		}
+	}
+
+	/**
+	 * Delegates to another backoff policy and counts how many times a bulk was retried, i.e. how many times a bulk was rejected by the cluster.
+	 */
+	private static final class CountingBackoffPolicy extends BackoffPolicy
+	{
+		private final BackoffPolicy delegate;
+		private final AtomicInteger countRetries;
+
+		private CountingBackoffPolicy(@NonNull final BackoffPolicy delegate, @NonNull final AtomicInteger countRetries)
+		{
+			this.delegate = delegate;
+			this.countRetries = countRetries;
+		}
+
+		@Override
+		public Iterator<TimeValue> iterator()
+		{
+			final Iterator<TimeValue> delegateIterator = delegate.iterator();
+			return new Iterator<TimeValue>()
+			{
+				@Override
+				public boolean hasNext()
+				{
+					return delegateIterator.hasNext();
+				}
+
+				@Override
+				public TimeValue next()
+				{
+					countRetries.incrementAndGet();
+					return delegateIterator.next();
+				}
+			};
+		}
+	}
+}
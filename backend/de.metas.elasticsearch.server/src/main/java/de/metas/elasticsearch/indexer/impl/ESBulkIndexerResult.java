@@ -0,0 +1,99 @@
+package de.metas.elasticsearch.indexer.impl;
+
+import java.util.List;
+
+import org.adempiere.exceptions.AdempiereException;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.MoreObjects;
+
+import de.metas.elasticsearch.indexer.IESIndexerResult;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+
+/*
+ * #%L
+ * de.metas.elasticsearch
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Result of {@link ESBulkIndexer}, which might cover several bulk requests.
+ */
+@Value
+@Builder
+/* package */class ESBulkIndexerResult implements IESIndexerResult
+{
+	int totalCount;
+	int okCount;
+	int failuresCount;
+	/** the first failure messages (not all of them) */
+	@NonNull
+	List<String> failureMessages;
+	/** how many times a bulk was rejected by the cluster and then retried */
+	int rejectedBulksCount;
+	long durationInMillis;
+
+	@Override
+	public String getSummary()
+	{
+		return MoreObjects.toStringHelper(this)
+				.omitNullValues()
+				.add("TotalCount", getTotalCount())
+				.add("FailuresCount", getFailuresCount())
+				.add("RejectedBulks", getRejectedBulksCount())
+				.add("DocsPerSecond", getDocsPerSecond())
+				.add("ErrorMsg", hasFailures() ? getFailureMessage() : null)
+				.add("Duration", durationInMillis + "ms")
+				.toString();
+	}
+
+	public long getDocsPerSecond()
+	{
+		return durationInMillis > 0 ? totalCount * 1000L / durationInMillis : totalCount;
+	}
+
+	@Override
+	public int getOKCount()
+	{
+		return okCount;
+	}
+
+	@Override
+	public boolean hasFailures()
+	{
+		return failuresCount > 0;
+	}
+
+	@Override
+	public String getFailureMessage()
+	{
+		return Joiner.on("\n").join(failureMessages);
+	}
+
+	@Override
+	public void throwExceptionIfAnyFailure()
+	{
+		if (hasFailures())
+		{
+			throw new AdempiereException(getFailureMessage());
+		}
+	}
+}
@@ -34,6 +34,7 @@ import de.metas.elasticsearch.config.ESModelIndexerId;
 import de.metas.elasticsearch.config.ESModelIndexerProfile;
 import de.metas.elasticsearch.denormalizers.IESModelDenormalizer;
 import de.metas.elasticsearch.indexer.ESModelIndexerDataSource;
+import de.metas.elasticsearch.indexer.ESReindexConfig;
 import de.metas.elasticsearch.indexer.IESIndexerResult;
 import de.metas.elasticsearch.indexer.IESModelIndexer;
 import de.metas.elasticsearch.trigger.IESModelIndexerTrigger;
@@ -463,6 +464,23 @@ public final class ESModelIndexer implements IESModelIndexer
 		}
 	}
 
+	@Override
+	public IESIndexerResult reindex(
+			@NonNull final ESModelIndexerDataSource dataSource,
+			@NonNull final ESReindexConfig config)
+	{
+		final IESIndexerResult result = ESBulkIndexer.builder()
+				.elasticsearchClient(elasticsearchClient)
+				.indexerName(getId().toJson())
+				.indexRequestFactory(model -> createIndexRequestForModel(model).request())
+				.config(config)
+				.build()
+				.index(dataSource);
+
+		logger.debug("Reindexed {}", result);
+		return result;
+	}
+
 	@Override
 	public IESIndexerResult removeFromIndexByIds(final Collection<String> ids)
 	{
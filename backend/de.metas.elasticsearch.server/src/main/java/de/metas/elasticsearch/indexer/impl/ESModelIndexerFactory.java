@@ -1,5 +1,8 @@
 package de.metas.elasticsearch.indexer.impl;
 
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
 import com.google.common.collect.ImmutableList;
 
 import de.metas.elasticsearch.config.ESIncludedModelsConfig;
@@ -10,6 +13,8 @@ import de.metas.elasticsearch.denormalizers.IESDenormalizerFactory;
 import de.metas.elasticsearch.denormalizers.IESModelDenormalizer;
 import de.metas.elasticsearch.indexer.IESModelIndexer;
 import de.metas.elasticsearch.indexer.impl.ESModelIndexer.ESModelIndexerBuilder;
+import de.metas.elasticsearch.indexer.lucene.LuceneIndexChanges;
+import de.metas.elasticsearch.indexer.lucene.LuceneModelIndexer;
 import de.metas.elasticsearch.trigger.IESModelIndexerTrigger;
 import de.metas.util.Check;
 import de.metas.util.Services;
@@ -85,6 +90,34 @@ final class ESModelIndexerFactory
 				.build();
 	}
 
+	/**
+	 * Creates an indexer which uses an embedded Lucene index instead of Elasticsearch.
+	 *
+	 * @param indexesDirectory directory where the indexes are kept; each index has its own sub directory
+	 * @param changesPublisher where the indexer publishes its changes, so they can be applied to the indexes of the other JVMs
+	 */
+	public IESModelIndexer createLucene(
+			@NonNull final Path indexesDirectory,
+			@NonNull final Consumer<LuceneIndexChanges> changesPublisher)
+	{
+		final ImmutableList<LuceneModelIndexer.IncludedModel> includedModels = includedModelsConfigs.stream()
+				.map(includedModelConfig -> LuceneModelIndexer.IncludedModel.builder()
+						.config(includedModelConfig)
+						.modelDenormalizer(createModelDenormalizer(includedModelConfig.getChildTableName()))
+						.build())
+				.collect(ImmutableList.toImmutableList());
+
+		return LuceneModelIndexer.builder()
+				.id(id)
+				.modelTableName(modelTableName)
+				.modelDenormalizer(createModelDenormalizer(modelTableName))
+				.triggers(triggers)
+				.includedModels(includedModels)
+				.indexDirectory(indexesDirectory.resolve(id.getIndexName()))
+				.changesPublisher(changesPublisher)
+				.build();
+	}
+
 	private ESModelIndexer createIncludedModelIndexer(final ESIncludedModelsConfig includedModelConfig)
 	{
 		return newModelIndexerBuilder(includedModelConfig.getChildTableName())
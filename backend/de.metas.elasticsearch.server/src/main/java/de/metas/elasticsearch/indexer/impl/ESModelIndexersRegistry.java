@@ -1,5 +1,7 @@
 package de.metas.elasticsearch.indexer.impl;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Collection;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
@@ -8,6 +10,7 @@ import javax.annotation.Nullable;
 
 import org.adempiere.service.ISysConfigBL;
 import org.compiere.SpringContextHolder;
+import org.compiere.util.Ini;
 import org.elasticsearch.client.Client;
 import org.slf4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -19,11 +22,16 @@ import de.metas.elasticsearch.config.ESModelIndexerConfigBuilder;
 import de.metas.elasticsearch.config.ESModelIndexerId;
 import de.metas.elasticsearch.config.ESModelIndexerProfile;
 import de.metas.elasticsearch.indexer.ESModelIndexerDataSources;
+import de.metas.elasticsearch.indexer.ESReindexConfig;
 import de.metas.elasticsearch.indexer.IESIndexerResult;
 import de.metas.elasticsearch.indexer.IESModelIndexer;
 import de.metas.elasticsearch.indexer.IESModelIndexersRegistry;
 import de.metas.elasticsearch.indexer.SqlESModelIndexerDataSource;
+import de.metas.elasticsearch.indexer.lucene.LuceneIndexChanges;
+import de.metas.elasticsearch.indexer.lucene.LuceneIndexChangesDispatcher;
+import de.metas.elasticsearch.indexer.lucene.LuceneModelIndexer;
 import de.metas.logging.LogManager;
+import de.metas.util.Check;
 import de.metas.util.Services;
 import lombok.NonNull;
 
@@ -55,9 +63,16 @@ public class ESModelIndexersRegistry implements IESModelIndexersRegistry
 
 	private static final String SYSCONFIG_AUTOINDEX_MODELS = "de.metas.elasticsearch.indexer.AutoIndexModels";
 
+	private static final String SYSCONFIG_FullTextSearchEngine = "de.metas.elasticsearch.indexer.FullTextSearchEngine";
+	private static final String FullTextSearchEngine_Lucene = "lucene";
+	private static final String SYSCONFIG_LuceneIndexesDirectory = "de.metas.elasticsearch.indexer.LuceneIndexesDirectory";
+
 	private final ConcurrentHashMap<ESModelIndexerId, IESModelIndexer> indexersById = new ConcurrentHashMap<>();
 	private final ConcurrentHashMap<String, ImmutableList<IESModelIndexer>> indexersByModelTableName = new ConcurrentHashMap<>();
 
+	/** guarded by this */
+	private LuceneIndexChangesDispatcher _luceneIndexChangesDispatcher;
+
 	@Autowired
 	private Client elasticsearchClient;
 
@@ -106,14 +121,96 @@ public class ESModelIndexersRegistry implements IESModelIndexersRegistry
 	@Override
 	public void addModelIndexer(final ESModelIndexerConfigBuilder config)
 	{
-		final IESModelIndexer indexer = new ESModelIndexerFactory(this, config)
+		final ESModelIndexerFactory indexerFactory = new ESModelIndexerFactory(this, config)
 				.indexSettingsJson(config.getIndexSettingsJson())
-				.indexStringFullTextSearchAnalyzer(config.getIndexStringFullTextSearchAnalyzer())
-				.create();
+				.indexStringFullTextSearchAnalyzer(config.getIndexStringFullTextSearchAnalyzer());
+
+		final IESModelIndexer indexer = isUseLucene(indexerFactory.getProfile())
+				? indexerFactory.createLucene(getLuceneIndexesDirectory(), getLuceneIndexChangesDispatcher()::publish)
+				: indexerFactory.create();
 
 		addModelIndexer(indexer);
 	}
 
+	/**
+	 * @return true if full text search indexes shall be kept in an embedded Lucene index instead of Elasticsearch
+	 */
+	private boolean isUseLucene(final ESModelIndexerProfile profile)
+	{
+		if (profile != ESModelIndexerProfile.FULL_TEXT_SEARCH)
+		{
+			return false;
+		}
+
+		final String engine = Services.get(ISysConfigBL.class).getValue(SYSCONFIG_FullTextSearchEngine, "elasticsearch");
+		return FullTextSearchEngine_Lucene.equalsIgnoreCase(engine);
+	}
+
+	/**
+	 * @return the directory of this JVM's Lucene indexes. The JVM system property takes precedence over the sysconfig,
+	 *         so JVMs of the same run mode which are running on the same host can be configured to use different directories.
+	 */
+	private Path getLuceneIndexesDirectory()
+	{
+		final String directoryFromSystemProperty = System.getProperty(SYSCONFIG_LuceneIndexesDirectory);
+		if (!Check.isEmpty(directoryFromSystemProperty, true))
+		{
+			return Paths.get(directoryFromSystemProperty.trim());
+		}
+
+		final String defaultDirectory = Paths.get(System.getProperty("user.home"), ".metasfresh", "lucene").toString();
+		final String directory = Services.get(ISysConfigBL.class).getValue(SYSCONFIG_LuceneIndexesDirectory, defaultDirectory);
+
+		// each JVM (e.g. app server and webui) has its own index; see LuceneIndexChangesDispatcher
+		return Paths.get(directory).resolve(Ini.getRunMode().name().toLowerCase());
+	}
+
+	private synchronized LuceneIndexChangesDispatcher getLuceneIndexChangesDispatcher()
+	{
+		if (_luceneIndexChangesDispatcher == null)
+		{
+			final LuceneIndexChangesDispatcher dispatcher = new LuceneIndexChangesDispatcher();
+			dispatcher.subscribe(this::applyLuceneIndexChangesFromOtherJVM);
+			_luceneIndexChangesDispatcher = dispatcher;
+		}
+		return _luceneIndexChangesDispatcher;
+	}
+
+	private void applyLuceneIndexChangesFromOtherJVM(@NonNull final LuceneIndexChanges changes)
+	{
+		final IESModelIndexer indexer = indexersById.get(changes.getIndexerId());
+		if (!(indexer instanceof LuceneModelIndexer))
+		{
+			logger.debug("Skip applying {} because there is no Lucene indexer for it: {}", changes, indexer);
+			return;
+		}
+
+		((LuceneModelIndexer)indexer).applyChangesFromOtherJVM(changes);
+	}
+
+	/**
+	 * Commits and closes the Lucene indexes of this JVM.
+	 */
+	public void closeLuceneIndexes()
+	{
+		for (final IESModelIndexer indexer : indexersById.values())
+		{
+			if (!(indexer instanceof LuceneModelIndexer))
+			{
+				continue;
+			}
+
+			try
+			{
+				((LuceneModelIndexer)indexer).close();
+			}
+			catch (final Exception ex)
+			{
+				logger.warn("Failed closing {}", indexer, ex);
+			}
+		}
+	}
+
 	private void addModelIndexer(@NonNull final IESModelIndexer indexer)
 	{
 		//
@@ -149,10 +246,17 @@ public class ESModelIndexersRegistry implements IESModelIndexersRegistry
 
 		if (indexJustCreated && isAutoIndexModelsForIndexName(indexer.getIndexName()))
 		{
-			final SqlESModelIndexerDataSource modelsToIndex = ESModelIndexerDataSources.allForModelIndexer(indexer);
-			final IESIndexerResult indexingResult = indexer.addToIndex(modelsToIndex);
+			final ESReindexConfig reindexConfig = ESReindexConfig.ofSysConfig();
+			final SqlESModelIndexerDataSource modelsToIndex = ESModelIndexerDataSources.allForModelIndexer(indexer, reindexConfig.getChunkSize());
+			final IESIndexerResult indexingResult = indexer.reindex(modelsToIndex, reindexConfig);
 			logger.info("Indexed models for {}: {}", indexer, indexingResult.getSummary());
 		}
+		else if (!indexJustCreated && indexer instanceof LuceneModelIndexer)
+		{
+			final ESReindexConfig reindexConfig = ESReindexConfig.ofSysConfig();
+			final IESIndexerResult indexingResult = ((LuceneModelIndexer)indexer).addModelsUpdatedSinceLastCommit(reindexConfig.getChunkSize());
+			logger.info("Indexed models updated since last commit for {}: {}", indexer, indexingResult.getSummary());
+		}
 	}
 
 	private boolean isAutoIndexModelsForIndexName(final String indexName)
@@ -0,0 +1,64 @@
+package de.metas.elasticsearch.indexer.lucene;
+
+import java.util.Collection;
+
+import com.google.common.collect.ImmutableSet;
+
+import de.metas.elasticsearch.config.ESModelIndexerId;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Singular;
+import lombok.Value;
+
+/*
+ * #%L
+ * de.metas.elasticsearch
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+
+/**
+ * Documents which were added to or removed from a {@link LuceneModelIndexer}, to be applied to the index of the same indexer in the other JVMs.
+ */
+@Value
+@Builder
+public class LuceneIndexChanges
+{
+	@NonNull
+	ESModelIndexerId indexerId;
+	@Singular
+	ImmutableSet<String> addedIds;
+	@Singular
+	ImmutableSet<String> removedIds;
+
+	public static LuceneIndexChanges added(@NonNull final ESModelIndexerId indexerId, @NonNull final Collection<String> addedIds)
+	{
+		return builder().indexerId(indexerId).addedIds(addedIds).build();
+	}
+
+	public static LuceneIndexChanges removed(@NonNull final ESModelIndexerId indexerId, @NonNull final Collection<String> removedIds)
+	{
+		return builder().indexerId(indexerId).removedIds(removedIds).build();
+	}
+
+	public boolean isEmpty()
+	{
+		return addedIds.isEmpty() && removedIds.isEmpty();
+	}
+}
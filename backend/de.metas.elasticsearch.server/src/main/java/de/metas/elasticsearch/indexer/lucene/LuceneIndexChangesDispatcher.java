@@ -0,0 +1,119 @@
+package de.metas.elasticsearch.indexer.lucene;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import de.metas.elasticsearch.config.ESModelIndexerId;
+import de.metas.event.Event;
+import de.metas.event.IEventBus;
+import de.metas.event.IEventBusFactory;
+import de.metas.event.Topic;
+import de.metas.logging.LogManager;
+import de.metas.util.Services;
+import lombok.NonNull;
+
+/*
+ * #%L
+ * de.metas.elasticsearch
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+
+/**
+ * Distributes the {@link LuceneIndexChanges} to the other JVMs, because each JVM has its own embedded index,
+ * but the async add/remove to index processors are running only on one of them.
+ */
+public class LuceneIndexChangesDispatcher
+{
+	private static final Logger logger = LogManager.getLogger(LuceneIndexChangesDispatcher.class);
+
+	public static final Topic TOPIC = Topic.remote("de.metas.elasticsearch.indexer.lucene.LuceneIndexChanges");
+
+	private static final String PROPERTY_IndexerId = "indexerId";
+	private static final String PROPERTY_AddedIds = "addedIds";
+	private static final String PROPERTY_RemovedIds = "removedIds";
+
+	public void publish(@NonNull final LuceneIndexChanges changes)
+	{
+		if (changes.isEmpty())
+		{
+			return;
+		}
+
+		getEventBus().postEvent(Event.builder()
+				.putProperty(PROPERTY_IndexerId, changes.getIndexerId().toJson())
+				.putProperty(PROPERTY_AddedIds, ImmutableList.copyOf(changes.getAddedIds()))
+				.putProperty(PROPERTY_RemovedIds, ImmutableList.copyOf(changes.getRemovedIds()))
+				.build());
+	}
+
+	/**
+	 * @param consumer called for the changes which were published by the other JVMs
+	 */
+	public void subscribe(@NonNull final Consumer<LuceneIndexChanges> consumer)
+	{
+		getEventBus().subscribe(event -> {
+			if (event.isLocalEvent())
+			{
+				return; // already applied
+			}
+
+			final LuceneIndexChanges changes = toLuceneIndexChanges(event);
+			try
+			{
+				consumer.accept(changes);
+			}
+			catch (final Exception ex)
+			{
+				logger.warn("Failed applying {}", changes, ex);
+			}
+		});
+	}
+
+	private static IEventBus getEventBus()
+	{
+		return Services.get(IEventBusFactory.class).getEventBus(TOPIC);
+	}
+
+	private static LuceneIndexChanges toLuceneIndexChanges(@NonNull final Event event)
+	{
+		return LuceneIndexChanges.builder()
+				.indexerId(ESModelIndexerId.fromJson(event.getPropertyAsString(PROPERTY_IndexerId)))
+				.addedIds(toIds(event.getProperty(PROPERTY_AddedIds)))
+				.removedIds(toIds(event.getProperty(PROPERTY_RemovedIds)))
+				.build();
+	}
+
+	private static ImmutableSet<String> toIds(final Collection<?> ids)
+	{
+		if (ids == null || ids.isEmpty())
+		{
+			return ImmutableSet.of();
+		}
+
+		return ids.stream()
+				.map(String::valueOf)
+				.collect(ImmutableSet.toImmutableSet());
+	}
+}
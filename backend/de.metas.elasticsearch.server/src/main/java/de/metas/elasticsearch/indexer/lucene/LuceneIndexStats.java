@@ -0,0 +1,45 @@
+package de.metas.elasticsearch.indexer.lucene;
+
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+
+/*
+ * #%L
+ * de.metas.elasticsearch
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+@Value
+@Builder
+public class LuceneIndexStats
+{
+	@NonNull
+	String indexName;
+	int docsCount;
+
+	long countSearches;
+	long lastSearchMillis;
+	long maxSearchMillis;
+	long avgSearchMillis;
+
+	/** how long it took, for the oldest model of the last indexed batch, from being changed until it was searchable */
+	long lastIndexLagMillis;
+	long maxIndexLagMillis;
+}
@@ -0,0 +1,65 @@
+package de.metas.elasticsearch.indexer.lucene;
+
+/*
+ * #%L
+ * de.metas.elasticsearch
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Collects search latency and index lag of a {@link LuceneModelIndexer}.
+ */
+final class LuceneIndexStatsCollector
+{
+	private long countSearches = 0;
+	private long lastSearchMillis = 0;
+	private long maxSearchMillis = 0;
+	private long sumSearchMillis = 0;
+
+	private long lastIndexLagMillis = 0;
+	private long maxIndexLagMillis = 0;
+
+	public synchronized void recordSearch(final long searchMillis)
+	{
+		countSearches++;
+		lastSearchMillis = searchMillis;
+		maxSearchMillis = Math.max(maxSearchMillis, searchMillis);
+		sumSearchMillis += searchMillis;
+	}
+
+	public synchronized void recordIndexLag(final long indexLagMillis)
+	{
+		lastIndexLagMillis = indexLagMillis;
+		maxIndexLagMillis = Math.max(maxIndexLagMillis, indexLagMillis);
+	}
+
+	public synchronized LuceneIndexStats toStats(final String indexName, final int docsCount)
+	{
+		return LuceneIndexStats.builder()
+				.indexName(indexName)
+				.docsCount(docsCount)
+				.countSearches(countSearches)
+				.lastSearchMillis(lastSearchMillis)
+				.maxSearchMillis(maxSearchMillis)
+				.avgSearchMillis(countSearches > 0 ? sumSearchMillis / countSearches : 0)
+				.lastIndexLagMillis(lastIndexLagMillis)
+				.maxIndexLagMillis(maxIndexLagMillis)
+				.build();
+	}
+}
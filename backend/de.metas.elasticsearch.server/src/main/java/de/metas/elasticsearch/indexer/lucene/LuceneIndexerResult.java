@@ -0,0 +1,122 @@
+package de.metas.elasticsearch.indexer.lucene;
+
+import java.util.List;
+
+import org.adempiere.exceptions.AdempiereException;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
+
+import de.metas.elasticsearch.indexer.IESIndexerResult;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Singular;
+
+/*
+ * #%L
+ * de.metas.elasticsearch
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/* package */final class LuceneIndexerResult implements IESIndexerResult
+{
+	private final int totalCount;
+	private final ImmutableList<String> failureMessages;
+	private final long durationInMillis;
+	/** -1 if unknown */
+	private final long indexLagMillis;
+
+	@Builder
+	private LuceneIndexerResult(
+			final int totalCount,
+			@NonNull @Singular final List<String> failureMessages,
+			final long durationInMillis,
+			final Long indexLagMillis)
+	{
+		this.totalCount = totalCount;
+		this.failureMessages = ImmutableList.copyOf(failureMessages);
+		this.durationInMillis = durationInMillis;
+		this.indexLagMillis = indexLagMillis != null ? indexLagMillis : -1;
+	}
+
+	@Override
+	public String toString()
+	{
+		return getSummary();
+	}
+
+	@Override
+	public String getSummary()
+	{
+		return MoreObjects.toStringHelper(this)
+				.omitNullValues()
+				.add("TotalCount", getTotalCount())
+				.add("FailuresCount", getFailuresCount())
+				.add("ErrorMsg", hasFailures() ? getFailureMessage() : null)
+				.add("Duration", durationInMillis + "ms")
+				.add("IndexLag", indexLagMillis >= 0 ? indexLagMillis + "ms" : null)
+				.toString();
+	}
+
+	@Override
+	public long getDurationInMillis()
+	{
+		return durationInMillis;
+	}
+
+	@Override
+	public int getTotalCount()
+	{
+		return totalCount;
+	}
+
+	@Override
+	public int getOKCount()
+	{
+		return totalCount - getFailuresCount();
+	}
+
+	@Override
+	public int getFailuresCount()
+	{
+		return failureMessages.size();
+	}
+
+	@Override
+	public boolean hasFailures()
+	{
+		return !failureMessages.isEmpty();
+	}
+
+	@Override
+	public String getFailureMessage()
+	{
+		return Joiner.on("\n").join(failureMessages);
+	}
+
+	@Override
+	public void throwExceptionIfAnyFailure()
+	{
+		if (hasFailures())
+		{
+			throw new AdempiereException(getFailureMessage());
+		}
+	}
+}
@@ -0,0 +1,55 @@
+package de.metas.elasticsearch.indexer.lucene;
+
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.stereotype.Component;
+
+import de.metas.elasticsearch.IESSystem;
+import de.metas.elasticsearch.indexer.IESModelIndexersRegistry;
+import de.metas.elasticsearch.indexer.impl.ESModelIndexersRegistry;
+import de.metas.util.Services;
+
+/*
+ * #%L
+ * de.metas.elasticsearch
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+
+/**
+ * Commits and closes the {@link LuceneModelIndexer}s' indexes when the application context is closed, so the changes since the last periodic commit are not lost.
+ */
+@Component
+public class LuceneIndexesShutdownListener implements ApplicationListener<ContextClosedEvent>
+{
+	@Override
+	public void onApplicationEvent(final ContextClosedEvent event)
+	{
+		if (!Services.get(IESSystem.class).isEnabled())
+		{
+			return;
+		}
+
+		final IESModelIndexersRegistry indexersRegistry = Services.get(IESModelIndexersRegistry.class);
+		if (indexersRegistry instanceof ESModelIndexersRegistry)
+		{
+			((ESModelIndexersRegistry)indexersRegistry).closeLuceneIndexes();
+		}
+	}
+}
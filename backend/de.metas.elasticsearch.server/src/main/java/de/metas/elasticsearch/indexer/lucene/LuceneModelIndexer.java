@@ -0,0 +1,756 @@
+package de.metas.elasticsearch.indexer.lucene;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.annotation.Nullable;
+
+import org.adempiere.ad.dao.IQueryBL;
+import org.adempiere.exceptions.AdempiereException;
+import org.adempiere.model.InterfaceWrapperHelper;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.core.LowerCaseFilter;
+import org.apache.lucene.analysis.miscellaneous.TruncateTokenFilter;
+import org.apache.lucene.analysis.ngram.EdgeNGramTokenFilter;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.classic.MultiFieldQueryParser;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherFactory;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.LockObtainFailedException;
+import org.apache.lucene.store.MMapDirectory;
+import org.compiere.util.DB;
+import org.slf4j.Logger;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import de.metas.elasticsearch.config.ESIncludedModelsConfig;
+import de.metas.elasticsearch.config.ESModelIndexerId;
+import de.metas.elasticsearch.config.ESModelIndexerProfile;
+import de.metas.elasticsearch.denormalizers.IESModelDenormalizer;
+import de.metas.elasticsearch.indexer.ESModelIndexerDataSource;
+import de.metas.elasticsearch.indexer.ESModelIndexerDataSources;
+import de.metas.elasticsearch.indexer.IESIndexerResult;
+import de.metas.elasticsearch.indexer.IESModelIndexer;
+import de.metas.elasticsearch.trigger.IESModelIndexerTrigger;
+import de.metas.logging.LogManager;
+import de.metas.util.Check;
+import de.metas.util.Services;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Singular;
+import lombok.Value;
+
+/*
+ * #%L
+ * de.metas.elasticsearch
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Model indexer which keeps the index in an embedded Lucene index on local disk, so no Elasticsearch cluster is needed.
+ * <p>
+ * It's fed the same way as {@link de.metas.elasticsearch.indexer.impl.ESModelIndexer}, i.e. by the model indexer triggers and the async add/remove to index processors.
+ * Changes become searchable right after {@link #addToIndex(ESModelIndexerDataSource)} or {@link #removeFromIndexByIds(Collection)} returned (near real-time refresh),
+ * while they are committed to disk at most every {@value #COMMIT_INTERVAL_MILLIS}ms.
+ * <p>
+ * Each JVM has its own index directory. The changes made by this indexer are published to the <code>changesPublisher</code>,
+ * so the indexer of the same index in the other JVMs can apply them (see {@link #applyChangesFromOtherJVM(LuceneIndexChanges)}).
+ * <p>
+ * Text is indexed as lower case edge n-grams, so a search term matches all the words starting with it.
+ * <p>
+ * Only the {@link ESModelIndexerProfile#FULL_TEXT_SEARCH} profile is supported.
+ */
+public final class LuceneModelIndexer implements IESModelIndexer
+{
+	private static final Logger logger = LogManager.getLogger(LuceneModelIndexer.class);
+
+	private static final String FIELDNAME_ID = "_id";
+	private static final long COMMIT_INTERVAL_MILLIS = 5000;
+	private static final String COMMITDATA_CommitMillis = "CommitMillis";
+	/**
+	 * When reopening the index, the models updated since the last commit minus this margin are indexed again,
+	 * in order to catch up with the changes which were made by the other JVMs meanwhile and did not reach this one.
+	 */
+	private static final long CATCH_UP_MARGIN_MILLIS = TimeUnit.MINUTES.toMillis(10);
+	/** Search terms are matched as prefix up to this length; longer terms must match the first characters exactly. */
+	private static final int MAX_PREFIX_LENGTH = 30;
+
+	@Getter
+	private final ESModelIndexerId id;
+	@Getter
+	private final String modelTableName;
+	private final IESModelDenormalizer modelDenormalizer;
+	@Getter
+	private final ImmutableList<IESModelIndexerTrigger> triggers;
+	private final ImmutableList<IncludedModel> includedModels;
+
+	private final Path indexDirectory;
+	private final ToLongFunction<Object> modelUpdatedMillisExtractor;
+	private final Consumer<LuceneIndexChanges> changesPublisher;
+	private final Analyzer indexAnalyzer = newIndexAnalyzer();
+	private final Analyzer searchAnalyzer = newSearchAnalyzer();
+
+	/** guarded by this */
+	private boolean closed;
+	/** guarded by this */
+	private IndexWriter _indexWriter;
+	/** guarded by this */
+	private SearcherManager _searcherManager;
+	/** guarded by this */
+	private long lastCommitMillis;
+
+	private final LuceneIndexStatsCollector stats = new LuceneIndexStatsCollector();
+
+	@Value
+	@Builder
+	public static class IncludedModel
+	{
+		@NonNull
+		ESIncludedModelsConfig config;
+		@NonNull
+		IESModelDenormalizer modelDenormalizer;
+	}
+
+	@Builder
+	private LuceneModelIndexer(
+			@NonNull final ESModelIndexerId id,
+			@NonNull final String modelTableName,
+			@NonNull final IESModelDenormalizer modelDenormalizer,
+			@NonNull @Singular final ImmutableList<IESModelIndexerTrigger> triggers,
+			@NonNull @Singular final ImmutableList<IncludedModel> includedModels,
+			@NonNull final Path indexDirectory,
+			@Nullable final ToLongFunction<Object> modelUpdatedMillisExtractor,
+			@Nullable final Consumer<LuceneIndexChanges> changesPublisher)
+	{
+		Check.assume(id.getProfile() == ESModelIndexerProfile.FULL_TEXT_SEARCH, "Only full text search profile is supported: {}", id);
+
+		this.id = id;
+		this.modelTableName = modelTableName;
+		this.modelDenormalizer = modelDenormalizer;
+		this.triggers = triggers;
+		this.includedModels = includedModels;
+
+		this.indexDirectory = indexDirectory;
+		this.modelUpdatedMillisExtractor = modelUpdatedMillisExtractor != null
+				? modelUpdatedMillisExtractor
+				: LuceneModelIndexer::extractModelUpdatedMillis;
+		this.changesPublisher = changesPublisher != null
+				? changesPublisher
+				: changes -> {};
+	}
+
+	private static Analyzer newIndexAnalyzer()
+	{
+		return new Analyzer()
+		{
+			@Override
+			protected TokenStreamComponents createComponents(final String fieldName)
+			{
+				final Tokenizer tokenizer = new StandardTokenizer();
+				final TokenStream tokens = new EdgeNGramTokenFilter(new LowerCaseFilter(tokenizer), 1, MAX_PREFIX_LENGTH);
+				return new TokenStreamComponents(tokenizer, tokens);
+			}
+		};
+	}
+
+	private static Analyzer newSearchAnalyzer()
+	{
+		return new Analyzer()
+		{
+			@Override
+			protected TokenStreamComponents createComponents(final String fieldName)
+			{
+				final Tokenizer tokenizer = new StandardTokenizer();
+				final TokenStream tokens = new TruncateTokenFilter(new LowerCaseFilter(tokenizer), MAX_PREFIX_LENGTH);
+				return new TokenStreamComponents(tokenizer, tokens);
+			}
+		};
+	}
+
+	@Override
+	public String toString()
+	{
+		// NOTE: keep it short
+		return MoreObjects.toStringHelper(this)
+				.add("id", id)
+				.add("modelTableName", modelTableName)
+				.add("indexDirectory", indexDirectory)
+				.toString();
+	}
+
+	@Override
+	public String getIndexName()
+	{
+		return getId().getIndexName();
+	}
+
+	@Override
+	public String getIndexType()
+	{
+		return getId().getIndexType();
+	}
+
+	@Override
+	public ESModelIndexerProfile getProfile()
+	{
+		return getId().getProfile();
+	}
+
+	@Override
+	public synchronized boolean createUpdateIndex()
+	{
+		assertNotClosed();
+		if (_indexWriter != null)
+		{
+			logger.debug("Skip create/update index because index is already open: {}", indexDirectory);
+			return false;
+		}
+
+		try
+		{
+			Files.createDirectories(indexDirectory);
+			final Directory directory = new MMapDirectory(indexDirectory);
+			final boolean indexExists = DirectoryReader.indexExists(directory);
+
+			final IndexWriterConfig config = new IndexWriterConfig(indexAnalyzer)
+					.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND)
+					.setCommitOnClose(true);
+			_indexWriter = new IndexWriter(directory, config);
+			if (!indexExists)
+			{
+				commit(System.currentTimeMillis());
+			}
+			lastCommitMillis = System.currentTimeMillis();
+
+			_searcherManager = new SearcherManager(_indexWriter, true, new SearcherFactory());
+
+			logger.info("Opened index {} (created={})", indexDirectory, !indexExists);
+			return !indexExists;
+		}
+		catch (final LockObtainFailedException ex)
+		{
+			throw new AdempiereException("Index " + indexDirectory + " is used by another JVM."
+					+ " Please configure a separate indexes directory for each JVM, e.g. -Dde.metas.elasticsearch.indexer.LuceneIndexesDirectory=...", ex);
+		}
+		catch (final IOException ex)
+		{
+			throw new AdempiereException("Failed opening index " + indexDirectory, ex);
+		}
+	}
+
+	private void assertNotClosed()
+	{
+		if (closed)
+		{
+			throw new AdempiereException("Index " + indexDirectory + " was already closed");
+		}
+	}
+
+	/** Shall be called while holding the lock on this. */
+	private void commit(final long commitMillis) throws IOException
+	{
+		_indexWriter.setCommitData(ImmutableMap.of(COMMITDATA_CommitMillis, String.valueOf(commitMillis)));
+		_indexWriter.commit();
+		lastCommitMillis = commitMillis;
+	}
+
+	/**
+	 * Commits the pending changes and releases the index, so another JVM could open it.
+	 */
+	public synchronized void close()
+	{
+		if (closed)
+		{
+			return;
+		}
+		closed = true;
+
+		if (_indexWriter == null)
+		{
+			return;
+		}
+
+		try
+		{
+			_searcherManager.close();
+			_indexWriter.setCommitData(ImmutableMap.of(COMMITDATA_CommitMillis, String.valueOf(System.currentTimeMillis())));
+			_indexWriter.close(); // commits, see IndexWriterConfig#setCommitOnClose
+			logger.info("Closed index {}", indexDirectory);
+		}
+		catch (final IOException ex)
+		{
+			throw new AdempiereException("Failed closing index " + indexDirectory, ex);
+		}
+		finally
+		{
+			_searcherManager = null;
+			_indexWriter = null;
+		}
+	}
+
+	private synchronized IndexWriter getIndexWriter()
+	{
+		if (_indexWriter == null)
+		{
+			createUpdateIndex();
+		}
+		return _indexWriter;
+	}
+
+	private synchronized SearcherManager getSearcherManager()
+	{
+		if (_searcherManager == null)
+		{
+			createUpdateIndex();
+		}
+		return _searcherManager;
+	}
+
+	@Override
+	public void deleteIndex()
+	{
+		try
+		{
+			getIndexWriter().deleteAll();
+			refreshAndCommitIfNeeded(true);
+		}
+		catch (final IOException ex)
+		{
+			throw new AdempiereException("Failed deleting index " + indexDirectory, ex);
+		}
+	}
+
+	@Override
+	public IESIndexerResult addToIndex(@NonNull final ESModelIndexerDataSource dataSource)
+	{
+		return addToIndex(dataSource, true);
+	}
+
+	private IESIndexerResult addToIndex(@NonNull final ESModelIndexerDataSource dataSource, final boolean publishChanges)
+	{
+		final Stopwatch stopwatch = Stopwatch.createStarted();
+		final IndexWriter indexWriter = getIndexWriter();
+
+		int totalCount = 0;
+		final Set<String> addedIds = new HashSet<>();
+		final List<String> failureMessages = new ArrayList<>();
+		long oldestModelUpdatedMillis = Long.MAX_VALUE;
+		for (final Iterator<Object> models = dataSource.getModelsToIndex(); models.hasNext();)
+		{
+			final Object model = models.next();
+			totalCount++;
+
+			try
+			{
+				final String documentId = modelDenormalizer.extractId(model);
+				indexWriter.updateDocument(new Term(FIELDNAME_ID, documentId), createDocument(documentId, model));
+				addedIds.add(documentId);
+
+				final long modelUpdatedMillis = modelUpdatedMillisExtractor.applyAsLong(model);
+				if (modelUpdatedMillis > 0)
+				{
+					oldestModelUpdatedMillis = Math.min(oldestModelUpdatedMillis, modelUpdatedMillis);
+				}
+			}
+			catch (final Exception ex)
+			{
+				logger.warn("Failed indexing {} using {}", model, this, ex);
+				failureMessages.add(model + ": " + ex.getLocalizedMessage());
+			}
+		}
+
+		if (totalCount <= 0)
+		{
+			return IESIndexerResult.NULL;
+		}
+
+		refreshAndCommitIfNeededNoFail();
+		if (publishChanges)
+		{
+			changesPublisher.accept(LuceneIndexChanges.added(id, addedIds));
+		}
+
+		final long indexLagMillis = oldestModelUpdatedMillis != Long.MAX_VALUE
+				? System.currentTimeMillis() - oldestModelUpdatedMillis
+				: -1;
+		if (indexLagMillis >= 0)
+		{
+			stats.recordIndexLag(indexLagMillis);
+		}
+
+		final LuceneIndexerResult result = LuceneIndexerResult.builder()
+				.totalCount(totalCount)
+				.failureMessages(failureMessages)
+				.durationInMillis(stopwatch.elapsed(TimeUnit.MILLISECONDS))
+				.indexLagMillis(indexLagMillis)
+				.build();
+		logger.debug("Added {}", result);
+		return result;
+	}
+
+	private Document createDocument(@NonNull final String documentId, @NonNull final Object model)
+	{
+		final Document document = new Document();
+		document.add(new StringField(FIELDNAME_ID, documentId, Field.Store.YES));
+
+		addFields(document, null, modelDenormalizer.denormalize(model));
+
+		if (!includedModels.isEmpty())
+		{
+			final int parentId = InterfaceWrapperHelper.getId(model);
+			for (final IncludedModel includedModel : includedModels)
+			{
+				retrieveIncludedModels(includedModel.getConfig(), parentId)
+						.forEach(childModel -> addFields(document, includedModel.getConfig().getAttributeName(), includedModel.getModelDenormalizer().denormalize(childModel)));
+			}
+		}
+
+		return document;
+	}
+
+	private static Stream<Object> retrieveIncludedModels(@NonNull final ESIncludedModelsConfig includedModelConfig, final int parentId)
+	{
+		return Services.get(IQueryBL.class)
+				.createQueryBuilder(includedModelConfig.getChildTableName())
+				.addOnlyActiveRecordsFilter()
+				.addEqualsFilter(includedModelConfig.getChildLinkColumnName(), parentId)
+				.create()
+				.stream();
+	}
+
+	private static void addFields(
+			@NonNull final Document document,
+			@Nullable final String fieldNamePrefix,
+			@NonNull final Map<String, Object> denormalizedModel)
+	{
+		for (final Map.Entry<String, Object> entry : denormalizedModel.entrySet())
+		{
+			final String fieldName = fieldNamePrefix != null ? fieldNamePrefix + "." + entry.getKey() : entry.getKey();
+			addField(document, fieldName, entry.getValue());
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static void addField(
+			@NonNull final Document document,
+			@NonNull final String fieldName,
+			@Nullable final Object value)
+	{
+		if (value == null)
+		{
+			// nothing to index
+		}
+		else if (value instanceof Map)
+		{
+			addFields(document, fieldName, (Map<String, Object>)value);
+		}
+		else if (value instanceof Collection)
+		{
+			for (final Object item : (Collection<?>)value)
+			{
+				addField(document, fieldName, item);
+			}
+		}
+		else
+		{
+			document.add(new TextField(fieldName, value.toString(), Field.Store.NO));
+		}
+	}
+
+	@Override
+	public IESIndexerResult removeFromIndexByIds(@NonNull final Collection<String> ids)
+	{
+		return removeFromIndexByIds(ids, true);
+	}
+
+	private IESIndexerResult removeFromIndexByIds(@NonNull final Collection<String> ids, final boolean publishChanges)
+	{
+		if (ids.isEmpty())
+		{
+			return IESIndexerResult.NULL;
+		}
+
+		final Stopwatch stopwatch = Stopwatch.createStarted();
+		try
+		{
+			final List<Term> terms = new ArrayList<>(ids.size());
+			for (final String id : ids)
+			{
+				Check.assumeNotEmpty(id, "id is not empty");
+				terms.add(new Term(FIELDNAME_ID, id));
+			}
+			getIndexWriter().deleteDocuments(terms.toArray(new Term[terms.size()]));
+		}
+		catch (final IOException ex)
+		{
+			throw new AdempiereException("Failed removing " + ids.size() + " models because: " + ex.getLocalizedMessage()
+					+ "\n Indexer: " + this, ex);
+		}
+
+		refreshAndCommitIfNeededNoFail();
+		if (publishChanges)
+		{
+			changesPublisher.accept(LuceneIndexChanges.removed(id, ids));
+		}
+
+		final LuceneIndexerResult result = LuceneIndexerResult.builder()
+				.totalCount(ids.size())
+				.durationInMillis(stopwatch.elapsed(TimeUnit.MILLISECONDS))
+				.build();
+		logger.debug("Deleted {}", result);
+		return result;
+	}
+
+	private void refreshAndCommitIfNeededNoFail()
+	{
+		try
+		{
+			refreshAndCommitIfNeeded(false);
+		}
+		catch (final IOException ex)
+		{
+			throw new AdempiereException("Failed refreshing index " + indexDirectory, ex);
+		}
+	}
+
+	private void refreshAndCommitIfNeeded(final boolean forceCommit) throws IOException
+	{
+		// make the changes visible to searchers, without waiting for them to be written to disk
+		getSearcherManager().maybeRefreshBlocking();
+
+		synchronized (this)
+		{
+			assertNotClosed();
+
+			final long now = System.currentTimeMillis();
+			if (forceCommit || now - lastCommitMillis >= COMMIT_INTERVAL_MILLIS)
+			{
+				commit(now);
+			}
+		}
+	}
+
+	/**
+	 * Applies the changes which were made by the indexer of the same index in another JVM.
+	 * The added models are loaded from database, so the index contains their current state.
+	 */
+	public void applyChangesFromOtherJVM(@NonNull final LuceneIndexChanges changes)
+	{
+		Check.assume(id.equals(changes.getIndexerId()), "Changes are for {}: {}", this, changes);
+
+		final Set<String> idsToRemove = new HashSet<>(changes.getRemovedIds());
+		if (!changes.getAddedIds().isEmpty())
+		{
+			final List<Object> models = retrieveModelsByIds(changes.getAddedIds());
+			addToIndex(ESModelIndexerDataSources.ofCollection(models), false);
+
+			// not found, e.g. deactivated or deleted meanwhile
+			idsToRemove.addAll(changes.getAddedIds());
+			models.forEach(model -> idsToRemove.remove(modelDenormalizer.extractId(model)));
+		}
+
+		removeFromIndexByIds(idsToRemove, false);
+	}
+
+	private List<Object> retrieveModelsByIds(@NonNull final Set<String> ids)
+	{
+		final String keyColumnName = InterfaceWrapperHelper.getKeyColumnName(modelTableName);
+		final String sqlIds = ids.stream()
+				.map(Integer::parseInt) // make sure we only have numeric IDs in our SQL
+				.map(String::valueOf)
+				.collect(Collectors.joining(","));
+
+		final List<Object> models = new ArrayList<>(ids.size());
+		ESModelIndexerDataSources.newSqlESModelIndexerDataSource()
+				.modelTableName(modelTableName)
+				.triggers(triggers)
+				.sqlWhereClause(keyColumnName + " IN (" + sqlIds + ")")
+				.build()
+				.getModelsToIndex()
+				.forEachRemaining(models::add);
+		return models;
+	}
+
+	/**
+	 * Indexes again the models which were updated since the index was last committed, minus {@link #CATCH_UP_MARGIN_MILLIS}.
+	 * To be called after reopening an existing index, because the changes published by the other JVMs while this one was down were lost.
+	 * <p>
+	 * NOTE: models which were deactivated or deleted meanwhile are not removed; run a full reindex for that.
+	 */
+	public IESIndexerResult addModelsUpdatedSinceLastCommit(final int chunkSize)
+	{
+		final long lastCommitMillis = getLastCommitMillisFromIndex();
+		if (lastCommitMillis <= 0)
+		{
+			return IESIndexerResult.NULL;
+		}
+
+		final Timestamp updatedSince = new Timestamp(lastCommitMillis - CATCH_UP_MARGIN_MILLIS);
+		final ESModelIndexerDataSource modelsToIndex = ESModelIndexerDataSources.newSqlESModelIndexerDataSource()
+				.modelTableName(modelTableName)
+				.triggers(triggers)
+				.sqlWhereClause("Updated >= " + DB.TO_DATE(updatedSince, false))
+				.chunkSize(chunkSize)
+				.build();
+
+		return addToIndex(modelsToIndex, false);
+	}
+
+	private long getLastCommitMillisFromIndex()
+	{
+		final String commitMillis = getIndexWriter().getCommitData().get(COMMITDATA_CommitMillis);
+		return commitMillis != null ? Long.parseLong(commitMillis) : 0;
+	}
+
+	/**
+	 * @return IDs of the matching documents, best matching first
+	 */
+	public ImmutableList<String> search(@NonNull final String text, final int maxHits)
+	{
+		Check.assumeGreaterThanZero(maxHits, "maxHits");
+
+		final Set<String> fieldNames = getFullTextSearchFieldNames();
+		if (fieldNames.isEmpty())
+		{
+			return ImmutableList.of();
+		}
+
+		final Stopwatch stopwatch = Stopwatch.createStarted();
+
+		final Query query;
+		try
+		{
+			query = new MultiFieldQueryParser(fieldNames.toArray(new String[fieldNames.size()]), searchAnalyzer)
+					.parse(QueryParser.escape(text));
+		}
+		catch (final ParseException ex)
+		{
+			throw new AdempiereException("Failed parsing search text: " + text, ex);
+		}
+
+		final SearcherManager searcherManager = getSearcherManager();
+		try
+		{
+			final ImmutableList.Builder<String> documentIds = ImmutableList.builder();
+			final IndexSearcher searcher = searcherManager.acquire();
+			try
+			{
+				for (final ScoreDoc scoreDoc : searcher.search(query, maxHits).scoreDocs)
+				{
+					documentIds.add(searcher.doc(scoreDoc.doc).get(FIELDNAME_ID));
+				}
+			}
+			finally
+			{
+				searcherManager.release(searcher);
+			}
+
+			final long searchMillis = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+			stats.recordSearch(searchMillis);
+			logger.debug("Searched `{}` in {}ms using {}", query, searchMillis, this);
+
+			return documentIds.build();
+		}
+		catch (final IOException ex)
+		{
+			throw new AdempiereException("Failed searching `" + text + "` in " + indexDirectory, ex);
+		}
+	}
+
+	public LuceneIndexStats getStats()
+	{
+		int docsCount = -1;
+		final SearcherManager searcherManager = getSearcherManager();
+		try
+		{
+			final IndexSearcher searcher = searcherManager.acquire();
+			try
+			{
+				docsCount = searcher.getIndexReader().numDocs();
+			}
+			finally
+			{
+				searcherManager.release(searcher);
+			}
+		}
+		catch (final IOException ex)
+		{
+			logger.warn("Failed counting the documents of {}", this, ex);
+		}
+
+		return stats.toStats(getIndexName(), docsCount);
+	}
+
+	@Override
+	public Set<String> getFullTextSearchFieldNames()
+	{
+		final Stream<String> thisLevelfieldNames = modelDenormalizer.getFullTextSearchFieldNames().stream();
+
+		final Stream<String> includedFieldNames = includedModels.stream()
+				.flatMap(includedModel -> includedModel.getModelDenormalizer().getFullTextSearchFieldNames()
+						.stream()
+						.map(fieldName -> includedModel.getConfig().getAttributeName() + "." + fieldName));
+
+		return Stream.concat(thisLevelfieldNames, includedFieldNames)
+				.collect(ImmutableSet.toImmutableSet());
+	}
+
+	private static long extractModelUpdatedMillis(final Object model)
+	{
+		return InterfaceWrapperHelper.<Date> getValue(model, "Updated")
+				.map(Date::getTime)
+				.orElse(0L);
+	}
+}
@@ -9,6 +9,7 @@ import org.compiere.SpringContextHolder;
 import com.google.common.base.Stopwatch;
 
 import de.metas.elasticsearch.indexer.ESModelIndexerDataSources;
+import de.metas.elasticsearch.indexer.ESReindexConfig;
 import de.metas.elasticsearch.indexer.IESIndexerResult;
 import de.metas.elasticsearch.indexer.IESModelIndexer;
 import de.metas.elasticsearch.indexer.IESModelIndexersRegistry;
@@ -108,14 +109,16 @@ public abstract class AbstractModelIndexerProcess extends JavaProcess
 			return;
 		}
 
+		final ESReindexConfig reindexConfig = ESReindexConfig.ofSysConfig();
 		final SqlESModelIndexerDataSource modelsToIndex = ESModelIndexerDataSources.newSqlESModelIndexerDataSource()
 				.modelTableName(modelIndexer.getModelTableName())
 				.triggers(triggers)
 				.sqlWhereClause(p_WhereClause)
 				.sqlOrderByClause(p_OrderByClause)
 				.limit(p_Limit)
+				.chunkSize(reindexConfig.getChunkSize())
 				.build();
-		final IESIndexerResult result = modelIndexer.addToIndex(modelsToIndex);
+		final IESIndexerResult result = modelIndexer.reindex(modelsToIndex, reindexConfig);
 
 		countAll += result.getTotalCount();
 		countErrors += result.getFailuresCount();
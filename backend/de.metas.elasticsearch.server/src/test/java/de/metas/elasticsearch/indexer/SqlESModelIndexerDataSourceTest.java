@@ -0,0 +1,176 @@
+package de.metas.elasticsearch.indexer;
+
+import static org.adempiere.model.InterfaceWrapperHelper.newInstance;
+import static org.adempiere.model.InterfaceWrapperHelper.saveRecord;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.adempiere.ad.dao.IQueryFilter;
+import org.adempiere.model.InterfaceWrapperHelper;
+import org.adempiere.test.AdempiereTestHelper;
+import org.compiere.model.I_C_BPartner;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import de.metas.elasticsearch.trigger.IESModelIndexerTrigger;
+
+/*
+ * #%L
+ * de.metas.elasticsearch
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+
+public class SqlESModelIndexerDataSourceTest
+{
+	private static final IESModelIndexerTrigger MATCH_ALL_TRIGGER = new IESModelIndexerTrigger()
+	{
+		@Override
+		public IQueryFilter<Object> getMatchingModelsFilter()
+		{
+			return null;
+		}
+
+		@Override
+		public void install()
+		{
+		}
+	};
+
+	@Before
+	public void init()
+	{
+		AdempiereTestHelper.get().init();
+	}
+
+	private static List<I_C_BPartner> createBPartners(final int count)
+	{
+		final List<I_C_BPartner> bpartners = new ArrayList<>();
+		for (int i = 1; i <= count; i++)
+		{
+			final I_C_BPartner bpartner = newInstance(I_C_BPartner.class);
+			bpartner.setName("BPartner " + i);
+			bpartner.setIsActive(true);
+			saveRecord(bpartner);
+			bpartners.add(bpartner);
+		}
+		return bpartners;
+	}
+
+	private static SqlESModelIndexerDataSource dataSource(final int chunkSize, final int limit)
+	{
+		return ESModelIndexerDataSources.newSqlESModelIndexerDataSource()
+				.modelTableName(I_C_BPartner.Table_Name)
+				.triggers(ImmutableList.of(MATCH_ALL_TRIGGER))
+				.chunkSize(chunkSize)
+				.limit(limit)
+				.build();
+	}
+
+	private static List<Integer> extractIds(final List<I_C_BPartner> bpartners)
+	{
+		return bpartners.stream().map(I_C_BPartner::getC_BPartner_ID).collect(ImmutableList.toImmutableList());
+	}
+
+	private static List<Integer> fetchIds(final Iterator<Object> models, final int maxCount)
+	{
+		final List<Integer> ids = new ArrayList<>();
+		while (ids.size() < maxCount && models.hasNext())
+		{
+			ids.add(InterfaceWrapperHelper.getId(models.next()));
+		}
+		return ids;
+	}
+
+	@Test
+	public void inChunks_lastChunkIsPartial()
+	{
+		final List<I_C_BPartner> bpartners = createBPartners(7);
+
+		final Iterator<Object> models = dataSource(3, -1).getModelsToIndex();
+
+		assertEquals(extractIds(bpartners), fetchIds(models, Integer.MAX_VALUE));
+	}
+
+	@Test
+	public void inChunks_lastChunkIsFull()
+	{
+		final List<I_C_BPartner> bpartners = createBPartners(6);
+
+		final Iterator<Object> models = dataSource(3, -1).getModelsToIndex();
+
+		assertEquals(extractIds(bpartners), fetchIds(models, Integer.MAX_VALUE));
+		assertEquals(false, models.hasNext());
+	}
+
+	@Test
+	public void inChunks_noModels()
+	{
+		assertEquals(false, dataSource(3, -1).getModelsToIndex().hasNext());
+	}
+
+	/**
+	 * The next chunk continues after the last fetched ID, so models which were fetched before and disappear meanwhile do not cause other models to be skipped (as they would with offset paging).
+	 */
+	@Test
+	public void inChunks_continuesAfterLastFetchedId()
+	{
+		final List<I_C_BPartner> bpartners = createBPartners(7);
+
+		final Iterator<Object> models = dataSource(3, -1).getModelsToIndex();
+		assertEquals(extractIds(bpartners.subList(0, 3)), fetchIds(models, 3));
+
+		// already fetched models are deactivated, a new one is added
+		bpartners.get(0).setIsActive(false);
+		saveRecord(bpartners.get(0));
+		bpartners.get(1).setIsActive(false);
+		saveRecord(bpartners.get(1));
+		final I_C_BPartner newBPartner = createBPartners(1).get(0);
+
+		final List<Integer> expectedRemainingIds = ImmutableList.<Integer> builder()
+				.addAll(extractIds(bpartners.subList(3, 7)))
+				.add(newBPartner.getC_BPartner_ID())
+				.build();
+		assertEquals(expectedRemainingIds, fetchIds(models, Integer.MAX_VALUE));
+	}
+
+	@Test
+	public void inChunks_inactiveModelsAreSkipped()
+	{
+		final List<I_C_BPartner> bpartners = createBPartners(5);
+		bpartners.get(2).setIsActive(false);
+		saveRecord(bpartners.get(2));
+
+		final List<Integer> expectedIds = extractIds(ImmutableList.of(bpartners.get(0), bpartners.get(1), bpartners.get(3), bpartners.get(4)));
+		assertEquals(expectedIds, fetchIds(dataSource(2, -1).getModelsToIndex(), Integer.MAX_VALUE));
+	}
+
+	@Test
+	public void inChunks_limit()
+	{
+		final List<I_C_BPartner> bpartners = createBPartners(7);
+
+		assertEquals(extractIds(bpartners.subList(0, 5)), fetchIds(dataSource(3, 5).getModelsToIndex(), Integer.MAX_VALUE));
+	}
+}
@@ -0,0 +1,283 @@
+package de.metas.elasticsearch.indexer.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.adempiere.test.AdempiereTestHelper;
+import org.elasticsearch.action.bulk.BackoffPolicy;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkProcessor;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.index.IndexResponse;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import de.metas.elasticsearch.indexer.ESModelIndexerDataSource;
+import de.metas.elasticsearch.indexer.ESReindexConfig;
+
+/*
+ * #%L
+ * de.metas.elasticsearch
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class ESBulkIndexerTest
+{
+	private static final String INDEX_NAME = "test_index";
+	private static final String INDEX_TYPE = "test";
+
+	/** how many models were fetched from the data source so far */
+	private int countModelsFetched;
+	/** {@link #countModelsFetched} at the time each index request was handed over to the bulk sender */
+	private List<Integer> countModelsFetchedOnAdd;
+	/** IDs of the documents of each sent bulk */
+	private List<List<String>> sentBulks;
+
+	private Set<Object> failingModels;
+	private Set<String> failingDocumentIds;
+	private Set<Long> failingBulks;
+	private Set<Long> rejectedBulks;
+
+	@Before
+	public void init()
+	{
+		AdempiereTestHelper.get().init();
+
+		countModelsFetched = 0;
+		countModelsFetchedOnAdd = new ArrayList<>();
+		sentBulks = new ArrayList<>();
+
+		failingModels = new HashSet<>();
+		failingDocumentIds = new HashSet<>();
+		failingBulks = new HashSet<>();
+		rejectedBulks = new HashSet<>();
+	}
+
+	/**
+	 * Sends a bulk when it has {@link ESReindexConfig#getBulkMaxActions()} requests, like {@link BulkProcessor} does, and simulates the cluster's responses.
+	 */
+	private class TestBulkSender implements ESBulkIndexer.BulkSender
+	{
+		private final ESReindexConfig config;
+		private final BulkProcessor.Listener listener;
+		private final BackoffPolicy backoffPolicy;
+		private final List<IndexRequest> pendingRequests = new ArrayList<>();
+
+		private TestBulkSender(final ESReindexConfig config, final BulkProcessor.Listener listener, final BackoffPolicy backoffPolicy)
+		{
+			this.config = config;
+			this.listener = listener;
+			this.backoffPolicy = backoffPolicy;
+		}
+
+		@Override
+		public void add(final IndexRequest indexRequest)
+		{
+			countModelsFetchedOnAdd.add(countModelsFetched);
+			pendingRequests.add(indexRequest);
+			if (pendingRequests.size() >= config.getBulkMaxActions())
+			{
+				sendBulk();
+			}
+		}
+
+		@Override
+		public boolean awaitClose(final long timeout, final TimeUnit unit)
+		{
+			if (!pendingRequests.isEmpty())
+			{
+				sendBulk();
+			}
+			return true;
+		}
+
+		private void sendBulk()
+		{
+			final long executionId = sentBulks.size() + 1;
+			final List<IndexRequest> requests = ImmutableList.copyOf(pendingRequests);
+			pendingRequests.clear();
+
+			final BulkRequest request = new BulkRequest();
+			requests.forEach(request::add);
+			sentBulks.add(requests.stream().map(IndexRequest::id).collect(ImmutableList.toImmutableList()));
+
+			listener.beforeBulk(executionId, request);
+
+			if (rejectedBulks.contains(executionId))
+			{
+				backoffPolicy.iterator().next(); // the bulk processor would wait and retry once
+			}
+
+			if (failingBulks.contains(executionId))
+			{
+				listener.afterBulk(executionId, request, new RuntimeException("bulk failed"));
+				return;
+			}
+
+			final BulkItemResponse[] items = new BulkItemResponse[requests.size()];
+			for (int i = 0; i < requests.size(); i++)
+			{
+				final String documentId = requests.get(i).id();
+				items[i] = failingDocumentIds.contains(documentId)
+						? new BulkItemResponse(i, "index", new BulkItemResponse.Failure(INDEX_NAME, INDEX_TYPE, documentId, new RuntimeException("document failed")))
+						: new BulkItemResponse(i, "index", new IndexResponse(INDEX_NAME, INDEX_TYPE, documentId, 1, true));
+			}
+			listener.afterBulk(executionId, request, new BulkResponse(items, 1));
+		}
+	}
+
+	private ESBulkIndexerResult index(final int countModels, final int chunkSize, final int bulkMaxActions)
+	{
+		final ESReindexConfig config = ESReindexConfig.builder()
+				.chunkSize(chunkSize)
+				.parallelism(1)
+				.bulkMaxBytes(1024 * 1024)
+				.bulkMaxActions(bulkMaxActions)
+				.maxConcurrentBulks(1)
+				.maxRetriesOnRejection(3)
+				.retryInitialDelayMillis(1)
+				.build();
+
+		return ESBulkIndexer.builder()
+				.bulkSenderFactory(TestBulkSender::new)
+				.indexerName("test")
+				.indexRequestFactory(model -> {
+					if (failingModels.contains(model))
+					{
+						throw new RuntimeException("denormalization failed");
+					}
+					return new IndexRequest(INDEX_NAME, INDEX_TYPE, (String)model);
+				})
+				.config(config)
+				.build()
+				.index(dataSource(countModels));
+	}
+
+	/** @return data source of the models "1", "2", ... which counts the fetched models */
+	private ESModelIndexerDataSource dataSource(final int countModels)
+	{
+		final List<Object> models = IntStream.rangeClosed(1, countModels)
+				.mapToObj(String::valueOf)
+				.collect(Collectors.toList());
+
+		return () -> new Iterator<Object>()
+		{
+			private final Iterator<Object> delegate = models.iterator();
+
+			@Override
+			public boolean hasNext()
+			{
+				return delegate.hasNext();
+			}
+
+			@Override
+			public Object next()
+			{
+				countModelsFetched++;
+				return delegate.next();
+			}
+		};
+	}
+
+	@Test
+	public void modelsAreDenormalizedInChunks_andSentInBulks()
+	{
+		final ESBulkIndexerResult result = index(7, 3, 2);
+
+		// each chunk is fetched completely before its requests are sent
+		assertEquals(ImmutableList.of(3, 3, 3, 6, 6, 6, 7), countModelsFetchedOnAdd);
+		assertEquals(
+				ImmutableList.of(
+						ImmutableList.of("1", "2"),
+						ImmutableList.of("3", "4"),
+						ImmutableList.of("5", "6"),
+						ImmutableList.of("7")),
+				sentBulks);
+
+		assertEquals(7, result.getTotalCount());
+		assertEquals(7, result.getOKCount());
+		assertFalse(result.hasFailures());
+	}
+
+	@Test
+	public void noModels()
+	{
+		final ESBulkIndexerResult result = index(0, 3, 2);
+
+		assertTrue(sentBulks.isEmpty());
+		assertEquals(0, result.getTotalCount());
+		assertFalse(result.hasFailures());
+	}
+
+	@Test
+	public void partialFailures_areCounted_andIndexingContinues()
+	{
+		failingModels.add("2"); // => the index requests are 1, 3, 4, 5, 6, 7
+		failingDocumentIds.add("4"); // in bulk 2
+		failingBulks.add(3L); // 6, 7
+
+		final ESBulkIndexerResult result = index(7, 3, 2);
+
+		assertEquals(
+				ImmutableList.of(
+						ImmutableList.of("1", "3"),
+						ImmutableList.of("4", "5"),
+						ImmutableList.of("6", "7")),
+				sentBulks);
+
+		assertEquals(7, result.getTotalCount());
+		assertEquals(3, result.getOKCount()); // 1, 3, 5
+		assertEquals(4, result.getFailuresCount()); // 2, 4, 6, 7
+		assertTrue(result.hasFailures());
+
+		final List<String> failureMessages = result.getFailureMessages();
+		assertEquals(failureMessages.toString(), 3, failureMessages.size());
+		assertTrue(failureMessages.get(0), failureMessages.get(0).startsWith("2: "));
+		assertTrue(failureMessages.get(1), failureMessages.get(1).startsWith("4: "));
+		assertTrue(failureMessages.get(2), failureMessages.get(2).startsWith("Bulk 3: "));
+	}
+
+	@Test
+	public void rejectedBulks_areCounted()
+	{
+		rejectedBulks.add(1L);
+		rejectedBulks.add(2L);
+
+		final ESBulkIndexerResult result = index(5, 10, 2);
+
+		assertEquals(3, sentBulks.size());
+		assertEquals(2, result.getRejectedBulksCount());
+		assertEquals(5, result.getOKCount());
+		assertFalse(result.hasFailures());
+	}
+}
@@ -0,0 +1,270 @@
+package de.metas.elasticsearch.indexer.lucene;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.adempiere.exceptions.AdempiereException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import de.metas.elasticsearch.config.ESModelIndexerId;
+import de.metas.elasticsearch.config.ESModelIndexerProfile;
+import de.metas.elasticsearch.denormalizers.IESModelDenormalizer;
+import de.metas.elasticsearch.indexer.ESModelIndexerDataSources;
+import de.metas.elasticsearch.indexer.IESIndexerResult;
+
+/*
+ * #%L
+ * de.metas.elasticsearch
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class LuceneModelIndexerTest
+{
+	@Rule
+	public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private static final ESModelIndexerId INDEXER_ID = ESModelIndexerId.builder()
+			.indexName("test_index")
+			.indexType("test")
+			.profile(ESModelIndexerProfile.FULL_TEXT_SEARCH)
+			.build();
+
+	private Path indexDirectory;
+	private List<LuceneIndexChanges> publishedChanges;
+	private LuceneModelIndexer indexer;
+
+	@Before
+	public void init() throws Exception
+	{
+		indexDirectory = temporaryFolder.newFolder().toPath();
+		publishedChanges = new ArrayList<>();
+		indexer = newIndexer();
+	}
+
+	@After
+	public void close()
+	{
+		indexer.close();
+	}
+
+	private LuceneModelIndexer newIndexer()
+	{
+		return LuceneModelIndexer.builder()
+				.id(INDEXER_ID)
+				.modelTableName("Test")
+				.modelDenormalizer(new MapModelDenormalizer())
+				.indexDirectory(indexDirectory)
+				.modelUpdatedMillisExtractor(model -> 0)
+				.changesPublisher(publishedChanges::add)
+				.build();
+	}
+
+	private static Map<String, Object> model(final String id, final String name, final String description)
+	{
+		return ImmutableMap.of("Test_ID", id, "Name", name, "Description", description);
+	}
+
+	@Test
+	public void createUpdateIndex_onlyFirstTime()
+	{
+		assertTrue(indexer.createUpdateIndex());
+		assertEquals(false, indexer.createUpdateIndex());
+	}
+
+	@Test
+	public void addToIndex_searchableRightAway()
+	{
+		final IESIndexerResult result = indexer.addToIndex(ESModelIndexerDataSources.ofCollection(ImmutableList.<Object> of(
+				model("1", "Apple Juice", "fresh"),
+				model("2", "Orange Juice", "fresh"),
+				model("3", "Apple Pie", "baked"))));
+
+		assertEquals(3, result.getOKCount());
+		assertEquals(false, result.hasFailures());
+
+		assertEquals(ImmutableSet.of("1", "3"), ImmutableSet.copyOf(indexer.search("apple", 10)));
+		assertEquals(ImmutableSet.of("1", "2"), ImmutableSet.copyOf(indexer.search("FRESH", 10)));
+		assertEquals(ImmutableList.of(), indexer.search("banana", 10));
+		assertEquals(3, indexer.getStats().getDocsCount());
+		assertEquals(4, indexer.getStats().getCountSearches());
+	}
+
+	@Test
+	public void addToIndex_updatesExistingDocument()
+	{
+		indexer.addToIndex(ESModelIndexerDataSources.ofCollection(ImmutableList.<Object> of(model("1", "Apple Juice", "fresh"))));
+		indexer.addToIndex(ESModelIndexerDataSources.ofCollection(ImmutableList.<Object> of(model("1", "Cherry Juice", "fresh"))));
+
+		assertEquals(ImmutableList.of(), indexer.search("apple", 10));
+		assertEquals(ImmutableList.of("1"), indexer.search("cherry", 10));
+		assertEquals(1, indexer.getStats().getDocsCount());
+	}
+
+	@Test
+	public void removeFromIndexByIds()
+	{
+		indexer.addToIndex(ESModelIndexerDataSources.ofCollection(ImmutableList.<Object> of(
+				model("1", "Apple Juice", "fresh"),
+				model("2", "Apple Pie", "baked"))));
+
+		indexer.removeFromIndexByIds(ImmutableList.of("1"));
+
+		assertEquals(ImmutableList.of("2"), indexer.search("apple", 10));
+	}
+
+	@Test
+	public void search_matchesWordPrefixes()
+	{
+		indexer.addToIndex(ESModelIndexerDataSources.ofCollection(ImmutableList.<Object> of(
+				model("1", "Apple Juice", "fresh"),
+				model("2", "Pineapple", "fresh"),
+				model("3", "Applesauce", "cooked"))));
+
+		assertEquals(ImmutableSet.of("1", "3"), ImmutableSet.copyOf(indexer.search("app", 10)));
+		assertEquals(ImmutableSet.of("1", "3"), ImmutableSet.copyOf(indexer.search("APPLE", 10)));
+		assertEquals(ImmutableList.of("3"), indexer.search("applesauce", 10));
+		assertEquals(ImmutableList.of("1"), indexer.search("ju", 10));
+		assertEquals(ImmutableList.of(), indexer.search("juices", 10));
+	}
+
+	@Test
+	public void changesArePublished()
+	{
+		indexer.addToIndex(ESModelIndexerDataSources.ofCollection(ImmutableList.<Object> of(
+				model("1", "Apple Juice", "fresh"),
+				model("2", "Apple Pie", "baked"))));
+		indexer.removeFromIndexByIds(ImmutableList.of("1"));
+
+		assertEquals(ImmutableList.of(
+				LuceneIndexChanges.added(INDEXER_ID, ImmutableSet.of("1", "2")),
+				LuceneIndexChanges.removed(INDEXER_ID, ImmutableSet.of("1"))),
+				publishedChanges);
+	}
+
+	@Test
+	public void applyChangesFromOtherJVM_removedIds_areNotPublishedAgain()
+	{
+		indexer.addToIndex(ESModelIndexerDataSources.ofCollection(ImmutableList.<Object> of(
+				model("1", "Apple Juice", "fresh"),
+				model("2", "Apple Pie", "baked"))));
+		publishedChanges.clear();
+
+		indexer.applyChangesFromOtherJVM(LuceneIndexChanges.removed(INDEXER_ID, ImmutableSet.of("1")));
+
+		assertEquals(ImmutableList.of("2"), indexer.search("apple", 10));
+		assertEquals(ImmutableList.of(), publishedChanges);
+	}
+
+	@Test
+	public void close_commitsChanges()
+	{
+		indexer.addToIndex(ESModelIndexerDataSources.ofCollection(ImmutableList.<Object> of(model("1", "Apple Juice", "fresh"))));
+		indexer.close();
+
+		final LuceneModelIndexer reopenedIndexer = newIndexer();
+		try
+		{
+			assertEquals(false, reopenedIndexer.createUpdateIndex());
+			assertEquals(ImmutableList.of("1"), reopenedIndexer.search("apple", 10));
+		}
+		finally
+		{
+			reopenedIndexer.close();
+		}
+	}
+
+	@Test(expected = AdempiereException.class)
+	public void closedIndex_cannotBeUsed()
+	{
+		indexer.close();
+		indexer.search("apple", 10);
+	}
+
+	/**
+	 * Each JVM shall have its own index directory; the second JVM would fail here.
+	 */
+	@Test(expected = AdempiereException.class)
+	public void sameDirectoryCannotBeOpenedTwice()
+	{
+		indexer.createUpdateIndex();
+		newIndexer().createUpdateIndex();
+	}
+
+	@Test
+	public void search_specialCharactersAreEscaped()
+	{
+		indexer.addToIndex(ESModelIndexerDataSources.ofCollection(ImmutableList.<Object> of(model("1", "Apple Juice", "fresh"))));
+
+		assertEquals(ImmutableList.of("1"), indexer.search("apple (", 10));
+	}
+
+	private static class MapModelDenormalizer implements IESModelDenormalizer
+	{
+		@Override
+		@SuppressWarnings("unchecked")
+		public Map<String, Object> denormalize(final Object model)
+		{
+			return (Map<String, Object>)model;
+		}
+
+		@Override
+		public void appendMapping(final Object builderObj, final String fieldName)
+		{
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public ESModelIndexerProfile getProfile()
+		{
+			return ESModelIndexerProfile.FULL_TEXT_SEARCH;
+		}
+
+		@Override
+		public String getModelTableName()
+		{
+			return "Test";
+		}
+
+		@Override
+		public String extractId(final Object model)
+		{
+			return (String)denormalize(model).get("Test_ID");
+		}
+
+		@Override
+		public Set<String> getFullTextSearchFieldNames()
+		{
+			return ImmutableSet.of("Name", "Description");
+		}
+	}
+}
@@ -42,8 +42,10 @@ import de.metas.handlingunits.model.I_M_HU_Storage;
 import de.metas.inoutcandidate.invalidation.segments.IShipmentScheduleSegment;
 import de.metas.inoutcandidate.invalidation.segments.ShipmentScheduleAttributeSegment;
 import de.metas.util.Services;
+import lombok.EqualsAndHashCode;
 import lombok.NonNull;
 
+@EqualsAndHashCode(of = { "huId", "bpartnerIds", "locatorIds", "hasQtyOnHandChanges" }, doNotUseGetters = true) // the product IDs are loaded from the HU
 public class ShipmentScheduleSegmentFromHU implements IShipmentScheduleSegment
 {
 	// services
@@ -36,10 +36,12 @@ import de.metas.handlingunits.model.I_M_HU_Attribute;
 import de.metas.inoutcandidate.invalidation.segments.IShipmentScheduleSegment;
 import de.metas.inoutcandidate.invalidation.segments.ShipmentScheduleAttributeSegment;
 import de.metas.util.Services;
+import lombok.EqualsAndHashCode;
 import lombok.NonNull;
 import lombok.ToString;
 
 @ToString
+@EqualsAndHashCode(of = { "huId", "attributeSegments" }) // the other fields are loaded from the HU
 public class ShipmentScheduleSegmentFromHUAttribute implements IShipmentScheduleSegment
 {
 	private final int huId;
@@ -38,13 +38,16 @@ import de.metas.inoutcandidate.invalidation.segments.IShipmentScheduleSegment;
 import de.metas.inoutcandidate.invalidation.segments.ShipmentScheduleAttributeSegment;
 import de.metas.util.Services;
 import de.metas.util.collections.CollectionUtils;
+import lombok.EqualsAndHashCode;
 import lombok.NonNull;
 import lombok.ToString;
 
-@ToString(exclude = "huStorage")
+@ToString
+@EqualsAndHashCode(of = { "huId", "productId" }) // the other fields are loaded from the HU
 public class ShipmentScheduleSegmentFromHUStorage implements IShipmentScheduleSegment
 {
-	private final I_M_HU_Storage huStorage;
+	private final int huId;
+	private final int productId;
 
 	private Set<Integer> productIds = Collections.emptySet();
 	private Set<Integer> bpartnerIds = Collections.emptySet();
@@ -53,7 +56,8 @@ public class ShipmentScheduleSegmentFromHUStorage implements IShipmentScheduleSe
 
 	public ShipmentScheduleSegmentFromHUStorage(@NonNull final I_M_HU_Storage huStorage)
 	{
-		this.huStorage = huStorage;
+		this.huId = huStorage.getM_HU_ID();
+		this.productId = huStorage.getM_Product_ID();
 	}
 
 	private final void loadIfNeeded()
@@ -75,7 +79,6 @@ public class ShipmentScheduleSegmentFromHUStorage implements IShipmentScheduleSe
 		// NOTE: instead of getting the HU by using huStorage.getM_HU() we are loading it directly because the huStorage's transaction is already closed,
 		// and our ModelCacheService will log a WARNING about this.
 		// see ModelCacheService (line ~194): "No transaction was found for " + trxName + ". Skip cache."
-		final int huId = huStorage.getM_HU_ID();
 		if (huId <= 0)
 		{
 			loaded = true;
@@ -102,7 +105,7 @@ public class ShipmentScheduleSegmentFromHUStorage implements IShipmentScheduleSe
 			return;
 		}
 
-		productIds = CollectionUtils.asSet(huStorage.getM_Product_ID());
+		productIds = CollectionUtils.asSet(productId);
 		bpartnerIds = huSegment.getBpartnerIds();
 		locatorIds = huSegment.getLocatorIds();
 	}
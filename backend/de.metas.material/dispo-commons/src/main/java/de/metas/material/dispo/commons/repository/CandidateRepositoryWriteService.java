@@ -16,6 +16,7 @@ import java.util.Objects;
 import javax.annotation.Nullable;
 
 import org.adempiere.ad.dao.ICompositeQueryFilter;
+import org.adempiere.ad.dao.ICompositeQueryUpdaterExecutor;
 import org.adempiere.ad.dao.IQueryBL;
 import org.adempiere.warehouse.WarehouseId;
 import org.compiere.util.TimeUtil;
@@ -23,6 +24,8 @@ import org.springframework.stereotype.Service;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
 
 import de.metas.bpartner.BPartnerId;
 import de.metas.document.engine.DocStatus;
@@ -34,7 +37,9 @@ import de.metas.material.dispo.commons.candidate.businesscase.DemandDetail;
 import de.metas.material.dispo.commons.candidate.businesscase.DistributionDetail;
 import de.metas.material.dispo.commons.candidate.businesscase.ProductionDetail;
 import de.metas.material.dispo.commons.candidate.businesscase.PurchaseDetail;
+import de.metas.material.dispo.commons.repository.atp.AvailableToPromiseProjection;
 import de.metas.material.dispo.commons.repository.query.CandidatesQuery;
+import de.metas.material.dispo.commons.repository.query.MaterialDescriptorQuery;
 import de.metas.material.dispo.commons.repository.repohelpers.PurchaseDetailRepoHelper;
 import de.metas.material.dispo.commons.repository.repohelpers.RepositoryCommons;
 import de.metas.material.dispo.model.I_MD_Candidate;
@@ -119,6 +124,57 @@ public class CandidateRepositoryWriteService
 		return addOrUpdate(query, candidate, false);
 	}
 
+	/**
+	 * Adds the given {@code qtyDelta} to the quantity of all candidates that match the given {@code query}, using one SQL UPDATE instead of loading and saving them one by one.
+	 * Intended for the stock candidates whose quantity has to follow a change of an earlier stock candidate.
+	 *
+	 * @param groupId if not {@code null}, then it's set to all matching candidates.
+	 * @return how many candidates were updated
+	 */
+	public int addQtyDeltaToMatchingCandidates(
+			@NonNull final CandidatesQuery query,
+			@NonNull final BigDecimal qtyDelta,
+			@Nullable final MaterialDispoGroupId groupId)
+	{
+		final ICompositeQueryUpdaterExecutor<I_MD_Candidate> updater = RepositoryCommons
+				.mkQueryBuilder(query)
+				.create()
+				.updateDirectly();
+		if (qtyDelta.signum() != 0)
+		{
+			updater.addAddValueToColumn(I_MD_Candidate.COLUMNNAME_Qty, qtyDelta);
+		}
+		if (groupId != null)
+		{
+			updater.addSetColumnValue(I_MD_Candidate.COLUMNNAME_MD_Candidate_GroupId, groupId.toInt());
+		}
+		if (qtyDelta.signum() == 0 && groupId == null)
+		{
+			return 0; // nothing to update
+		}
+
+		final int updatedCount = updater.execute();
+
+		if (updatedCount > 0)
+		{
+			final MaterialDescriptorQuery materialDescriptorQuery = query.getMaterialDescriptorQuery();
+			if (materialDescriptorQuery != null && materialDescriptorQuery.getProductId() > 0)
+			{
+				AvailableToPromiseProjection.invalidateProductsAfterCommit(ImmutableSet.of(materialDescriptorQuery.getProductId()));
+			}
+			else
+			{
+				AvailableToPromiseProjection.invalidateAllAfterCommit();
+			}
+		}
+
+		Loggables.addLog(
+				"addQtyDeltaToMatchingCandidates - updated {} candidates; qtyDelta={}; groupId={};\nquery={}",
+				updatedCount, qtyDelta, groupId, query);
+
+		return updatedCount;
+	}
+
 	@Value
 	@Builder
 	public static class SaveResult
@@ -239,6 +295,7 @@ public class CandidateRepositoryWriteService
 				.firstOnly(I_MD_Candidate.class);
 
 		final BigDecimal previousQty = oldCandidateRecord == null ? null : oldCandidateRecord.getQty();
+		final ImmutableSet<Integer> previousStockProductIds = extractStockProductIds(oldCandidateRecord); // the record is updated in place, so we need to extract them now
 
 		final DateAndSeqNo previousTime;
 		if (oldCandidateRecord != null)
@@ -262,6 +319,8 @@ public class CandidateRepositoryWriteService
 
 		setFallBackSeqNoAndGroupIdIfNeeded(synchedRecord);
 
+		AvailableToPromiseProjection.invalidateProductsAfterCommit(Sets.union(previousStockProductIds, extractStockProductIds(synchedRecord)));
+
 		addOrReplaceProductionDetail(candidate, synchedRecord);
 
 		addOrReplaceDistributionDetail(candidate, synchedRecord);
@@ -663,9 +722,20 @@ public class CandidateRepositoryWriteService
 				candidateRecord.getQty());
 
 		deleteRecord(candidateRecord);
+
+		AvailableToPromiseProjection.invalidateProductsAfterCommit(extractStockProductIds(candidateRecord));
 		return deleteResult;
 	}
 
+	private static ImmutableSet<Integer> extractStockProductIds(@Nullable final I_MD_Candidate candidateRecord)
+	{
+		if (candidateRecord == null || !X_MD_Candidate.MD_CANDIDATE_TYPE_STOCK.equals(candidateRecord.getMD_Candidate_Type()))
+		{
+			return ImmutableSet.of();
+		}
+		return ImmutableSet.of(candidateRecord.getM_Product_ID());
+	}
+
 	@Value
 	public static class DeleteResult
 	{
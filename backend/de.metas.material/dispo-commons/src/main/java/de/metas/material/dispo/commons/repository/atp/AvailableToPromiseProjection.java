@@ -0,0 +1,544 @@
+package de.metas.material.dispo.commons.repository.atp;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+import javax.annotation.Nullable;
+
+import org.adempiere.ad.trx.api.ITrx;
+import org.adempiere.ad.trx.api.ITrxManager;
+import org.adempiere.ad.trx.api.OnTrxMissingPolicy;
+import org.adempiere.exceptions.DBException;
+import org.adempiere.service.ISysConfigBL;
+import org.adempiere.util.lang.impl.TableRecordReference;
+import org.adempiere.warehouse.WarehouseId;
+import org.compiere.Adempiere;
+import org.compiere.util.DB;
+import org.slf4j.Logger;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+
+import de.metas.bpartner.BPartnerId;
+import de.metas.cache.CCache;
+import de.metas.cache.CacheMgt;
+import de.metas.cache.model.CacheInvalidateMultiRequest;
+import de.metas.logging.LogManager;
+import de.metas.material.commons.attributes.AttributesKeyPattern;
+import de.metas.material.commons.attributes.AttributesKeyQueryHelper;
+import de.metas.material.dispo.model.I_MD_Candidate;
+import de.metas.material.dispo.model.X_MD_Candidate;
+import de.metas.material.event.commons.AttributesKey;
+import de.metas.util.Services;
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+
+/*
+ * #%L
+ * metasfresh-material-dispo-commons
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * In-memory projection of the {@code STOCK} {@link I_MD_Candidate}s, per product.
+ * It answers {@link AvailableToPromiseQuery}s the same way the {@code de_metas_material.retrieve_atp_at_date} database function does,
+ * i.e. for each warehouse/customer/storage-attributes-key bucket, it picks the latest stock candidate at the query's date.
+ * <p>
+ * A product's stock candidates are loaded on first use. When a stock candidate is changed, {@link #invalidateProductsAfterCommit(Collection)} discards the product's entry
+ * after the transaction was committed, on this node and (via remote cache invalidation of {@link #CACHE_TABLE_NAME}) on all other nodes.
+ * We discard the whole product, because a change of one stock candidate is also added to the product's later stock candidates of the same warehouse.
+ * At the latest after {@link #SYSCONFIG_ReconcileMinutes}, an entry is reloaded anyways, so that it's reconciled with the database.
+ * <p>
+ * The projection is not used when running in a transaction, because the transaction might have uncommitted stock changes.
+ */
+public final class AvailableToPromiseProjection
+{
+	private static final Logger logger = LogManager.getLogger(AvailableToPromiseProjection.class);
+
+	private static final String SYSCONFIG_Enabled = "de.metas.material.dispo.ATPProjection.Enabled";
+	private static final String SYSCONFIG_ReconcileMinutes = "de.metas.material.dispo.ATPProjection.ReconcileMinutes";
+	private static final int DEFAULT_ReconcileMinutes = 10;
+
+	/**
+	 * The "table name" by which the projection's cache is invalidated. It's not a real table; the record IDs of its invalidation requests are {@code M_Product_ID}s.
+	 * We don't use {@link I_MD_Candidate#Table_Name}, because then we would have to broadcast every single candidate change to all nodes.
+	 */
+	@VisibleForTesting
+	static final String CACHE_TABLE_NAME = I_MD_Candidate.Table_Name + "_ATP_Projection";
+
+	private static final String TRX_PROPERTY_ProductIdsToInvalidate = AvailableToPromiseProjection.class.getName() + ".ProductIdsToInvalidate";
+
+	private static final String SQL_SelectStockByProductId = "SELECT "
+			+ I_MD_Candidate.COLUMNNAME_M_Warehouse_ID
+			+ ", " + I_MD_Candidate.COLUMNNAME_C_BPartner_Customer_ID
+			+ ", " + I_MD_Candidate.COLUMNNAME_StorageAttributesKey
+			+ ", " + I_MD_Candidate.COLUMNNAME_DateProjected
+			+ ", " + I_MD_Candidate.COLUMNNAME_SeqNo
+			+ ", " + I_MD_Candidate.COLUMNNAME_Qty
+			+ " FROM " + I_MD_Candidate.Table_Name
+			+ " WHERE " + I_MD_Candidate.COLUMNNAME_IsActive + "='Y'"
+			+ " AND " + I_MD_Candidate.COLUMNNAME_MD_Candidate_Type + "='" + X_MD_Candidate.MD_CANDIDATE_TYPE_STOCK + "'"
+			+ " AND " + I_MD_Candidate.COLUMNNAME_M_Product_ID + "=?"
+			+ " ORDER BY "
+			+ I_MD_Candidate.COLUMNNAME_M_Warehouse_ID
+			+ ", " + I_MD_Candidate.COLUMNNAME_C_BPartner_Customer_ID
+			+ ", " + I_MD_Candidate.COLUMNNAME_StorageAttributesKey
+			+ ", " + I_MD_Candidate.COLUMNNAME_DateProjected
+			+ ", " + I_MD_Candidate.COLUMNNAME_SeqNo;
+
+	static
+	{
+		// needed on the nodes which change the stock candidates, so that they broadcast the invalidations to the nodes which use the projection
+		CacheMgt.get().enableRemoteCacheInvalidationForTableName(CACHE_TABLE_NAME);
+	}
+
+	/**
+	 * Invalidates the given products' projected stock after the thread-inherited transaction was committed, or right away if there is no transaction.
+	 */
+	public static void invalidateProductsAfterCommit(@NonNull final Collection<Integer> productIds)
+	{
+		if (productIds.isEmpty())
+		{
+			return;
+		}
+
+		final ITrxManager trxManager = Services.get(ITrxManager.class);
+		final ITrx trx = trxManager.getThreadInheritedTrx(OnTrxMissingPolicy.ReturnTrxNone);
+		if (trxManager.isActive(trx))
+		{
+			// collect the products and invalidate them once per transaction;
+			// also, don't invalidate them right away, because until the commit, other threads would just load the not yet changed stock again
+			final Set<Integer> productIdsToInvalidate = trx.getPropertyAndProcessAfterCommit(
+					TRX_PROPERTY_ProductIdsToInvalidate,
+					LinkedHashSet::new,
+					AvailableToPromiseProjection::invalidateProductsNow);
+			synchronized (productIdsToInvalidate)
+			{
+				productIdsToInvalidate.addAll(productIds);
+			}
+		}
+		else
+		{
+			invalidateProductsNow(productIds);
+		}
+	}
+
+	private static void invalidateProductsNow(@NonNull final Collection<Integer> productIds)
+	{
+		final CacheInvalidateMultiRequest request = CacheInvalidateMultiRequest.fromTableNameAndRecordIds(CACHE_TABLE_NAME, productIds);
+		CacheMgt.get().reset(request); // local and broadcast
+	}
+
+	/**
+	 * Invalidates the projected stock of all products after the thread-inherited transaction was committed.
+	 * To be used if the changed stock candidates' products are not known.
+	 */
+	public static void invalidateAllAfterCommit()
+	{
+		Services.get(ITrxManager.class)
+				.getCurrentTrxListenerManagerOrAutoCommit()
+				.runAfterCommit(() -> CacheMgt.get().reset(CacheInvalidateMultiRequest.allRecordsForTable(CACHE_TABLE_NAME)));
+	}
+
+	private final StockRecordsLoader stockRecordsLoader;
+
+	private CCache<Integer, ProductStock> _stockByProductId; // lazy
+
+	AvailableToPromiseProjection()
+	{
+		this(AvailableToPromiseProjection::retrieveStockRecords);
+	}
+
+	@VisibleForTesting
+	AvailableToPromiseProjection(@NonNull final StockRecordsLoader stockRecordsLoader)
+	{
+		this.stockRecordsLoader = stockRecordsLoader;
+	}
+
+	/**
+	 * @return true if the given queries can be answered from this projection
+	 */
+	public boolean isApplicable()
+	{
+		if (Adempiere.isUnitTestMode())
+		{
+			return false;
+		}
+		if (!Services.get(ISysConfigBL.class).getBooleanValue(SYSCONFIG_Enabled, false))
+		{
+			return false;
+		}
+
+		final ITrxManager trxManager = Services.get(ITrxManager.class);
+		return !trxManager.isActive(trxManager.getThreadInheritedTrx(OnTrxMissingPolicy.ReturnTrxNone));
+	}
+
+	/**
+	 * @return the requests for the latest stock of each bucket which matches any of the given queries; no duplicates
+	 */
+	public List<AddToResultGroupRequest> retrieveLatestStock(@NonNull final List<AvailableToPromiseQuery> queries)
+	{
+		final Set<AddToResultGroupRequest> result = new LinkedHashSet<>();
+		for (final AvailableToPromiseQuery query : queries)
+		{
+			for (final int productId : query.getProductIds())
+			{
+				final ProductStock productStock = getStockByProductId().getOrLoad(productId, this::loadProductStock);
+				result.addAll(productStock.getLatestStock(query));
+			}
+		}
+		return ImmutableList.copyOf(result);
+	}
+
+	private synchronized CCache<Integer, ProductStock> getStockByProductId()
+	{
+		if (_stockByProductId == null)
+		{
+			final int reconcileMinutes = Services.get(ISysConfigBL.class).getIntValue(SYSCONFIG_ReconcileMinutes, DEFAULT_ReconcileMinutes);
+			_stockByProductId = CCache.<Integer, ProductStock> builder()
+					.cacheName(CACHE_TABLE_NAME)
+					.tableName(CACHE_TABLE_NAME)
+					.initialCapacity(1000)
+					.expireMinutes(reconcileMinutes > 0 ? reconcileMinutes : DEFAULT_ReconcileMinutes)
+					.invalidationKeysMapper(AvailableToPromiseProjection::extractProductIds)
+					.build();
+		}
+		return _stockByProductId;
+	}
+
+	private static Collection<Integer> extractProductIds(@NonNull final TableRecordReference recordRef)
+	{
+		return ImmutableList.of(recordRef.getRecord_ID());
+	}
+
+	private ProductStock loadProductStock(final int productId)
+	{
+		final List<StockRecord> stockRecords = stockRecordsLoader.retrieveStockRecords(productId);
+		logger.trace("Loaded {} stock records for M_Product_ID={}", stockRecords.size(), productId);
+		return ProductStock.of(productId, stockRecords);
+	}
+
+	private static List<StockRecord> retrieveStockRecords(final int productId)
+	{
+		final List<StockRecord> stockRecords = new ArrayList<>();
+
+		PreparedStatement pstmt = null;
+		ResultSet rs = null;
+		try
+		{
+			pstmt = DB.prepareStatement(SQL_SelectStockByProductId, ITrx.TRXNAME_None);
+			DB.setParameters(pstmt, productId);
+			rs = pstmt.executeQuery();
+
+			while (rs.next())
+			{
+				final WarehouseId warehouseId = WarehouseId.ofRepoIdOrNull(rs.getInt(I_MD_Candidate.COLUMNNAME_M_Warehouse_ID));
+				if (warehouseId == null)
+				{
+					// shall not happen for stock candidates; don't fail the whole product because of it
+					logger.warn("Skipping stock candidate without M_Warehouse_ID for M_Product_ID={}", productId);
+					continue;
+				}
+
+				stockRecords.add(StockRecord.builder()
+						.warehouseId(warehouseId)
+						.customerId(BPartnerId.ofRepoIdOrNull(rs.getInt(I_MD_Candidate.COLUMNNAME_C_BPartner_Customer_ID)))
+						.storageAttributesKey(AttributesKey.ofString(rs.getString(I_MD_Candidate.COLUMNNAME_StorageAttributesKey)))
+						.date(rs.getTimestamp(I_MD_Candidate.COLUMNNAME_DateProjected).toInstant())
+						.seqNo(rs.getInt(I_MD_Candidate.COLUMNNAME_SeqNo))
+						.qty(rs.getBigDecimal(I_MD_Candidate.COLUMNNAME_Qty))
+						.build());
+			}
+		}
+		catch (final SQLException ex)
+		{
+			throw new DBException(ex, SQL_SelectStockByProductId);
+		}
+		finally
+		{
+			DB.close(rs, pstmt);
+		}
+
+		return stockRecords;
+	}
+
+	@FunctionalInterface
+	@VisibleForTesting
+	interface StockRecordsLoader
+	{
+		/** @return the product's active stock candidates, in any order */
+		List<StockRecord> retrieveStockRecords(int productId);
+	}
+
+	@Value
+	@Builder
+	@VisibleForTesting
+	static class StockRecord
+	{
+		@NonNull
+		WarehouseId warehouseId;
+
+		@Nullable
+		BPartnerId customerId;
+
+		@NonNull
+		AttributesKey storageAttributesKey;
+
+		@NonNull
+		Instant date;
+
+		int seqNo;
+
+		@NonNull
+		BigDecimal qty;
+	}
+
+	private static final class ProductStock
+	{
+		private static ProductStock of(final int productId, @NonNull final List<StockRecord> stockRecords)
+		{
+			final Map<StockBucketKey, List<StockRecord>> recordsByBucket = new LinkedHashMap<>();
+			for (final StockRecord stockRecord : stockRecords)
+			{
+				final StockBucketKey bucketKey = new StockBucketKey(stockRecord.getWarehouseId(), stockRecord.getCustomerId(), stockRecord.getStorageAttributesKey());
+				recordsByBucket.computeIfAbsent(bucketKey, k -> new ArrayList<>()).add(stockRecord);
+			}
+
+			final ImmutableList<StockBucket> buckets = recordsByBucket.entrySet()
+					.stream()
+					.map(entry -> new StockBucket(productId, entry.getKey(), entry.getValue()))
+					.collect(ImmutableList.toImmutableList());
+			return new ProductStock(buckets);
+		}
+
+		private final ImmutableList<StockBucket> buckets;
+
+		private ProductStock(final ImmutableList<StockBucket> buckets)
+		{
+			this.buckets = buckets;
+		}
+
+		public List<AddToResultGroupRequest> getLatestStock(final AvailableToPromiseQuery query)
+		{
+			final Instant date = query.getDate().toInstant();
+			final Predicate<AttributesKey> storageAttributesKeyMatcher = createStorageAttributesKeyMatcher(query.getStorageAttributesKeyPatterns());
+
+			final List<AddToResultGroupRequest> result = new ArrayList<>();
+			for (final StockBucket bucket : buckets)
+			{
+				if (!bucket.isMatching(query, storageAttributesKeyMatcher))
+				{
+					continue;
+				}
+
+				final AddToResultGroupRequest latestStock = bucket.getLatestStockOrNull(date);
+				if (latestStock != null)
+				{
+					result.add(latestStock);
+				}
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Same as the filter of {@link AttributesKeyQueryHelper#createFilter(List)}, which is used for the database query:
+	 * {@link AttributesKeyPattern#ALL} and {@link AttributesKeyPattern#OTHER} match any key,
+	 * and the other patterns are matched like their {@link AttributesKeyPattern#getSqlLikeString()} in SQL.
+	 */
+	@VisibleForTesting
+	static Predicate<AttributesKey> createStorageAttributesKeyMatcher(@NonNull final List<AttributesKeyPattern> patterns)
+	{
+		if (patterns.isEmpty()
+				|| patterns.contains(AttributesKeyPattern.ALL)
+				|| patterns.contains(AttributesKeyPattern.OTHER))
+		{
+			return storageAttributesKey -> true;
+		}
+
+		final ImmutableList<Pattern> regexps = patterns.stream()
+				.map(pattern -> sqlLikeToRegexp(pattern.getSqlLikeString()))
+				.collect(ImmutableList.toImmutableList());
+		return storageAttributesKey -> {
+			final String storageAttributesKeyString = storageAttributesKey.getAsString();
+			return regexps.stream().anyMatch(regexp -> regexp.matcher(storageAttributesKeyString).matches());
+		};
+	}
+
+	private static Pattern sqlLikeToRegexp(@NonNull final String sqlLike)
+	{
+		final StringBuilder regexp = new StringBuilder();
+		final StringBuilder literal = new StringBuilder();
+		for (final char ch : sqlLike.toCharArray())
+		{
+			if (ch == '%' || ch == '_')
+			{
+				if (literal.length() > 0)
+				{
+					regexp.append(Pattern.quote(literal.toString()));
+					literal.setLength(0);
+				}
+				regexp.append(ch == '%' ? ".*" : ".");
+			}
+			else
+			{
+				literal.append(ch);
+			}
+		}
+		if (literal.length() > 0)
+		{
+			regexp.append(Pattern.quote(literal.toString()));
+		}
+		return Pattern.compile(regexp.toString(), Pattern.DOTALL);
+	}
+
+	@Value
+	private static class StockBucketKey
+	{
+		@NonNull
+		WarehouseId warehouseId;
+
+		@Nullable
+		BPartnerId customerId;
+
+		@NonNull
+		AttributesKey storageAttributesKey;
+	}
+
+	/**
+	 * The stock candidates of one product/warehouse/customer/storage-attributes-key, ordered by date and seqNo.
+	 */
+	private static final class StockBucket
+	{
+		private static final Comparator<StockRecord> ORDER_BY_DATE_AND_SEQNO = Comparator
+				.comparing(StockRecord::getDate)
+				.thenComparing(StockRecord::getSeqNo);
+
+		private final int productId;
+		private final WarehouseId warehouseId;
+		@Nullable
+		private final BPartnerId customerId;
+		private final AttributesKey storageAttributesKey;
+
+		private final long[] dateMillis;
+		private final int[] seqNos;
+		private final BigDecimal[] qtys;
+
+		private StockBucket(
+				final int productId,
+				@NonNull final StockBucketKey key,
+				@NonNull final List<StockRecord> stockRecords)
+		{
+			this.productId = productId;
+			this.warehouseId = key.getWarehouseId();
+			this.customerId = key.getCustomerId();
+			this.storageAttributesKey = key.getStorageAttributesKey();
+
+			final List<StockRecord> sortedRecords = new ArrayList<>(stockRecords);
+			sortedRecords.sort(ORDER_BY_DATE_AND_SEQNO);
+
+			final int size = sortedRecords.size();
+			this.dateMillis = new long[size];
+			this.seqNos = new int[size];
+			this.qtys = new BigDecimal[size];
+			for (int i = 0; i < size; i++)
+			{
+				final StockRecord stockRecord = sortedRecords.get(i);
+				dateMillis[i] = stockRecord.getDate().toEpochMilli();
+				seqNos[i] = stockRecord.getSeqNo();
+				qtys[i] = stockRecord.getQty();
+			}
+		}
+
+		/** Same filtering as in {@link AvailableToPromiseSqlHelper#createDBQueryForStockQueryBuilder(AvailableToPromiseQuery)} */
+		public boolean isMatching(
+				@NonNull final AvailableToPromiseQuery query,
+				@NonNull final Predicate<AttributesKey> storageAttributesKeyMatcher)
+		{
+			if (!query.getWarehouseIds().isEmpty() && !query.getWarehouseIds().contains(warehouseId))
+			{
+				return false;
+			}
+
+			final BPartnerClassifier bpartner = query.getBpartner();
+			if (bpartner.isNone() && customerId != null)
+			{
+				return false;
+			}
+			if (bpartner.isSpecificBPartner() && customerId != null && !customerId.equals(bpartner.getBpartnerId()))
+			{
+				return false;
+			}
+
+			return storageAttributesKeyMatcher.test(storageAttributesKey);
+		}
+
+		@Nullable
+		public AddToResultGroupRequest getLatestStockOrNull(@NonNull final Instant date)
+		{
+			// find the last index whose date is less or equal to the given date;
+			// if there are multiple records with the same date, that's the one with the biggest seqNo
+			final long millis = date.toEpochMilli();
+			int low = 0;
+			int high = dateMillis.length - 1;
+			int latestIndex = -1;
+			while (low <= high)
+			{
+				final int mid = (low + high) >>> 1;
+				if (dateMillis[mid] <= millis)
+				{
+					latestIndex = mid;
+					low = mid + 1;
+				}
+				else
+				{
+					high = mid - 1;
+				}
+			}
+			if (latestIndex < 0)
+			{
+				return null;
+			}
+
+			return AddToResultGroupRequest.builder()
+					.productId(productId)
+					.bpartner(BPartnerClassifier.specificOrAny(customerId)) // records that have no bPartner-ID are applicable to any bpartner
+					.warehouseId(warehouseId)
+					.storageAttributesKey(storageAttributesKey)
+					.qty(qtys[latestIndex])
+					.date(Instant.ofEpochMilli(dateMillis[latestIndex]))
+					.seqNo(seqNos[latestIndex])
+					.build();
+		}
+	}
+}
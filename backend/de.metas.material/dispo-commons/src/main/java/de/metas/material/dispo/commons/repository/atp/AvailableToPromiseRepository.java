@@ -53,6 +53,19 @@ public class AvailableToPromiseRepository
 {
 	private static final String SYSCONFIG_ATP_ATTRIBUTES_KEYS = "de.metas.ui.web.window.descriptor.sql.ProductLookupDescriptor.ATP.AttributesKeys";
 
+	private final AvailableToPromiseProjection projection;
+
+	public AvailableToPromiseRepository()
+	{
+		this(new AvailableToPromiseProjection());
+	}
+
+	@VisibleForTesting
+	AvailableToPromiseRepository(@NonNull final AvailableToPromiseProjection projection)
+	{
+		this.projection = projection;
+	}
+
 	@NonNull
 	public BigDecimal retrieveAvailableStockQtySum(@NonNull final AvailableToPromiseMultiQuery multiQuery)
 	{
@@ -69,16 +82,48 @@ public class AvailableToPromiseRepository
 
 	@NonNull
 	public AvailableToPromiseResult retrieveAvailableStock(@NonNull final AvailableToPromiseMultiQuery multiQuery)
+	{
+		return retrieveAvailableStock(multiQuery, projection.isApplicable());
+	}
+
+	@VisibleForTesting
+	AvailableToPromiseResult retrieveAvailableStock(@NonNull final AvailableToPromiseMultiQuery multiQuery, final boolean useProjection)
 	{
 		final boolean addToPredefinedBuckets = multiQuery.isAddToPredefinedBuckets();
 		final AvailableToPromiseResultBuilder result = addToPredefinedBuckets
 				? AvailableToPromiseResultBuilder.createEmptyWithPredefinedBuckets(multiQuery)
 				: AvailableToPromiseResultBuilder.createEmpty();
 
+		final ImmutableList<AddToResultGroupRequest> requests = useProjection
+				? retrieveRequestsFromProjection(multiQuery)
+				: retrieveRequestsFromDB(multiQuery);
+
+		for (final AddToResultGroupRequest request : requests)
+		{
+			if (addToPredefinedBuckets)
+			{
+				result.addQtyToAllMatchingGroups(request);
+			}
+			else
+			{
+				result.addToNewGroupIfFeasible(request);
+			}
+		}
+
+		return result.build();
+	}
+
+	public AvailableToPromiseResult retrieveAvailableStock(@NonNull AvailableToPromiseQuery query)
+	{
+		return retrieveAvailableStock(AvailableToPromiseMultiQuery.of(query));
+	}
+
+	private ImmutableList<AddToResultGroupRequest> retrieveRequestsFromDB(@NonNull final AvailableToPromiseMultiQuery multiQuery)
+	{
 		final IQuery<I_MD_Candidate_ATP_QueryResult> dbQuery = createDBQueryForMaterialQueryOrNull(multiQuery);
 		if (dbQuery == null)
 		{
-			return result.build();
+			return ImmutableList.of();
 		}
 
 		final Function<I_MD_Candidate_ATP_QueryResult, Boolean> compareByWhetherRecordHasBPartnerId = record -> record.getC_BPartner_Customer_ID() > 0;
@@ -96,29 +141,30 @@ public class AvailableToPromiseRepository
 				.collect(ImmutableList.toImmutableList());
 
 		// note: this is a dedicated step in order to ease debugging (i.e. have a chance to take a look at the atpRecords)
-		final ImmutableList<AddToResultGroupRequest> requests = atpRecords
+		return atpRecords
 				.stream()
 				.map(AvailableToPromiseRepository::createAddToResultGroupRequest)
 				.collect(ImmutableList.toImmutableList());
-
-		for (final AddToResultGroupRequest request : requests)
-		{
-			if (addToPredefinedBuckets)
-			{
-				result.addQtyToAllMatchingGroups(request);
-			}
-			else
-			{
-				result.addToNewGroupIfFeasible(request);
-			}
-		}
-
-		return result.build();
 	}
 
-	public AvailableToPromiseResult retrieveAvailableStock(@NonNull AvailableToPromiseQuery query)
+	private ImmutableList<AddToResultGroupRequest> retrieveRequestsFromProjection(@NonNull final AvailableToPromiseMultiQuery multiQuery)
 	{
-		return retrieveAvailableStock(AvailableToPromiseMultiQuery.of(query));
+		final Function<AddToResultGroupRequest, Boolean> compareByWhetherRequestHasBPartnerId = request -> request.getBpartner().isSpecificBPartner();
+
+		final List<AvailableToPromiseQuery> queries = multiQuery.getQueries()
+				.stream()
+				.filter(Objects::nonNull)
+				.collect(ImmutableList.toImmutableList());
+
+		// same order as in retrieveRequestsFromDB
+		return projection.retrieveLatestStock(queries)
+				.stream()
+				.sorted(Comparator
+						.comparing(compareByWhetherRequestHasBPartnerId)
+						.thenComparing(AddToResultGroupRequest::getDate)
+						.thenComparing(AddToResultGroupRequest::getSeqNo)
+						.reversed())
+				.collect(ImmutableList.toImmutableList());
 	}
 
 	private IQuery<I_MD_Candidate_ATP_QueryResult> createDBQueryForMaterialQueryOrNull(
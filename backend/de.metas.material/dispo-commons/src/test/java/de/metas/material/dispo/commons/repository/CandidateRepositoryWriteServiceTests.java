@@ -48,6 +48,7 @@ import de.metas.material.dispo.model.I_MD_Candidate_Transaction_Detail;
 import de.metas.material.dispo.model.X_MD_Candidate;
 import de.metas.material.event.commons.AttributesKey;
 import de.metas.material.event.commons.MaterialDescriptor;
+import de.metas.material.event.pporder.MaterialDispoGroupId;
 import de.metas.organization.ClientAndOrgId;
 import de.metas.product.ResourceId;
 import de.metas.util.Services;
@@ -427,4 +428,21 @@ public class CandidateRepositoryWriteServiceTests
 		assertThat(transactionDetailRecord.getMovementQty()).isEqualByComparingTo("1");
 		assertThat(transactionDetailRecord.getM_Transaction_ID()).isEqualTo(33);
 	}
+
+	@Test
+	public void addQtyDeltaToMatchingCandidates()
+	{
+		final CandidatesQuery laterStockQuery = repositoryTestHelper.mkQueryForStockFromDate(AFTER_NOW);
+
+		final int updatedCount = candidateRepositoryWriteService.addQtyDeltaToMatchingCandidates(laterStockQuery, new BigDecimal("-3"), MaterialDispoGroupId.ofInt(123));
+		assertThat(updatedCount).isEqualTo(1);
+
+		final I_MD_Candidate laterStockRecord = load(repositoryTestHelper.laterStockCandidate.getId().getRepoId(), I_MD_Candidate.class);
+		assertThat(laterStockRecord.getQty()).isEqualByComparingTo("7");
+		assertThat(laterStockRecord.getMD_Candidate_GroupId()).isEqualTo(123);
+
+		final I_MD_Candidate stockRecord = load(repositoryTestHelper.stockCandidate.getId().getRepoId(), I_MD_Candidate.class);
+		assertThat(stockRecord.getQty()).isEqualByComparingTo("11");
+		assertThat(stockRecord.getMD_Candidate_GroupId()).isNotEqualTo(123);
+	}
 }
@@ -0,0 +1,257 @@
+package de.metas.material.dispo.commons.repository.atp;
+
+import static de.metas.material.event.EventTestHelper.AFTER_NOW;
+import static de.metas.material.event.EventTestHelper.BEFORE_BEFORE_NOW;
+import static de.metas.material.event.EventTestHelper.BEFORE_NOW;
+import static de.metas.material.event.EventTestHelper.NOW;
+import static de.metas.material.event.EventTestHelper.PRODUCT_ID;
+import static de.metas.material.event.EventTestHelper.WAREHOUSE_ID;
+import static org.adempiere.model.InterfaceWrapperHelper.newInstance;
+import static org.adempiere.model.InterfaceWrapperHelper.save;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+import org.adempiere.ad.dao.IQueryBL;
+import org.adempiere.test.AdempiereTestHelper;
+import org.adempiere.test.AdempiereTestWatcher;
+import org.adempiere.warehouse.WarehouseId;
+import org.compiere.util.TimeUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import de.metas.bpartner.BPartnerId;
+import de.metas.material.commons.attributes.AttributesKeyPattern;
+import de.metas.material.commons.attributes.AttributesKeyPatterns;
+import de.metas.material.dispo.commons.repository.atp.AvailableToPromiseProjection.StockRecord;
+import de.metas.material.dispo.model.I_MD_Candidate_ATP_QueryResult;
+import de.metas.material.event.commons.AttributesKey;
+import de.metas.util.Services;
+
+/*
+ * #%L
+ * metasfresh-material-dispo-commons
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+@ExtendWith(AdempiereTestWatcher.class)
+public class AvailableToPromiseProjectionTest
+{
+	private static final int OTHER_PRODUCT_ID = PRODUCT_ID + 1;
+	private static final WarehouseId OTHER_WAREHOUSE_ID = WarehouseId.ofRepoId(WAREHOUSE_ID.getRepoId() + 1);
+	private static final BPartnerId BPARTNER_ID_1 = BPartnerId.ofRepoId(10);
+	private static final BPartnerId BPARTNER_ID_2 = BPartnerId.ofRepoId(20);
+	private static final AttributesKey STORAGE_ATTRIBUTES_KEY_1_2 = AttributesKey.ofAttributeValueIds(1, 2);
+	private static final AttributesKey STORAGE_ATTRIBUTES_KEY_3 = AttributesKey.ofAttributeValueIds(3);
+	private static final AttributesKey STORAGE_ATTRIBUTES_KEY_11 = AttributesKey.ofAttributeValueIds(11);
+
+	private int countLoads;
+	private AvailableToPromiseProjection projection;
+	private AvailableToPromiseRepository availableToPromiseRepository;
+
+	@BeforeEach
+	public void init()
+	{
+		AdempiereTestHelper.get().init();
+
+		countLoads = 0;
+		projection = new AvailableToPromiseProjection(this::retrieveStockRecordsFromATPRecords);
+		availableToPromiseRepository = new AvailableToPromiseRepository(projection);
+	}
+
+	/**
+	 * Loads the stock from the same records that the database query finds in unit test mode.
+	 */
+	private List<StockRecord> retrieveStockRecordsFromATPRecords(final int productId)
+	{
+		countLoads++;
+		return Services.get(IQueryBL.class)
+				.createQueryBuilder(I_MD_Candidate_ATP_QueryResult.class)
+				.addEqualsFilter(I_MD_Candidate_ATP_QueryResult.COLUMNNAME_M_Product_ID, productId)
+				.create()
+				.list()
+				.stream()
+				.map(record -> StockRecord.builder()
+						.warehouseId(WarehouseId.ofRepoId(record.getM_Warehouse_ID()))
+						.customerId(BPartnerId.ofRepoIdOrNull(record.getC_BPartner_Customer_ID()))
+						.storageAttributesKey(AttributesKey.ofString(record.getStorageAttributesKey()))
+						.date(TimeUtil.asInstant(record.getDateProjected()))
+						.seqNo(record.getSeqNo())
+						.qty(record.getQty())
+						.build())
+				.collect(ImmutableList.toImmutableList());
+	}
+
+	/**
+	 * In unit test mode, the database query does not pick the latest stock per bucket, so there is just one record per bucket here.
+	 */
+	private void createATPRecordsForComparison()
+	{
+		createATPRecord(PRODUCT_ID, WAREHOUSE_ID, null, STORAGE_ATTRIBUTES_KEY_1_2, BEFORE_NOW, 10, "10");
+		createATPRecord(PRODUCT_ID, WAREHOUSE_ID, BPARTNER_ID_1, STORAGE_ATTRIBUTES_KEY_1_2, BEFORE_BEFORE_NOW, 20, "20");
+		createATPRecord(PRODUCT_ID, WAREHOUSE_ID, BPARTNER_ID_2, STORAGE_ATTRIBUTES_KEY_1_2, BEFORE_NOW, 30, "30");
+		createATPRecord(PRODUCT_ID, OTHER_WAREHOUSE_ID, null, STORAGE_ATTRIBUTES_KEY_1_2, BEFORE_NOW, 40, "40");
+		createATPRecord(PRODUCT_ID, WAREHOUSE_ID, null, AttributesKey.NONE, BEFORE_NOW, 50, "50");
+		createATPRecord(PRODUCT_ID, WAREHOUSE_ID, null, STORAGE_ATTRIBUTES_KEY_3, AFTER_NOW, 60, "60");
+		createATPRecord(PRODUCT_ID, OTHER_WAREHOUSE_ID, BPARTNER_ID_1, STORAGE_ATTRIBUTES_KEY_11, BEFORE_NOW, 70, "70");
+		createATPRecord(OTHER_PRODUCT_ID, WAREHOUSE_ID, null, STORAGE_ATTRIBUTES_KEY_1_2, BEFORE_NOW, 80, "80");
+	}
+
+	private static void createATPRecord(
+			final int productId,
+			final WarehouseId warehouseId,
+			final BPartnerId customerId,
+			final AttributesKey storageAttributesKey,
+			final Instant dateProjected,
+			final int seqNo,
+			final String qty)
+	{
+		final I_MD_Candidate_ATP_QueryResult record = newInstance(I_MD_Candidate_ATP_QueryResult.class);
+		record.setM_Product_ID(productId);
+		record.setM_Warehouse_ID(warehouseId.getRepoId());
+		record.setC_BPartner_Customer_ID(BPartnerId.toRepoId(customerId));
+		record.setStorageAttributesKey(storageAttributesKey.getAsString());
+		record.setDateProjected(TimeUtil.asTimestamp(dateProjected));
+		record.setSeqNo(seqNo);
+		record.setQty(new BigDecimal(qty));
+		save(record);
+	}
+
+	private static AvailableToPromiseQuery.AvailableToPromiseQueryBuilder query(final AttributesKeyPattern storageAttributesKeyPattern)
+	{
+		return AvailableToPromiseQuery.builder()
+				.date(TimeUtil.asZonedDateTime(NOW))
+				.productId(PRODUCT_ID)
+				.storageAttributesKeyPattern(storageAttributesKeyPattern);
+	}
+
+	@Test
+	public void sameResultAsDatabaseQuery()
+	{
+		createATPRecordsForComparison();
+
+		final List<AvailableToPromiseMultiQuery> multiQueries = new ArrayList<>();
+		multiQueries.add(AvailableToPromiseMultiQuery.of(query(AttributesKeyPattern.ALL).bpartner(BPartnerClassifier.any()).build()));
+		multiQueries.add(AvailableToPromiseMultiQuery.of(query(AttributesKeyPattern.ALL).bpartner(BPartnerClassifier.none()).build()));
+		multiQueries.add(AvailableToPromiseMultiQuery.of(query(AttributesKeyPatterns.ofAttributeKey(STORAGE_ATTRIBUTES_KEY_1_2)).bpartner(BPartnerClassifier.specific(BPARTNER_ID_1)).build()));
+		multiQueries.add(AvailableToPromiseMultiQuery.of(query(AttributesKeyPattern.OTHER).warehouseId(WAREHOUSE_ID).bpartner(BPartnerClassifier.any()).build()));
+		multiQueries.add(AvailableToPromiseMultiQuery.of(query(AttributesKeyPatterns.ofAttributeKey(AttributesKey.ofAttributeValueIds(1))).warehouseId(OTHER_WAREHOUSE_ID).bpartner(BPartnerClassifier.any()).build()));
+		multiQueries.add(AvailableToPromiseMultiQuery.of(query(AttributesKeyPattern.ALL).productId(OTHER_PRODUCT_ID).date(TimeUtil.asZonedDateTime(AFTER_NOW)).bpartner(BPartnerClassifier.specific(BPARTNER_ID_2)).build()));
+		multiQueries.add(AvailableToPromiseMultiQuery.of(query(AttributesKeyPattern.ALL).date(TimeUtil.asZonedDateTime(BEFORE_BEFORE_NOW)).bpartner(BPartnerClassifier.any()).build()));
+		for (final boolean addToPredefinedBuckets : new boolean[] { true, false })
+		{
+			multiQueries.add(AvailableToPromiseMultiQuery.builder()
+					.addToPredefinedBuckets(addToPredefinedBuckets)
+					.query(query(AttributesKeyPatterns.ofAttributeKey(STORAGE_ATTRIBUTES_KEY_1_2)).bpartner(BPartnerClassifier.specific(BPARTNER_ID_1)).build())
+					.query(query(AttributesKeyPatterns.ofAttributeKey(STORAGE_ATTRIBUTES_KEY_1_2)).bpartner(BPartnerClassifier.specific(BPARTNER_ID_2)).build())
+					.build());
+		}
+
+		for (final AvailableToPromiseMultiQuery multiQuery : multiQueries)
+		{
+			final AvailableToPromiseResult resultFromDB = availableToPromiseRepository.retrieveAvailableStock(multiQuery, false);
+			final AvailableToPromiseResult resultFromProjection = availableToPromiseRepository.retrieveAvailableStock(multiQuery, true);
+
+			assertThat(resultFromDB.getResultGroups()).as("guard: the database query finds something for %s", multiQuery).isNotEmpty();
+			assertThat(resultFromProjection).as("result for %s", multiQuery).isEqualTo(resultFromDB);
+		}
+	}
+
+	@Test
+	public void latestStockPerBucket()
+	{
+		// records are not sorted
+		createATPRecord(PRODUCT_ID, WAREHOUSE_ID, null, STORAGE_ATTRIBUTES_KEY_1_2, BEFORE_NOW, 3, "8");
+		createATPRecord(PRODUCT_ID, WAREHOUSE_ID, null, STORAGE_ATTRIBUTES_KEY_1_2, AFTER_NOW, 4, "9");
+		createATPRecord(PRODUCT_ID, WAREHOUSE_ID, null, STORAGE_ATTRIBUTES_KEY_1_2, BEFORE_BEFORE_NOW, 1, "5");
+		createATPRecord(PRODUCT_ID, WAREHOUSE_ID, null, STORAGE_ATTRIBUTES_KEY_1_2, BEFORE_NOW, 2, "7");
+
+		assertThat(retrieveQtys(NOW)).containsExactly(new BigDecimal("8")); // same date => biggest seqNo
+		assertThat(retrieveQtys(AFTER_NOW)).containsExactly(new BigDecimal("9"));
+		assertThat(retrieveQtys(BEFORE_BEFORE_NOW)).containsExactly(new BigDecimal("5"));
+		assertThat(retrieveQtys(BEFORE_BEFORE_NOW.minusSeconds(1))).isEmpty();
+	}
+
+	private List<BigDecimal> retrieveQtys(final Instant date)
+	{
+		final AvailableToPromiseQuery query = query(AttributesKeyPattern.ALL)
+				.date(TimeUtil.asZonedDateTime(date))
+				.bpartner(BPartnerClassifier.any())
+				.build();
+		return projection.retrieveLatestStock(ImmutableList.of(query))
+				.stream()
+				.map(AddToResultGroupRequest::getQty)
+				.collect(ImmutableList.toImmutableList());
+	}
+
+	@Test
+	public void invalidateProducts()
+	{
+		createATPRecord(PRODUCT_ID, WAREHOUSE_ID, null, STORAGE_ATTRIBUTES_KEY_1_2, BEFORE_NOW, 1, "10");
+		createATPRecord(OTHER_PRODUCT_ID, WAREHOUSE_ID, null, STORAGE_ATTRIBUTES_KEY_1_2, BEFORE_NOW, 2, "20");
+		final List<AvailableToPromiseQuery> queries = ImmutableList.of(query(AttributesKeyPattern.ALL)
+				.productId(OTHER_PRODUCT_ID)
+				.bpartner(BPartnerClassifier.any())
+				.build());
+
+		projection.retrieveLatestStock(queries);
+		projection.retrieveLatestStock(queries);
+		assertThat(countLoads).isEqualTo(2); // one per product
+
+		AvailableToPromiseProjection.invalidateProductsAfterCommit(ImmutableSet.of(OTHER_PRODUCT_ID));
+		projection.retrieveLatestStock(queries);
+		assertThat(countLoads).isEqualTo(3); // just the invalidated product was loaded again
+
+		createATPRecord(PRODUCT_ID, WAREHOUSE_ID, null, STORAGE_ATTRIBUTES_KEY_1_2, NOW, 3, "15");
+		AvailableToPromiseProjection.invalidateProductsAfterCommit(ImmutableSet.of(PRODUCT_ID));
+		assertThat(projection.retrieveLatestStock(queries))
+				.filteredOn(request -> request.getProductId() == PRODUCT_ID)
+				.extracting(AddToResultGroupRequest::getQty)
+				.containsExactly(new BigDecimal("15"));
+		assertThat(countLoads).isEqualTo(4);
+
+		AvailableToPromiseProjection.invalidateAllAfterCommit();
+		projection.retrieveLatestStock(queries);
+		assertThat(countLoads).isEqualTo(6);
+	}
+
+	@Test
+	public void storageAttributesKeyMatcher_sameAsDatabaseFilter()
+	{
+		assertThat(AvailableToPromiseProjection.createStorageAttributesKeyMatcher(ImmutableList.of())).accepts(STORAGE_ATTRIBUTES_KEY_3);
+		assertThat(AvailableToPromiseProjection.createStorageAttributesKeyMatcher(ImmutableList.of(AttributesKeyPattern.ALL))).accepts(STORAGE_ATTRIBUTES_KEY_3);
+
+		// like AttributesKeyQueryHelper, OTHER matches everything; the ATP result builder then decides to which group a record belongs
+		assertThat(AvailableToPromiseProjection.createStorageAttributesKeyMatcher(ImmutableList.of(AttributesKeyPattern.OTHER))).accepts(STORAGE_ATTRIBUTES_KEY_3);
+
+		final Predicate<AttributesKey> matcher = AvailableToPromiseProjection.createStorageAttributesKeyMatcher(ImmutableList.of(
+				AttributesKeyPatterns.ofAttributeKey(STORAGE_ATTRIBUTES_KEY_1_2),
+				AttributesKeyPatterns.ofAttributeKey(STORAGE_ATTRIBUTES_KEY_11)));
+		assertThat(matcher).accepts(STORAGE_ATTRIBUTES_KEY_1_2, STORAGE_ATTRIBUTES_KEY_11);
+		assertThat(matcher).rejects(STORAGE_ATTRIBUTES_KEY_3, AttributesKey.NONE);
+	}
+}
@@ -5,7 +5,6 @@ import static org.adempiere.model.InterfaceWrapperHelper.save;
 
 import java.math.BigDecimal;
 import java.time.Instant;
-import java.util.List;
 
 import org.compiere.util.TimeUtil;
 import org.springframework.context.annotation.Profile;
@@ -164,7 +163,7 @@ public class StockCandidateService
 
 	/**
 	 * Selects all stock candidates which have the same product and locator but a later timestamp than the one from the given {@code materialDescriptor}.
-	 * Iterate them and add the given {@code delta} to their quantity.
+	 * Add the given {@code delta} to their quantity, using one SQL UPDATE per time range (i.e. without loading them).
 	 * <p>
 	 *
 	 * @param materialDescriptor the product to match against
@@ -197,15 +196,10 @@ public class StockCandidateService
 			deltaAfterRangeEnd = null;
 		}
 
-		final List<Candidate> candidatesToUpdateWithinRange = candidateRepositoryRetrieval.retrieveOrderedByDateAndSeqNo(query);
-		for (final Candidate candidate : candidatesToUpdateWithinRange)
-		{
-			final BigDecimal newQty = candidate.getQuantity().add(deltaUntilRangeEnd);
+		final MaterialDispoGroupId groupId = stockWithDelta.getCandidate().getGroupId();
 
-			candidateRepositoryWriteService.updateCandidateById(candidate
-					.withQuantity(newQty)
-					.withGroupId(stockWithDelta.getCandidate().getGroupId()));
-		}
+		// update all matching stock candidates with one SQL statement, instead of loading and saving them one by one
+		candidateRepositoryWriteService.addQtyDeltaToMatchingCandidates(query, deltaUntilRangeEnd, groupId);
 		if (deltaAfterRangeEnd == null || deltaAfterRangeEnd.signum() == 0)
 		{
 			return; // we are done
@@ -217,15 +211,7 @@ public class StockCandidateService
 				.timeRangeEnd(null)
 				.build();
 		final CandidatesQuery queryAfterRange = query.withMaterialDescriptorQuery(materialDescriptToQueryAfterRange);
-		final List<Candidate> candidatesToUpdateAfterRange = candidateRepositoryRetrieval.retrieveOrderedByDateAndSeqNo(queryAfterRange);
-		for (final Candidate candidate : candidatesToUpdateAfterRange)
-		{
-			final BigDecimal newQty = candidate.getQuantity().add(deltaAfterRangeEnd);
-
-			candidateRepositoryWriteService.updateCandidateById(candidate
-					.withQuantity(newQty)
-					.withGroupId(stockWithDelta.getCandidate().getGroupId()));
-		}
+		candidateRepositoryWriteService.addQtyDeltaToMatchingCandidates(queryAfterRange, deltaAfterRangeEnd, groupId);
 	}
 
 	private CandidatesQuery createStockQueryUntilDate(
@@ -112,7 +112,7 @@ public class IssueLabelRepository
 				.collect(Collectors.toList());
 
 		InterfaceWrapperHelper.deleteAll(recordsToDelete);
-		InterfaceWrapperHelper.saveAll(recordsToInsert);
+		InterfaceWrapperHelper.saveAllBatched(recordsToInsert);
 	}
 
 	private boolean areEqual(@NonNull final I_S_IssueLabel record1,
@@ -15,6 +15,13 @@ public interface IShipmentScheduleUpdater extends ISingletonService
 	void registerCandidateProcessor(IShipmentSchedulesAfterFirstPassUpdater processor);
 
 	/**
+	 * Updates the invalid shipment schedules.
+	 * <p>
+	 * If the sysconfig <code>de.metas.inoutcandidate.api.impl.ShipmentScheduleUpdater.Parallelism</code> is greater than one, the schedules are split into independent partitions.
+	 * Each partition is then updated in a thread and transaction of its own, which is committed independently of the caller's transaction.
+	 * So the caller's transaction can't roll back those updates, and a partition's update is committed even if another partition fails.
+	 * This does not apply if {@link ShipmentScheduleUpdateInvalidRequest#isCreateMissingShipmentSchedules()} is set; then all schedules are updated in the caller's transaction.
+	 *
 	 * @return the number of updated schedule entries.
 	 */
 	int updateShipmentSchedules(ShipmentScheduleUpdateInvalidRequest request);
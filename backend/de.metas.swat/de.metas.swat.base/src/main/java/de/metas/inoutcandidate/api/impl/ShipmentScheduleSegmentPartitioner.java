@@ -0,0 +1,147 @@
+package de.metas.inoutcandidate.api.impl;
+
+/*
+ * #%L
+ * de.metas.swat.base
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import com.google.common.collect.ImmutableList;
+
+import de.metas.util.Check;
+import lombok.NonNull;
+
+/**
+ * Splits items into partitions which can be processed independently from each other.
+ * <p>
+ * Items which share (directly or transitively) at least one segment key are always put into the same partition.
+ * The connected groups of items are distributed to at most <code>maxPartitions</code> partitions, so that the partitions have about the same size.
+ * Within each partition, the items keep the order in which they were given.
+ */
+final class ShipmentScheduleSegmentPartitioner
+{
+	public static <T> List<List<T>> partition(
+			@NonNull final List<T> items,
+			@NonNull final Function<T, Collection<?>> segmentKeysExtractor,
+			final int maxPartitions)
+	{
+		Check.assumeGreaterThanZero(maxPartitions, "maxPartitions");
+		if (items.isEmpty())
+		{
+			return ImmutableList.of();
+		}
+		if (maxPartitions == 1)
+		{
+			return ImmutableList.of(ImmutableList.copyOf(items));
+		}
+
+		//
+		// Connect the items which share a segment key
+		final int[] parents = new int[items.size()];
+		final Map<Object, Integer> firstItemIndexBySegmentKey = new HashMap<>();
+		for (int itemIndex = 0; itemIndex < items.size(); itemIndex++)
+		{
+			parents[itemIndex] = itemIndex;
+			for (final Object segmentKey : segmentKeysExtractor.apply(items.get(itemIndex)))
+			{
+				final Integer otherItemIndex = firstItemIndexBySegmentKey.putIfAbsent(segmentKey, itemIndex);
+				if (otherItemIndex != null)
+				{
+					union(parents, itemIndex, otherItemIndex);
+				}
+			}
+		}
+
+		//
+		// Assign each group of connected items to the partition which has the fewest items so far, biggest groups first
+		final Map<Integer, Integer> groupSizeByRoot = new LinkedHashMap<>();
+		for (int itemIndex = 0; itemIndex < items.size(); itemIndex++)
+		{
+			groupSizeByRoot.merge(find(parents, itemIndex), 1, Integer::sum);
+		}
+
+		final List<Integer> roots = new ArrayList<>(groupSizeByRoot.keySet());
+		roots.sort(Comparator.comparing((Integer root) -> groupSizeByRoot.get(root)).reversed());
+
+		final int partitionsCount = Math.min(maxPartitions, roots.size());
+		final int[] partitionSizes = new int[partitionsCount];
+		final Map<Integer, Integer> partitionIndexByRoot = new HashMap<>();
+		for (final Integer root : roots)
+		{
+			int smallestPartitionIndex = 0;
+			for (int partitionIndex = 1; partitionIndex < partitionsCount; partitionIndex++)
+			{
+				if (partitionSizes[partitionIndex] < partitionSizes[smallestPartitionIndex])
+				{
+					smallestPartitionIndex = partitionIndex;
+				}
+			}
+
+			partitionIndexByRoot.put(root, smallestPartitionIndex);
+			partitionSizes[smallestPartitionIndex] += groupSizeByRoot.get(root);
+		}
+
+		//
+		// Build the partitions, preserving the items order
+		final List<List<T>> partitions = new ArrayList<>(partitionsCount);
+		for (int partitionIndex = 0; partitionIndex < partitionsCount; partitionIndex++)
+		{
+			partitions.add(new ArrayList<>(partitionSizes[partitionIndex]));
+		}
+		for (int itemIndex = 0; itemIndex < items.size(); itemIndex++)
+		{
+			final int partitionIndex = partitionIndexByRoot.get(find(parents, itemIndex));
+			partitions.get(partitionIndex).add(items.get(itemIndex));
+		}
+
+		return partitions.stream()
+				.map(ImmutableList::copyOf)
+				.collect(ImmutableList.toImmutableList());
+	}
+
+	private static int find(final int[] parents, final int itemIndex)
+	{
+		int root = itemIndex;
+		while (parents[root] != root)
+		{
+			parents[root] = parents[parents[root]];
+			root = parents[root];
+		}
+		return root;
+	}
+
+	private static void union(final int[] parents, final int itemIndex1, final int itemIndex2)
+	{
+		final int root1 = find(parents, itemIndex1);
+		final int root2 = find(parents, itemIndex2);
+		if (root1 != root2)
+		{
+			parents[Math.max(root1, root2)] = Math.min(root1, root2);
+		}
+	}
+}
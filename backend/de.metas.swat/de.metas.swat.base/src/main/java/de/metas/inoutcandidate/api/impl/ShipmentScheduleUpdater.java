@@ -27,14 +27,27 @@ import java.time.ZonedDateTime;
  */
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import javax.annotation.Nullable;
+
 import de.metas.inoutcandidate.exportaudit.APIExportStatus;
+import org.adempiere.ad.trx.api.ITrxManager;
 import org.adempiere.exceptions.AdempiereException;
 import org.adempiere.inout.util.DeliveryGroupCandidate;
 import org.adempiere.inout.util.DeliveryGroupCandidateGroupId;
@@ -47,6 +60,7 @@ import org.adempiere.inout.util.ShipmentScheduleQtyOnHandStorageFactory;
 import org.adempiere.inout.util.ShipmentSchedulesDuringUpdate;
 import org.adempiere.model.InterfaceWrapperHelper;
 import org.adempiere.service.ISysConfigBL;
+import org.adempiere.util.lang.IAutoCloseable;
 import org.adempiere.util.lang.IContextAware;
 import org.adempiere.util.lang.ImmutablePair;
 import org.adempiere.warehouse.LocatorId;
@@ -56,13 +70,16 @@ import org.compiere.model.I_C_BPartner_Product;
 import org.compiere.model.I_M_Product;
 import org.compiere.util.Env;
 import org.compiere.util.TimeUtil;
+import org.compiere.util.Util.ArrayKey;
 import org.slf4j.Logger;
+import org.slf4j.MDC;
 import org.slf4j.MDC.MDCCloseable;
 import org.springframework.stereotype.Service;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import ch.qos.logback.classic.Level;
 import de.metas.bpartner.BPartnerId;
@@ -132,6 +149,20 @@ public class ShipmentScheduleUpdater implements IShipmentScheduleUpdater
 
 	private static final String DYNATTR_ProcessedByBackgroundProcess = IShipmentScheduleUpdater.class.getName() + "#ProcessedByBackgroundProcess";
 
+	/**
+	 * Number of partitions into which the invalid shipment schedules are split. If greater than 1, the independent partitions are updated in parallel,
+	 * see {@link #updatePartitionsInParallel(Properties, List, ShipmentScheduleQtyOnHandStorage)}.
+	 */
+	private static final String SYSCONFIG_Parallelism = "de.metas.inoutcandidate.api.impl.ShipmentScheduleUpdater.Parallelism";
+	private static final int DEFAULT_Parallelism = 1;
+
+	/**
+	 * Max number of threads which update partitions, over all updates which run at the same time. If there are more partitions, they wait for a free thread.
+	 */
+	@VisibleForTesting
+	static final int PARTITIONS_EXECUTOR_MaxThreads = 8;
+	private static final ExecutorService partitionsExecutor = createPartitionsExecutor();
+
 	private static final Logger logger = LogManager.getLogger(ShipmentScheduleUpdater.class);
 
 	private final IShipmentScheduleHandlerBL shipmentScheduleHandlerBL = Services.get(IShipmentScheduleHandlerBL.class);
@@ -151,6 +182,8 @@ public class ShipmentScheduleUpdater implements IShipmentScheduleUpdater
 	private final IUOMConversionBL uomConversionBL = Services.get(IUOMConversionBL.class);
 	private final IProductBL productsService = Services.get(IProductBL.class);
 	private final IBPartnerProductDAO bpartnerProductDAO = Services.get(IBPartnerProductDAO.class);
+	private final ISysConfigBL sysConfigBL = Services.get(ISysConfigBL.class);
+	private final ITrxManager trxManager = Services.get(ITrxManager.class);
 
 	private final CompositeCandidateProcessor candidateProcessors = new CompositeCandidateProcessor();
 
@@ -171,6 +204,23 @@ public class ShipmentScheduleUpdater implements IShipmentScheduleUpdater
 		this.pickingBOMService = pickingBOMService;
 	}
 
+	private static ExecutorService createPartitionsExecutor()
+	{
+		// threads are created on demand up to the max and are discarded when idle
+		final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+				PARTITIONS_EXECUTOR_MaxThreads, // corePoolSize
+				PARTITIONS_EXECUTOR_MaxThreads, // maximumPoolSize
+				60L, // keepAliveTime
+				TimeUnit.SECONDS, // keepAliveTime unit
+				new LinkedBlockingQueue<>(), // workQueue
+				new ThreadFactoryBuilder()
+						.setNameFormat(ShipmentScheduleUpdater.class.getSimpleName() + "-%d")
+						.setDaemon(true)
+						.build());
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
 	private boolean isAllowConsolidateShipment(@NonNull final BPartnerId bpartnerId)
 	{
 		// NOTE: we cannot declare de service on top because BPartnerBL is a spring bean which will fail in JUnit tests.
@@ -179,6 +229,11 @@ public class ShipmentScheduleUpdater implements IShipmentScheduleUpdater
 		return bpartnerBL.isAllowConsolidateInOutEffective(bpartnerId, SOTrx.SALES);
 	}
 
+	private int getParallelism()
+	{
+		return sysConfigBL.getIntValue(SYSCONFIG_Parallelism, DEFAULT_Parallelism);
+	}
+
 	@Override
 	public void registerCandidateProcessor(final IShipmentSchedulesAfterFirstPassUpdater processor)
 	{
@@ -216,7 +271,9 @@ public class ShipmentScheduleUpdater implements IShipmentScheduleUpdater
 
 			invalidatePickingBOMProducts(olsAndScheds, selectionId);
 
-			updateSchedules(request.getCtx(), olsAndScheds);
+			// the missing schedules we just created are not yet committed, so they can't be updated in other transactions
+			final int parallelism = request.isCreateMissingShipmentSchedules() ? 1 : getParallelism();
+			updateSchedules(request.getCtx(), olsAndScheds, parallelism);
 
 			// cleanup the marker/pointer tables
 			invalidSchedulesRepo.deleteRecomputeMarkersOutOfTrx(selectionId);
@@ -261,6 +318,11 @@ public class ShipmentScheduleUpdater implements IShipmentScheduleUpdater
 	 */
 	@VisibleForTesting
 	void updateSchedules(final Properties ctx, final List<OlAndSched> olsAndScheds)
+	{
+		updateSchedules(ctx, olsAndScheds, 1);
+	}
+
+	private void updateSchedules(final Properties ctx, final List<OlAndSched> olsAndScheds, final int parallelism)
 	{
 		if (olsAndScheds.isEmpty())
 		{
@@ -289,7 +351,152 @@ public class ShipmentScheduleUpdater implements IShipmentScheduleUpdater
 			}
 		}
 
-		final ShipmentSchedulesDuringUpdate firstRun = generate_FirstRun(ctx, olsAndScheds);
+		//
+		// Load QtyOnHand in scope for our lines just once; each run allocates on its own copy.
+		// Note that the warehouses were updated above, so we load it only now.
+		final ShipmentScheduleQtyOnHandStorage qtyOnHands = shipmentScheduleQtyOnHandStorageFactory.ofOlAndScheds(olsAndScheds);
+
+		final List<List<OlAndSched>> partitions = parallelism > 1
+				? ShipmentScheduleSegmentPartitioner.partition(olsAndScheds, olAndSched -> extractSegmentKeys(olAndSched, qtyOnHands), parallelism)
+				: ImmutableList.of(olsAndScheds);
+		if (partitions.size() > 1)
+		{
+			updatePartitionsInParallel(ctx, partitions, qtyOnHands);
+		}
+		else
+		{
+			updatePartition(ctx, olsAndScheds, qtyOnHands);
+		}
+	}
+
+	/**
+	 * @return the keys of the segments which the given schedule's update depends on. Schedules which share a segment key must be updated together, because they
+	 *         <li>might allocate the same stock, i.e. have the same product (or picking BOM component) and warehouse
+	 *         <li>might end up in the same delivery group, i.e. have the same warehouse and delivery address (see {@link #getOrCreateGroupCandidateForShipmentSchedule(I_M_ShipmentSchedule, IShipmentSchedulesDuringUpdate)})
+	 */
+	@VisibleForTesting
+	Set<ArrayKey> extractSegmentKeys(
+			@NonNull final OlAndSched olAndSched,
+			@NonNull final ShipmentScheduleQtyOnHandStorage qtyOnHands)
+	{
+		final I_M_ShipmentSchedule sched = olAndSched.getSched();
+		final HashSet<ArrayKey> segmentKeys = new HashSet<>();
+
+		// NOTE: the stock queries are always restricted to the warehouses of the schedule's picking group, so we don't have to care about queries for any warehouse
+		qtyOnHands.getMaterialQueriesIncludingPickingBOMComponents(sched)
+				.forEach(query -> query.getWarehouseIds()
+						.forEach(warehouseId -> segmentKeys.add(ArrayKey.of("Stock", query.getProductId(), warehouseId))));
+
+		segmentKeys.add(ArrayKey.of("DeliveryGroup", shipmentScheduleEffectiveBL.getWarehouseId(sched), sched.getBPartnerAddress_Override()));
+
+		return segmentKeys;
+	}
+
+	/**
+	 * Updates each partition in its own thread and transaction, using the shared {@link #partitionsExecutor}.
+	 * <p>
+	 * The partitions are independent of each other (see {@link #extractSegmentKeys(OlAndSched, ShipmentScheduleQtyOnHandStorage)}), so the result is the same as when updating all of them together.
+	 * Note that the partitions which were updated successfully are committed, even if another one fails.
+	 * That's OK, because in that case the recompute markers are released and all schedules are updated again in the next run.
+	 * If a partition fails, the partitions which did not yet start are cancelled, and this method waits for the running ones before it throws.
+	 */
+	@VisibleForTesting
+	void updatePartitionsInParallel(
+			@NonNull final Properties ctx,
+			@NonNull final List<List<OlAndSched>> partitions,
+			@NonNull final ShipmentScheduleQtyOnHandStorage qtyOnHands)
+	{
+		final Map<String, String> mdcContextMap = MDC.getCopyOfContextMap();
+
+		final List<Future<?>> futures = new ArrayList<>(partitions.size());
+		for (final List<OlAndSched> partition : partitions)
+		{
+			// each partition allocates on its own copy, because the storage is not thread-safe
+			final ShipmentScheduleQtyOnHandStorage partitionQtyOnHands = qtyOnHands.copy();
+			futures.add(partitionsExecutor.submit(() -> updatePartitionInNewTrx(ctx, partition, partitionQtyOnHands, mdcContextMap)));
+		}
+
+		AdempiereException failure = null;
+		for (final Future<?> future : futures)
+		{
+			try
+			{
+				future.get();
+			}
+			catch (final InterruptedException ex)
+			{
+				futures.forEach(f -> f.cancel(true));
+				Thread.currentThread().interrupt();
+				throw AdempiereException.wrapIfNeeded(ex);
+			}
+			catch (final ExecutionException ex)
+			{
+				if (failure == null)
+				{
+					failure = AdempiereException.wrapIfNeeded(ex.getCause());
+					futures.forEach(f -> f.cancel(false));
+				}
+				else
+				{
+					failure.addSuppressed(ex.getCause());
+				}
+			}
+			catch (final CancellationException ex)
+			{
+				// we cancelled it because another partition failed
+			}
+		}
+		if (failure != null)
+		{
+			throw failure;
+		}
+
+		Loggables.withLogger(logger, Level.DEBUG).addLog("Updated {} shipment schedules in {} partitions: {}",
+				partitions.stream().mapToInt(List::size).sum(),
+				partitions.size(),
+				partitions.stream().map(partition -> String.valueOf(partition.size())).collect(Collectors.joining(", ")));
+	}
+
+	private void updatePartitionInNewTrx(
+			@NonNull final Properties ctx,
+			@NonNull final List<OlAndSched> partition,
+			@NonNull final ShipmentScheduleQtyOnHandStorage qtyOnHands,
+			@Nullable final Map<String, String> mdcContextMap)
+	{
+		if (mdcContextMap != null)
+		{
+			MDC.setContextMap(mdcContextMap);
+		}
+
+		// our model interceptors shall know that the changes are made by us, also in this thread
+		running.set(true);
+
+		try (final IAutoCloseable ctxRestorer = Env.switchContext(Env.copyCtx(ctx)))
+		{
+			trxManager.runInNewTrx(() -> {
+				// the records were loaded in the caller's transaction; from now on, use this thread's transaction
+				partition.forEach(olAndSched -> InterfaceWrapperHelper.setThreadInheritedTrxName(olAndSched.getSched()));
+
+				updatePartition(Env.getCtx(), partition, qtyOnHands);
+			});
+		}
+		finally
+		{
+			running.set(false);
+			MDC.clear();
+		}
+	}
+
+	/**
+	 * Updates the given schedules, allocating the given QtyOnHand storage. The schedules shall not share stock or delivery groups with any other schedules which are updated at the same time.
+	 */
+	@VisibleForTesting
+	void updatePartition(
+			@NonNull final Properties ctx,
+			@NonNull final List<OlAndSched> olsAndScheds,
+			@NonNull final ShipmentScheduleQtyOnHandStorage qtyOnHands)
+	{
+		final ShipmentSchedulesDuringUpdate firstRun = generate_FirstRun(ctx, olsAndScheds, qtyOnHands.copy());
 		firstRun.updateCompleteStatusAndSetQtyToZeroWhereNeeded();
 
 		applyCandidateProcessors(ctx, firstRun);
@@ -312,7 +519,7 @@ public class ShipmentScheduleUpdater implements IShipmentScheduleUpdater
 		}
 
 		// make the second run
-		final IShipmentSchedulesDuringUpdate secondRun = generate_SecondRun(ctx, olsAndScheds, firstRun);
+		final IShipmentSchedulesDuringUpdate secondRun = generate_SecondRun(ctx, olsAndScheds, qtyOnHands.copy(), firstRun);
 
 		// finally update the shipment schedule entries
 		for (final OlAndSched olAndSched : olsAndScheds)
@@ -426,35 +633,46 @@ public class ShipmentScheduleUpdater implements IShipmentScheduleUpdater
 	ShipmentSchedulesDuringUpdate generate_FirstRun(
 			@NonNull final Properties ctx,
 			@NonNull final List<OlAndSched> lines)
+	{
+		//
+		// Load QtyOnHand in scope for our lines
+		final ShipmentScheduleQtyOnHandStorage qtyOnHands = shipmentScheduleQtyOnHandStorageFactory.ofOlAndScheds(lines);
+		return generate_FirstRun(ctx, lines, qtyOnHands);
+	}
+
+	private ShipmentSchedulesDuringUpdate generate_FirstRun(
+			@NonNull final Properties ctx,
+			@NonNull final List<OlAndSched> lines,
+			@NonNull final ShipmentScheduleQtyOnHandStorage qtyOnHands)
 	{
 		try (final MDCCloseable mdcClosable = ShipmentSchedulesMDC.putShipmentScheduleUpdateRunNo(1))
 		{
 			final ShipmentSchedulesDuringUpdate firstRun = new ShipmentSchedulesDuringUpdate();
-			return generate(ctx, lines, firstRun);
+			return generate(ctx, lines, qtyOnHands, firstRun);
 		}
 	}
 
-	ShipmentSchedulesDuringUpdate generate_SecondRun(
+	private ShipmentSchedulesDuringUpdate generate_SecondRun(
 			@NonNull final Properties ctx,
 			@NonNull final List<OlAndSched> lines,
+			@NonNull final ShipmentScheduleQtyOnHandStorage qtyOnHands,
 			@NonNull final ShipmentSchedulesDuringUpdate firstRun)
 	{
 		try (final MDCCloseable mdcClosable = ShipmentSchedulesMDC.putShipmentScheduleUpdateRunNo(2))
 		{
-			return generate(ctx, lines, firstRun);
+			return generate(ctx, lines, qtyOnHands, firstRun);
 		}
 	}
 
+	/**
+	 * @param qtyOnHands the QtyOnHand in scope for our lines; the allocated quantities are subtracted from it
+	 */
 	private ShipmentSchedulesDuringUpdate generate(
 			@NonNull final Properties ctx,
 			@NonNull final List<OlAndSched> lines,
+			@NonNull final ShipmentScheduleQtyOnHandStorage qtyOnHands,
 			@NonNull final ShipmentSchedulesDuringUpdate candidates)
 	{
-		//
-		// Load QtyOnHand in scope for our lines
-		// i.e. iterate all lines to cache the required storage info and to subtract the quantities that can't be allocated from the storage allocation.
-		final ShipmentScheduleQtyOnHandStorage qtyOnHands = shipmentScheduleQtyOnHandStorageFactory.ofOlAndScheds(lines);
-
 		//
 		// Iterate and try to allocate the QtyOnHand
 		for (final OlAndSched olAndSched : lines)
@@ -37,6 +37,7 @@ import de.metas.async.spi.WorkpackagesOnCommitSchedulerTemplate;
 import de.metas.inoutcandidate.api.IShipmentScheduleUpdater;
 import de.metas.inoutcandidate.api.ShipmentScheduleUpdateInvalidRequest;
 import de.metas.inoutcandidate.api.ShipmentSchedulesMDC;
+import de.metas.inoutcandidate.invalidation.impl.ShipmentScheduleInvalidationStatistics;
 import de.metas.inoutcandidate.model.I_M_ShipmentSchedule;
 import de.metas.logging.LogManager;
 import de.metas.process.IADPInstanceDAO;
@@ -98,6 +99,7 @@ public class UpdateInvalidShipmentSchedulesWorkpackageProcessor extends Workpack
 			final int updatedCount = shipmentScheduleUpdater.updateShipmentSchedules(request);
 
 			loggable.addLog("Updated {} shipment schedule entries for {}", updatedCount, request);
+			loggable.addLog("Recompute markers since startup: {}", ShipmentScheduleInvalidationStatistics.instance.getSnapshot().toSummaryString());
 
 			return Result.SUCCESS;
 		}
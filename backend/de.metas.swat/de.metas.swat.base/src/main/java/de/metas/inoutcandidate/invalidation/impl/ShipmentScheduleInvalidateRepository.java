@@ -17,9 +17,11 @@ import org.adempiere.ad.dao.impl.TypedSqlQueryFilter;
 import org.adempiere.ad.trx.api.ITrx;
 import org.adempiere.ad.trx.api.ITrxListenerManager.TrxEventTiming;
 import org.adempiere.ad.trx.api.ITrxManager;
+import org.adempiere.ad.trx.api.OnTrxMissingPolicy;
 import org.adempiere.mm.attributes.AttributeId;
 import org.adempiere.mm.attributes.api.IAttributeDAO;
 import org.adempiere.mm.attributes.api.IAttributesBL;
+import org.adempiere.model.InterfaceWrapperHelper;
 import org.adempiere.util.lang.Mutable;
 import org.compiere.model.IQuery;
 import org.compiere.model.I_M_AttributeInstance;
@@ -28,8 +30,10 @@ import org.compiere.util.DB;
 import org.compiere.util.Env;
 import org.slf4j.Logger;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
 
 import de.metas.cache.model.CacheInvalidateMultiRequest;
 import de.metas.cache.model.IModelCacheInvalidationService;
@@ -78,10 +82,13 @@ public class ShipmentScheduleInvalidateRepository implements IShipmentScheduleIn
 
 	private static final String M_SHIPMENT_SCHEDULE_RECOMPUTE = "M_ShipmentSchedule_Recompute";
 
+	/** Max number of IDs per <code>IN (...)</code> list */
+	private static final int IN_LIST_MAX_SIZE = 1000;
+
 	/**
-	 * Invalidate by M_Product_ID
+	 * Invalidate by M_Product_ID; the <code>IN (...)</code> list of the product IDs needs to be appended
 	 */
-	private static final String SQL_RECOMPUTE_BY_PRODUCT = "INSERT INTO " + M_SHIPMENT_SCHEDULE_RECOMPUTE + " (M_ShipmentSchedule_ID, Description) "
+	private static final String SQL_RECOMPUTE_BY_PRODUCTS = "INSERT INTO " + M_SHIPMENT_SCHEDULE_RECOMPUTE + " (M_ShipmentSchedule_ID, Description) "
 			+ " SELECT "
 			+ " s." + COLUMNNAME_M_ShipmentSchedule_ID
 			+ " , ?"
@@ -90,17 +97,56 @@ public class ShipmentScheduleInvalidateRepository implements IShipmentScheduleIn
 			+ " WHERE true "
 			+ "   AND s.IsActive='Y' AND s." + I_M_ShipmentSchedule.COLUMNNAME_Processed + "='N' "
 			+ "   AND NOT EXISTS (select 1 from M_ShipmentSchedule_Recompute e where e.AD_PInstance_ID is NULL and e.M_ShipmentSchedule_ID=s." + COLUMNNAME_M_ShipmentSchedule_ID + ")"
-			+ "   AND ol.M_Product_ID=? ";
+			+ "   AND ol.M_Product_ID IN ";
 
 	private static final String SQL_RECOMPUTE_ALL =               //
 			"INSERT INTO " + M_SHIPMENT_SCHEDULE_RECOMPUTE + " (M_ShipmentSchedule_ID, Description) "
 					+ " SELECT " + COLUMNNAME_M_ShipmentSchedule_ID + ", 'invalidate all'"
-					+ " FROM " + I_M_ShipmentSchedule.Table_Name
+					+ " FROM " + I_M_ShipmentSchedule.Table_Name + " s"
 					+ " WHERE IsActive='Y' AND " + I_M_ShipmentSchedule.COLUMNNAME_AD_Client_ID + "=?"
-					+ "   AND " + I_M_ShipmentSchedule.COLUMNNAME_Processed + "='N'";
+					+ "   AND " + I_M_ShipmentSchedule.COLUMNNAME_Processed + "='N'"
+					+ "   AND NOT EXISTS (select 1 from M_ShipmentSchedule_Recompute e where e.AD_PInstance_ID is NULL and e.M_ShipmentSchedule_ID=s." + COLUMNNAME_M_ShipmentSchedule_ID + ")";
+
+	private final ShipmentScheduleInvalidationStatistics statistics = ShipmentScheduleInvalidationStatistics.instance;
 
 	@Override
 	public boolean isFlaggedForRecompute(@NonNull final ShipmentScheduleId shipmentScheduleId)
+	{
+		// the invalidations of the current transaction are not yet in the database
+		final ShipmentScheduleInvalidationBuffer buffer = ShipmentScheduleInvalidationBuffer.getIfThreadInheritedElseNull();
+		if (buffer != null && isFlaggedForRecompute(shipmentScheduleId, buffer))
+		{
+			return true;
+		}
+
+		return isFlaggedForRecomputeInDB(shipmentScheduleId);
+	}
+
+	private static boolean isFlaggedForRecompute(
+			@NonNull final ShipmentScheduleId shipmentScheduleId,
+			@NonNull final ShipmentScheduleInvalidationBuffer buffer)
+	{
+		if (buffer.containsShipmentScheduleId(shipmentScheduleId))
+		{
+			return true;
+		}
+
+		final Set<ProductId> productIds = buffer.getProductIds();
+		if (productIds.isEmpty())
+		{
+			return false;
+		}
+
+		// same conditions as SQL_RECOMPUTE_BY_PRODUCTS
+		final I_M_ShipmentSchedule shipmentSchedule = InterfaceWrapperHelper.load(shipmentScheduleId, I_M_ShipmentSchedule.class);
+		return shipmentSchedule.isActive()
+				&& !shipmentSchedule.isProcessed()
+				&& shipmentSchedule.getC_OrderLine_ID() > 0
+				&& productIds.contains(ProductId.ofRepoIdOrNull(shipmentSchedule.getM_Product_ID()));
+	}
+
+	@VisibleForTesting
+	boolean isFlaggedForRecomputeInDB(@NonNull final ShipmentScheduleId shipmentScheduleId)
 	{
 		final String sql = " SELECT 1 "
 				+ " FROM " + M_SHIPMENT_SCHEDULE_RECOMPUTE + " sr "
@@ -116,14 +162,14 @@ public class ShipmentScheduleInvalidateRepository implements IShipmentScheduleIn
 	@Override
 	public void invalidateForProduct(@NonNull final ProductId productId)
 	{
-		final String description = truncInvalidateDescription("" + productId);
-		final int count = DB.executeUpdateEx(SQL_RECOMPUTE_BY_PRODUCT, new Object[] { description, productId }, ITrx.TRXNAME_ThreadInherited);
-		logger.debug("Invalidated {} entries for productId={} ", count, productId);
-
-		if (count > 0)
+		final ShipmentScheduleInvalidationBuffer buffer = ShipmentScheduleInvalidationBuffer.getOrCreateIfThreadInheritedElseNull(this);
+		if (buffer != null)
 		{
-			UpdateInvalidShipmentSchedulesWorkpackageProcessor.schedule();
+			buffer.addProductId(productId);
+			return;
 		}
+
+		flagForRecompute(ImmutableSet.of(), ImmutableSet.of(productId), getThreadInheritedTrxNameOrNone());
 	}
 
 	@Override
@@ -134,6 +180,7 @@ public class ShipmentScheduleInvalidateRepository implements IShipmentScheduleIn
 
 		final int count = DB.executeUpdateEx(SQL_RECOMPUTE_ALL, new Object[] { clientId }, trxName);
 		logger.debug("Invalidated {} entries for AD_Client_ID={}", count, clientId);
+		statistics.recordMarkersInserted(count);
 
 		if (count > 0)
 		{
@@ -194,6 +241,7 @@ public class ShipmentScheduleInvalidateRepository implements IShipmentScheduleIn
 
 		final int count = DB.executeUpdateEx(sql, sqlParams.toArray(), ITrx.TRXNAME_ThreadInherited);
 		logger.debug("Invalidated {} shipment schedules for headerAggregationKeys={}", count, headerAggregationKeys);
+		statistics.recordMarkersInserted(count);
 		//
 		if (count > 0)
 		{
@@ -209,6 +257,54 @@ public class ShipmentScheduleInvalidateRepository implements IShipmentScheduleIn
 			return;
 		}
 
+		final ShipmentScheduleInvalidationBuffer buffer = ShipmentScheduleInvalidationBuffer.getOrCreateIfThreadInheritedElseNull(this);
+		if (buffer != null)
+		{
+			buffer.addShipmentScheduleIds(shipmentScheduleIds);
+			return;
+		}
+
+		flagForRecompute(shipmentScheduleIds, ImmutableSet.of(), getThreadInheritedTrxNameOrNone());
+	}
+
+	/**
+	 * @return the name of the thread inherited transaction, even if its commit is already in progress, so the markers are committed together with the changes that caused them;
+	 *         {@link ITrx#TRXNAME_None} only if there is no thread inherited transaction
+	 */
+	private static String getThreadInheritedTrxNameOrNone()
+	{
+		final ITrxManager trxManager = Services.get(ITrxManager.class);
+		final ITrx trx = trxManager.getThreadInheritedTrx(OnTrxMissingPolicy.ReturnTrxNone);
+		return trxManager.isNull(trx) ? ITrx.TRXNAME_None : trx.getTrxName();
+	}
+
+	/**
+	 * Inserts the recompute markers for the given shipment schedules and for the shipment schedules of the given products, unless they already have a pending marker.
+	 * Called directly if there is no transaction or if its commit is already in progress, and by {@link ShipmentScheduleInvalidationBuffer} before the transaction is committed.
+	 */
+	void flagForRecompute(
+			@NonNull final Set<ShipmentScheduleId> shipmentScheduleIds,
+			@NonNull final Set<ProductId> productIds,
+			@Nullable final String trxName)
+	{
+		int count = 0;
+		for (final List<ShipmentScheduleId> shipmentScheduleIdsChunk : Iterables.partition(shipmentScheduleIds, IN_LIST_MAX_SIZE))
+		{
+			count += insertForShipmentScheduleIds(shipmentScheduleIdsChunk, trxName);
+		}
+		for (final List<ProductId> productIdsChunk : Iterables.partition(productIds, IN_LIST_MAX_SIZE))
+		{
+			count += insertForProductIds(productIdsChunk, trxName);
+		}
+
+		if (count > 0)
+		{
+			UpdateInvalidShipmentSchedulesWorkpackageProcessor.schedule(Env.getCtx(), trxName);
+		}
+	}
+
+	private int insertForShipmentScheduleIds(@NonNull final List<ShipmentScheduleId> shipmentScheduleIds, @Nullable final String trxName)
+	{
 		final String description = truncInvalidateDescription("" + shipmentScheduleIds.size() + " shipment schedules: " + shipmentScheduleIds);
 
 		final List<Object> sqlParams = new ArrayList<>();
@@ -225,13 +321,42 @@ public class ShipmentScheduleInvalidateRepository implements IShipmentScheduleIn
 				+ "   AND NOT EXISTS (select 1 from " + M_SHIPMENT_SCHEDULE_RECOMPUTE + " e where e.AD_PInstance_ID is NULL and e.M_ShipmentSchedule_ID=" + I_M_ShipmentSchedule.Table_Name + "."
 				+ I_M_ShipmentSchedule.COLUMNNAME_M_ShipmentSchedule_ID + ")";
 
-		final int count = DB.executeUpdateEx(sql, sqlParams.toArray(), ITrx.TRXNAME_ThreadInherited);
+		final int count = DB.executeUpdateEx(sql, sqlParams.toArray(), trxName);
 		logger.debug("Invalidated {} shipment schedules for M_ShipmentSchedule_IDs={}", count, shipmentScheduleIds);
-
-		if (count > 0)
+		statistics.recordMarkersInserted(count);
+		if (count < shipmentScheduleIds.size())
 		{
-			UpdateInvalidShipmentSchedulesWorkpackageProcessor.schedule();
+			// not all of them were inserted; some might not exist, so we need to ask how many were skipped because they already had a pending marker
+			statistics.recordSkippedPendingInDB(countPendingInDB(shipmentScheduleIds, trxName));
 		}
+
+		return count;
+	}
+
+	private static int countPendingInDB(@NonNull final List<ShipmentScheduleId> shipmentScheduleIds, @Nullable final String trxName)
+	{
+		final List<Object> sqlParams = new ArrayList<>();
+		final String sqlInWhereClause = DB.buildSqlList(shipmentScheduleIds, sqlParams);
+
+		final String sql = "SELECT COUNT(DISTINCT e." + COLUMNNAME_M_ShipmentSchedule_ID + ")"
+				+ " FROM " + M_SHIPMENT_SCHEDULE_RECOMPUTE + " e"
+				+ " WHERE e.AD_PInstance_ID IS NULL"
+				+ " AND e." + COLUMNNAME_M_ShipmentSchedule_ID + " IN " + sqlInWhereClause;
+
+		return DB.getSQLValueEx(trxName, sql, sqlParams);
+	}
+
+	private int insertForProductIds(@NonNull final List<ProductId> productIds, @Nullable final String trxName)
+	{
+		final List<Object> sqlParams = new ArrayList<>();
+		sqlParams.add(truncInvalidateDescription("" + productIds));
+		final String sqlInWhereClause = DB.buildSqlList(productIds, sqlParams);
+
+		final int count = DB.executeUpdateEx(SQL_RECOMPUTE_BY_PRODUCTS + sqlInWhereClause, sqlParams.toArray(), trxName);
+		logger.debug("Invalidated {} entries for productIds={} ", count, productIds);
+		statistics.recordMarkersInserted(count);
+
+		return count;
 	}
 
 	@Override
@@ -243,10 +368,13 @@ public class ShipmentScheduleInvalidateRepository implements IShipmentScheduleIn
 				+ "\n SELECT " + I_M_ShipmentSchedule.COLUMNNAME_M_ShipmentSchedule_ID + ", ?"
 				+ "\n FROM " + I_M_ShipmentSchedule.Table_Name
 				+ "\n WHERE " + I_M_ShipmentSchedule.COLUMNNAME_Processed + "='N'"
-				+ "\n AND EXISTS (SELECT 1 FROM T_Selection s WHERE s.AD_PInstance_ID = ? AND s.T_Selection_ID = M_ShipmentSchedule_ID)";
+				+ "\n AND EXISTS (SELECT 1 FROM T_Selection s WHERE s.AD_PInstance_ID = ? AND s.T_Selection_ID = M_ShipmentSchedule_ID)"
+				+ "\n AND NOT EXISTS (select 1 from " + M_SHIPMENT_SCHEDULE_RECOMPUTE + " e where e.AD_PInstance_ID is NULL and e.M_ShipmentSchedule_ID=" + I_M_ShipmentSchedule.Table_Name + "."
+				+ I_M_ShipmentSchedule.COLUMNNAME_M_ShipmentSchedule_ID + ")";
 
 		final int count = DB.executeUpdateEx(sql, new Object[] { description, pinstanceId }, ITrx.TRXNAME_ThreadInherited);
 		logger.debug("Invalidated {} M_ShipmentSchedules for AD_PInstance_ID={}", count, pinstanceId);
+		statistics.recordMarkersInserted(count);
 		//
 		if (count > 0)
 		{
@@ -322,6 +450,7 @@ public class ShipmentScheduleInvalidateRepository implements IShipmentScheduleIn
 		final String trxName = ITrx.TRXNAME_None;
 		final int count = DB.executeUpdateEx(sql, sqlParams.toArray(), trxName);
 		logger.debug("Invalidated {} shipment schedules for segments={}", count, storageSegments);
+		statistics.recordMarkersInserted(count);
 
 		//
 		if (count > 0)
@@ -623,6 +752,7 @@ public class ShipmentScheduleInvalidateRepository implements IShipmentScheduleIn
 				.getRowsInserted();
 
 		logger.debug("Invalidated {} shipment schedules for {}", new Object[] { count, shipmentScheduleQuery });
+		statistics.recordMarkersInserted(count);
 
 		
 		if (count > 0)
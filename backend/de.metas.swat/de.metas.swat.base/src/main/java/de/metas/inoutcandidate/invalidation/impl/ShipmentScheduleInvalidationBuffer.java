@@ -0,0 +1,178 @@
+package de.metas.inoutcandidate.invalidation.impl;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+import org.adempiere.ad.trx.api.ITrx;
+import org.adempiere.ad.trx.api.ITrxListenerManager.TrxEventTiming;
+import org.adempiere.ad.trx.api.ITrxManager;
+import org.adempiere.ad.trx.api.OnTrxMissingPolicy;
+
+import com.google.common.collect.ImmutableSet;
+
+import de.metas.inoutcandidate.ShipmentScheduleId;
+import de.metas.product.ProductId;
+import de.metas.util.Services;
+import lombok.NonNull;
+import lombok.ToString;
+
+/*
+ * #%L
+ * de.metas.swat.base
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Collects the shipment schedules and products which are invalidated within one transaction and flags them for recompute with one insert each, right before the transaction is committed.
+ * <p>
+ * Shipment schedules and products which are invalidated more than once per transaction are inserted just once.
+ */
+@ToString(of = { "shipmentScheduleIds", "productIds" })
+final class ShipmentScheduleInvalidationBuffer
+{
+	private static final String TRX_PROPERTYNAME = ShipmentScheduleInvalidationBuffer.class.getName();
+
+	/**
+	 * @return the buffer of the thread inherited transaction or <code>null</code> if the invalidation shall be written directly.
+	 *         That's the case if there is no such transaction or if its commit is already in progress, i.e. if the buffer would not be flushed anymore.
+	 */
+	@Nullable
+	public static ShipmentScheduleInvalidationBuffer getOrCreateIfThreadInheritedElseNull(@NonNull final ShipmentScheduleInvalidateRepository repository)
+	{
+		final ITrxManager trxManager = Services.get(ITrxManager.class);
+		final ITrx trx = trxManager.getThreadInheritedTrx(OnTrxMissingPolicy.ReturnTrxNone);
+		if (trxManager.isNull(trx))
+		{
+			return null;
+		}
+		else if (!trx.getTrxListenerManager().canRegisterOnTiming(TrxEventTiming.BEFORE_COMMIT))
+		{
+			// we are called from a listener of the transaction's commit (e.g. from another before-commit listener which runs after our flush)
+			return null;
+		}
+
+		ShipmentScheduleInvalidationBuffer buffer = trx.getProperty(TRX_PROPERTYNAME);
+		if (buffer == null)
+		{
+			buffer = new ShipmentScheduleInvalidationBuffer(repository);
+			trx.setProperty(TRX_PROPERTYNAME, buffer);
+
+			// flush within the transaction, so that the markers are committed together with the changes that caused them
+			trx.getTrxListenerManager()
+					.newEventListener(TrxEventTiming.BEFORE_COMMIT)
+					.invokeMethodJustOnce(false) // we need this to happen on every commit
+					.registerHandlingMethod(innerTrx -> {
+						final ShipmentScheduleInvalidationBuffer innerBuffer = innerTrx.getProperty(TRX_PROPERTYNAME);
+						if (innerBuffer != null)
+						{
+							innerBuffer.flush(innerTrx.getTrxName());
+						}
+					});
+
+			// what was collected is obsolete if the transaction is rolled back
+			trx.getTrxListenerManager()
+					.newEventListener(TrxEventTiming.AFTER_ROLLBACK)
+					.invokeMethodJustOnce(false)
+					.registerHandlingMethod(innerTrx -> {
+						final ShipmentScheduleInvalidationBuffer innerBuffer = innerTrx.getProperty(TRX_PROPERTYNAME);
+						if (innerBuffer != null)
+						{
+							innerBuffer.clear();
+						}
+					});
+		}
+		return buffer;
+	}
+
+	/**
+	 * @return the buffer of the thread inherited transaction or <code>null</code> if nothing was buffered in that transaction
+	 */
+	@Nullable
+	public static ShipmentScheduleInvalidationBuffer getIfThreadInheritedElseNull()
+	{
+		final ITrxManager trxManager = Services.get(ITrxManager.class);
+		final ITrx trx = trxManager.getThreadInheritedTrx(OnTrxMissingPolicy.ReturnTrxNone);
+		if (trxManager.isNull(trx))
+		{
+			return null;
+		}
+		return trx.getProperty(TRX_PROPERTYNAME);
+	}
+
+	private final ShipmentScheduleInvalidateRepository repository;
+	private final Set<ShipmentScheduleId> shipmentScheduleIds = new LinkedHashSet<>();
+	private final Set<ProductId> productIds = new LinkedHashSet<>();
+
+	private ShipmentScheduleInvalidationBuffer(@NonNull final ShipmentScheduleInvalidateRepository repository)
+	{
+		this.repository = repository;
+	}
+
+	public void addShipmentScheduleIds(@NonNull final Collection<ShipmentScheduleId> shipmentScheduleIdsToAdd)
+	{
+		for (final ShipmentScheduleId shipmentScheduleId : shipmentScheduleIdsToAdd)
+		{
+			if (!shipmentScheduleIds.add(shipmentScheduleId))
+			{
+				ShipmentScheduleInvalidationStatistics.instance.recordSkippedPendingInTrx();
+			}
+		}
+	}
+
+	public void addProductId(@NonNull final ProductId productId)
+	{
+		if (!productIds.add(productId))
+		{
+			ShipmentScheduleInvalidationStatistics.instance.recordSkippedPendingInTrx();
+		}
+	}
+
+	public boolean containsShipmentScheduleId(@NonNull final ShipmentScheduleId shipmentScheduleId)
+	{
+		return shipmentScheduleIds.contains(shipmentScheduleId);
+	}
+
+	public ImmutableSet<ProductId> getProductIds()
+	{
+		return ImmutableSet.copyOf(productIds);
+	}
+
+	private void flush(@NonNull final String trxName)
+	{
+		if (shipmentScheduleIds.isEmpty() && productIds.isEmpty())
+		{
+			return;
+		}
+
+		final ImmutableSet<ShipmentScheduleId> shipmentScheduleIdsToFlush = ImmutableSet.copyOf(shipmentScheduleIds);
+		final ImmutableSet<ProductId> productIdsToFlush = ImmutableSet.copyOf(productIds);
+		clear();
+
+		repository.flagForRecompute(shipmentScheduleIdsToFlush, productIdsToFlush, trxName);
+	}
+
+	private void clear()
+	{
+		shipmentScheduleIds.clear();
+		productIds.clear();
+	}
+}
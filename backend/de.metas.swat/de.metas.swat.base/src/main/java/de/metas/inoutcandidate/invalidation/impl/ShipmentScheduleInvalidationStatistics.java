@@ -0,0 +1,99 @@
+package de.metas.inoutcandidate.invalidation.impl;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.Value;
+
+/*
+ * #%L
+ * de.metas.swat.base
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Counts the <code>M_ShipmentSchedule_Recompute</code> markers which were inserted and the invalidations which were skipped because they were already pending.
+ */
+public final class ShipmentScheduleInvalidationStatistics
+{
+	public static final ShipmentScheduleInvalidationStatistics instance = new ShipmentScheduleInvalidationStatistics();
+
+	private final AtomicLong countMarkersInserted = new AtomicLong();
+	private final AtomicLong countSkippedPendingInTrx = new AtomicLong();
+	private final AtomicLong countSkippedPendingInDB = new AtomicLong();
+
+	private ShipmentScheduleInvalidationStatistics()
+	{
+	}
+
+	void recordMarkersInserted(final long count)
+	{
+		countMarkersInserted.addAndGet(count);
+	}
+
+	/** the shipment schedule or product was already buffered in the current transaction */
+	void recordSkippedPendingInTrx()
+	{
+		countSkippedPendingInTrx.incrementAndGet();
+	}
+
+	/** the shipment schedules already had a marker which was not yet picked up */
+	void recordSkippedPendingInDB(final long count)
+	{
+		countSkippedPendingInDB.addAndGet(count);
+	}
+
+	public Snapshot getSnapshot()
+	{
+		return Snapshot.builder()
+				.countMarkersInserted(countMarkersInserted.get())
+				.countSkippedPendingInTrx(countSkippedPendingInTrx.get())
+				.countSkippedPendingInDB(countSkippedPendingInDB.get())
+				.build();
+	}
+
+	@Value
+	@Builder
+	public static class Snapshot
+	{
+		long countMarkersInserted;
+		long countSkippedPendingInTrx;
+		long countSkippedPendingInDB;
+
+		/**
+		 * @return the statistics of what was invalidated since given (older) snapshot
+		 */
+		public Snapshot minus(@NonNull final Snapshot older)
+		{
+			return builder()
+					.countMarkersInserted(countMarkersInserted - older.countMarkersInserted)
+					.countSkippedPendingInTrx(countSkippedPendingInTrx - older.countSkippedPendingInTrx)
+					.countSkippedPendingInDB(countSkippedPendingInDB - older.countSkippedPendingInDB)
+					.build();
+		}
+
+		public String toSummaryString()
+		{
+			return "Inserted #" + countMarkersInserted + " recompute markers"
+					+ ", skipped #" + countSkippedPendingInTrx + " already pending in transaction"
+					+ ", skipped #" + countSkippedPendingInDB + " already pending in database";
+		}
+	}
+}
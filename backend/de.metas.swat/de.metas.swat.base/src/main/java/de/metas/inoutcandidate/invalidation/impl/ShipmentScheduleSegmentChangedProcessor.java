@@ -2,7 +2,9 @@ package de.metas.inoutcandidate.invalidation.impl;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.adempiere.ad.trx.api.ITrx;
 import org.adempiere.ad.trx.api.ITrxListenerManager.TrxEventTiming;
@@ -83,7 +85,8 @@ final class ShipmentScheduleSegmentChangedProcessor
 		return processor;
 	}
 
-	private final List<IShipmentScheduleSegment> segments = new ArrayList<>();
+	/** segments which are changed more than once per transaction are flagged just once */
+	private final Set<IShipmentScheduleSegment> segments = new LinkedHashSet<>();
 	private final ShipmentScheduleInvalidateBL shipmentScheduleInvalidator;
 
 	private ShipmentScheduleSegmentChangedProcessor(@NonNull final ShipmentScheduleInvalidateBL shipmentScheduleInvalidator)
@@ -111,7 +114,10 @@ final class ShipmentScheduleSegmentChangedProcessor
 			return;
 		}
 
-		this.segments.add(segment);
+		if (!this.segments.add(segment))
+		{
+			ShipmentScheduleInvalidationStatistics.instance.recordSkippedPendingInTrx();
+		}
 	}
 
 	public void addSegments(final Collection<IShipmentScheduleSegment> segments)
@@ -121,6 +127,6 @@ final class ShipmentScheduleSegmentChangedProcessor
 			return;
 		}
 
-		this.segments.addAll(segments);
+		segments.forEach(this::addSegment);
 	}
 }
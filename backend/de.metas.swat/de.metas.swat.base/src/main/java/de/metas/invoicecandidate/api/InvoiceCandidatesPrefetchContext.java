@@ -0,0 +1,374 @@
+package de.metas.invoicecandidate.api;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import javax.annotation.Nullable;
+
+import org.adempiere.ad.dao.IQueryBL;
+import org.adempiere.ad.trx.api.ITrx;
+import org.adempiere.ad.trx.api.ITrxManager;
+import org.adempiere.ad.trx.api.OnTrxMissingPolicy;
+import org.compiere.model.I_C_Order;
+import org.compiere.model.I_C_OrderLine;
+import org.compiere.model.I_M_InOut;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.ListMultimap;
+
+import de.metas.inout.IInOutDAO;
+import de.metas.invoicecandidate.InvoiceCandidateId;
+import de.metas.invoicecandidate.model.I_C_InvoiceCandidate_InOutLine;
+import de.metas.invoicecandidate.model.I_C_Invoice_Candidate;
+import de.metas.invoicecandidate.model.I_M_InOutLine;
+import de.metas.util.Services;
+import lombok.NonNull;
+
+/*
+ * #%L
+ * de.metas.swat.base
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Transaction scoped identity map of the records which are needed to update invoice candidates.
+ * <p>
+ * Call {@link #prefetch(Collection)} within a transaction to load the records which are referenced by a whole chunk of invoice candidates,
+ * using one query per table. Until that transaction ends, the invoice candidate updater, handlers and DAO get those records from {@link #current()}
+ * instead of loading them for each invoice candidate. Records which were not prefetched are loaded the usual way.
+ * <p>
+ * The records are shared by everyone who runs in the same transaction, so they shall only be read.
+ * The only exception are the {@link I_C_InvoiceCandidate_InOutLine}s, which are maintained by the invoice candidate updater.
+ */
+public final class InvoiceCandidatesPrefetchContext
+{
+	private static final String TRXPROP_PrefetchContext = InvoiceCandidatesPrefetchContext.class.getName();
+
+	/** Max number of IDs per <code>IN (...)</code> list */
+	private static final int IN_LIST_MAX_SIZE = 1000;
+
+	/**
+	 * Loads the records which are referenced by the given invoice candidates and makes them available via {@link #current()} until the current transaction ends
+	 * or until {@link #release()} is called. Replaces the records which were prefetched before in the same transaction.
+	 * <p>
+	 * If there is no thread inherited transaction, the records are loaded out of transaction and they are only available via the returned instance.
+	 */
+	public static InvoiceCandidatesPrefetchContext prefetch(@NonNull final Collection<? extends I_C_Invoice_Candidate> invoiceCandidates)
+	{
+		final InvoiceCandidatesPrefetchContext context = new InvoiceCandidatesPrefetchContext();
+		context.load(invoiceCandidates);
+
+		final ITrxManager trxManager = Services.get(ITrxManager.class);
+		final ITrx trx = trxManager.getThreadInheritedTrx(OnTrxMissingPolicy.ReturnTrxNone);
+		if (!trxManager.isNull(trx))
+		{
+			trx.setProperty(TRXPROP_PrefetchContext, context);
+			context.trx = trx;
+		}
+
+		return context;
+	}
+
+	/**
+	 * @return the records prefetched in the current transaction; if there are none, an instance which loads everything the usual way
+	 */
+	public static InvoiceCandidatesPrefetchContext current()
+	{
+		final ITrxManager trxManager = Services.get(ITrxManager.class);
+		final ITrx trx = trxManager.getThreadInheritedTrx(OnTrxMissingPolicy.ReturnTrxNone);
+		if (trxManager.isNull(trx))
+		{
+			return new InvoiceCandidatesPrefetchContext();
+		}
+
+		final InvoiceCandidatesPrefetchContext context = trx.getProperty(TRXPROP_PrefetchContext);
+		return context != null ? context : new InvoiceCandidatesPrefetchContext();
+	}
+
+	private final Map<Integer, I_C_OrderLine> orderLinesById = new HashMap<>();
+	private final Map<Integer, I_C_Order> ordersById = new HashMap<>();
+	private final ListMultimap<Integer, I_M_InOutLine> inoutLinesByOrderLineId = ArrayListMultimap.create();
+	private final Map<Integer, org.compiere.model.I_M_InOutLine> inoutLinesById = new HashMap<>();
+	private final Map<Integer, I_M_InOut> inoutsById = new HashMap<>();
+	private final Set<Integer> invoiceCandidateIds = new HashSet<>();
+	private final ListMultimap<Integer, I_C_InvoiceCandidate_InOutLine> iciolsByInvoiceCandidateId = ArrayListMultimap.create();
+
+	private int queriesCount = 0;
+	private int missesCount = 0;
+
+	/** the transaction this instance is bound to; <code>null</code> if not bound */
+	private ITrx trx = null;
+
+	private InvoiceCandidatesPrefetchContext()
+	{
+	}
+
+	/**
+	 * Unbinds this instance from its transaction, so that the following code of the same transaction loads the records the usual way again.
+	 * Shall be called when the invoice candidates were updated, because the prefetched records are not refreshed if they are changed later.
+	 */
+	public void release()
+	{
+		final ITrx trx = this.trx;
+		this.trx = null;
+
+		if (trx != null && trx.getProperty(TRXPROP_PrefetchContext) == this)
+		{
+			trx.setProperty(TRXPROP_PrefetchContext, null);
+		}
+	}
+
+	@Override
+	public String toString()
+	{
+		return "InvoiceCandidatesPrefetchContext[invoiceCandidates=" + invoiceCandidateIds.size()
+				+ ", orderLines=" + orderLinesById.size()
+				+ ", inoutLines=" + inoutLinesById.size()
+				+ ", queries=" + queriesCount
+				+ ", misses=" + missesCount
+				+ "]";
+	}
+
+	private void load(@NonNull final Collection<? extends I_C_Invoice_Candidate> invoiceCandidates)
+	{
+		invoiceCandidates.stream()
+				.map(I_C_Invoice_Candidate::getC_Invoice_Candidate_ID)
+				.filter(id -> id > 0)
+				.forEach(invoiceCandidateIds::add);
+
+		//
+		// Order lines and orders
+		final ImmutableSet<Integer> orderLineIds = invoiceCandidates.stream()
+				.map(I_C_Invoice_Candidate::getC_OrderLine_ID)
+				.filter(id -> id > 0)
+				.collect(ImmutableSet.toImmutableSet());
+		for (final I_C_OrderLine orderLine : loadByIds(I_C_OrderLine.class, I_C_OrderLine.COLUMNNAME_C_OrderLine_ID, orderLineIds))
+		{
+			orderLinesById.put(orderLine.getC_OrderLine_ID(), orderLine);
+		}
+
+		final ImmutableSet<Integer> orderIds = orderLinesById.values().stream()
+				.map(I_C_OrderLine::getC_Order_ID)
+				.collect(ImmutableSet.toImmutableSet());
+		for (final I_C_Order order : loadByIds(I_C_Order.class, I_C_Order.COLUMNNAME_C_Order_ID, orderIds))
+		{
+			ordersById.put(order.getC_Order_ID(), order);
+		}
+
+		//
+		// Inout lines of those order lines (same filter and order as IInOutDAO.retrieveLinesForOrderLine)
+		for (final I_M_InOutLine inoutLine : loadByIds(I_M_InOutLine.class, I_M_InOutLine.COLUMNNAME_C_OrderLine_ID, orderLinesById.keySet()))
+		{
+			inoutLinesByOrderLineId.put(inoutLine.getC_OrderLine_ID(), inoutLine);
+			inoutLinesById.put(inoutLine.getM_InOutLine_ID(), inoutLine);
+		}
+		for (final Integer orderLineId : inoutLinesByOrderLineId.keySet())
+		{
+			inoutLinesByOrderLineId.get(orderLineId).sort(Comparator.comparingInt(I_M_InOutLine::getM_InOutLine_ID));
+		}
+
+		//
+		// Invoice candidate - inout line associations
+		for (final I_C_InvoiceCandidate_InOutLine iciol : loadByIds(I_C_InvoiceCandidate_InOutLine.class, I_C_InvoiceCandidate_InOutLine.COLUMNNAME_C_Invoice_Candidate_ID, invoiceCandidateIds))
+		{
+			iciolsByInvoiceCandidateId.put(iciol.getC_Invoice_Candidate_ID(), iciol);
+		}
+		for (final Integer invoiceCandidateId : iciolsByInvoiceCandidateId.keySet())
+		{
+			iciolsByInvoiceCandidateId.get(invoiceCandidateId).sort(Comparator.comparingInt(I_C_InvoiceCandidate_InOutLine::getM_InOutLine_ID));
+		}
+
+		// inout lines which are not linked to the order lines (e.g. of candidates which are not based on an order line)
+		final ImmutableSet<Integer> missingInoutLineIds = iciolsByInvoiceCandidateId.values().stream()
+				.map(I_C_InvoiceCandidate_InOutLine::getM_InOutLine_ID)
+				.filter(id -> id > 0 && !inoutLinesById.containsKey(id))
+				.collect(ImmutableSet.toImmutableSet());
+		for (final org.compiere.model.I_M_InOutLine inoutLine : loadByIds(org.compiere.model.I_M_InOutLine.class, I_M_InOutLine.COLUMNNAME_M_InOutLine_ID, missingInoutLineIds))
+		{
+			inoutLinesById.put(inoutLine.getM_InOutLine_ID(), inoutLine);
+		}
+
+		//
+		// Inouts
+		final ImmutableSet<Integer> inoutIds = inoutLinesById.values().stream()
+				.map(org.compiere.model.I_M_InOutLine::getM_InOut_ID)
+				.collect(ImmutableSet.toImmutableSet());
+		for (final I_M_InOut inout : loadByIds(I_M_InOut.class, I_M_InOut.COLUMNNAME_M_InOut_ID, inoutIds))
+		{
+			inoutsById.put(inout.getM_InOut_ID(), inout);
+		}
+	}
+
+	private <T> List<T> loadByIds(
+			@NonNull final Class<T> modelClass,
+			@NonNull final String columnName,
+			@NonNull final Collection<Integer> ids)
+	{
+		if (ids.isEmpty())
+		{
+			return ImmutableList.of();
+		}
+
+		final IQueryBL queryBL = Services.get(IQueryBL.class);
+
+		final List<T> result = new ArrayList<>();
+		for (final List<Integer> idsChunk : Iterables.partition(ids, IN_LIST_MAX_SIZE))
+		{
+			result.addAll(queryBL.createQueryBuilder(modelClass)
+					.addInArrayFilter(columnName, idsChunk)
+					.addOnlyActiveRecordsFilter()
+					.create()
+					.list(modelClass));
+			queriesCount++;
+		}
+		return result;
+	}
+
+	/**
+	 * @return number of queries which were executed to prefetch the records
+	 */
+	public int getQueriesCount()
+	{
+		return queriesCount;
+	}
+
+	/**
+	 * @return number of times a record was requested from this instance, but it was not prefetched
+	 */
+	public int getMissesCount()
+	{
+		return missesCount;
+	}
+
+	@Nullable
+	public I_C_OrderLine getOrderLine(@NonNull final I_C_Invoice_Candidate ic)
+	{
+		final int orderLineId = ic.getC_OrderLine_ID();
+		if (orderLineId <= 0)
+		{
+			return null;
+		}
+		return getOrLoad(orderLinesById, orderLineId, id -> ic.getC_OrderLine());
+	}
+
+	public I_C_Order getOrder(@NonNull final I_C_OrderLine orderLine)
+	{
+		return getOrLoad(ordersById, orderLine.getC_Order_ID(), id -> orderLine.getC_Order());
+	}
+
+	/**
+	 * @return the order line's active inout lines, ordered by <code>M_InOutLine_ID</code>
+	 */
+	public List<I_M_InOutLine> getInOutLines(@NonNull final I_C_OrderLine orderLine)
+	{
+		if (orderLinesById.containsKey(orderLine.getC_OrderLine_ID()))
+		{
+			return inoutLinesByOrderLineId.get(orderLine.getC_OrderLine_ID());
+		}
+
+		missesCount++;
+		return Services.get(IInOutDAO.class).retrieveLinesForOrderLine(orderLine, I_M_InOutLine.class);
+	}
+
+	public org.compiere.model.I_M_InOutLine getInOutLine(@NonNull final I_C_InvoiceCandidate_InOutLine iciol)
+	{
+		return getOrLoad(inoutLinesById, iciol.getM_InOutLine_ID(), id -> iciol.getM_InOutLine());
+	}
+
+	public I_M_InOut getInOut(@NonNull final org.compiere.model.I_M_InOutLine inoutLine)
+	{
+		return getOrLoad(inoutsById, inoutLine.getM_InOut_ID(), id -> inoutLine.getM_InOut());
+	}
+
+	/**
+	 * @return the invoice candidate's active associations, ordered by <code>M_InOutLine_ID</code>, or <code>null</code> if they were not prefetched
+	 */
+	@Nullable
+	public List<I_C_InvoiceCandidate_InOutLine> getInvoiceCandidateInOutLinesOrNull(@NonNull final InvoiceCandidateId invoiceCandidateId)
+	{
+		if (!invoiceCandidateIds.contains(invoiceCandidateId.getRepoId()))
+		{
+			missesCount++;
+			return null;
+		}
+		return ImmutableList.copyOf(iciolsByInvoiceCandidateId.get(invoiceCandidateId.getRepoId()));
+	}
+
+	/**
+	 * @return the active association between the given invoice candidate and inout line, or <code>null</code> if there is none
+	 */
+	@Nullable
+	public I_C_InvoiceCandidate_InOutLine getInvoiceCandidateInOutLine(
+			@NonNull final I_C_Invoice_Candidate ic,
+			@NonNull final org.compiere.model.I_M_InOutLine inoutLine)
+	{
+		if (!invoiceCandidateIds.contains(ic.getC_Invoice_Candidate_ID()))
+		{
+			missesCount++;
+			return Services.get(IInvoiceCandDAO.class).retrieveInvoiceCandidateInOutLine(ic, inoutLine);
+		}
+
+		return iciolsByInvoiceCandidateId.get(ic.getC_Invoice_Candidate_ID())
+				.stream()
+				.filter(iciol -> iciol.getM_InOutLine_ID() == inoutLine.getM_InOutLine_ID())
+				.findFirst()
+				.orElse(null);
+	}
+
+	/**
+	 * To be called when a new association was saved, so that it's also returned by this instance.
+	 */
+	public void onInvoiceCandidateInOutLineCreated(@NonNull final I_C_InvoiceCandidate_InOutLine iciol)
+	{
+		final int invoiceCandidateId = iciol.getC_Invoice_Candidate_ID();
+		if (!invoiceCandidateIds.contains(invoiceCandidateId))
+		{
+			return;
+		}
+
+		final List<I_C_InvoiceCandidate_InOutLine> iciols = iciolsByInvoiceCandidateId.get(invoiceCandidateId);
+		iciols.add(iciol);
+		iciols.sort(Comparator.comparingInt(I_C_InvoiceCandidate_InOutLine::getM_InOutLine_ID));
+	}
+
+	private <T> T getOrLoad(
+			@NonNull final Map<Integer, T> recordsById,
+			final int id,
+			@NonNull final Function<Integer, T> loader)
+	{
+		final T record = recordsById.get(id);
+		if (record != null)
+		{
+			return record;
+		}
+
+		missesCount++;
+		return loader.apply(id);
+	}
+}
@@ -573,6 +573,12 @@ public final class AggregationEngine
 		return BPartnerContactId.ofRepoIdOrNull(bpartnerId, ic.getBill_User_ID());
 	}
 
+	/**
+	 * Aggregates the invoice candidates which were added so far and releases them.
+	 * <p>
+	 * The engine can be used for the next invoice candidates afterwards. That allows the caller to add the candidates in order of their header aggregation key
+	 * and to call this method whenever the key changes, so that only the candidates of one invoice are kept in memory at a time.
+	 */
 	public List<IInvoiceHeader> aggregate()
 	{
 		final List<IInvoiceHeader> invoiceHeaders = new ArrayList<>();
@@ -596,6 +602,8 @@ public final class AggregationEngine
 			invoiceHeaders.add(invoiceHeader);
 		}
 
+		key2headerAndAggregators.clear();
+
 		return invoiceHeaders;
 	}
 
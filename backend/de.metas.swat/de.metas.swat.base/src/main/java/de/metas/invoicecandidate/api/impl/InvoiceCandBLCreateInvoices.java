@@ -32,6 +32,7 @@ import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -46,6 +47,7 @@ import org.adempiere.exceptions.AdempiereException;
 import org.adempiere.mm.attributes.api.AttributeConstants;
 import org.adempiere.mm.attributes.api.IAttributeDAO;
 import org.adempiere.model.InterfaceWrapperHelper;
+import org.adempiere.service.ISysConfigBL;
 import org.compiere.model.I_AD_Note;
 import org.compiere.model.I_AD_User;
 import org.compiere.model.I_C_DocType;
@@ -61,6 +63,7 @@ import org.compiere.util.TrxRunnable2;
 import org.slf4j.Logger;
 import org.slf4j.MDC.MDCCloseable;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
 
 import de.metas.adempiere.model.I_C_InvoiceLine;
@@ -112,6 +115,16 @@ public class InvoiceCandBLCreateInvoices implements IInvoiceGenerator
 	private static final AdMessageKey MSG_INVOICE_CAND_BL_PROCESSING_ERROR_0P = AdMessageKey.of("InvoiceCandBL_Processing_Error");
 	private static final AdMessageKey MSG_INVOICE_CAND_BL_PROCESSING_ERROR_DESC_1P = AdMessageKey.of("InvoiceCandBL_Processing_Error_Desc");
 
+	/**
+	 * If <code>Y</code>, the invoice candidates are expected in order of their <code>HeaderAggregationKey</code> (see {@link IInvoiceCandDAO#retrieveInvoiceCandidates(org.adempiere.ad.dao.IQueryBuilder)})
+	 * and the invoices are created as soon as the key changes, instead of collecting all candidates first. See {@link #isStreamingAggregation()}.
+	 * <p>
+	 * Note that this only helps callers which stream lots of candidates, like the invoice candidates process.
+	 * It does not help the async invoice creation (<code>InvoiceCandWorkpackageProcessor</code>), because that one loads all candidates of its work package anyways.
+	 */
+	@VisibleForTesting
+	static final String SYSCONFIG_StreamingAggregation = "de.metas.invoicecandidate.api.impl.InvoiceCandBLCreateInvoices.StreamingAggregation";
+
 	//
 	// Services
 	private static final transient Logger logger = InvoiceCandidate_Constants.getLogger(InvoiceCandBLCreateInvoices.class);
@@ -130,6 +143,7 @@ public class InvoiceCandBLCreateInvoices implements IInvoiceGenerator
 	private final transient IADMessageDAO msgDAO = Services.get(IADMessageDAO.class);
 	private final transient IMsgBL msgBL = Services.get(IMsgBL.class);
 	private final transient IMatchInvBL matchInvBL = Services.get(IMatchInvBL.class);
+	private final transient ISysConfigBL sysConfigBL = Services.get(ISysConfigBL.class);
 
 	//
 	// Parameters
@@ -804,7 +818,12 @@ public class InvoiceCandBLCreateInvoices implements IInvoiceGenerator
 		// get our service instance to aggregate the invoice candidates
 		final AggregationEngine aggregationEngine = newAggregationEngine();
 
-		final List<I_C_Invoice_Candidate> icToUnlock = new ArrayList<>();
+		// streaming aggregation: the header aggregation keys whose invoices were already created
+		final boolean streamingAggregation = isStreamingAggregation();
+		// NOTE: null is a key on its own, different from ""
+		final Set<String> invoicedHeaderAggregationKeys = new HashSet<>();
+		boolean hasCurrentHeaderAggregationKey = false;
+		String currentHeaderAggregationKey = null;
 
 		//
 		// Iterate invoice candidates and add them to aggregation engine
@@ -813,8 +832,6 @@ public class InvoiceCandBLCreateInvoices implements IInvoiceGenerator
 			final I_C_Invoice_Candidate ic = invoiceCandidates.next();
 			try (final MDCCloseable icRecordMDC = TableRecordMDC.putTableRecordReference(ic))
 			{
-				icToUnlock.add(ic);
-
 				// Skip invoice candidate if we are adviced to do so
 				// TODO: i think this checking is no longer needed because we are doing it when enqueueing
 				if (invoiceCandBL.isSkipCandidateFromInvoicing(ic, ignoreInvoiceSchedule))
@@ -822,6 +839,30 @@ public class InvoiceCandBLCreateInvoices implements IInvoiceGenerator
 					continue;
 				}
 
+				if (streamingAggregation)
+				{
+					final String headerAggregationKey = ic.getHeaderAggregationKey();
+					if (invoicedHeaderAggregationKeys.contains(headerAggregationKey))
+					{
+						// we would create a second invoice for the same key
+						createNoticesAndMarkICs(
+								ImmutableList.of(ic),
+								new AdempiereException("The invoice candidates are not ordered by HeaderAggregationKey, and the invoice of this key was already created")
+										.appendParametersToMessage()
+										.setParameter("HeaderAggregationKey", headerAggregationKey));
+						continue;
+					}
+
+					// the invoice candidates of the previous key are complete => create their invoices and release them
+					if (hasCurrentHeaderAggregationKey && !Objects.equals(currentHeaderAggregationKey, headerAggregationKey))
+					{
+						aggregateAndInvoice(aggregationEngine);
+						invoicedHeaderAggregationKeys.add(currentHeaderAggregationKey);
+					}
+					hasCurrentHeaderAggregationKey = true;
+					currentHeaderAggregationKey = headerAggregationKey;
+				}
+
 				// add 'ic' to our aggregation
 				try
 				{
@@ -851,6 +892,30 @@ public class InvoiceCandBLCreateInvoices implements IInvoiceGenerator
 		return getCollector();
 	}
 
+	/**
+	 * Streaming aggregation keeps only the invoice candidates of one header aggregation key in memory, instead of all of them.
+	 * It's not used if the invoicing params require to look at all invoice candidates before creating the first invoice,
+	 * or if the header aggregation key is rebuilt and therefore does not match the order of the invoice candidates.
+	 */
+	private boolean isStreamingAggregation()
+	{
+		if (!sysConfigBL.getBooleanValue(SYSCONFIG_StreamingAggregation, false))
+		{
+			return false;
+		}
+
+		final IInvoicingParams invoicingParams = getInvoicingParams();
+		if (invoicingParams == null)
+		{
+			return true;
+		}
+
+		final BigDecimal expectedNetAmtToInvoice = invoicingParams.getCheck_NetAmtToInvoice();
+		return !invoicingParams.isConsolidateApprovedICs()
+				&& !invoicingParams.isAssumeOneInvoice()
+				&& (expectedNetAmtToInvoice == null || expectedNetAmtToInvoice.signum() == 0);
+	}
+
 	private final AggregationEngine newAggregationEngine()
 	{
 		final IInvoicingParams invoicingParams = getInvoicingParams();
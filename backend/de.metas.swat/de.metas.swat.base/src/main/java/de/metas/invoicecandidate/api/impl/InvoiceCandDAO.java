@@ -22,6 +22,7 @@ import de.metas.invoicecandidate.api.IInvoiceCandUpdateSchedulerService;
 import de.metas.invoicecandidate.api.InvoiceCandRecomputeTag;
 import de.metas.invoicecandidate.api.InvoiceCandidateMultiQuery;
 import de.metas.invoicecandidate.api.InvoiceCandidateQuery;
+import de.metas.invoicecandidate.api.InvoiceCandidatesPrefetchContext;
 import de.metas.invoicecandidate.api.InvoiceCandidate_Constants;
 import de.metas.invoicecandidate.model.I_C_InvoiceCandidate_InOutLine;
 import de.metas.invoicecandidate.model.I_C_Invoice_Candidate;
@@ -99,6 +100,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Properties;
 import java.util.Set;
+import java.util.stream.Stream;
 
 import static org.adempiere.model.InterfaceWrapperHelper.delete;
 
@@ -394,21 +396,36 @@ public class InvoiceCandDAO implements IInvoiceCandDAO
 	@Override
 	public List<I_C_InvoiceCandidate_InOutLine> retrieveICIOLAssociationsExclRE(@NonNull final InvoiceCandidateId invoiceCandidateId)
 	{
-		// load all I_C_InvoiceCandidate_InOutLine and filter locally.
-		// i think it's safe to assume that there are not 1000s of records to load and this way the code is simpler
-		return queryBL.createQueryBuilder(I_C_InvoiceCandidate_InOutLine.class)
-				.addEqualsFilter(I_C_InvoiceCandidate_InOutLine.COLUMN_C_Invoice_Candidate_ID, invoiceCandidateId)
-				.addOnlyActiveRecordsFilter()
-				.orderBy(I_C_InvoiceCandidate_InOutLine.COLUMN_M_InOutLine_ID)
-				.create()
-				.stream(I_C_InvoiceCandidate_InOutLine.class)
-				.filter(this::isInOutCompletedOrClosed)
+		final InvoiceCandidatesPrefetchContext prefetchContext = InvoiceCandidatesPrefetchContext.current();
+
+		final List<I_C_InvoiceCandidate_InOutLine> prefetchedIciols = prefetchContext.getInvoiceCandidateInOutLinesOrNull(invoiceCandidateId);
+		final Stream<I_C_InvoiceCandidate_InOutLine> iciols;
+		if (prefetchedIciols != null)
+		{
+			iciols = prefetchedIciols.stream();
+		}
+		else
+		{
+			// load all I_C_InvoiceCandidate_InOutLine and filter locally.
+			// i think it's safe to assume that there are not 1000s of records to load and this way the code is simpler
+			iciols = queryBL.createQueryBuilder(I_C_InvoiceCandidate_InOutLine.class)
+					.addEqualsFilter(I_C_InvoiceCandidate_InOutLine.COLUMN_C_Invoice_Candidate_ID, invoiceCandidateId)
+					.addOnlyActiveRecordsFilter()
+					.orderBy(I_C_InvoiceCandidate_InOutLine.COLUMN_M_InOutLine_ID)
+					.create()
+					.stream(I_C_InvoiceCandidate_InOutLine.class);
+		}
+
+		return iciols
+				.filter(iciol -> isInOutCompletedOrClosed(iciol, prefetchContext))
 				.collect(ImmutableList.toImmutableList());
 	}
 
-	private boolean isInOutCompletedOrClosed(@NonNull final I_C_InvoiceCandidate_InOutLine iciol)
+	private boolean isInOutCompletedOrClosed(
+			@NonNull final I_C_InvoiceCandidate_InOutLine iciol,
+			@NonNull final InvoiceCandidatesPrefetchContext prefetchContext)
 	{
-		final I_M_InOut inOut = iciol.getM_InOutLine().getM_InOut();
+		final I_M_InOut inOut = prefetchContext.getInOut(prefetchContext.getInOutLine(iciol));
 
 		return inOut.isActive() && DocStatus.ofCode(inOut.getDocStatus()).isCompletedOrClosed();
 	}
@@ -23,13 +23,17 @@
 package de.metas.invoicecandidate.api.impl;
 
 import ch.qos.logback.classic.Level;
-import de.metas.inout.IInOutDAO;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterators;
 import de.metas.invoicecandidate.api.IInvoiceCandBL;
 import de.metas.invoicecandidate.api.IInvoiceCandDAO;
 import de.metas.invoicecandidate.api.IInvoiceCandInvalidUpdater;
 import de.metas.invoicecandidate.api.IInvoiceCandRecomputeTagger;
 import de.metas.invoicecandidate.api.IInvoiceCandidateHandlerBL;
 import de.metas.invoicecandidate.api.InvoiceCandRecomputeTag;
+import de.metas.invoicecandidate.api.InvoiceCandidatesPrefetchContext;
 import de.metas.invoicecandidate.internalbusinesslogic.InvoiceCandidate;
 import de.metas.invoicecandidate.internalbusinesslogic.InvoiceCandidateRecordService;
 import de.metas.invoicecandidate.model.I_C_InvoiceCandidate_InOutLine;
@@ -52,18 +56,23 @@ import org.adempiere.ad.trx.processor.spi.TrxItemChunkProcessorAdapter;
 import org.adempiere.exceptions.AdempiereException;
 import org.adempiere.model.InterfaceWrapperHelper;
 import org.adempiere.service.ISysConfigBL;
+import org.adempiere.util.concurrent.KeyedPartitionsParallelExecutor;
 import org.adempiere.util.lang.IAutoCloseable;
 import org.adempiere.util.lang.IContextAware;
 import org.compiere.SpringContextHolder;
+import org.compiere.util.Env;
 import org.slf4j.Logger;
 import org.slf4j.MDC.MDCCloseable;
 
 import javax.annotation.Nullable;
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 
 import static java.math.BigDecimal.ONE;
 import static org.adempiere.model.InterfaceWrapperHelper.newInstance;
@@ -76,14 +85,29 @@ import static org.adempiere.model.InterfaceWrapperHelper.newInstance;
 	private final transient InvoiceCandBL invoiceCandBL;
 	private final transient IInvoiceCandDAO invoiceCandDAO = Services.get(IInvoiceCandDAO.class);
 	private final transient IInvoiceCandidateHandlerBL invoiceCandidateHandlerBL = Services.get(IInvoiceCandidateHandlerBL.class);
-	private final transient IInOutDAO inOutDAO = Services.get(IInOutDAO.class);
 	private final transient ISysConfigBL sysConfigBL = Services.get(ISysConfigBL.class);
 	private final transient ITrxManager trxManager = Services.get(ITrxManager.class);
 	private final transient ITrxItemProcessorExecutorService trxItemProcessorExecutorService = Services.get(ITrxItemProcessorExecutorService.class);
 
-	private static final String SYSCONFIG_ItemsPerBatch = "de.metas.invoicecandidate.api.impl.InvoiceCandInvalidUpdater.ItemsPerBatch";
+	@VisibleForTesting
+	static final String SYSCONFIG_ItemsPerBatch = "de.metas.invoicecandidate.api.impl.InvoiceCandInvalidUpdater.ItemsPerBatch";
 	private static final int DEFAULT_ItemsPerBatch = 100;
 
+	/**
+	 * Number of threads used to update the invoice candidates. If greater than 1, the candidates are updated in parallel, see {@link #updateInParallel(Iterator, int, int)}.
+	 * Applies only if the updater manages its own transactions and was not asked to update a particular set of invoice candidates.
+	 */
+	@VisibleForTesting
+	static final String SYSCONFIG_Parallelism = "de.metas.invoicecandidate.api.impl.InvoiceCandInvalidUpdater.Parallelism";
+	private static final int DEFAULT_Parallelism = 1;
+
+	/**
+	 * If <code>true</code>, the records which are referenced by the invoice candidates of a chunk are loaded upfront, see {@link InvoiceCandidatesPrefetchContext}.
+	 */
+	@VisibleForTesting
+	static final String SYSCONFIG_Prefetch = "de.metas.invoicecandidate.api.impl.InvoiceCandInvalidUpdater.Prefetch";
+	private static final boolean DEFAULT_Prefetch = true;
+
 	//
 	// Parameters
 	private Properties _ctx;
@@ -119,6 +143,7 @@ import static org.adempiere.model.InterfaceWrapperHelper.newInstance;
 			// Remove from "invoice candidates to recompute" all those which were tagged with our tag
 			// because now we consider them valid
 			// NOTE: usually, this method shall delete 0 records because the recompute records are deleted after each chunk is processed.
+			// The exception is the parallel update, where they are deleted only here.
 			icTagger.deleteAllTaggedAndInvalidateCache();
 		}
 		catch (final Exception updateException)
@@ -161,88 +186,224 @@ import static org.adempiere.model.InterfaceWrapperHelper.newInstance;
 		}
 
 		//
-		// Update invoice candidates in chunks
+		// Update invoice candidates in chunks.
+		// We can use more threads only if we are allowed to manage the transactions.
+		final Stopwatch stopwatch = Stopwatch.createStarted();
+		final int parallelism = processInBatches && trxManager.isNull(_trxName) ? getParallelism() : 1;
+		final ICUpdateResult result;
+		if (parallelism > 1)
+		{
+			result = updateInParallel(candidatesToUpdate, itemsPerBatch, parallelism);
+		}
+		else
+		{
+			// if we were asked to update a particular set of invoice candidates, then update them all in one chunk, like we always did
+			final Iterator<List<I_C_Invoice_Candidate>> chunks = processInBatches
+					? Iterators.partition(candidatesToUpdate, itemsPerBatch)
+					: Iterators.<List<I_C_Invoice_Candidate>> singletonIterator(ImmutableList.copyOf(candidatesToUpdate));
+
+			result = new ICUpdateResult();
+			try (final IAutoCloseable updateInProgressCloseable = invoiceCandBL.setUpdateProcessInProgress())
+			{
+				// if called from process or wp-processor then getTrxName() is null because *we* want to manage the trx => commit after each chunk
+				updateInChunks(getCtx(), getTrxName(), chunks, result, true);
+			}
+		}
+
+		//
+		// Log the result
+		Loggables.addLog("Update invalid result: {}", result.getSummary(Duration.ofMillis(stopwatch.elapsed(TimeUnit.MILLISECONDS))));
+	}
+
+	/**
+	 * Updates the given invoice candidates using the given number of threads, each one with its own chunk transactions.
+	 * <p>
+	 * The candidates are partitioned by their bill partner, so candidates which depend on each other
+	 * (e.g. manual candidates, whose amounts depend on the other candidates of the same partner) are updated by the same thread, in the usual order.
+	 * <p>
+	 * Note that the recompute markers are not deleted after each chunk, but by the caller after all candidates were updated.
+	 * That's because deleting them would change the result of the (paged) query which is still fetching the candidates to update.
+	 */
+	private ICUpdateResult updateInParallel(
+			@NonNull final Iterator<I_C_Invoice_Candidate> candidatesToUpdate,
+			final int itemsPerBatch,
+			final int parallelism)
+	{
+		final List<ICUpdateResult> partitionResults = Collections.synchronizedList(new ArrayList<>());
+
+		KeyedPartitionsParallelExecutor.<I_C_Invoice_Candidate> builder()
+				.name(InvoiceCandInvalidUpdater.class.getSimpleName())
+				.parallelism(parallelism)
+				.chunkSize(itemsPerBatch)
+				.ctx(getCtx())
+				.partitionKeyExtractor(I_C_Invoice_Candidate::getBill_BPartner_ID)
+				.partitionChunkProcessorFactory(() -> {
+					final ICUpdateResult partitionResult = new ICUpdateResult();
+					partitionResults.add(partitionResult);
+
+					return chunk -> {
+						try (final IAutoCloseable updateInProgressCloseable = invoiceCandBL.setUpdateProcessInProgress())
+						{
+							updateInChunks(Env.getCtx(), ITrx.TRXNAME_ThreadInherited, Iterators.singletonIterator(chunk), partitionResult, false);
+						}
+					};
+				})
+				.build()
+				.execute(candidatesToUpdate);
+
 		final ICUpdateResult result = new ICUpdateResult();
-		try (final IAutoCloseable updateInProgressCloseable = invoiceCandBL.setUpdateProcessInProgress())
+		for (int i = 0; i < partitionResults.size(); i++)
 		{
-			trxItemProcessorExecutorService.<I_C_Invoice_Candidate, ICUpdateResult> createExecutor()
-					.setContext(getCtx(), getTrxName()) // if called from process or wp-processor then getTrxName() is null because *we* want to manage the trx => commit after each chunk
-					.setItemsPerBatch(itemsPerBatch)
+			final ICUpdateResult partitionResult = partitionResults.get(i);
+			Loggables.withLogger(logger, partitionResult.getCountErrors() > 0 ? Level.WARN : Level.DEBUG)
+					.addLog("Partition {}/{}: {}", i + 1, parallelism, partitionResult.getSummary());
+			result.addCountersFrom(partitionResult);
+		}
+		return result;
+	}
 
-					// Don't use trx savepoints because they are expensive and we are not going to rollback anyways (OnItemErrorPolicy.ContinueChunkAndCommit)
-					// Note that if our trx is null, then this doesn't matter anyways.
-					.setUseTrxSavepoints(false)
+	/**
+	 * Updates the given chunks of invoice candidates. Each chunk is updated in one transaction, and the records it references are prefetched (see {@link InvoiceCandidatesPrefetchContext}).
+	 */
+	private void updateInChunks(
+			final Properties ctx,
+			final String trxName,
+			@NonNull final Iterator<List<I_C_Invoice_Candidate>> chunks,
+			@NonNull final ICUpdateResult result,
+			final boolean deleteRecomputeMarkersOnChunkCompleted)
+	{
+		while (chunks.hasNext())
+		{
+			final List<I_C_Invoice_Candidate> chunk = chunks.next();
+			final ICUpdateChunkProcessor processor = new ICUpdateChunkProcessor(result, chunk, deleteRecomputeMarkersOnChunkCompleted);
 
-					.setExceptionHandler(new ICTrxItemExceptionHandler(result))
+			try
+			{
+				trxItemProcessorExecutorService.<I_C_Invoice_Candidate, ICUpdateResult> createExecutor()
+						.setContext(ctx, trxName)
+						.setItemsPerBatch(Integer.MAX_VALUE) // i.e. one chunk
 
-					// issue #302: ICTrxItemExceptionHandler will deal with problems, so we just continue if they happen.
-					.setOnItemErrorPolicy(OnItemErrorPolicy.ContinueChunkAndCommit)
+						// Don't use trx savepoints because they are expensive and we are not going to rollback anyways (OnItemErrorPolicy.ContinueChunkAndCommit)
+						// Note that if our trx is null, then this doesn't matter anyways.
+						.setUseTrxSavepoints(false)
 
-					.setProcessor(new TrxItemChunkProcessorAdapter<I_C_Invoice_Candidate, ICUpdateResult>()
-					{
-						/** the invoice candidates which were updated in current batch/chunk */
-						final List<Integer> chunkInvoiceCandidateIds = new ArrayList<>();
+						.setExceptionHandler(new ICTrxItemExceptionHandler(result))
 
-						@Override
-						public void process(final I_C_Invoice_Candidate icRecord)
-						{
-							try (final MDCCloseable icMDC = TableRecordMDC.putTableRecordReference(icRecord))
-							{
-								chunkInvoiceCandidateIds.add(icRecord.getC_Invoice_Candidate_ID());
-
-								updateInvalid(icRecord);
-								if (!icRecord.isError())
-								{
-									logger.debug("Updated invoice canddiate");
-									result.addInvoiceCandidate(icRecord);
-								}
-								else
-								{
-									Loggables.withLogger(logger, Level.DEBUG)
-											.addLog("Error updating invoice candidate; ic.errorMessage={}; icRecord={}", icRecord.getErrorMsg(), icRecord);
-									result.incrementErrorsCount();
-								}
-							}
-						}
+						// issue #302: ICTrxItemExceptionHandler will deal with problems, so we just continue if they happen.
+						.setOnItemErrorPolicy(OnItemErrorPolicy.ContinueChunkAndCommit)
 
-						@Override
-						public ICUpdateResult getResult()
-						{
-							return result;
-						}
+						.setProcessor(processor)
+						//
+						.process(chunk.iterator());
+			}
+			finally
+			{
+				processor.releasePrefetchContext(); // in case the chunk failed
+			}
+		}
+	}
 
-						/**
-						 * Always return <code>true</code> and let the caller decide when to close the chunk (based on ItemsPerBatch setting).
-						 * We do this because in fact, each IC is independent from each other.
-						 * On the other hand, we don't want the overhead of dealing with each IC independently (trx-commit etc).
-						 */
-						@Override
-						public boolean isSameChunk(final I_C_Invoice_Candidate item)
-						{
-							return true;
-						}
+	private final class ICUpdateChunkProcessor extends TrxItemChunkProcessorAdapter<I_C_Invoice_Candidate, ICUpdateResult>
+	{
+		private final ICUpdateResult result;
+		private final List<I_C_Invoice_Candidate> chunk;
+		private final boolean deleteRecomputeMarkersOnChunkCompleted;
 
-						@Override
-						public void newChunk(final I_C_Invoice_Candidate item)
-						{
-							chunkInvoiceCandidateIds.clear(); // better safe than sorry
-						}
+		/** the invoice candidates which were updated in current batch/chunk */
+		private final List<Integer> chunkInvoiceCandidateIds = new ArrayList<>();
 
-						/** Delete the items which we just updated from <code>C_Invoice_Candidate_Recompute</code>. */
-						@Override
-						public void completeChunk()
-						{
-							icTagger.deleteTaggedAndInvalidateCache(chunkInvoiceCandidateIds);
-							chunkInvoiceCandidateIds.clear();
-						}
-					})
-					//
-					.process(candidatesToUpdate);
+		private InvoiceCandidatesPrefetchContext prefetchContext = null;
+
+		private ICUpdateChunkProcessor(
+				@NonNull final ICUpdateResult result,
+				@NonNull final List<I_C_Invoice_Candidate> chunk,
+				final boolean deleteRecomputeMarkersOnChunkCompleted)
+		{
+			this.result = result;
+			this.chunk = chunk;
+			this.deleteRecomputeMarkersOnChunkCompleted = deleteRecomputeMarkersOnChunkCompleted;
 		}
 
-		//
-		// Log the result
-		Loggables.addLog("Update invalid result: {}", result.getSummary());
+		@Override
+		public void process(final I_C_Invoice_Candidate icRecord)
+		{
+			try (final MDCCloseable icMDC = TableRecordMDC.putTableRecordReference(icRecord))
+			{
+				chunkInvoiceCandidateIds.add(icRecord.getC_Invoice_Candidate_ID());
+
+				updateInvalid(icRecord);
+				if (!icRecord.isError())
+				{
+					logger.debug("Updated invoice canddiate");
+					result.addInvoiceCandidate(icRecord);
+				}
+				else
+				{
+					Loggables.withLogger(logger, Level.DEBUG)
+							.addLog("Error updating invoice candidate; ic.errorMessage={}; icRecord={}", icRecord.getErrorMsg(), icRecord);
+					result.incrementErrorsCount();
+				}
+			}
+		}
+
+		@Override
+		public ICUpdateResult getResult()
+		{
+			return result;
+		}
+
+		/**
+		 * Always return <code>true</code> because the caller already split the invoice candidates into chunks (based on ItemsPerBatch setting).
+		 * We do this because in fact, each IC is independent from each other.
+		 * On the other hand, we don't want the overhead of dealing with each IC independently (trx-commit etc).
+		 */
+		@Override
+		public boolean isSameChunk(final I_C_Invoice_Candidate item)
+		{
+			return true;
+		}
+
+		@Override
+		public void newChunk(final I_C_Invoice_Candidate item)
+		{
+			chunkInvoiceCandidateIds.clear(); // better safe than sorry
+
+			// we are running in the chunk's transaction now
+			releasePrefetchContext();
+			if (isPrefetch())
+			{
+				prefetchContext = InvoiceCandidatesPrefetchContext.prefetch(chunk);
+				logger.debug("Prefetched: {}", prefetchContext);
+			}
+		}
+
+		/** Delete the items which we just updated from <code>C_Invoice_Candidate_Recompute</code>. */
+		@Override
+		public void completeChunk()
+		{
+			if (deleteRecomputeMarkersOnChunkCompleted)
+			{
+				icTagger.deleteTaggedAndInvalidateCache(chunkInvoiceCandidateIds);
+			}
+			chunkInvoiceCandidateIds.clear();
+			releasePrefetchContext();
+		}
+
+		@Override
+		public void cancelChunk()
+		{
+			releasePrefetchContext();
+		}
+
+		/** If we run in the caller's transaction, then the code which follows us shall not get the (meanwhile maybe stale) prefetched records. */
+		private void releasePrefetchContext()
+		{
+			if (prefetchContext != null)
+			{
+				prefetchContext.release();
+				prefetchContext = null;
+			}
+		}
 	}
 
 	private void updateInvalid(@NonNull final I_C_Invoice_Candidate icRecord)
@@ -276,7 +437,9 @@ import static org.adempiere.model.InterfaceWrapperHelper.newInstance;
 		// Note: the code originally related to task 06502 has partially been moved to de.metas.invoicecandidate.modelvalidator.M_InoutLine
 		// we'll need those icIols to be up to date to date in order to have QtyWithIssues (updateQtyWithIssues() et al. further down),
 		// and we need them (depending on which handler) for setDeliveredData()
-		populateC_InvoiceCandidate_InOutLine(icRecord, icRecord.getC_OrderLine());
+		final InvoiceCandidatesPrefetchContext prefetchContext = InvoiceCandidatesPrefetchContext.current();
+		final org.compiere.model.I_C_OrderLine ol = prefetchContext.getOrderLine(icRecord);
+		populateC_InvoiceCandidate_InOutLine(icRecord, ol, prefetchContext);
 
 		// Update 'QtyToInvoice_OverrideFulfilled'
 		// If is turns out that the fulfillment is now sufficient,
@@ -316,7 +479,6 @@ import static org.adempiere.model.InterfaceWrapperHelper.newInstance;
 		invoiceCandBL.set_QtyInvoiced_NetAmtInvoiced_Aggregation0(ctx, icRecord);
 
 		// 06539 add qty overdelivery to qty delivered
-		final org.compiere.model.I_C_OrderLine ol = icRecord.getC_OrderLine();
 		if (ol != null)
 		{
 			icRecord.setQtyOrderedOverUnder(ol.getQtyOrderedOverUnder());
@@ -349,7 +511,8 @@ import static org.adempiere.model.InterfaceWrapperHelper.newInstance;
 	 */
 	private void populateC_InvoiceCandidate_InOutLine(
 			@NonNull final I_C_Invoice_Candidate ic,
-			@Nullable final org.compiere.model.I_C_OrderLine orderLine)
+			@Nullable final org.compiere.model.I_C_OrderLine orderLine,
+			@NonNull final InvoiceCandidatesPrefetchContext prefetchContext)
 	{
 		if (orderLine == null)
 		{
@@ -358,17 +521,22 @@ import static org.adempiere.model.InterfaceWrapperHelper.newInstance;
 
 		final IContextAware context = InterfaceWrapperHelper.getContextAware(ic);
 
-		final List<I_M_InOutLine> inoutLines = inOutDAO.retrieveLinesForOrderLine(orderLine, I_M_InOutLine.class);
+		final List<I_M_InOutLine> inoutLines = prefetchContext.getInOutLines(orderLine);
 		for (final I_M_InOutLine inOutLine : inoutLines)
 		{
 			// create a new PO or update the unique existing one
-			I_C_InvoiceCandidate_InOutLine iciol = invoiceCandDAO.retrieveInvoiceCandidateInOutLine(ic, inOutLine);
-			if (iciol == null)
+			final I_C_InvoiceCandidate_InOutLine existingIciol = prefetchContext.getInvoiceCandidateInOutLine(ic, inOutLine);
+			if (existingIciol != null)
 			{
-				iciol = newInstance(I_C_InvoiceCandidate_InOutLine.class, context);
+				Services.get(IInvoiceCandBL.class).updateICIOLAssociationFromIOL(existingIciol, inOutLine);
+			}
+			else
+			{
+				final I_C_InvoiceCandidate_InOutLine iciol = newInstance(I_C_InvoiceCandidate_InOutLine.class, context);
 				iciol.setC_Invoice_Candidate(ic);
+				Services.get(IInvoiceCandBL.class).updateICIOLAssociationFromIOL(iciol, inOutLine);
+				prefetchContext.onInvoiceCandidateInOutLineCreated(iciol);
 			}
-			Services.get(IInvoiceCandBL.class).updateICIOLAssociationFromIOL(iciol, inOutLine);
 		}
 	}
 
@@ -479,6 +647,16 @@ import static org.adempiere.model.InterfaceWrapperHelper.newInstance;
 		return sysConfigBL.getIntValue(SYSCONFIG_ItemsPerBatch, DEFAULT_ItemsPerBatch);
 	}
 
+	private int getParallelism()
+	{
+		return sysConfigBL.getIntValue(SYSCONFIG_Parallelism, DEFAULT_Parallelism);
+	}
+
+	private boolean isPrefetch()
+	{
+		return sysConfigBL.getBooleanValue(SYSCONFIG_Prefetch, DEFAULT_Prefetch);
+	}
+
 	/**
 	 * IC update result.
 	 *
@@ -499,6 +677,17 @@ import static org.adempiere.model.InterfaceWrapperHelper.newInstance;
 			countErrors++;
 		}
 
+		public int getCountErrors()
+		{
+			return countErrors;
+		}
+
+		public void addCountersFrom(@NonNull final ICUpdateResult other)
+		{
+			countOk += other.countOk;
+			countErrors += other.countErrors;
+		}
+
 		@Override
 		public String toString()
 		{
@@ -509,6 +698,13 @@ import static org.adempiere.model.InterfaceWrapperHelper.newInstance;
 		{
 			return "Updated " + countOk + " invoice candidates, " + countErrors + " errors";
 		}
+
+		public String getSummary(@NonNull final Duration duration)
+		{
+			final long millis = Math.max(duration.toMillis(), 1);
+			final long icsPerSecond = (countOk + countErrors) * 1000L / millis;
+			return getSummary() + " in " + millis + "ms (" + icsPerSecond + " ICs/sec)";
+		}
 	}
 
 	/**
@@ -48,6 +48,7 @@ import de.metas.interfaces.I_C_OrderLine;
 import de.metas.invoicecandidate.InvoiceCandidateIds;
 import de.metas.invoicecandidate.api.IInvoiceCandBL;
 import de.metas.invoicecandidate.api.IInvoiceCandDAO;
+import de.metas.invoicecandidate.api.InvoiceCandidatesPrefetchContext;
 import de.metas.invoicecandidate.compensationGroup.InvoiceCandidateGroupRepository;
 import de.metas.invoicecandidate.internalbusinesslogic.InvoiceCandidateRecordService;
 import de.metas.invoicecandidate.model.I_C_InvoiceCandidate_InOutLine;
@@ -282,7 +283,7 @@ public class C_OrderLine_Handler extends AbstractInvoiceCandidateHandler
 	@Override
 	public void setOrderedData(@NonNull final I_C_Invoice_Candidate ic)
 	{
-		final org.compiere.model.I_C_OrderLine orderLine = ic.getC_OrderLine();
+		final org.compiere.model.I_C_OrderLine orderLine = InvoiceCandidatesPrefetchContext.current().getOrderLine(ic);
 
 		setOrderedData(ic, orderLine);
 	}
@@ -342,6 +343,7 @@ public class C_OrderLine_Handler extends AbstractInvoiceCandidateHandler
 	{
 		final IInvoiceCandDAO invoiceCandDAO = Services.get(IInvoiceCandDAO.class);
 		final InvoiceCandidateRecordService invoiceCandidateRecordService = SpringContextHolder.instance.getBean(InvoiceCandidateRecordService.class);
+		final InvoiceCandidatesPrefetchContext prefetchContext = InvoiceCandidatesPrefetchContext.current();
 
 		//
 		// Quantity
@@ -351,7 +353,7 @@ public class C_OrderLine_Handler extends AbstractInvoiceCandidateHandler
 
 		if (qtysDelivered.getStockQty().isZero())
 		{
-			final org.compiere.model.I_C_OrderLine orderLine = icRecord.getC_OrderLine();
+			final org.compiere.model.I_C_OrderLine orderLine = prefetchContext.getOrderLine(icRecord);
 			if (orderLine.getQtyDelivered().signum() > 0)
 			{
 				// fallback to C_OrderLine.QtyDelivered...maybe there are cases with no-item-products, where we have QtyDelivered, but no shipments
@@ -371,7 +373,7 @@ public class C_OrderLine_Handler extends AbstractInvoiceCandidateHandler
 		I_M_InOut firstInOut = null;
 		for (final I_C_InvoiceCandidate_InOutLine icIol : icIols)
 		{
-			final I_M_InOut inOut = icIol.getM_InOutLine().getM_InOut();
+			final I_M_InOut inOut = prefetchContext.getInOut(prefetchContext.getInOutLine(icIol));
 
 			// Consider only completed shipments/receipts
 			if (!DocStatus.ofCode(inOut.getDocStatus()).isCompletedOrClosed())
@@ -396,7 +398,8 @@ public class C_OrderLine_Handler extends AbstractInvoiceCandidateHandler
 	@Override
 	public PriceAndTax calculatePriceAndTax(final I_C_Invoice_Candidate ic)
 	{
-		final I_C_OrderLine orderLine = InterfaceWrapperHelper.create(ic.getC_OrderLine(), I_C_OrderLine.class);
+		final InvoiceCandidatesPrefetchContext prefetchContext = InvoiceCandidatesPrefetchContext.current();
+		final I_C_OrderLine orderLine = InterfaceWrapperHelper.create(prefetchContext.getOrderLine(ic), I_C_OrderLine.class);
 
 		// ts: we *must* use the order line's data
 		final PriceAndTaxBuilder priceAndTax = PriceAndTax.builder()
@@ -404,7 +407,7 @@ public class C_OrderLine_Handler extends AbstractInvoiceCandidateHandler
 				.priceEntered(orderLine.getPriceEntered())
 				.priceActual(orderLine.getPriceActual())
 				.priceUOMId(UomId.ofRepoIdOrNull(orderLine.getPrice_UOM_ID()))
-				.taxIncluded(orderLine.getC_Order().isTaxIncluded());
+				.taxIncluded(prefetchContext.getOrder(orderLine).isTaxIncluded());
 
 		//
 		// Percent Group Compensation Line
@@ -429,13 +432,13 @@ public class C_OrderLine_Handler extends AbstractInvoiceCandidateHandler
 	@Override
 	public void setBPartnerData(final I_C_Invoice_Candidate ic)
 	{
-		final org.compiere.model.I_C_OrderLine orderLine = ic.getC_OrderLine();
+		final org.compiere.model.I_C_OrderLine orderLine = InvoiceCandidatesPrefetchContext.current().getOrderLine(ic);
 		setBPartnerData(ic, orderLine);
 	}
 
 	private void setBPartnerData(@NonNull final I_C_Invoice_Candidate ic, @NonNull final org.compiere.model.I_C_OrderLine orderLine)
 	{
-		final org.compiere.model.I_C_Order order = orderLine.getC_Order();
+		final org.compiere.model.I_C_Order order = InvoiceCandidatesPrefetchContext.current().getOrder(orderLine);
 		ic.setBill_BPartner_ID(order.getBill_BPartner_ID());
 		ic.setBill_Location_ID(order.getBill_Location_ID());
 		ic.setBill_User_ID(order.getBill_User_ID());
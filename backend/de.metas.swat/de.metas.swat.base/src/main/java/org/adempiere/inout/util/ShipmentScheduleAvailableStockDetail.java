@@ -87,6 +87,23 @@ public class ShipmentScheduleAvailableStockDetail
 				: ImmutableListMultimap.of();
 	}
 
+	/**
+	 * @return a new instance with the current quantities of this one, which can be allocated independently
+	 */
+	ShipmentScheduleAvailableStockDetail copy()
+	{
+		return new ShipmentScheduleAvailableStockDetail(
+				productId,
+				warehouseId,
+				storageAttributesKey,
+				qtyOnHand,
+				pickingBOM,
+				componentStockDetails.values()
+						.stream()
+						.map(ShipmentScheduleAvailableStockDetail::copy)
+						.collect(ImmutableList.toImmutableList()));
+	}
+
 	public BigDecimal getQtyAvailable()
 	{
 		BigDecimal qtyOnHand = this.qtyOnHand;
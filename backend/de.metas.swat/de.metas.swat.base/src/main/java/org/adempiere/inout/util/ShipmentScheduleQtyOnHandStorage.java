@@ -70,6 +70,20 @@ public class ShipmentScheduleQtyOnHandStorage
 		this.stockDetails = ImmutableList.copyOf(stockDetails);
 	}
 
+	/**
+	 * @return a new storage with the current quantities of this one, without querying the stock again.
+	 *         Allocating on the copy does not change this storage.
+	 */
+	public ShipmentScheduleQtyOnHandStorage copy()
+	{
+		final List<ShipmentScheduleAvailableStockDetail> stockDetailsCopy = stockDetails
+				.stream()
+				.map(ShipmentScheduleAvailableStockDetail::copy)
+				.collect(ImmutableList.toImmutableList());
+
+		return new ShipmentScheduleQtyOnHandStorage(stockDetailsCopy);
+	}
+
 	private final ImmutableList<ShipmentScheduleAvailableStockDetail> toStockDetails(
 			final List<I_M_ShipmentSchedule> shipmentSchedules,
 			final StockRepository stockRepository)
@@ -152,7 +166,10 @@ public class ShipmentScheduleQtyOnHandStorage
 
 	}
 
-	private Stream<StockDataQuery> getMaterialQueriesIncludingPickingBOMComponents(@NonNull final I_M_ShipmentSchedule shipmentScheduleRecord)
+	/**
+	 * @return the queries of the stock which the given schedule might allocate, i.e. for its own product and for the components of its picking BOM (if any)
+	 */
+	public Stream<StockDataQuery> getMaterialQueriesIncludingPickingBOMComponents(@NonNull final I_M_ShipmentSchedule shipmentScheduleRecord)
 	{
 		try (final MDCCloseable shipmentScheduleMDC = TableRecordMDC.putTableRecordReference(shipmentScheduleRecord))
 		{
@@ -0,0 +1,81 @@
+package de.metas.inoutcandidate.api.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+/*
+ * #%L
+ * de.metas.swat.base
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class ShipmentScheduleSegmentPartitionerTest
+{
+	@Test
+	public void itemsSharingSegmentKeysTransitively_samePartition()
+	{
+		final Map<String, List<String>> segmentKeysByItem = ImmutableMap.<String, List<String>> builder()
+				.put("sched1", ImmutableList.of("product1", "order1"))
+				.put("sched2", ImmutableList.of("product2", "order2"))
+				.put("sched3", ImmutableList.of("product3", "order1"))
+				.put("sched4", ImmutableList.of("product3"))
+				.put("sched5", ImmutableList.of("product2"))
+				.build();
+
+		final List<List<String>> partitions = ShipmentScheduleSegmentPartitioner.partition(
+				ImmutableList.of("sched1", "sched2", "sched3", "sched4", "sched5"),
+				segmentKeysByItem::get,
+				4);
+
+		assertThat(partitions).containsExactlyInAnyOrder(
+				ImmutableList.of("sched1", "sched3", "sched4"),
+				ImmutableList.of("sched2", "sched5"));
+	}
+
+	@Test
+	public void independentItems_distributedToMaxPartitions_preservingOrder()
+	{
+		final List<List<String>> partitions = ShipmentScheduleSegmentPartitioner.partition(
+				ImmutableList.of("sched1", "sched2", "sched3", "sched4", "sched5"),
+				item -> ImmutableList.of(item),
+				2);
+
+		assertThat(partitions).hasSize(2);
+		assertThat(partitions.get(0)).hasSize(3).isSorted();
+		assertThat(partitions.get(1)).hasSize(2).isSorted();
+	}
+
+	@Test
+	public void maxPartitionsOne_allItemsInOnePartition()
+	{
+		final List<List<String>> partitions = ShipmentScheduleSegmentPartitioner.partition(
+				ImmutableList.of("sched2", "sched1"),
+				item -> ImmutableList.of(item),
+				1);
+
+		assertThat(partitions).containsExactly(ImmutableList.of("sched2", "sched1"));
+	}
+}
@@ -1,27 +1,61 @@
 package de.metas.inoutcandidate.api.impl;
 
+import static java.math.BigDecimal.TEN;
 import static org.adempiere.model.InterfaceWrapperHelper.newInstance;
+import static org.adempiere.model.InterfaceWrapperHelper.saveRecord;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collectors;
 
+import org.adempiere.ad.dao.IQueryBL;
+import org.adempiere.ad.trx.api.ITrxManager;
+import org.adempiere.exceptions.AdempiereException;
 import org.adempiere.inout.util.DeliveryGroupCandidate;
 import org.adempiere.inout.util.DeliveryGroupCandidateGroupId;
+import org.adempiere.inout.util.ShipmentScheduleQtyOnHandStorage;
+import org.adempiere.inout.util.ShipmentScheduleQtyOnHandStorageFactory;
 import org.adempiere.test.AdempiereTestHelper;
 import org.adempiere.util.lang.impl.TableRecordReference;
 import org.adempiere.warehouse.WarehouseId;
 import org.compiere.model.I_C_Order;
+import org.compiere.model.I_M_Product;
 import org.compiere.util.Env;
+import org.compiere.util.Util.ArrayKey;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import com.google.common.collect.ImmutableList;
+
 import de.metas.inoutcandidate.api.OlAndSched;
+import de.metas.inoutcandidate.api.impl.shipmentschedule_test_specs.OrderLineSpec;
+import de.metas.inoutcandidate.api.impl.shipmentschedule_test_specs.OrderSpec;
+import de.metas.inoutcandidate.api.impl.shipmentschedule_test_specs.PickFromOrderBOMLineSpec;
+import de.metas.inoutcandidate.api.impl.shipmentschedule_test_specs.PickFromOrderSpec;
+import de.metas.inoutcandidate.api.impl.shipmentschedule_test_specs.ProductSpec;
+import de.metas.inoutcandidate.api.impl.shipmentschedule_test_specs.ShipmentScheduleSpec;
+import de.metas.inoutcandidate.api.impl.shipmentschedule_test_specs.TestSetupSpec;
+import de.metas.inoutcandidate.api.impl.shipmentschedule_test_specs.TestSetupSpecHelper;
+import de.metas.inoutcandidate.api.impl.shipmentschedule_test_specs.UomSpec;
 import de.metas.inoutcandidate.model.I_M_ShipmentSchedule;
+import de.metas.inoutcandidate.picking_bom.PickingBOMService;
 import de.metas.inoutcandidate.spi.ShipmentScheduleReferencedLine;
+import de.metas.inoutcandidate.spi.ShipmentScheduleReferencedLineFactory;
+import de.metas.material.cockpit.stock.StockRepository;
 import de.metas.material.event.commons.OrderLineDescriptor;
+import de.metas.order.DeliveryRule;
+import de.metas.product.ProductId;
 import de.metas.shipping.ShipperId;
+import de.metas.util.Services;
+import lombok.Builder;
+import lombok.Value;
 
 /*
  * #%L
@@ -109,4 +143,171 @@ public class ShipmentScheduleUpdaterTest
 		shipmentScheduleUpdater.updateProcessedFlag(sched);
 		assertThat(sched.isProcessed()).isTrue();
 	}
+
+	@Test
+	public void extractSegmentKeys()
+	{
+		final ImmutableList<OlAndSched> olAndScheds = TestSetupSpecHelper.setup(TestSetupSpec.builder()
+				.uom(UomSpec.builder().name("Each").build())
+				.product(ProductSpec.builder().value("prod1").uomValue("Each").stocked(true).build())
+				.order(OrderSpec.builder().value("order1").build())
+				.orderLine(OrderLineSpec.builder().value("ol1").product("prod1").order("order1").qtyOrdered(TEN).build())
+				.shipmentSchedule(ShipmentScheduleSpec.builder().product("prod1").order("order1").orderLine("ol1").qtyOrdered(TEN).deliveryRule(DeliveryRule.AVAILABILITY).build())
+				.build());
+
+		final Set<ArrayKey> segmentKeys = shipmentScheduleUpdater.extractSegmentKeys(olAndScheds.get(0), createQtyOnHands(olAndScheds));
+
+		assertThat(segmentKeys).containsExactlyInAnyOrder(
+				ArrayKey.of("Stock", productIdByValue("prod1"), WAREHOUSE_ID),
+				ArrayKey.of("DeliveryGroup", WAREHOUSE_ID, "BPartnerAddress_Override"));
+	}
+
+	@Test
+	public void extractSegmentKeys_pickingBOMComponents()
+	{
+		final ImmutableList<OlAndSched> olAndScheds = TestSetupSpecHelper.setup(TestSetupSpec.builder()
+				.uom(UomSpec.builder().name("Each").build())
+				.product(ProductSpec.builder().value("christmasPack").uomValue("Each").stocked(true).build())
+				.product(ProductSpec.builder().value("chocolate").uomValue("Each").stocked(true).build())
+				.product(ProductSpec.builder().value("socks").uomValue("Each").stocked(true).build())
+				.order(OrderSpec.builder().value("order1").build())
+				.orderLine(OrderLineSpec.builder().value("ol1").product("christmasPack").order("order1").qtyOrdered(TEN).build())
+				.shipmentSchedule(ShipmentScheduleSpec.builder().product("christmasPack").order("order1").orderLine("ol1").qtyOrdered(TEN).deliveryRule(DeliveryRule.AVAILABILITY)
+						.pickFromOrder(PickFromOrderSpec.builder()
+								.mainProduct("christmasPack")
+								.mainProductUOM("Each")
+								.bomLine(PickFromOrderBOMLineSpec.builder().product("chocolate").uom("Each").qtyForOneFinishedGood(new BigDecimal("5")).build())
+								.bomLine(PickFromOrderBOMLineSpec.builder().product("socks").uom("Each").qtyForOneFinishedGood(new BigDecimal("3")).build())
+								.build())
+						.build())
+				.build());
+
+		final Set<ArrayKey> segmentKeys = shipmentScheduleUpdater.extractSegmentKeys(olAndScheds.get(0), createQtyOnHands(olAndScheds));
+
+		// the schedule shares the stock of its components with other schedules which need the same components
+		assertThat(segmentKeys).containsExactlyInAnyOrder(
+				ArrayKey.of("Stock", productIdByValue("christmasPack"), WAREHOUSE_ID),
+				ArrayKey.of("Stock", productIdByValue("chocolate"), WAREHOUSE_ID),
+				ArrayKey.of("Stock", productIdByValue("socks"), WAREHOUSE_ID),
+				ArrayKey.of("DeliveryGroup", WAREHOUSE_ID, "BPartnerAddress_Override"));
+	}
+
+	private static ShipmentScheduleQtyOnHandStorage createQtyOnHands(final List<OlAndSched> olAndScheds)
+	{
+		return new ShipmentScheduleQtyOnHandStorageFactory(new StockRepository()).ofOlAndScheds(olAndScheds);
+	}
+
+	private static ProductId productIdByValue(final String productValue)
+	{
+		return Services.get(IQueryBL.class)
+				.createQueryBuilder(I_M_Product.class)
+				.addEqualsFilter(I_M_Product.COLUMNNAME_Value, productValue)
+				.create()
+				.firstIdOnly(ProductId::ofRepoIdOrNull);
+	}
+
+	@Test
+	public void updatePartitionsInParallel_eachPartitionInItsOwnThreadAndTrx()
+	{
+		final RecordingShipmentScheduleUpdater updater = new RecordingShipmentScheduleUpdater();
+		final List<List<OlAndSched>> partitions = createPartitions(3);
+		final ShipmentScheduleQtyOnHandStorage qtyOnHands = createQtyOnHands(ImmutableList.of());
+
+		updater.updatePartitionsInParallel(Env.getCtx(), partitions, qtyOnHands);
+
+		assertThat(updater.updates).hasSize(3);
+		assertThat(updater.updates.stream().map(PartitionUpdate::getPartition)).containsExactlyInAnyOrderElementsOf(partitions);
+		assertThat(updater.updates).allMatch(update -> update.getThreadName().startsWith(ShipmentScheduleUpdater.class.getSimpleName() + "-"));
+		assertThat(updater.updates).allMatch(PartitionUpdate::isRunning);
+
+		// each partition has its own transaction and allocates its own copy of the stock
+		assertThat(updater.updates.stream().map(PartitionUpdate::getTrxName).collect(Collectors.toSet())).hasSize(3).doesNotContainNull();
+		assertThat(updater.updates.stream().map(PartitionUpdate::getQtyOnHands).distinct()).hasSize(3).doesNotContain(qtyOnHands);
+
+		// the caller's thread is not flagged as running
+		assertThat(updater.isRunning()).isFalse();
+	}
+
+	@Test
+	public void updatePartitionsInParallel_morePartitionsThanThreads()
+	{
+		final RecordingShipmentScheduleUpdater updater = new RecordingShipmentScheduleUpdater();
+		final int partitionsCount = 2 * ShipmentScheduleUpdater.PARTITIONS_EXECUTOR_MaxThreads + 1;
+
+		updater.updatePartitionsInParallel(Env.getCtx(), createPartitions(partitionsCount), createQtyOnHands(ImmutableList.of()));
+
+		assertThat(updater.updates).hasSize(partitionsCount);
+		assertThat(updater.updates.stream().map(PartitionUpdate::getThreadName).distinct().count())
+				.isLessThanOrEqualTo(ShipmentScheduleUpdater.PARTITIONS_EXECUTOR_MaxThreads);
+	}
+
+	@Test
+	public void updatePartitionsInParallel_failure()
+	{
+		final RecordingShipmentScheduleUpdater updater = new RecordingShipmentScheduleUpdater();
+		final List<List<OlAndSched>> partitions = createPartitions(3);
+		updater.failingPartition = partitions.get(1);
+
+		assertThatThrownBy(() -> updater.updatePartitionsInParallel(Env.getCtx(), partitions, createQtyOnHands(ImmutableList.of())))
+				.isInstanceOf(AdempiereException.class)
+				.hasMessageContaining("partition failed");
+	}
+
+	private static List<List<OlAndSched>> createPartitions(final int count)
+	{
+		final List<List<OlAndSched>> partitions = new ArrayList<>();
+		for (int i = 0; i < count; i++)
+		{
+			final I_M_ShipmentSchedule sched = newInstance(I_M_ShipmentSchedule.class);
+			saveRecord(sched);
+
+			partitions.add(ImmutableList.of(OlAndSched.builder()
+					.shipmentSchedule(sched)
+					.deliverRequest(() -> TEN)
+					.build()));
+		}
+		return partitions;
+	}
+
+	@Value
+	@Builder
+	private static class PartitionUpdate
+	{
+		List<OlAndSched> partition;
+		String threadName;
+		String trxName;
+		ShipmentScheduleQtyOnHandStorage qtyOnHands;
+		boolean running;
+	}
+
+	/** Records the partition updates instead of updating the schedules. */
+	private static class RecordingShipmentScheduleUpdater extends ShipmentScheduleUpdater
+	{
+		private final ConcurrentLinkedQueue<PartitionUpdate> updates = new ConcurrentLinkedQueue<>();
+		private volatile List<OlAndSched> failingPartition;
+
+		private RecordingShipmentScheduleUpdater()
+		{
+			super(new ShipmentScheduleQtyOnHandStorageFactory(new StockRepository()),
+					new ShipmentScheduleReferencedLineFactory(Optional.empty()),
+					new PickingBOMService());
+		}
+
+		@Override
+		void updatePartition(final Properties ctx, final List<OlAndSched> olsAndScheds, final ShipmentScheduleQtyOnHandStorage qtyOnHands)
+		{
+			updates.add(PartitionUpdate.builder()
+					.partition(olsAndScheds)
+					.threadName(Thread.currentThread().getName())
+					.trxName(Services.get(ITrxManager.class).getThreadInheritedTrxName())
+					.qtyOnHands(qtyOnHands)
+					.running(isRunning())
+					.build());
+
+			if (olsAndScheds.equals(failingPartition))
+			{
+				throw new AdempiereException("partition failed");
+			}
+		}
+	}
 }
@@ -0,0 +1,187 @@
+package de.metas.inoutcandidate.invalidation.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.adempiere.ad.trx.api.ITrx;
+import org.adempiere.ad.trx.api.ITrxListenerManager.TrxEventTiming;
+import org.adempiere.ad.trx.api.ITrxManager;
+import org.adempiere.ad.trx.api.OnTrxMissingPolicy;
+import org.adempiere.exceptions.AdempiereException;
+import org.adempiere.model.InterfaceWrapperHelper;
+import org.adempiere.test.AdempiereTestHelper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.ImmutableSet;
+
+import de.metas.inoutcandidate.ShipmentScheduleId;
+import de.metas.inoutcandidate.model.I_M_ShipmentSchedule;
+import de.metas.product.ProductId;
+import de.metas.util.Services;
+import lombok.Value;
+
+/*
+ * #%L
+ * de.metas.swat.base
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class ShipmentScheduleInvalidationBufferTest
+{
+	private ITrxManager trxManager;
+	private RecordingRepository repository;
+
+	@BeforeEach
+	public void init()
+	{
+		AdempiereTestHelper.get().init();
+		trxManager = Services.get(ITrxManager.class);
+		repository = new RecordingRepository();
+	}
+
+	@Test
+	public void duplicatesWithinTrx_flaggedOnceOnCommit()
+	{
+		final ShipmentScheduleInvalidationStatistics.Snapshot statisticsBefore = ShipmentScheduleInvalidationStatistics.instance.getSnapshot();
+
+		final String trxName = trxManager.callInNewTrx(() -> {
+			repository.invalidateShipmentSchedules(ImmutableSet.of(ShipmentScheduleId.ofRepoId(1), ShipmentScheduleId.ofRepoId(2)));
+			repository.invalidateShipmentSchedules(ImmutableSet.of(ShipmentScheduleId.ofRepoId(2), ShipmentScheduleId.ofRepoId(3)));
+			repository.invalidateForProduct(ProductId.ofRepoId(10));
+			repository.invalidateForProduct(ProductId.ofRepoId(10));
+
+			assertThat(repository.flagged).isEmpty();
+			return trxManager.getThreadInheritedTrx(OnTrxMissingPolicy.Fail).getTrxName();
+		});
+
+		assertThat(repository.flagged).containsExactly(
+				new FlagRequest(
+						ImmutableSet.of(ShipmentScheduleId.ofRepoId(1), ShipmentScheduleId.ofRepoId(2), ShipmentScheduleId.ofRepoId(3)),
+						ImmutableSet.of(ProductId.ofRepoId(10)),
+						trxName));
+
+		final ShipmentScheduleInvalidationStatistics.Snapshot statistics = ShipmentScheduleInvalidationStatistics.instance.getSnapshot().minus(statisticsBefore);
+		assertThat(statistics.getCountSkippedPendingInTrx()).isEqualTo(2);
+	}
+
+	@Test
+	public void rollback_discardsBufferedInvalidations()
+	{
+		assertThatThrownBy(() -> trxManager.runInNewTrx(() -> {
+			repository.invalidateShipmentSchedules(ImmutableSet.of(ShipmentScheduleId.ofRepoId(1)));
+			throw new AdempiereException("rollback");
+		})).hasMessageContaining("rollback");
+
+		assertThat(repository.flagged).isEmpty();
+	}
+
+	@Test
+	public void noTrx_flaggedDirectly()
+	{
+		repository.invalidateForProduct(ProductId.ofRepoId(10));
+
+		assertThat(repository.flagged).containsExactly(new FlagRequest(ImmutableSet.of(), ImmutableSet.of(ProductId.ofRepoId(10)), ITrx.TRXNAME_None));
+	}
+
+	@Test
+	public void invalidatedWhileCommitting_flaggedDirectlyWithinTrx()
+	{
+		final String trxName = trxManager.callInNewTrx(() -> {
+			repository.invalidateShipmentSchedules(ImmutableSet.of(ShipmentScheduleId.ofRepoId(1)));
+
+			// this before-commit listener runs after the buffer was flushed
+			trxManager.getThreadInheritedTrx(OnTrxMissingPolicy.Fail)
+					.getTrxListenerManager()
+					.newEventListener(TrxEventTiming.BEFORE_COMMIT)
+					.registerHandlingMethod(trx -> repository.invalidateShipmentSchedules(ImmutableSet.of(ShipmentScheduleId.ofRepoId(2))));
+			return trxManager.getThreadInheritedTrx(OnTrxMissingPolicy.Fail).getTrxName();
+		});
+
+		// the markers must still be committed together with the changes that caused them
+		assertThat(repository.flagged).containsExactly(
+				new FlagRequest(ImmutableSet.of(ShipmentScheduleId.ofRepoId(1)), ImmutableSet.of(), trxName),
+				new FlagRequest(ImmutableSet.of(ShipmentScheduleId.ofRepoId(2)), ImmutableSet.of(), trxName));
+	}
+
+	@Test
+	public void isFlaggedForRecompute_bufferedShipmentSchedule()
+	{
+		trxManager.runInNewTrx(() -> {
+			repository.invalidateShipmentSchedules(ImmutableSet.of(ShipmentScheduleId.ofRepoId(1)));
+
+			assertThat(repository.isFlaggedForRecompute(ShipmentScheduleId.ofRepoId(1))).isTrue();
+			assertThat(repository.isFlaggedForRecompute(ShipmentScheduleId.ofRepoId(2))).isFalse();
+		});
+	}
+
+	@Test
+	public void isFlaggedForRecompute_bufferedProduct()
+	{
+		final ShipmentScheduleId shipmentScheduleId = createShipmentSchedule(ProductId.ofRepoId(10));
+		final ShipmentScheduleId otherShipmentScheduleId = createShipmentSchedule(ProductId.ofRepoId(11));
+
+		trxManager.runInNewTrx(() -> {
+			repository.invalidateForProduct(ProductId.ofRepoId(10));
+
+			assertThat(repository.isFlaggedForRecompute(shipmentScheduleId)).isTrue();
+			assertThat(repository.isFlaggedForRecompute(otherShipmentScheduleId)).isFalse();
+		});
+	}
+
+	private static ShipmentScheduleId createShipmentSchedule(final ProductId productId)
+	{
+		final I_M_ShipmentSchedule shipmentSchedule = InterfaceWrapperHelper.newInstance(I_M_ShipmentSchedule.class);
+		shipmentSchedule.setIsActive(true);
+		shipmentSchedule.setM_Product_ID(productId.getRepoId());
+		shipmentSchedule.setC_OrderLine_ID(20);
+		InterfaceWrapperHelper.saveRecord(shipmentSchedule);
+		return ShipmentScheduleId.ofRepoId(shipmentSchedule.getM_ShipmentSchedule_ID());
+	}
+
+	@Value
+	private static class FlagRequest
+	{
+		Set<ShipmentScheduleId> shipmentScheduleIds;
+		Set<ProductId> productIds;
+		String trxName;
+	}
+
+	/** Records what would be inserted into the database. */
+	private static class RecordingRepository extends ShipmentScheduleInvalidateRepository
+	{
+		private final List<FlagRequest> flagged = new ArrayList<>();
+
+		@Override
+		void flagForRecompute(final Set<ShipmentScheduleId> shipmentScheduleIds, final Set<ProductId> productIds, final String trxName)
+		{
+			flagged.add(new FlagRequest(ImmutableSet.copyOf(shipmentScheduleIds), ImmutableSet.copyOf(productIds), trxName));
+		}
+
+		@Override
+		boolean isFlaggedForRecomputeInDB(final ShipmentScheduleId shipmentScheduleId)
+		{
+			return false;
+		}
+	}
+}
@@ -0,0 +1,155 @@
+package de.metas.invoicecandidate.api;
+
+import static org.adempiere.model.InterfaceWrapperHelper.newInstance;
+import static org.adempiere.model.InterfaceWrapperHelper.saveRecord;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.adempiere.ad.trx.api.ITrxManager;
+import org.adempiere.test.AdempiereTestHelper;
+import org.compiere.model.I_C_Order;
+import org.compiere.model.I_C_OrderLine;
+import org.compiere.model.I_M_InOut;
+import org.compiere.model.I_M_InOutLine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.metas.invoicecandidate.InvoiceCandidateId;
+import de.metas.invoicecandidate.model.I_C_InvoiceCandidate_InOutLine;
+import de.metas.invoicecandidate.model.I_C_Invoice_Candidate;
+import de.metas.util.Services;
+
+/*
+ * #%L
+ * de.metas.swat.base
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class InvoiceCandidatesPrefetchContextTest
+{
+	private static final int INVOICE_CANDIDATES_COUNT = 100;
+
+	private ITrxManager trxManager;
+
+	@BeforeEach
+	public void init()
+	{
+		AdempiereTestHelper.get().init();
+		trxManager = Services.get(ITrxManager.class);
+	}
+
+	@Test
+	public void prefetch_loadsEachTableOnce()
+	{
+		final List<I_C_Invoice_Candidate> invoiceCandidates = createInvoiceCandidates();
+
+		trxManager.runInNewTrx(() -> {
+			final InvoiceCandidatesPrefetchContext prefetchContext = InvoiceCandidatesPrefetchContext.prefetch(invoiceCandidates);
+			assertThat(InvoiceCandidatesPrefetchContext.current()).isSameAs(prefetchContext);
+
+			for (final I_C_Invoice_Candidate ic : invoiceCandidates)
+			{
+				final I_C_OrderLine orderLine = prefetchContext.getOrderLine(ic);
+				assertThat(orderLine.getC_OrderLine_ID()).isEqualTo(ic.getC_OrderLine_ID());
+				assertThat(prefetchContext.getOrder(orderLine).getC_Order_ID()).isEqualTo(orderLine.getC_Order_ID());
+
+				final List<de.metas.invoicecandidate.model.I_M_InOutLine> inoutLines = prefetchContext.getInOutLines(orderLine);
+				assertThat(inoutLines).hasSize(1);
+
+				final List<I_C_InvoiceCandidate_InOutLine> iciols = prefetchContext.getInvoiceCandidateInOutLinesOrNull(InvoiceCandidateId.ofRepoId(ic.getC_Invoice_Candidate_ID()));
+				assertThat(iciols).hasSize(1);
+				assertThat(prefetchContext.getInvoiceCandidateInOutLine(ic, inoutLines.get(0))).isSameAs(iciols.get(0));
+
+				final I_M_InOutLine inoutLine = prefetchContext.getInOutLine(iciols.get(0));
+				assertThat(prefetchContext.getInOut(inoutLine).getM_InOut_ID()).isEqualTo(inoutLine.getM_InOut_ID());
+			}
+
+			// order lines, orders, inout lines, iciols and inouts; the inout lines of the iciols were already loaded via the order lines
+			assertThat(prefetchContext.getQueriesCount()).isEqualTo(5);
+			assertThat(prefetchContext.getMissesCount()).isZero();
+		});
+	}
+
+	@Test
+	public void release()
+	{
+		final List<I_C_Invoice_Candidate> invoiceCandidates = createInvoiceCandidates();
+
+		trxManager.runInNewTrx(() -> {
+			final InvoiceCandidatesPrefetchContext prefetchContext = InvoiceCandidatesPrefetchContext.prefetch(invoiceCandidates);
+			prefetchContext.release();
+
+			final InvoiceCandidatesPrefetchContext current = InvoiceCandidatesPrefetchContext.current();
+			assertThat(current).isNotSameAs(prefetchContext);
+
+			final I_C_OrderLine orderLine = current.getOrderLine(invoiceCandidates.get(0));
+			assertThat(orderLine.getC_OrderLine_ID()).isEqualTo(invoiceCandidates.get(0).getC_OrderLine_ID());
+			assertThat(current.getQueriesCount()).isZero();
+			assertThat(current.getMissesCount()).isEqualTo(1);
+		});
+	}
+
+	@Test
+	public void noTrx_notBound()
+	{
+		final List<I_C_Invoice_Candidate> invoiceCandidates = createInvoiceCandidates();
+
+		final InvoiceCandidatesPrefetchContext prefetchContext = InvoiceCandidatesPrefetchContext.prefetch(invoiceCandidates);
+
+		assertThat(prefetchContext.getOrderLine(invoiceCandidates.get(0))).isNotNull();
+		assertThat(prefetchContext.getMissesCount()).isZero();
+		assertThat(InvoiceCandidatesPrefetchContext.current()).isNotSameAs(prefetchContext);
+	}
+
+	private List<I_C_Invoice_Candidate> createInvoiceCandidates()
+	{
+		final I_C_Order order = newInstance(I_C_Order.class);
+		saveRecord(order);
+
+		final I_M_InOut inout = newInstance(I_M_InOut.class);
+		saveRecord(inout);
+
+		final List<I_C_Invoice_Candidate> invoiceCandidates = new ArrayList<>();
+		for (int i = 0; i < INVOICE_CANDIDATES_COUNT; i++)
+		{
+			final I_C_OrderLine orderLine = newInstance(I_C_OrderLine.class);
+			orderLine.setC_Order_ID(order.getC_Order_ID());
+			saveRecord(orderLine);
+
+			final I_M_InOutLine inoutLine = newInstance(I_M_InOutLine.class);
+			inoutLine.setM_InOut_ID(inout.getM_InOut_ID());
+			inoutLine.setC_OrderLine_ID(orderLine.getC_OrderLine_ID());
+			saveRecord(inoutLine);
+
+			final I_C_Invoice_Candidate ic = newInstance(I_C_Invoice_Candidate.class);
+			ic.setC_OrderLine_ID(orderLine.getC_OrderLine_ID());
+			saveRecord(ic);
+
+			final I_C_InvoiceCandidate_InOutLine iciol = newInstance(I_C_InvoiceCandidate_InOutLine.class);
+			iciol.setC_Invoice_Candidate_ID(ic.getC_Invoice_Candidate_ID());
+			iciol.setM_InOutLine_ID(inoutLine.getM_InOutLine_ID());
+			saveRecord(iciol);
+
+			invoiceCandidates.add(ic);
+		}
+		return invoiceCandidates;
+	}
+}
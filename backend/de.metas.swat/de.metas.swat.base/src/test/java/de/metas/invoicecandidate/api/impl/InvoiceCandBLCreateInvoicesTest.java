@@ -25,6 +25,7 @@ package de.metas.invoicecandidate.api.impl;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -34,6 +35,8 @@ import org.adempiere.ad.trx.api.ITrx;
 import org.adempiere.ad.wrapper.POJOLookupMap;
 import org.adempiere.ad.wrapper.POJOWrapper;
 import org.adempiere.model.InterfaceWrapperHelper;
+import org.adempiere.service.ClientId;
+import org.adempiere.service.ISysConfigBL;
 import org.adempiere.test.AdempiereTestWatcher;
 import org.compiere.SpringContextHolder;
 import org.compiere.model.I_AD_Note;
@@ -43,6 +46,8 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 
+import com.google.common.collect.Iterators;
+
 import de.metas.bpartner.BPartnerLocationId;
 import de.metas.bpartner.service.IBPartnerBL;
 import de.metas.bpartner.service.IBPartnerStatisticsUpdater;
@@ -63,6 +68,7 @@ import de.metas.invoicecandidate.model.I_C_Invoice_Candidate_Recompute;
 import de.metas.invoicecandidate.spi.impl.aggregator.standard.DefaultAggregator;
 import de.metas.money.MoneyService;
 import de.metas.order.IOrderLineBL;
+import de.metas.organization.OrgId;
 import de.metas.user.UserRepository;
 import de.metas.util.Check;
 import de.metas.util.Services;
@@ -137,9 +143,30 @@ public class InvoiceCandBLCreateInvoicesTest
 		}
 	}
 
+	/** Number of invoice candidates which were fetched from the iterator passed to {@link InvoiceCandBLCreateInvoices#generateInvoices(java.util.Iterator)} */
+	private static int countInvoiceCandidatesFetched;
+
+	/**
+	 * Records {@link #countInvoiceCandidatesFetched} at the time each invoice is created.
+	 */
+	public static class FetchCountRecordingInvoiceGenerator extends MockedDummyInvoiceGenerator
+	{
+		private static final List<Integer> countInvoiceCandidatesFetchedOnInvoice = new ArrayList<>();
+
+		@Override
+		public void run(final String localTrxName) throws Exception
+		{
+			countInvoiceCandidatesFetchedOnInvoice.add(countInvoiceCandidatesFetched);
+			super.run(localTrxName);
+		}
+	}
+
 	@BeforeEach
 	public void init()
 	{
+		countInvoiceCandidatesFetched = 0;
+		FetchCountRecordingInvoiceGenerator.countInvoiceCandidatesFetchedOnInvoice.clear();
+
 		icTestSupport = new AbstractICTestSupport();
 		icTestSupport.initStuff();
 		icTestSupport.registerModelInterceptors();
@@ -421,4 +448,81 @@ public class InvoiceCandBLCreateInvoicesTest
 		assertThat(discount_override2).isEqualByComparingTo("0");
 		assertThat(discount_override2After).isEqualByComparingTo("0");
 	}
+
+	private I_C_Invoice_Candidate createInvoiceCandidate(final BPartnerLocationId billBPartnerAndLocationId)
+	{
+		return icTestSupport.createInvoiceCandidate()
+				.setBillBPartnerAndLocationId(billBPartnerAndLocationId)
+				.setPriceEntered(10)
+				.setQtyOrdered(3)
+				.setManual(false)
+				.setSOTrx(true)
+				.build();
+	}
+
+	private IInvoiceGenerateResult generateInvoicesStreaming(final List<I_C_Invoice_Candidate> invoiceCandidates)
+	{
+		Services.get(ISysConfigBL.class).setValue(InvoiceCandBLCreateInvoices.SYSCONFIG_StreamingAggregation, true, ClientId.SYSTEM, OrgId.ANY);
+		invoiceCandBLCreateInvoices.setInvoiceGeneratorClass(FetchCountRecordingInvoiceGenerator.class);
+
+		final IInvoiceGenerateResult result = invoiceCandBL.createInvoiceGenerateResult(true); // shallStoreInvoices=true
+		invoiceCandBLCreateInvoices
+				.setContext(Env.getCtx(), ITrx.TRXNAME_ThreadInherited)
+				.setCollector(result)
+				.setIgnoreInvoiceSchedule(true)
+				.generateInvoices(Iterators.transform(invoiceCandidates.iterator(), ic -> {
+					countInvoiceCandidatesFetched++;
+					return ic;
+				}));
+		return result;
+	}
+
+	/**
+	 * Test: with streaming aggregation, the invoice of a header aggregation key is created as soon as the next key shows up
+	 */
+	@Test
+	public void test_streamingAggregation_invoiceOnKeyChange()
+	{
+		final I_C_Invoice_Candidate ic1 = createInvoiceCandidate(BPartnerLocationId.ofRepoId(1, 2));
+		final I_C_Invoice_Candidate ic2 = createInvoiceCandidate(BPartnerLocationId.ofRepoId(1, 2));
+		final I_C_Invoice_Candidate ic3 = createInvoiceCandidate(BPartnerLocationId.ofRepoId(3, 4));
+		final List<I_C_Invoice_Candidate> invoiceCandidates = Arrays.asList(ic1, ic2, ic3);
+		icTestSupport.updateInvalid(invoiceCandidates);
+
+		assertThat(ic2.getHeaderAggregationKey()).isEqualTo(ic1.getHeaderAggregationKey());
+		assertThat(ic3.getHeaderAggregationKey()).isNotEqualTo(ic1.getHeaderAggregationKey());
+
+		final IInvoiceGenerateResult result = generateInvoicesStreaming(invoiceCandidates);
+
+		assertThat(result.getInvoiceCount()).as("invoice count for " + result).isEqualTo(2);
+
+		// the first invoice was created when ic3 was fetched, i.e. before the end of the iterator
+		assertThat(FetchCountRecordingInvoiceGenerator.countInvoiceCandidatesFetchedOnInvoice).containsExactly(3, 3);
+		assertThat(invoiceCandidates).noneMatch(I_C_Invoice_Candidate::isError);
+	}
+
+	/**
+	 * Test: with streaming aggregation, a candidate whose key's invoice was already created is flagged as error instead of getting its own invoice
+	 */
+	@Test
+	public void test_streamingAggregation_candidatesNotOrderedByKey()
+	{
+		final I_C_Invoice_Candidate ic1 = createInvoiceCandidate(BPartnerLocationId.ofRepoId(1, 2));
+		final I_C_Invoice_Candidate ic2 = createInvoiceCandidate(BPartnerLocationId.ofRepoId(3, 4));
+		final I_C_Invoice_Candidate ic3 = createInvoiceCandidate(BPartnerLocationId.ofRepoId(1, 2));
+		final List<I_C_Invoice_Candidate> invoiceCandidates = Arrays.asList(ic1, ic2, ic3);
+		icTestSupport.updateInvalid(invoiceCandidates);
+
+		final IInvoiceGenerateResult result = generateInvoicesStreaming(invoiceCandidates);
+
+		assertThat(result.getInvoiceCount()).as("invoice count for " + result).isEqualTo(2);
+
+		InterfaceWrapperHelper.refresh(ic1);
+		InterfaceWrapperHelper.refresh(ic2);
+		InterfaceWrapperHelper.refresh(ic3);
+		assertThat(ic1.isError()).isFalse();
+		assertThat(ic2.isError()).isFalse();
+		assertThat(ic3.isError()).isTrue();
+		assertThat(ic3.getErrorMsg()).contains("not ordered by HeaderAggregationKey");
+	}
 }
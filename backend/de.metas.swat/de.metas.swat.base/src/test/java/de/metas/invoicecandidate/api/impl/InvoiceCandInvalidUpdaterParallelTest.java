@@ -0,0 +1,202 @@
+package de.metas.invoicecandidate.api.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.adempiere.ad.dao.IQueryBL;
+import org.adempiere.ad.trx.api.ITrx;
+import org.adempiere.ad.trx.api.ITrxManager;
+import org.adempiere.exceptions.AdempiereException;
+import org.adempiere.model.InterfaceWrapperHelper;
+import org.adempiere.service.ClientId;
+import org.adempiere.service.ISysConfigBL;
+import org.adempiere.util.lang.IAutoCloseable;
+import org.compiere.util.Env;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import de.metas.ShutdownListener;
+import de.metas.StartupListener;
+import de.metas.currency.CurrencyRepository;
+import de.metas.invoicecandidate.AbstractICTestSupport;
+import de.metas.invoicecandidate.internalbusinesslogic.InvoiceCandidateRecordService;
+import de.metas.invoicecandidate.model.I_C_Invoice_Candidate;
+import de.metas.invoicecandidate.model.I_C_Invoice_Candidate_Recompute;
+import de.metas.invoicecandidate.spi.impl.PlainInvoiceCandidateHandler;
+import de.metas.money.MoneyService;
+import de.metas.organization.OrgId;
+import de.metas.util.Services;
+
+/*
+ * #%L
+ * de.metas.swat.base
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Tests the parallel update of {@link InvoiceCandInvalidUpdater}, i.e. when {@link InvoiceCandInvalidUpdater#SYSCONFIG_Parallelism} is greater than one.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = { StartupListener.class, ShutdownListener.class, MoneyService.class, CurrencyRepository.class, InvoiceCandidateRecordService.class })
+public class InvoiceCandInvalidUpdaterParallelTest extends AbstractICTestSupport
+{
+	private static final int BPARTNERS_COUNT = 3;
+	private static final int CANDIDATES_PER_BPARTNER = 5;
+
+	/**
+	 * Records the threads in which the invoice candidates were updated and fails for the candidates in {@link #failingCandidateIds}.
+	 */
+	public static class RecordingInvoiceCandidateHandler extends PlainInvoiceCandidateHandler
+	{
+		private static final Map<Integer, Set<String>> threadNamesByBillBPartnerId = new ConcurrentHashMap<>();
+		private static final Set<Integer> updatedCandidateIds = ConcurrentHashMap.newKeySet();
+		private static final Set<Integer> failingCandidateIds = ConcurrentHashMap.newKeySet();
+
+		private static void reset()
+		{
+			threadNamesByBillBPartnerId.clear();
+			updatedCandidateIds.clear();
+			failingCandidateIds.clear();
+		}
+
+		@Override
+		public void setDeliveredData(final I_C_Invoice_Candidate ic)
+		{
+			threadNamesByBillBPartnerId
+					.computeIfAbsent(ic.getBill_BPartner_ID(), bpartnerId -> ConcurrentHashMap.newKeySet())
+					.add(Thread.currentThread().getName());
+			updatedCandidateIds.add(ic.getC_Invoice_Candidate_ID());
+
+			if (failingCandidateIds.contains(ic.getC_Invoice_Candidate_ID()))
+			{
+				throw new AdempiereException("test failure");
+			}
+		}
+	}
+
+	private List<I_C_Invoice_Candidate> invoiceCandidates;
+
+	@Before
+	public void init()
+	{
+		RecordingInvoiceCandidateHandler.reset();
+
+		plainHandler.setClassname(RecordingInvoiceCandidateHandler.class.getName());
+		InterfaceWrapperHelper.save(plainHandler);
+
+		final ISysConfigBL sysConfigBL = Services.get(ISysConfigBL.class);
+		sysConfigBL.setValue(InvoiceCandInvalidUpdater.SYSCONFIG_Parallelism, BPARTNERS_COUNT, ClientId.SYSTEM, OrgId.ANY);
+		sysConfigBL.setValue(InvoiceCandInvalidUpdater.SYSCONFIG_ItemsPerBatch, 2, ClientId.SYSTEM, OrgId.ANY);
+
+		invoiceCandidates = new ArrayList<>();
+		for (int i = 0; i < CANDIDATES_PER_BPARTNER; i++)
+		{
+			for (int billBPartnerId = 1; billBPartnerId <= BPARTNERS_COUNT; billBPartnerId++)
+			{
+				invoiceCandidates.add(createInvoiceCandidate()
+						.setBillBPartnerId(billBPartnerId)
+						.setPriceEntered(1)
+						.setQtyOrdered(1)
+						.setManual(true)
+						.setSOTrx(true)
+						.build());
+			}
+		}
+	}
+
+	private void updateInvalid(final String trxName)
+	{
+		try (final IAutoCloseable updateInProgressCloseable = invoiceCandBL.setUpdateProcessInProgress())
+		{
+			invoiceCandBL.updateInvalid()
+					.setContext(Env.getCtx(), trxName)
+					.setTaggedWithAnyTag()
+					.update();
+		}
+
+		invoiceCandidates.forEach(InterfaceWrapperHelper::refresh);
+	}
+
+	private boolean isRecomputeMarkersLeft()
+	{
+		return Services.get(IQueryBL.class)
+				.createQueryBuilder(I_C_Invoice_Candidate_Recompute.class)
+				.create()
+				.anyMatch();
+	}
+
+	@Test
+	public void sameBillBPartner_sameThread()
+	{
+		updateInvalid(ITrx.TRXNAME_None);
+
+		assertThat(RecordingInvoiceCandidateHandler.updatedCandidateIds).hasSize(BPARTNERS_COUNT * CANDIDATES_PER_BPARTNER);
+		assertThat(RecordingInvoiceCandidateHandler.threadNamesByBillBPartnerId).hasSize(BPARTNERS_COUNT);
+		for (final Set<String> threadNames : RecordingInvoiceCandidateHandler.threadNamesByBillBPartnerId.values())
+		{
+			assertThat(threadNames).hasSize(1);
+			assertThat(threadNames.iterator().next()).startsWith(InvoiceCandInvalidUpdater.class.getSimpleName() + "-");
+		}
+
+		assertThat(invoiceCandidates).noneMatch(I_C_Invoice_Candidate::isError);
+		assertThat(isRecomputeMarkersLeft()).isFalse();
+	}
+
+	@Test
+	public void failingCandidate_doesNotStopTheOtherCandidates()
+	{
+		final I_C_Invoice_Candidate failingCandidate = invoiceCandidates.get(0);
+		RecordingInvoiceCandidateHandler.failingCandidateIds.add(failingCandidate.getC_Invoice_Candidate_ID());
+
+		updateInvalid(ITrx.TRXNAME_None);
+
+		// the other candidates of the failing candidate's partition and of all the other partitions were updated
+		assertThat(RecordingInvoiceCandidateHandler.updatedCandidateIds).hasSize(BPARTNERS_COUNT * CANDIDATES_PER_BPARTNER);
+
+		assertThat(failingCandidate.isError()).isTrue();
+		assertThat(failingCandidate.getErrorMsg()).contains("test failure");
+		assertThat(invoiceCandidates.subList(1, invoiceCandidates.size())).noneMatch(I_C_Invoice_Candidate::isError);
+
+		// the failed candidate is not flagged for recompute anymore; it keeps its error until it is invalidated again
+		assertThat(isRecomputeMarkersLeft()).isFalse();
+	}
+
+	@Test
+	public void callerTrx_notParallel()
+	{
+		final String callerThreadName = Thread.currentThread().getName();
+
+		Services.get(ITrxManager.class).runInNewTrx(localTrxName -> updateInvalid(localTrxName));
+
+		assertThat(RecordingInvoiceCandidateHandler.updatedCandidateIds).hasSize(BPARTNERS_COUNT * CANDIDATES_PER_BPARTNER);
+		for (final Set<String> threadNames : RecordingInvoiceCandidateHandler.threadNamesByBillBPartnerId.values())
+		{
+			assertThat(threadNames).containsExactly(callerThreadName);
+		}
+		assertThat(isRecomputeMarkersLeft()).isFalse();
+	}
+}
@@ -0,0 +1,147 @@
+package de.metas.invoicecandidate.api.impl;
+
+import static java.math.BigDecimal.ONE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.adempiere.ad.trx.api.ITrx;
+import org.adempiere.ad.wrapper.POJOLookupMap;
+import org.adempiere.service.ClientId;
+import org.adempiere.service.ISysConfigBL;
+import org.adempiere.util.lang.IAutoCloseable;
+import org.compiere.model.I_C_Order;
+import org.compiere.model.I_C_OrderLine;
+import org.compiere.util.Env;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.google.common.collect.ImmutableList;
+
+import de.metas.ShutdownListener;
+import de.metas.StartupListener;
+import de.metas.currency.CurrencyRepository;
+import de.metas.inout.model.I_M_InOut;
+import de.metas.invoicecandidate.AbstractICTestSupport;
+import de.metas.invoicecandidate.api.IInvoiceCandDAO;
+import de.metas.invoicecandidate.api.InvoiceCandidatesPrefetchContext;
+import de.metas.invoicecandidate.internalbusinesslogic.InvoiceCandidateRecordService;
+import de.metas.invoicecandidate.model.I_C_InvoiceCandidate_InOutLine;
+import de.metas.invoicecandidate.model.I_C_Invoice_Candidate;
+import de.metas.invoicecandidate.model.I_M_InOutLine;
+import de.metas.money.MoneyService;
+import de.metas.organization.OrgId;
+import de.metas.quantity.StockQtyAndUOMQtys;
+import de.metas.util.Services;
+
+/*
+ * #%L
+ * de.metas.swat.base
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Counts the queries which the in-memory database gets while {@link InvoiceCandInvalidUpdater} updates invoice candidates, with and without {@link InvoiceCandidatesPrefetchContext}.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = { StartupListener.class, ShutdownListener.class, MoneyService.class, CurrencyRepository.class, InvoiceCandidateRecordService.class })
+public class InvoiceCandInvalidUpdaterPrefetchTest extends AbstractICTestSupport
+{
+	private static final int INVOICE_CANDIDATES_COUNT = 100;
+
+	/** The tables whose records are prefetched */
+	private static final ImmutableList<String> PREFETCHED_TABLE_NAMES = ImmutableList.of(
+			I_C_OrderLine.Table_Name,
+			I_C_Order.Table_Name,
+			I_M_InOutLine.Table_Name,
+			I_M_InOut.Table_Name,
+			I_C_InvoiceCandidate_InOutLine.Table_Name);
+
+	private List<I_C_Invoice_Candidate> invoiceCandidates;
+
+	@Before
+	public void init()
+	{
+		invoiceCandidates = new ArrayList<>();
+		for (int i = 1; i <= INVOICE_CANDIDATES_COUNT; i++)
+		{
+			final I_C_Invoice_Candidate ic = createInvoiceCandidate()
+					.setBillBPartnerId(1)
+					.setPriceEntered(1)
+					.setQtyOrdered(3)
+					.setSOTrx(true)
+					.setOrderDocNo("order" + i)
+					.setOrderLineDescription("orderLine" + i)
+					.build();
+
+			final I_M_InOut inout = createInOut(ic.getBill_BPartner_ID(), ic.getC_Order_ID(), "inout" + i);
+			createInvoiceCandidateInOutLine(ic, inout, StockQtyAndUOMQtys.create(ONE, productId, ONE, uomId), "inoutLine" + i);
+			completeInOut(inout);
+
+			invoiceCandidates.add(ic);
+		}
+	}
+
+	@Test
+	public void prefetch_queriesTheReferencedRecordsOncePerChunk()
+	{
+		final int queriesWithoutPrefetch = updateAllAndCountQueries(false);
+		final int queriesWithPrefetch = updateAllAndCountQueries(true);
+
+		final String description = "queries of " + PREFETCHED_TABLE_NAMES + " to update " + INVOICE_CANDIDATES_COUNT + " invoice candidates"
+				+ ": without prefetch=" + queriesWithoutPrefetch
+				+ ", with prefetch=" + queriesWithPrefetch;
+
+		// without prefetching, each candidate loads at least its order line, its inout lines and its associations
+		assertThat(queriesWithoutPrefetch).as(description).isGreaterThanOrEqualTo(3 * INVOICE_CANDIDATES_COUNT);
+
+		// with prefetching, those are loaded once for the whole chunk
+		assertThat(queriesWithPrefetch).as(description).isLessThanOrEqualTo(queriesWithoutPrefetch - 3 * INVOICE_CANDIDATES_COUNT + PREFETCHED_TABLE_NAMES.size());
+	}
+
+	/**
+	 * Invalidates all our candidates and updates them in one chunk, like the update process does.
+	 *
+	 * @return number of queries of the {@link #PREFETCHED_TABLE_NAMES}
+	 */
+	private int updateAllAndCountQueries(final boolean prefetch)
+	{
+		Services.get(ISysConfigBL.class).setValue(InvoiceCandInvalidUpdater.SYSCONFIG_Prefetch, prefetch, ClientId.SYSTEM, OrgId.ANY);
+		Services.get(IInvoiceCandDAO.class).invalidateCands(invoiceCandidates);
+
+		final POJOLookupMap db = POJOLookupMap.get();
+		db.resetQueriesCount();
+
+		try (final IAutoCloseable updateInProgressCloseable = invoiceCandBL.setUpdateProcessInProgress())
+		{
+			invoiceCandBL.updateInvalid()
+					.setContext(Env.getCtx(), ITrx.TRXNAME_None)
+					.setTaggedWithAnyTag()
+					.update();
+		}
+
+		return PREFETCHED_TABLE_NAMES.stream()
+				.mapToInt(db::getQueriesCount)
+				.sum();
+	}
+}
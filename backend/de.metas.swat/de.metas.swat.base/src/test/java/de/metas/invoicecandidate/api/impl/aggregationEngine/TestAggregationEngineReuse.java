@@ -0,0 +1,98 @@
+package de.metas.invoicecandidate.api.impl.aggregationEngine;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.List;
+
+import org.adempiere.model.InterfaceWrapperHelper;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import de.metas.ShutdownListener;
+import de.metas.StartupListener;
+import de.metas.bpartner.BPartnerLocationId;
+import de.metas.currency.CurrencyRepository;
+import de.metas.invoicecandidate.C_Invoice_Candidate_Builder;
+import de.metas.invoicecandidate.api.IInvoiceHeader;
+import de.metas.invoicecandidate.api.impl.AggregationEngine;
+import de.metas.invoicecandidate.internalbusinesslogic.InvoiceCandidateRecordService;
+import de.metas.invoicecandidate.model.I_C_Invoice_Candidate;
+import de.metas.money.MoneyService;
+
+/*
+ * #%L
+ * de.metas.swat.base
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/** Verifies that the engine can be used again after {@link AggregationEngine#aggregate()}, as done for streaming aggregation. */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = {
+		StartupListener.class,
+		ShutdownListener.class,
+		//
+		CurrencyRepository.class,
+		MoneyService.class,
+		InvoiceCandidateRecordService.class })
+@DirtiesContext(classMode = ClassMode.BEFORE_CLASS)
+public class TestAggregationEngineReuse extends AbstractAggregationEngineTestBase
+{
+	private C_Invoice_Candidate_Builder prepareInvoiceCandidate(final LocalDate presetDateInvoiced)
+	{
+		final BPartnerLocationId billBPartnerAndLocationId = BPartnerLocationId.ofRepoId(1, 2);
+
+		return createInvoiceCandidate()
+				.setBillBPartnerAndLocationId(billBPartnerAndLocationId)
+				.setPriceEntered(1)
+				.setQtyOrdered(1)
+				.setSOTrx(true)
+				.setPresetDateInvoiced(presetDateInvoiced);
+	}
+
+	@Test
+	public void test_aggregate_releasesAggregatedCandidates()
+	{
+		final I_C_Invoice_Candidate ic1 = prepareInvoiceCandidate(LocalDate.of(2019, Month.SEPTEMBER, 13)).build();
+		final I_C_Invoice_Candidate ic2 = prepareInvoiceCandidate(LocalDate.of(2019, Month.SEPTEMBER, 14)).build();
+
+		updateInvalidCandidates();
+		InterfaceWrapperHelper.refresh(ic1);
+		InterfaceWrapperHelper.refresh(ic2);
+
+		final AggregationEngine engine = AggregationEngine.builder().build();
+
+		engine.addInvoiceCandidate(ic1);
+		final List<IInvoiceHeader> invoices1 = engine.aggregate();
+		assertThat(invoices1).hasSize(1);
+		assertThat(invoices1.get(0).getDateInvoiced()).isEqualTo(LocalDate.of(2019, Month.SEPTEMBER, 13));
+
+		assertThat(engine.aggregate()).isEmpty();
+
+		engine.addInvoiceCandidate(ic2);
+		final List<IInvoiceHeader> invoices2 = engine.aggregate();
+		assertThat(invoices2).hasSize(1);
+		assertThat(invoices2.get(0).getDateInvoiced()).isEqualTo(LocalDate.of(2019, Month.SEPTEMBER, 14));
+	}
+}
@@ -154,5 +154,26 @@ public class ShipmentScheduleAvailableStockDetailTest
 				assertThat(testData.getSocksStockDetail().getQtyAvailable()).isEqualByComparingTo("0");
 			}
 		}
+
+		@Nested
+		public class copy
+		{
+			@Test
+			public void for_12chocolates_4socks_subtract_1pack_from_copy()
+			{
+				final ChristmasPackTestData testData = newTestData()
+						.chocolate_qtyOnHand(12)
+						.socks_qtyOnHand(4)
+						.build();
+
+				final ShipmentScheduleAvailableStockDetail christmasPackCopy = testData.getChristmasPackStockDetail().copy();
+				christmasPackCopy.subtractQtyOnHand(new BigDecimal("1"));
+
+				assertThat(christmasPackCopy.getQtyAvailable()).isEqualByComparingTo("0");
+				assertThat(testData.getChristmasPackStockDetail().getQtyAvailable()).isEqualByComparingTo("1");
+				assertThat(testData.getChocolateStockDetail().getQtyAvailable()).isEqualByComparingTo("12");
+				assertThat(testData.getSocksStockDetail().getQtyAvailable()).isEqualByComparingTo("4");
+			}
+		}
 	}
 }
@@ -0,0 +1,3 @@
+-- View pages are selected by UUID and a range of Line (see SqlViewSelectData.selectByPage).
+-- Without this index, each page request has to scan the whole selection, so deep pages of big views are slow.
+CREATE INDEX IF NOT EXISTS T_WEBUI_ViewSelection_UUID_Line ON T_WEBUI_ViewSelection (UUID, Line);
@@ -59,6 +59,14 @@ public class BlockingExecutorWrapper implements ExecutorService
 		this.logger = loggerToUse;
 	}
 
+	/**
+	 * @return how many commands can be executed right now without blocking
+	 */
+	public int getAvailablePermits()
+	{
+		return semaphore.availablePermits();
+	}
+
 	@Override
 	public void execute(@NonNull final Runnable command)
 	{
@@ -72,6 +72,11 @@ public final class CustomizableThreadFactory implements ThreadFactory
 	 */
 	private final boolean daemon;
 
+	/**
+	 * Stack size of the new threads; zero means JVM default
+	 */
+	private final long stackSize;
+
 	private CustomizableThreadFactory(final Builder builder)
 	{
 		super();
@@ -81,6 +86,7 @@ public final class CustomizableThreadFactory implements ThreadFactory
 		this.namePrefix = builder.getThreadNamePrefix() + "-pool-" + poolNumber.getAndIncrement() + "-thread-";
 
 		this.daemon = builder.isDaemon();
+		this.stackSize = builder.getStackSize();
 	}
 
 	/**
@@ -93,7 +99,7 @@ public final class CustomizableThreadFactory implements ThreadFactory
 	public Thread newThread(Runnable r)
 	{
 		String threadName = namePrefix + threadNumber.getAndIncrement();
-		final Thread t = new Thread(group, r, threadName, 0); // stackSize=0
+		final Thread t = new Thread(group, r, threadName, stackSize);
 
 		if (t.isDaemon() != daemon)
 		{
@@ -118,6 +124,7 @@ public final class CustomizableThreadFactory implements ThreadFactory
 	{
 		private String threadNamePrefix;
 		private boolean daemon = false;
+		private long stackSize = 0;
 
 		private Builder()
 		{
@@ -156,5 +163,22 @@ public final class CustomizableThreadFactory implements ThreadFactory
 		{
 			return daemon;
 		}
+
+		/**
+		 * Sets the stack size of the new threads. Useful when having many threads which are mostly waiting for IO.
+		 * 
+		 * @param stackSize stack size in bytes; zero means JVM default (see {@link Thread#Thread(ThreadGroup, Runnable, String, long)})
+		 */
+		public Builder setStackSize(final long stackSize)
+		{
+			Check.assume(stackSize >= 0, "stackSize >= 0");
+			this.stackSize = stackSize;
+			return this;
+		}
+
+		private final long getStackSize()
+		{
+			return stackSize;
+		}
 	}
 }
@@ -68,6 +68,12 @@ public class IFABPartnerImportProcess extends SimpleImportProcessTemplate<I_I_Ph
 		return I_I_Pharma_BPartner.COLUMNNAME_b00gdat;
 	}
 
+	@Override
+	protected Object extractImportRecordPartitionKey(@NonNull final I_I_Pharma_BPartner importRecord)
+	{
+		return importRecord.getb00adrnr();
+	}
+
 	@Override
 	protected I_I_Pharma_BPartner retrieveImportRecord(final Properties ctx, final ResultSet rs) throws SQLException
 	{
@@ -66,6 +66,12 @@ public class IFAProductImportProcess extends SimpleImportProcessTemplate<I_I_Pha
 		return I_I_Pharma_Product.COLUMNNAME_A01GDAT;
 	}
 
+	@Override
+	protected Object extractImportRecordPartitionKey(@NonNull final I_I_Pharma_Product importRecord)
+	{
+		return importRecord.getA00PZN();
+	}
+
 	@Override
 	protected I_I_Pharma_Product retrieveImportRecord(final Properties ctx, final ResultSet rs) throws SQLException
 	{
@@ -28,6 +28,10 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import de.metas.cache.CacheMgt;
+import de.metas.elasticsearch.indexer.IESModelIndexer;
+import de.metas.elasticsearch.indexer.IESModelIndexersRegistry;
+import de.metas.elasticsearch.indexer.lucene.LuceneIndexStats;
+import de.metas.elasticsearch.indexer.lucene.LuceneModelIndexer;
 import de.metas.event.Topic;
 import de.metas.event.Type;
 import de.metas.logging.LogManager;
@@ -46,13 +50,16 @@ import de.metas.ui.web.exceptions.EntityNotFoundException;
 import de.metas.ui.web.menu.MenuTreeRepository;
 import de.metas.ui.web.process.ProcessRestController;
 import de.metas.ui.web.session.UserSession;
+import de.metas.ui.web.view.DefaultViewsRepositoryStorage;
 import de.metas.ui.web.view.IView;
+import de.metas.ui.web.view.InMemoryViewRowIdsOrderedSelectionFactory;
 import de.metas.ui.web.view.IViewsRepository;
 import de.metas.ui.web.view.SqlViewFactory;
 import de.metas.ui.web.view.ViewId;
 import de.metas.ui.web.view.ViewProfileId;
 import de.metas.ui.web.view.ViewResult;
 import de.metas.ui.web.view.ViewRowOverridesHelper;
+import de.metas.ui.web.view.ViewsRepository;
 import de.metas.ui.web.view.descriptor.annotation.ViewColumnHelper;
 import de.metas.ui.web.view.event.ViewChangesCollector;
 import de.metas.ui.web.view.json.JSONViewResult;
@@ -118,6 +125,10 @@ public class DebugRestController
 	@Lazy
 	private IViewsRepository viewsRepo;
 
+	@Autowired
+	@Lazy
+	private ViewsRepository viewsRepository;
+
 	@Autowired
 	@Lazy
 	private SqlViewFactory sqlViewFactory;
@@ -276,6 +287,49 @@ public class DebugRestController
 		sqlViewFactory.setDefaultProfileId(WindowId.fromJson(windowIdStr), ViewProfileId.fromJson(profileIdStr));
 	}
 
+	@GetMapping("/cacheStats")
+	public List<String> getCacheStats()
+	{
+		userSession.assertLoggedIn();
+
+		return CacheMgt.get().getCacheStats()
+				.stream()
+				.map(stats -> stats.toString())
+				.collect(GuavaCollectors.toImmutableList());
+	}
+
+	@GetMapping("/views/storage/stats")
+	public DefaultViewsRepositoryStorage.Stats getViewsStorageStats()
+	{
+		userSession.assertLoggedIn();
+
+		return viewsRepository.getDefaultViewsStorageStats();
+	}
+
+	@GetMapping("/views/inMemorySelections/stats")
+	public InMemoryViewRowIdsOrderedSelectionFactory.Stats getInMemoryViewSelectionsStats()
+	{
+		userSession.assertLoggedIn();
+
+		return InMemoryViewRowIdsOrderedSelectionFactory.getStats();
+	}
+
+	@GetMapping("/fullTextSearch/lucene/stats")
+	public LuceneIndexStats getLuceneIndexStats(@RequestParam("tableName") final String tableName)
+	{
+		userSession.assertLoggedIn();
+
+		final IESModelIndexer modelIndexer = Services.get(IESModelIndexersRegistry.class)
+				.getFullTextSearchModelIndexer(tableName)
+				.orElse(null);
+		if (!(modelIndexer instanceof LuceneModelIndexer))
+		{
+			throw new EntityNotFoundException("No embedded full text search index found for " + tableName);
+		}
+
+		return ((LuceneModelIndexer)modelIndexer).getStats();
+	}
+
 	@RequestMapping(value = "/lookups/cacheStats", method = RequestMethod.GET)
 	public List<String> getLookupCacheStats()
 	{
@@ -26,6 +26,7 @@ import de.metas.ui.web.view.event.JSONViewChanges;
 import de.metas.ui.web.view.event.ViewChanges;
 import de.metas.ui.web.websocket.WebsocketActiveSubscriptionsIndex;
 import de.metas.ui.web.websocket.WebsocketEventLogRecord;
+import de.metas.ui.web.websocket.WebsocketEventsStats;
 import de.metas.ui.web.websocket.WebsocketSender;
 import de.metas.ui.web.websocket.WebsocketSubscriptionId;
 import de.metas.ui.web.websocket.WebsocketTopicName;
@@ -132,6 +133,14 @@ public class DebugWebsocketRestController
 		}
 	}
 
+	@GetMapping("/stats")
+	public WebsocketEventsStats getStats()
+	{
+		assertLoggedIn();
+
+		return websocketSender.getStats();
+	}
+
 	@GetMapping("/logging/config")
 	public void setWebsocketLoggingConfig(
 			@RequestParam("enabled") final boolean enabled,
@@ -10,6 +10,7 @@ import org.springframework.stereotype.Component;
 
 import de.metas.elasticsearch.indexer.IESModelIndexer;
 import de.metas.elasticsearch.indexer.IESModelIndexersRegistry;
+import de.metas.elasticsearch.indexer.lucene.LuceneModelIndexer;
 import de.metas.i18n.AdMessageKey;
 import de.metas.i18n.IMsgBL;
 import de.metas.i18n.ITranslatableString;
@@ -108,6 +109,7 @@ public class FullTextSearchDocumentFilterDescriptorsProviderFactory implements D
 				.modelTableName(modelIndexer.getModelTableName())
 				.esIndexName(modelIndexer.getIndexName())
 				.esSearchFieldNames(modelIndexer.getFullTextSearchFieldNames())
+				.luceneModelIndexer(modelIndexer instanceof LuceneModelIndexer ? (LuceneModelIndexer)modelIndexer : null)
 				.build();
 	}
 
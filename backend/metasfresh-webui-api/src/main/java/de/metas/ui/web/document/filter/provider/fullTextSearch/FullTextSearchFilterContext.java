@@ -1,10 +1,13 @@
 package de.metas.ui.web.document.filter.provider.fullTextSearch;
 
+import javax.annotation.Nullable;
+
 import org.adempiere.model.InterfaceWrapperHelper;
 import org.elasticsearch.client.Client;
 
 import com.google.common.collect.ImmutableSet;
 
+import de.metas.elasticsearch.indexer.lucene.LuceneModelIndexer;
 import lombok.Builder;
 import lombok.NonNull;
 import lombok.Singular;
@@ -46,6 +49,10 @@ public class FullTextSearchFilterContext
 	@Singular
 	final ImmutableSet<String> esSearchFieldNames;
 
+	/** if set, the embedded Lucene index shall be searched instead of Elasticsearch */
+	@Nullable
+	final LuceneModelIndexer luceneModelIndexer;
+
 	public String[] getEsSearchFieldNamesAsArray()
 	{
 		return esSearchFieldNames.toArray(new String[esSearchFieldNames.size()]);
@@ -57,6 +57,8 @@ public class FullTextSearchSqlDocumentFilterConverter implements SqlDocumentFilt
 
 	private static final Logger logger = LogManager.getLogger(FullTextSearchSqlDocumentFilterConverter.class);
 
+	private static final int LUCENE_MAX_HITS = 1000;
+
 	private FullTextSearchSqlDocumentFilterConverter()
 	{
 	}
@@ -83,9 +85,25 @@ public class FullTextSearchSqlDocumentFilterConverter implements SqlDocumentFilt
 		final FullTextSearchFilterContext ftsContext = filter.getParameterValueAs(PARAM_Context);
 		Check.assumeNotNull(ftsContext, "Parameter ftsContext is not null"); // shall not happen
 		logger.trace("context: {}", ftsContext);
+
+		final List<Integer> recordIds = ftsContext.getLuceneModelIndexer() != null
+				? searchRecordIdsUsingLucene(text, ftsContext)
+				: searchRecordIdsUsingElasticsearch(text, ftsContext);
+		logger.trace("Record IDs: {}", recordIds);
+		if (recordIds.isEmpty())
+		{
+			return "1=0";
+		}
+
+		final String keyColumnName = ftsContext.getKeyColumnName();
+		final String keyColumnNameFQ = sqlOpts.getTableNameOrAlias() + "." + keyColumnName;
+		return DB.buildSqlList(keyColumnNameFQ, recordIds, null);
+	}
+
+	private List<Integer> searchRecordIdsUsingElasticsearch(final String text, final FullTextSearchFilterContext ftsContext)
+	{
 		final Client elasticsearchClient = ftsContext.getElasticsearchClient();
 		final String esIndexName = ftsContext.getEsIndexName();
-		final String keyColumnName = ftsContext.getKeyColumnName();
 		final String esKeyColumnName = ftsContext.getEsKeyColumnName();
 
 		final QueryBuilder query = QueryBuilders.multiMatchQuery(text, ftsContext.getEsSearchFieldNamesAsArray());
@@ -97,19 +115,22 @@ public class FullTextSearchSqlDocumentFilterConverter implements SqlDocumentFilt
 				.get();
 		logger.trace("ES response: {}", searchResponse);
 
-		final List<Integer> recordIds = Stream.of(searchResponse.getHits().getHits())
+		return Stream.of(searchResponse.getHits().getHits())
 				.map(hit -> extractId(hit, esKeyColumnName))
 				.filter(id -> id >= 0)
 				.distinct()
 				.collect(ImmutableList.toImmutableList());
-		logger.trace("Record IDs: {}", recordIds);
-		if (recordIds.isEmpty())
-		{
-			return "1=0";
-		}
+	}
 
-		final String keyColumnNameFQ = sqlOpts.getTableNameOrAlias() + "." + keyColumnName;
-		return DB.buildSqlList(keyColumnNameFQ, recordIds, null);
+	private List<Integer> searchRecordIdsUsingLucene(final String text, final FullTextSearchFilterContext ftsContext)
+	{
+		return ftsContext.getLuceneModelIndexer()
+				.search(text, LUCENE_MAX_HITS)
+				.stream()
+				.map(documentId -> NumberUtils.asInt(documentId, -1))
+				.filter(id -> id >= 0)
+				.distinct()
+				.collect(ImmutableList.toImmutableList());
 	}
 
 	private int extractId(final SearchHit hit, final String esKeyColumnName)
@@ -1,8 +1,15 @@
 package de.metas.ui.web.document.filter.provider.standard;
 
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
 import java.util.function.Supplier;
 
+import javax.annotation.Nullable;
+
+import org.adempiere.exceptions.AdempiereException;
+
 import lombok.NonNull;
 import lombok.ToString;
 
@@ -36,16 +43,57 @@ public final class FacetFilterViewCacheMap
 		return new FacetFilterViewCacheMap();
 	}
 
-	private final ConcurrentHashMap<String, FacetFilterViewCache> cachesById = new ConcurrentHashMap<>();
+	/** guarded by this */
+	private final Map<String, FacetFilterViewCache> cachesById = new HashMap<>();
+	/** the view selection from which the facets were computed; guarded by this */
+	@Nullable
+	private String selectionId;
 
 	private FacetFilterViewCacheMap()
 	{
 	}
 
-	public FacetFilterViewCache computeIfAbsent(
+	/**
+	 * Gets the facet cache for given filter ID.
+	 * <p>
+	 * If missing, or if it was computed for another selection, all facets are recomputed using the given supplier.
+	 * This way all facets of a view are computed in one go, not one by one when the frontend asks for them.
+	 */
+	public synchronized FacetFilterViewCache computeIfAbsent(
+			@NonNull final String selectionId,
 			@NonNull final String id,
-			@NonNull final Supplier<FacetFilterViewCache> supplier)
+			@NonNull final Supplier<Collection<FacetFilterViewCache>> allFacetsSupplier)
+	{
+		if (!Objects.equals(this.selectionId, selectionId))
+		{
+			cachesById.clear();
+			this.selectionId = selectionId;
+		}
+
+		final FacetFilterViewCache existingCache = cachesById.get(id);
+		if (existingCache != null)
+		{
+			return existingCache;
+		}
+
+		for (final FacetFilterViewCache cache : allFacetsSupplier.get())
+		{
+			cachesById.put(cache.getFilterId(), cache);
+		}
+
+		final FacetFilterViewCache cache = cachesById.get(id);
+		if (cache == null)
+		{
+			throw new AdempiereException("No facets were computed for filterId=" + id)
+					.appendParametersToMessage()
+					.setParameter("selectionId", selectionId)
+					.setParameter("computedFilterIds", cachesById.keySet());
+		}
+		return cache;
+	}
+
+	public synchronized void reset()
 	{
-		return cachesById.computeIfAbsent(id, k -> supplier.get());
+		cachesById.clear();
 	}
 }
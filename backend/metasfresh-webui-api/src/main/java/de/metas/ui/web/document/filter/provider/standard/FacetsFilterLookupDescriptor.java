@@ -12,13 +12,16 @@ import org.compiere.util.DisplayType;
 
 import java.util.Objects;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableSet;
 
 import de.metas.i18n.IMsgBL;
 import de.metas.i18n.TranslatableStrings;
+import de.metas.ui.web.document.filter.DocumentFilterDescriptor;
 import de.metas.ui.web.view.DefaultView;
 import de.metas.ui.web.view.IViewDataRepository;
 import de.metas.ui.web.view.IViewsRepository;
-import de.metas.ui.web.view.ViewEvaluationCtx;
+import de.metas.ui.web.view.ViewFieldValueCount;
 import de.metas.ui.web.view.ViewId;
 import de.metas.ui.web.window.datatypes.LookupValue;
 import de.metas.ui.web.window.datatypes.LookupValue.StringLookupValue;
@@ -141,23 +144,72 @@ final class FacetsFilterLookupDescriptor extends SimpleLookupDescriptorTemplate
 	public LookupValuesList retrieveEntities(final LookupDataSourceContext evalCtx)
 	{
 		final DefaultView view = getView(evalCtx);
+		final String selectionId = view.getDefaultSelectionBeforeFacetsFiltering().getSelectionId();
 
 		return view.getFacetFiltersCacheMap()
-				.computeIfAbsent(filterId, () -> createFacetFilterViewCache(view))
+				.computeIfAbsent(selectionId, filterId, () -> createAllFacetFilterViewCaches(view, selectionId))
 				.getAvailableValues();
 	}
 
-	private FacetFilterViewCache createFacetFilterViewCache(final DefaultView view)
+	/**
+	 * Computes the facets of all facet filters of given view, using one single query.
+	 */
+	private ImmutableList<FacetFilterViewCache> createAllFacetFilterViewCaches(
+			@NonNull final DefaultView view,
+			@NonNull final String selectionId)
 	{
-		final IViewDataRepository viewDataRepository = view.getViewDataRepository();
-		final ViewEvaluationCtx viewEvalCtx = view.getViewEvaluationCtx();
-		final String selectionId = view.getDefaultSelectionBeforeFacetsFiltering().getSelectionId();
+		final ImmutableList<FacetsFilterLookupDescriptor> facetLookupDescriptors = getAllFacetLookupDescriptors(view);
+
+		final ImmutableSet<String> fieldNames = facetLookupDescriptors.stream()
+				.map(FacetsFilterLookupDescriptor::getFieldName)
+				.collect(ImmutableSet.toImmutableSet());
+		final int limitPerField = facetLookupDescriptors.stream()
+				.mapToInt(facetLookupDescriptor -> facetLookupDescriptor.maxFacetsToFetch)
+				.max()
+				.orElse(maxFacetsToFetch);
 
-		List<Object> rawValues = viewDataRepository.retrieveFieldValues(
-				viewEvalCtx,
+		final IViewDataRepository viewDataRepository = view.getViewDataRepository();
+		final ImmutableListMultimap<String, ViewFieldValueCount> valueCountsByFieldName = viewDataRepository.retrieveFieldValuesWithCounts(
+				view.getViewEvaluationCtx(),
 				selectionId,
-				fieldName,
-				maxFacetsToFetch);
+				fieldNames,
+				limitPerField);
+
+		return facetLookupDescriptors.stream()
+				.map(facetLookupDescriptor -> facetLookupDescriptor.createFacetFilterViewCache(valueCountsByFieldName.get(facetLookupDescriptor.getFieldName())))
+				.collect(ImmutableList.toImmutableList());
+	}
+
+	/**
+	 * @return this descriptor and the ones of the view's other facet filters
+	 */
+	private ImmutableList<FacetsFilterLookupDescriptor> getAllFacetLookupDescriptors(@NonNull final DefaultView view)
+	{
+		final ImmutableList.Builder<FacetsFilterLookupDescriptor> result = ImmutableList.builder();
+		result.add(this);
+
+		view.getFilterDescriptors()
+				.getAll()
+				.stream()
+				.filter(DocumentFilterDescriptor::isFacetFilter)
+				.flatMap(filterDescriptor -> filterDescriptor.getParameters().stream())
+				.map(parameter -> parameter.getLookupDescriptor().orElse(null))
+				.filter(lookupDescriptor -> lookupDescriptor instanceof FacetsFilterLookupDescriptor)
+				.map(lookupDescriptor -> (FacetsFilterLookupDescriptor)lookupDescriptor)
+				.filter(facetLookupDescriptor -> !filterId.equals(facetLookupDescriptor.getFilterId()))
+				.forEach(result::add);
+
+		return result.build();
+	}
+
+	private FacetFilterViewCache createFacetFilterViewCache(@NonNull final List<ViewFieldValueCount> valueCounts)
+	{
+		// NOTE: the value counts are ordered by count, most frequent first
+		List<Object> rawValues = valueCounts.stream()
+				.map(ViewFieldValueCount::getValue)
+				.filter(Objects::nonNull)
+				.limit(maxFacetsToFetch)
+				.collect(ImmutableList.toImmutableList());
 
 		boolean valuesAreOrdered = false;
 		if (fieldWidgetType.isDateOrTime()
@@ -4,6 +4,7 @@ import java.math.BigDecimal;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
@@ -15,8 +16,10 @@ import javax.annotation.Nullable;
 
 import org.adempiere.ad.trx.api.ITrxManager;
 import org.adempiere.exceptions.AdempiereException;
+import org.adempiere.service.ISysConfigBL;
 import org.adempiere.util.lang.SynchronizedMutable;
 import org.adempiere.util.lang.SynchronizedMutable.OldAndNewValues;
+import org.adempiere.util.lang.impl.TableRecordReference;
 import org.adempiere.util.lang.impl.TableRecordReferenceSet;
 import org.compiere.util.Evaluatee;
 import org.slf4j.Logger;
@@ -61,6 +64,7 @@ import de.metas.util.collections.PagedIterator.Page;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.ToString;
+import lombok.Value;
 
 /*
  * #%L
@@ -101,6 +105,12 @@ public final class DefaultView implements IEditableView
 
 	private static final Logger logger = LogManager.getLogger(DefaultView.class);
 
+	private static final String SYSCONFIG_PrefetchNextPage = "de.metas.ui.web.view.DefaultView.PrefetchNextPage";
+
+	/** Rough heap usage of a view without rows and of one cached row, see {@link #getEstimatedWeight()} */
+	private static final long ESTIMATED_VIEW_BYTES = 4 * 1024;
+	private static final long ESTIMATED_ROW_BYTES = 1024;
+
 	@Getter
 	private final SqlViewDataRepository viewDataRepository;
 
@@ -151,6 +161,7 @@ public final class DefaultView implements IEditableView
 	//
 	// Caching
 	private final transient CCache<DocumentId, IViewRow> cache_rowsById;
+	private final transient ViewNextPagePrefetcher nextPagePrefetcher = new ViewNextPagePrefetcher();
 
 	private final IViewInvalidationAdvisor viewInvalidationAdvisor;
 
@@ -183,7 +194,9 @@ public final class DefaultView implements IEditableView
 		//
 		// Selection
 		{
-			viewEvaluationCtx = ViewEvaluationCtx.newInstanceFromCurrentContext();
+			viewEvaluationCtx = builder.viewEvaluationCtx != null
+					? builder.viewEvaluationCtx
+					: ViewEvaluationCtx.newInstanceFromCurrentContext();
 
 			selectionsRef = ViewRowIdsOrderedSelectionsHolder.builder()
 					.viewDataRepository(viewDataRepository)
@@ -192,6 +205,7 @@ public final class DefaultView implements IEditableView
 					.stickyFilters(stickyFilters)
 					.filters(filters)
 					.viewEvaluationCtxSupplier(this::getViewEvaluationCtx)
+					.initialSelections(builder.initialSelections)
 					.build();
 		}
 
@@ -305,10 +319,69 @@ public final class DefaultView implements IEditableView
 		logger.debug("View closed with reason={}: {}", reason, this);
 	}
 
+	@Override
+	public void afterDestroy()
+	{
+		// release the selections, mainly the ones which are kept in memory
+		selectionsRef.forgetCurrentSelections();
+	}
+
+	@Override
+	public int getEstimatedWeight()
+	{
+		final ViewRowIdsOrderedSelections selections = selectionsRef.getCurrentSelectionsIfPresent();
+		final long inMemorySelectionsBytes = selections != null ? viewDataRepository.getInMemorySelectionsEstimatedMemoryBytes(getAllSelectionIds(selections)) : 0;
+
+		// NOTE: the cached rows are at most 100 (see cache_rowsById), so the in-memory selections are the part which can grow
+		final long estimatedBytes = ESTIMATED_VIEW_BYTES
+				+ (cache_rowsById.size() + nextPagePrefetcher.getPrefetchedRowsCount()) * ESTIMATED_ROW_BYTES
+				+ inMemorySelectionsBytes;
+		return (int)Math.min(estimatedBytes / 1024 + 1, Integer.MAX_VALUE);
+	}
+
+	private static ImmutableSet<String> getAllSelectionIds(@NonNull final ViewRowIdsOrderedSelections selections)
+	{
+		return ImmutableSet.<String> builder()
+				.add(selections.getDefaultSelectionBeforeFacetsFiltering().getSelectionId())
+				.addAll(selections.getSelectionIds())
+				.build();
+	}
+
+	@Nullable
+	@Override
+	public IViewRestorableState getRestorableStateOrNull()
+	{
+		if (closed.get())
+		{
+			return null;
+		}
+
+		return RestorableState.builder()
+				.viewDataRepository(viewDataRepository)
+				.viewId(viewId)
+				.viewType(viewType)
+				.profileId(profileId)
+				.headerPropertiesProvider(headerPropertiesProvider)
+				.referencingDocumentPaths(referencingDocumentPaths)
+				.documentReferenceId(documentReferenceId)
+				.parentViewId(parentViewId)
+				.parentRowId(parentRowId)
+				.stickyFilters(stickyFilters)
+				.filters(filters)
+				.refreshViewOnChangeEvents(refreshViewOnChangeEvents)
+				.viewInvalidationAdvisor(viewInvalidationAdvisor)
+				.applySecurityRestrictions(selectionsRef.isApplySecurityRestrictions())
+				.viewEvaluationCtx(viewEvaluationCtx)
+				.selections(selectionsRef.getCurrentSelectionsIfPresent())
+				.build();
+	}
+
 	@Override
 	public void invalidateAll()
 	{
 		cache_rowsById.reset();
+		nextPagePrefetcher.reset();
+		facetFiltersCacheMap.reset();
 		headerPropertiesHolder.setValue(null);
 	}
 
@@ -316,6 +389,7 @@ public final class DefaultView implements IEditableView
 	public void invalidateRowById(final DocumentId rowId)
 	{
 		cache_rowsById.remove(rowId);
+		nextPagePrefetcher.reset();
 		headerPropertiesHolder.setValue(null);
 	}
 
@@ -351,10 +425,7 @@ public final class DefaultView implements IEditableView
 		final ViewEvaluationCtx evalCtx = getViewEvaluationCtx();
 		final ViewRowIdsOrderedSelection orderedSelection = getOrderedSelection(orderBy.toDocumentQueryOrderByList());
 
-		final List<IViewRow> rows = viewDataRepository.retrievePage(evalCtx, orderedSelection, firstRow, pageLength);
-
-		// Add to cache
-		rows.forEach(row -> cache_rowsById.put(row.getId(), row));
+		final List<IViewRow> rows = retrievePage(evalCtx, orderedSelection, firstRow, pageLength);
 
 		return ViewResult.builder()
 				.view(this)
@@ -366,6 +437,33 @@ public final class DefaultView implements IEditableView
 				.build();
 	}
 
+	/**
+	 * Retrieves the given page.
+	 * <p>
+	 * If the pages are requested one after the other (i.e. when scrolling or exporting), the next page is retrieved together with the requested one
+	 * and the following request is served from memory. The rows are seeked by selection line, so each page costs the same, no matter how deep it is.
+	 */
+	private List<IViewRow> retrievePage(
+			@NonNull final ViewEvaluationCtx evalCtx,
+			@NonNull final ViewRowIdsOrderedSelection orderedSelection,
+			final int firstRow,
+			final int pageLength)
+	{
+		return nextPagePrefetcher.retrievePage(orderedSelection, firstRow, pageLength, isPrefetchNextPage(), (pageFirstRow, pageLengthToRetrieve) -> {
+			final List<IViewRow> rows = viewDataRepository.retrievePage(evalCtx, orderedSelection, pageFirstRow, pageLengthToRetrieve);
+
+			// Add to cache, including the prefetched rows
+			rows.forEach(row -> cache_rowsById.put(row.getId(), row));
+
+			return rows;
+		});
+	}
+
+	private static boolean isPrefetchNextPage()
+	{
+		return Services.get(ISysConfigBL.class).getBooleanValue(SYSCONFIG_PrefetchNextPage, true);
+	}
+
 	private List<ViewResultColumn> extractViewResultColumns(@NonNull final List<IViewRow> rows)
 	{
 		if (rows.isEmpty())
@@ -564,6 +662,10 @@ public final class DefaultView implements IEditableView
 
 		// Invalidate local rowsById cache
 		cache_rowsById.removeAll(rowIds);
+		nextPagePrefetcher.reset();
+
+		// Facet counts might have changed; all facets will be recomputed in one go when they are requested again
+		facetFiltersCacheMap.reset();
 
 		checkCollectHeaderPropertiesChanged(rowIds, watchedByFrontend);
 
@@ -736,6 +838,141 @@ public final class DefaultView implements IEditableView
 		}
 	}
 
+	/**
+	 * Everything needed to re-create an evicted {@link DefaultView}, except the cached rows.
+	 * The selections are kept as they are, so they are not created again.
+	 */
+	@Value
+	@lombok.Builder
+	private static class RestorableState implements IViewRestorableState
+	{
+		@NonNull
+		SqlViewDataRepository viewDataRepository;
+		@NonNull
+		ViewId viewId;
+		JSONViewDataType viewType;
+		ViewProfileId profileId;
+		ViewHeaderPropertiesProvider headerPropertiesProvider;
+		ImmutableSet<DocumentPath> referencingDocumentPaths;
+		DocumentReferenceId documentReferenceId;
+		ViewId parentViewId;
+		DocumentId parentRowId;
+		@NonNull
+		DocumentFilterList stickyFilters;
+		@NonNull
+		DocumentFilterList filters;
+		boolean refreshViewOnChangeEvents;
+		@NonNull
+		IViewInvalidationAdvisor viewInvalidationAdvisor;
+		boolean applySecurityRestrictions;
+		@NonNull
+		ViewEvaluationCtx viewEvaluationCtx;
+		@Nullable
+		ViewRowIdsOrderedSelections selections;
+
+		EvictedViewChanges changesWhileEvicted = new EvictedViewChanges();
+
+		@Override
+		public void afterEvicted()
+		{
+			if (selections != null)
+			{
+				viewDataRepository.spillSelectionsToDatabase(getAllSelectionIds(selections));
+			}
+		}
+
+		@Override
+		public DefaultView restore()
+		{
+			final Builder builder = DefaultView.builder(viewDataRepository)
+					.setViewId(viewId)
+					.setViewType(viewType)
+					.setProfileId(profileId)
+					.setReferencingDocumentPaths(referencingDocumentPaths)
+					.setDocumentReferenceId(documentReferenceId)
+					.setParentViewId(parentViewId)
+					.setParentRowId(parentRowId)
+					.addStickyFilters(stickyFilters)
+					.setFilters(filters)
+					.refreshViewOnChangeEvents(refreshViewOnChangeEvents)
+					.viewInvalidationAdvisor(viewInvalidationAdvisor)
+					.applySecurityRestrictions(applySecurityRestrictions);
+			if (headerPropertiesProvider != null)
+			{
+				builder.setHeaderPropertiesProvider(headerPropertiesProvider);
+			}
+
+			builder.viewEvaluationCtx = viewEvaluationCtx;
+			builder.initialSelections = selections;
+
+			final DefaultView view = builder.build();
+			changesWhileEvicted.applyTo(view);
+			return view;
+		}
+
+		@Override
+		public void notifyRecordsChanged(@NonNull final TableRecordReferenceSet recordRefs)
+		{
+			changesWhileEvicted.collect(recordRefs);
+		}
+
+		@Override
+		public void discard()
+		{
+			if (selections != null)
+			{
+				viewDataRepository.scheduleDeleteSelections(getAllSelectionIds(selections));
+			}
+		}
+	}
+
+	/**
+	 * Records which were changed while the view was evicted. They are notified to the view when it's restored.
+	 */
+	@ToString
+	private static class EvictedViewChanges
+	{
+		/** If more records were changed, the restored view's selection is re-created instead */
+		private static final int MAX_RECORDS = 1000;
+
+		private final LinkedHashSet<TableRecordReference> recordRefs = new LinkedHashSet<>();
+		private boolean tooManyChanges = false;
+
+		public synchronized void collect(@NonNull final TableRecordReferenceSet recordRefsToAdd)
+		{
+			if (tooManyChanges)
+			{
+				return;
+			}
+
+			recordRefsToAdd.forEach(recordRefs::add);
+			if (recordRefs.size() > MAX_RECORDS)
+			{
+				recordRefs.clear();
+				tooManyChanges = true;
+			}
+		}
+
+		public synchronized void applyTo(@NonNull final DefaultView view)
+		{
+			if (tooManyChanges)
+			{
+				// NOTE: views which are not refreshed on change events keep their rows; their row caches are empty anyways after restore
+				if (view.refreshViewOnChangeEvents)
+				{
+					view.invalidateSelection();
+				}
+			}
+			else if (!recordRefs.isEmpty())
+			{
+				view.notifyRecordsChanged(TableRecordReferenceSet.of(recordRefs), false);
+			}
+
+			recordRefs.clear();
+			tooManyChanges = false;
+		}
+	}
+
 	//
 	//
 	// Builder
@@ -761,6 +998,10 @@ public final class DefaultView implements IEditableView
 
 		private boolean applySecurityRestrictions = true;
 
+		/** set only when an evicted view is restored */
+		private ViewEvaluationCtx viewEvaluationCtx;
+		private ViewRowIdsOrderedSelections initialSelections;
+
 		private Builder(@NonNull final SqlViewDataRepository viewDataRepository)
 		{
 			this.viewDataRepository = viewDataRepository;
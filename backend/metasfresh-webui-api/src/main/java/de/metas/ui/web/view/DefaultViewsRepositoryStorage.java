@@ -2,20 +2,26 @@ package de.metas.ui.web.view;
 
 import java.time.Duration;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Stream;
 
 import javax.annotation.Nullable;
 
+import org.adempiere.util.lang.impl.TableRecordReferenceSet;
 import org.slf4j.Logger;
 
+import com.google.common.base.Stopwatch;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
 import com.google.common.cache.RemovalNotification;
 
 import de.metas.logging.LogManager;
 import de.metas.ui.web.view.event.ViewChangesCollector;
 import de.metas.ui.web.window.datatypes.WindowId;
+import lombok.Builder;
 import lombok.NonNull;
+import lombok.Value;
 
 /*
  * #%L
@@ -44,14 +50,55 @@ public final class DefaultViewsRepositoryStorage implements IViewsIndexStorage
 {
 	private static transient final Logger logger = LogManager.getLogger(DefaultViewsRepositoryStorage.class);
 
-	private final Cache<ViewId, IView> views;
+	/** Re-weigh the view on access if its weight changed by more than this factor */
+	private static final double REWEIGH_FACTOR = 1.25;
+
+	private final long maxWeight;
+	private final Cache<ViewId, ViewEntry> views;
+
+	/** Views which were evicted because of memory pressure but which can be restored on next access */
+	private final Cache<ViewId, IViewRestorableState> evictedViews;
+	private final Object restoreLock = new Object();
+
+	private final AtomicLong countEvicted = new AtomicLong();
+	private final AtomicLong countRestored = new AtomicLong();
+	private final AtomicLong totalEvictMillis = new AtomicLong();
+	private final AtomicLong totalRestoreMillis = new AtomicLong();
+	private volatile long maxRestoreMillis = 0;
 
 	public DefaultViewsRepositoryStorage(@NonNull final Duration viewExpirationTimeout)
 	{
-		views = CacheBuilder.newBuilder()
-				.expireAfterAccess(viewExpirationTimeout.toNanos(), TimeUnit.NANOSECONDS)
+		this(viewExpirationTimeout, 0);
+	}
+
+	/**
+	 * @param maxWeight max sum of {@link IView#getEstimatedWeight()} of the views which are kept in memory; if <= 0, the storage is not bounded.
+	 *            When the limit is exceeded, the least recently used views are evicted and restored on next access.
+	 *            Views which don't support that (see {@link IView#getRestorableStateOrNull()}) don't count towards the limit and are never evicted.
+	 */
+	public DefaultViewsRepositoryStorage(@NonNull final Duration viewExpirationTimeout, final long maxWeight)
+	{
+		this.maxWeight = maxWeight;
+
+		final CacheBuilder<Object, Object> viewsCacheBuilder = CacheBuilder.newBuilder()
+				.expireAfterAccess(viewExpirationTimeout.toNanos(), TimeUnit.NANOSECONDS);
+		if (maxWeight > 0)
+		{
+			// NOTE: guava splits the maximum weight between the cache segments and evicts per segment,
+			// so we use one segment in order to bound the weight of all views together
+			viewsCacheBuilder
+					.concurrencyLevel(1)
+					.maximumWeight(maxWeight)
+					.weigher((ViewId viewId, ViewEntry entry) -> entry.getWeight());
+		}
+		views = viewsCacheBuilder
 				.removalListener(this::onViewRemoved)
 				.build();
+
+		evictedViews = CacheBuilder.newBuilder()
+				.expireAfterAccess(viewExpirationTimeout.toNanos(), TimeUnit.NANOSECONDS)
+				.removalListener(this::onEvictedViewRemoved)
+				.build();
 	}
 
 	@Override
@@ -63,23 +110,101 @@ public final class DefaultViewsRepositoryStorage implements IViewsIndexStorage
 	@Override
 	public void put(@NonNull final IView view)
 	{
-		views.put(view.getViewId(), view);
+		evictedViews.invalidate(view.getViewId());
+		views.put(view.getViewId(), ViewEntry.of(view));
 	}
 
 	@Nullable
 	@Override
 	public IView getByIdOrNull(@NonNull final ViewId viewId)
 	{
-		return views.getIfPresent(viewId);
+		final ViewEntry entry = views.getIfPresent(viewId);
+		if (entry != null)
+		{
+			reweighIfNeeded(entry);
+			return entry.getView();
+		}
+
+		return restoreIfEvicted(viewId);
+	}
+
+	private void reweighIfNeeded(@NonNull final ViewEntry entry)
+	{
+		if (maxWeight <= 0)
+		{
+			return;
+		}
+
+		// NOTE: guava computes the weight only when the entry is put
+		final ViewEntry newEntry = ViewEntry.of(entry.getView());
+		if (newEntry.getWeight() > entry.getWeight() * REWEIGH_FACTOR
+				|| newEntry.getWeight() * REWEIGH_FACTOR < entry.getWeight())
+		{
+			views.asMap().replace(newEntry.getViewId(), entry, newEntry);
+		}
+	}
+
+	@Nullable
+	private IView restoreIfEvicted(@NonNull final ViewId viewId)
+	{
+		if (evictedViews.getIfPresent(viewId) == null)
+		{
+			return null;
+		}
+
+		synchronized (restoreLock)
+		{
+			// check again, maybe it was restored meanwhile
+			final ViewEntry entry = views.getIfPresent(viewId);
+			if (entry != null)
+			{
+				return entry.getView();
+			}
+
+			return restore(viewId);
+		}
+	}
+
+	@Nullable
+	private IView restore(@NonNull final ViewId viewId)
+	{
+		final IViewRestorableState evictedView = evictedViews.asMap().remove(viewId);
+		if (evictedView == null)
+		{
+			return null;
+		}
+
+		final Stopwatch stopwatch = Stopwatch.createStarted();
+		final IView view = evictedView.restore();
+		views.put(viewId, ViewEntry.of(view));
+
+		final long millis = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+		countRestored.incrementAndGet();
+		totalRestoreMillis.addAndGet(millis);
+		if (millis > maxRestoreMillis)
+		{
+			maxRestoreMillis = millis;
+		}
+		logger.debug("View {} restored in {}", viewId, stopwatch);
+
+		return view;
 	}
 
 	@Override
 	public void closeById(@NonNull final ViewId viewId, @NonNull final ViewCloseAction closeAction)
 	{
+		final ViewEntry entry = views.getIfPresent(viewId);
+		if (entry == null)
+		{
+			// don't restore an evicted view just to close it
+			discardIfEvicted(viewId);
+			return;
+		}
+
 		// Don't remove the view if not allowed.
 		// Will be removed when it will expire.
-		final IView view = views.getIfPresent(viewId);
-		if (view == null || !view.isAllowClosingPerUserRequest())
+		final IView view = entry.getView();
+		if (!view.isAllowClosingPerUserRequest())
 		{
 			return;
 		}
@@ -96,22 +221,88 @@ public final class DefaultViewsRepositoryStorage implements IViewsIndexStorage
 		views.cleanUp(); // also cleanup to prevent views cache to grow.
 	}
 
-	private void onViewRemoved(final RemovalNotification<Object, Object> notification)
+	private void discardIfEvicted(@NonNull final ViewId viewId)
+	{
+		synchronized (restoreLock)
+		{
+			final IViewRestorableState evictedView = evictedViews.asMap().remove(viewId);
+			if (evictedView != null)
+			{
+				logger.debug("Evicted view <" + viewId + "> discarded because it was closed");
+				evictedView.discard();
+			}
+		}
+	}
+
+	private void onViewRemoved(final RemovalNotification<ViewId, ViewEntry> notification)
 	{
-		final IView view = (IView)notification.getValue();
-		logger.debug("View <" + view.getViewId() + "> removed from cache. Cause: " + notification.getCause());
+		final RemovalCause cause = notification.getCause();
+		if (cause == RemovalCause.REPLACED)
+		{
+			return; // same view was re-weighed or re-added
+		}
+
+		final IView view = notification.getValue().getView();
+		if (cause == RemovalCause.SIZE && evictIfPossible(view))
+		{
+			return;
+		}
+
+		logger.debug("View <" + view.getViewId() + "> removed from cache. Cause: " + cause);
 		view.afterDestroy();
 	}
 
+	private boolean evictIfPossible(@NonNull final IView view)
+	{
+		final IViewRestorableState restorableState = view.getRestorableStateOrNull();
+		if (restorableState == null)
+		{
+			return false;
+		}
+
+		final Stopwatch stopwatch = Stopwatch.createStarted();
+		try
+		{
+			restorableState.afterEvicted();
+		}
+		catch (final Exception ex)
+		{
+			logger.warn("Failed evicting {}. Destroying it.", view.getViewId(), ex);
+			return false;
+		}
+
+		evictedViews.put(restorableState.getViewId(), restorableState);
+
+		final long millis = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+		countEvicted.incrementAndGet();
+		totalEvictMillis.addAndGet(millis);
+		logger.debug("View {} evicted from memory in {}", view.getViewId(), stopwatch);
+
+		return true;
+	}
+
+	private void onEvictedViewRemoved(final RemovalNotification<ViewId, IViewRestorableState> notification)
+	{
+		if (notification.getCause() == RemovalCause.EXPLICIT || notification.getCause() == RemovalCause.REPLACED)
+		{
+			return; // restored or re-added
+		}
+
+		logger.debug("Evicted view <" + notification.getKey() + "> discarded. Cause: " + notification.getCause());
+		notification.getValue().discard();
+	}
+
 	@Override
 	public void invalidateView(final ViewId viewId)
 	{
-		final IView view = getByIdOrNull(viewId);
-		if (view == null)
+		// NOTE: evicted views are not restored just to be invalidated; they reload their rows anyways when restored
+		final ViewEntry entry = views.getIfPresent(viewId);
+		if (entry == null)
 		{
 			return;
 		}
 
+		final IView view = entry.getView();
 		view.invalidateAll();
 
 		ViewChangesCollector.getCurrentOrAutoflush()
@@ -121,7 +312,84 @@ public final class DefaultViewsRepositoryStorage implements IViewsIndexStorage
 	@Override
 	public Stream<IView> streamAllViews()
 	{
-		return views.asMap().values().stream();
+		// NOTE: evicted views are not included because restoring all of them would defeat the purpose; see #notifyEvictedViewsRecordsChanged
+		return views.asMap().values().stream().map(ViewEntry::getView);
 	}
 
+	/**
+	 * Remembers the changed records in the evicted views, which are not notified via {@link #streamAllViews()}. The changes are applied when the views are restored.
+	 * <p>
+	 * To be called before notifying the views from {@link #streamAllViews()}, so a view restored meanwhile is notified at least once.
+	 */
+	public void notifyEvictedViewsRecordsChanged(@NonNull final TableRecordReferenceSet recordRefs)
+	{
+		if (recordRefs.isEmpty())
+		{
+			return;
+		}
+
+		// NOTE: synchronized with restoring, so a view which is being restored is notified either as evicted or as restored view
+		synchronized (restoreLock)
+		{
+			for (final IViewRestorableState evictedView : evictedViews.asMap().values())
+			{
+				evictedView.notifyRecordsChanged(recordRefs);
+			}
+		}
+	}
+
+	public Stats getStats()
+	{
+		final long countEvicted = this.countEvicted.get();
+		final long countRestored = this.countRestored.get();
+
+		return Stats.builder()
+				.maxWeight(maxWeight)
+				.viewsCount(views.size())
+				.viewsWeight(views.asMap().values().stream().mapToLong(ViewEntry::getWeight).sum())
+				.evictedViewsCount(evictedViews.size())
+				.countEvicted(countEvicted)
+				.avgEvictMillis(countEvicted > 0 ? totalEvictMillis.get() / countEvicted : 0)
+				.countRestored(countRestored)
+				.avgRestoreMillis(countRestored > 0 ? totalRestoreMillis.get() / countRestored : 0)
+				.maxRestoreMillis(maxRestoreMillis)
+				.build();
+	}
+
+	@Value
+	@Builder
+	public static class Stats
+	{
+		long maxWeight;
+
+		long viewsCount;
+		long viewsWeight;
+		long evictedViewsCount;
+
+		long countEvicted;
+		long avgEvictMillis;
+		long countRestored;
+		long avgRestoreMillis;
+		long maxRestoreMillis;
+	}
+
+	@Value
+	private static class ViewEntry
+	{
+		static ViewEntry of(@NonNull final IView view)
+		{
+			// views which can't be restored shall not be evicted because of their size, but only when they expire
+			final int weight = view.getRestorableStateOrNull() != null ? Math.max(view.getEstimatedWeight(), 1) : 0;
+			return new ViewEntry(view, weight);
+		}
+
+		@NonNull
+		IView view;
+		int weight;
+
+		public ViewId getViewId()
+		{
+			return view.getViewId();
+		}
+	}
 }
@@ -116,6 +116,23 @@ public interface IView
 		// nothing
 	}
 
+	/**
+	 * @return estimated heap usage of this view, in KB. Used by views storages to decide what to evict.
+	 */
+	default int getEstimatedWeight()
+	{
+		return 1;
+	}
+
+	/**
+	 * @return the (small) state from which this view can be re-created after it was evicted from memory, or <code>null</code> if the view cannot be re-created.
+	 */
+	@Nullable
+	default IViewRestorableState getRestorableStateOrNull()
+	{
+		return null;
+	}
+
 	int getQueryLimit();
 
 	boolean isQueryLimitHit();
@@ -6,6 +6,8 @@ import java.util.Set;
 
 import org.adempiere.exceptions.DBException;
 
+import com.google.common.collect.ImmutableListMultimap;
+
 import de.metas.ui.web.document.filter.DocumentFilterList;
 import de.metas.ui.web.document.filter.provider.DocumentFilterDescriptorsProvider;
 import de.metas.ui.web.document.filter.sql.SqlDocumentFilterConverterContext;
@@ -79,4 +81,12 @@ public interface IViewDataRepository
 	ViewRowIdsOrderedSelection removeRowIdsNotMatchingFilters(ViewRowIdsOrderedSelection selection, DocumentFilterList filters, Set<DocumentId> rowIds);
 
 	List<Object> retrieveFieldValues(ViewEvaluationCtx viewEvalCtx, String selectionId, String fieldName, int limit);
+
+	/**
+	 * Retrieves the distinct values of all given fields, together with their counts, in one go.
+	 *
+	 * @param limitPerField max values to retrieve for each field; the most frequent values are retrieved first
+	 * @return values indexed by field name
+	 */
+	ImmutableListMultimap<String, ViewFieldValueCount> retrieveFieldValuesWithCounts(ViewEvaluationCtx viewEvalCtx, String selectionId, Set<String> fieldNames, int limitPerField);
 }
@@ -0,0 +1,60 @@
+package de.metas.ui.web.view;
+
+import org.adempiere.util.lang.impl.TableRecordReferenceSet;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * State of an {@link IView} which was evicted from memory (filters, order bys, selection IDs etc), but which can be re-created on next access.
+ * <p>
+ * Implementations shall not keep references to row caches or other heavy objects.
+ *
+ * @see IView#getRestorableStateOrNull()
+ */
+public interface IViewRestorableState
+{
+	ViewId getViewId();
+
+	/**
+	 * Releases the heavy resources of the evicted view (e.g. in-memory selections). Called once, right after the view was evicted.
+	 */
+	void afterEvicted();
+
+	/**
+	 * Called when records were changed while the view is evicted, because the evicted view is not notified otherwise.
+	 * The changes shall be applied to the view when it's restored.
+	 *
+	 * @see IView#notifyRecordsChanged(TableRecordReferenceSet, boolean)
+	 */
+	void notifyRecordsChanged(TableRecordReferenceSet recordRefs);
+
+	/**
+	 * @return the re-created view
+	 */
+	IView restore();
+
+	/**
+	 * Called if the state is discarded without being restored (e.g. it expired). Shall release everything, like {@link IView#afterDestroy()} does.
+	 */
+	void discard();
+}
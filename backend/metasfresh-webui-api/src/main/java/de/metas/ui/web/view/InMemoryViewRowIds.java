@@ -0,0 +1,140 @@
+package de.metas.ui.web.view;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Set;
+
+import de.metas.ui.web.window.datatypes.DocumentId;
+import lombok.NonNull;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * The ordered (integer) row IDs of a view selection which is kept in memory instead of <code>T_WEBUI_ViewSelection</code>.
+ * <p>
+ * Immutable.
+ */
+final class InMemoryViewRowIds
+{
+	public static InMemoryViewRowIds ofOrderedRowIds(@NonNull final int[] orderedRowIds)
+	{
+		return new InMemoryViewRowIds(orderedRowIds);
+	}
+
+	private final int[] orderedRowIds;
+	private final int[] sortedRowIds;
+
+	private InMemoryViewRowIds(@NonNull final int[] orderedRowIds)
+	{
+		this.orderedRowIds = orderedRowIds;
+
+		this.sortedRowIds = Arrays.copyOf(orderedRowIds, orderedRowIds.length);
+		Arrays.sort(this.sortedRowIds);
+	}
+
+	@Override
+	public String toString()
+	{
+		return "InMemoryViewRowIds[size=" + size() + "]";
+	}
+
+	public int size()
+	{
+		return orderedRowIds.length;
+	}
+
+	/**
+	 * @return estimated heap size of this object
+	 */
+	public long getEstimatedMemoryBytes()
+	{
+		return 16 // this
+				+ 2 * (16 + 4L * orderedRowIds.length); // the two int arrays
+	}
+
+	public boolean contains(final int rowId)
+	{
+		return Arrays.binarySearch(sortedRowIds, rowId) >= 0;
+	}
+
+	public boolean contains(@NonNull final DocumentId rowId)
+	{
+		return rowId.isInt() && contains(rowId.toInt());
+	}
+
+	public boolean containsAny(@NonNull final Collection<DocumentId> rowIds)
+	{
+		return rowIds.stream().anyMatch(this::contains);
+	}
+
+	/**
+	 * @return the row IDs of the given page; empty if the page is after the last row
+	 */
+	public int[] getPage(final int firstRow, final int pageLength)
+	{
+		if (firstRow >= orderedRowIds.length)
+		{
+			return new int[] {};
+		}
+
+		final int toRow = (int)Math.min((long)firstRow + pageLength, orderedRowIds.length);
+		return Arrays.copyOfRange(orderedRowIds, firstRow, toRow);
+	}
+
+	public int[] toArray()
+	{
+		return Arrays.copyOf(orderedRowIds, orderedRowIds.length);
+	}
+
+	/**
+	 * @return new instance with the given row IDs appended at the end, unless they are already contained
+	 */
+	public InMemoryViewRowIds withRowIdsAdded(@NonNull final Set<Integer> rowIdsToAdd)
+	{
+		final int[] newRowIds = Arrays.copyOf(orderedRowIds, orderedRowIds.length + rowIdsToAdd.size());
+		int newSize = orderedRowIds.length;
+		for (final int rowId : rowIdsToAdd)
+		{
+			if (!contains(rowId))
+			{
+				newRowIds[newSize] = rowId;
+				newSize++;
+			}
+		}
+
+		return newSize != orderedRowIds.length
+				? new InMemoryViewRowIds(Arrays.copyOf(newRowIds, newSize))
+				: this;
+	}
+
+	public InMemoryViewRowIds withRowIdsRemoved(@NonNull final Set<Integer> rowIdsToRemove)
+	{
+		final int[] newRowIds = Arrays.stream(orderedRowIds)
+				.filter(rowId -> !rowIdsToRemove.contains(rowId))
+				.toArray();
+
+		return newRowIds.length != orderedRowIds.length
+				? new InMemoryViewRowIds(newRowIds)
+				: this;
+	}
+}
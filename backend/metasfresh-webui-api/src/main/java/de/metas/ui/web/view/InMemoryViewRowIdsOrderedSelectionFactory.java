@@ -0,0 +1,707 @@
+package de.metas.ui.web.view;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToIntFunction;
+import java.util.stream.IntStream;
+
+import javax.annotation.Nullable;
+
+import org.adempiere.ad.trx.api.ITrx;
+import org.adempiere.exceptions.DBException;
+import org.adempiere.service.ISysConfigBL;
+import org.compiere.util.DB;
+import org.slf4j.Logger;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import de.metas.logging.LogManager;
+import de.metas.ui.web.document.filter.DocumentFilterList;
+import de.metas.ui.web.document.filter.sql.SqlDocumentFilterConverterContext;
+import de.metas.ui.web.view.descriptor.SqlAndParams;
+import de.metas.ui.web.view.descriptor.SqlViewBinding;
+import de.metas.ui.web.view.descriptor.SqlViewRowsWhereClause;
+import de.metas.ui.web.view.descriptor.SqlViewSelectionQueryBuilder;
+import de.metas.ui.web.window.datatypes.DocumentId;
+import de.metas.ui.web.window.datatypes.DocumentIdsSelection;
+import de.metas.ui.web.window.model.DocumentQueryOrderByList;
+import de.metas.util.Services;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Value;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Keeps the ordered row IDs of small and medium selections in memory instead of inserting them into <code>T_WEBUI_ViewSelection</code>.
+ * <p>
+ * Only views with a single integer key and without grouping are supported.
+ * Selections which have more than {@value #SYSCONFIG_MaxSize} rows are inserted into <code>T_WEBUI_ViewSelection</code> while they are read, so the selection query is executed only once.
+ * <p>
+ * Code which needs to join <code>T_WEBUI_ViewSelection</code> (e.g. processes running on all rows, sorting, facets) shall call {@link #materializeSelection(String)} first.
+ */
+public final class InMemoryViewRowIdsOrderedSelectionFactory implements ViewRowIdsOrderedSelectionFactory
+{
+	static ViewRowIdsOrderedSelectionFactory wrapIfApplicable(
+			@NonNull final SqlViewBinding viewBinding,
+			@NonNull final SqlViewRowIdsOrderedSelectionFactory sqlFactory)
+	{
+		if (viewBinding.hasGroupingFields() || !viewBinding.getSqlViewKeyColumnNamesMap().isSingleIntKey())
+		{
+			return sqlFactory;
+		}
+
+		return new InMemoryViewRowIdsOrderedSelectionFactory(viewBinding, sqlFactory, sqlFactory::extractQueryLimit, DBStatementsExecutor.instance);
+	}
+
+	private static final Logger logger = LogManager.getLogger(InMemoryViewRowIdsOrderedSelectionFactory.class);
+
+	private static final String SYSCONFIG_Enabled = "de.metas.ui.web.view.InMemorySelection.Enabled";
+	private static final String SYSCONFIG_MaxSize = "de.metas.ui.web.view.InMemorySelection.MaxSize";
+	private static final int DEFAULT_MaxSize = 10000;
+
+	/** All factories which are still in use, for {@link #getStats()} */
+	private static final Set<InMemoryViewRowIdsOrderedSelectionFactory> allFactories = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+
+	private static final AtomicLong countCreated = new AtomicLong();
+	private static final AtomicLong countFallbacks = new AtomicLong();
+	private static final AtomicLong countMaterialized = new AtomicLong();
+	private static final AtomicLong countSpilledToDatabase = new AtomicLong();
+	private static final AtomicLong totalBuildMillis = new AtomicLong();
+	private static volatile long lastBuildMillis = 0;
+	private static volatile long maxBuildMillis = 0;
+
+	private final SqlViewBinding viewBinding;
+	private final ViewRowIdsOrderedSelectionFactory sqlFactory;
+	private final ToIntFunction<ViewEvaluationCtx> queryLimitExtractor;
+	private final StatementsExecutor statementsExecutor;
+
+	/** The in-memory selections of this factory, indexed by selectionId */
+	private final ConcurrentHashMap<String, InMemorySelection> selectionsById = new ConcurrentHashMap<>();
+
+	@VisibleForTesting
+	InMemoryViewRowIdsOrderedSelectionFactory(
+			@NonNull final SqlViewBinding viewBinding,
+			@NonNull final ViewRowIdsOrderedSelectionFactory sqlFactory,
+			@NonNull final ToIntFunction<ViewEvaluationCtx> queryLimitExtractor,
+			@NonNull final StatementsExecutor statementsExecutor)
+	{
+		this.viewBinding = viewBinding;
+		this.sqlFactory = sqlFactory;
+		this.queryLimitExtractor = queryLimitExtractor;
+		this.statementsExecutor = statementsExecutor;
+
+		allFactories.add(this);
+	}
+
+	private SqlViewSelectionQueryBuilder newSqlViewSelectionQueryBuilder()
+	{
+		return SqlViewSelectionQueryBuilder.newInstance(viewBinding);
+	}
+
+	private static boolean isEnabled()
+	{
+		return Services.get(ISysConfigBL.class).getBooleanValue(SYSCONFIG_Enabled, false);
+	}
+
+	private static int getMaxSize()
+	{
+		final int maxSize = Services.get(ISysConfigBL.class).getIntValue(SYSCONFIG_MaxSize, DEFAULT_MaxSize);
+		return maxSize > 0 ? maxSize : DEFAULT_MaxSize;
+	}
+
+	@Override
+	public ViewRowIdsOrderedSelection createOrderedSelection(
+			final ViewEvaluationCtx viewEvalCtx,
+			final ViewId viewId,
+			final DocumentFilterList filters,
+			final DocumentQueryOrderByList orderBys,
+			final boolean applySecurityRestrictions,
+			final SqlDocumentFilterConverterContext context)
+	{
+		if (!isEnabled())
+		{
+			return sqlFactory.createOrderedSelection(viewEvalCtx, viewId, filters, orderBys, applySecurityRestrictions, context);
+		}
+
+		final Stopwatch stopwatch = Stopwatch.createStarted();
+
+		final int queryLimit = queryLimitExtractor.applyAsInt(viewEvalCtx);
+		final SqlAndParams sqlSelect = newSqlViewSelectionQueryBuilder()
+				.applySecurityRestrictions(applySecurityRestrictions)
+				.buildSqlSelectSelection_WithoutGrouping(viewEvalCtx, viewId, filters, orderBys, queryLimit, context);
+
+		final NewSelectionCollector collector = new NewSelectionCollector(viewId.getViewId(), getMaxSize());
+		statementsExecutor.forEachLineAndRowId(sqlSelect, collector::add);
+
+		final int size;
+		if (collector.isInsertingIntoDatabase())
+		{
+			size = collector.finishInsertingIntoDatabase();
+			countFallbacks.incrementAndGet();
+			logger.debug("Selection {} has more than {} rows. Created it in database, rowsCount={}, duration={}", viewId, collector.getMaxSize(), size, stopwatch);
+		}
+		else
+		{
+			final InMemoryViewRowIds rowIds = collector.toInMemoryViewRowIds();
+			selectionsById.put(viewId.getViewId(), new InMemorySelection(rowIds));
+			size = rowIds.size();
+
+			final long buildMillis = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+			countCreated.incrementAndGet();
+			totalBuildMillis.addAndGet(buildMillis);
+			lastBuildMillis = buildMillis;
+			if (buildMillis > maxBuildMillis)
+			{
+				maxBuildMillis = buildMillis;
+			}
+			logger.trace("Created in-memory selection {}, rowsCount={}, duration={}", viewId, size, stopwatch);
+		}
+
+		return ViewRowIdsOrderedSelection.builder()
+				.viewId(viewId)
+				.size(size)
+				.orderBys(orderBys)
+				.queryLimit(queryLimit)
+				.build();
+	}
+
+	@Override
+	public ViewRowIdsOrderedSelection createOrderedSelectionFromSelection(
+			final ViewEvaluationCtx viewEvalCtx,
+			final ViewRowIdsOrderedSelection fromSelection,
+			final DocumentFilterList filters,
+			final DocumentQueryOrderByList orderBys,
+			final SqlDocumentFilterConverterContext filterConverterCtx)
+	{
+		// sorting and filtering is done by database
+		materializeSelection(fromSelection.getSelectionId());
+		return sqlFactory.createOrderedSelectionFromSelection(viewEvalCtx, fromSelection, filters, orderBys, filterConverterCtx);
+	}
+
+	@Override
+	public SqlViewRowsWhereClause getSqlWhereClause(final ViewId viewId, final DocumentIdsSelection rowIds)
+	{
+		final InMemorySelection selection = selectionsById.get(viewId.getViewId());
+		if (selection == null || selection.isMaterialized())
+		{
+			return sqlFactory.getSqlWhereClause(viewId, rowIds);
+		}
+		else if (rowIds.isAll())
+		{
+			materializeSelection(viewId.getViewId());
+			return sqlFactory.getSqlWhereClause(viewId, rowIds);
+		}
+		else
+		{
+			// check the selection in memory and filter only by rowIds in SQL
+			final InMemoryViewRowIds rowIdsInMemory = selection.getRowIds();
+			final ImmutableSet<DocumentId> rowIdsInSelection = rowIds.stream()
+					.filter(rowIdsInMemory::contains)
+					.collect(ImmutableSet.toImmutableSet());
+			if (rowIdsInSelection.isEmpty())
+			{
+				return SqlViewRowsWhereClause.noRecords();
+			}
+
+			return sqlFactory.getSqlWhereClause(viewId, DocumentIdsSelection.of(rowIdsInSelection))
+					.toBuilder()
+					.rowsPresentInViewSelection(null)
+					.build();
+		}
+	}
+
+	@Override
+	public ViewRowIdsOrderedSelection addRowIdsToSelection(final ViewRowIdsOrderedSelection selection, final DocumentIdsSelection rowIds)
+	{
+		final InMemorySelection inMemorySelection = selectionsById.get(selection.getSelectionId());
+		if (inMemorySelection == null)
+		{
+			return sqlFactory.addRowIdsToSelection(selection, rowIds);
+		}
+		else if (rowIds.isEmpty())
+		{
+			return selection;
+		}
+		else if (rowIds.isAll())
+		{
+			throw new IllegalArgumentException("Cannot add ALL to selection");
+		}
+
+		synchronized (inMemorySelection)
+		{
+			if (inMemorySelection.isRemoved())
+			{
+				return sqlFactory.addRowIdsToSelection(selection, rowIds); // spilled or deleted in meantime
+			}
+
+			inMemorySelection.setRowIds(inMemorySelection.getRowIds().withRowIdsAdded(rowIds.toIntSet()));
+			if (inMemorySelection.isMaterialized())
+			{
+				sqlFactory.addRowIdsToSelection(selection, rowIds);
+			}
+
+			return selection.withSize(inMemorySelection.getRowIds().size());
+		}
+	}
+
+	@Override
+	public ViewRowIdsOrderedSelection removeRowIdsFromSelection(final ViewRowIdsOrderedSelection selection, final DocumentIdsSelection rowIds)
+	{
+		final InMemorySelection inMemorySelection = selectionsById.get(selection.getSelectionId());
+		if (inMemorySelection == null)
+		{
+			return sqlFactory.removeRowIdsFromSelection(selection, rowIds);
+		}
+		else if (rowIds.isEmpty())
+		{
+			return selection;
+		}
+
+		synchronized (inMemorySelection)
+		{
+			if (inMemorySelection.isRemoved())
+			{
+				return sqlFactory.removeRowIdsFromSelection(selection, rowIds); // spilled or deleted in meantime
+			}
+
+			inMemorySelection.setRowIds(inMemorySelection.getRowIds().withRowIdsRemoved(rowIds.toIntSet()));
+			if (inMemorySelection.isMaterialized())
+			{
+				sqlFactory.removeRowIdsFromSelection(selection, rowIds);
+			}
+
+			return selection.withSize(inMemorySelection.getRowIds().size());
+		}
+	}
+
+	@Override
+	public boolean containsAnyOfRowIds(final ViewRowIdsOrderedSelection selection, final DocumentIdsSelection rowIds)
+	{
+		final InMemorySelection inMemorySelection = selectionsById.get(selection.getSelectionId());
+		if (inMemorySelection == null)
+		{
+			return sqlFactory.containsAnyOfRowIds(selection, rowIds);
+		}
+		else if (rowIds.isEmpty())
+		{
+			return false;
+		}
+		else if (rowIds.isAll())
+		{
+			return inMemorySelection.getRowIds().size() > 0;
+		}
+		else
+		{
+			return inMemorySelection.getRowIds().containsAny(rowIds.toSet());
+		}
+	}
+
+	@Override
+	public void deleteSelections(@NonNull final Set<String> selectionIds)
+	{
+		final Set<String> selectionIdsInDatabase = removeInMemorySelectionsAndGetTheOnesInDatabase(selectionIds);
+		sqlFactory.deleteSelections(selectionIdsInDatabase);
+	}
+
+	@Override
+	public void scheduleDeleteSelections(@NonNull final Set<String> selectionIds)
+	{
+		final Set<String> selectionIdsInDatabase = removeInMemorySelectionsAndGetTheOnesInDatabase(selectionIds);
+		if (!selectionIdsInDatabase.isEmpty())
+		{
+			sqlFactory.scheduleDeleteSelections(selectionIdsInDatabase);
+		}
+	}
+
+	private Set<String> removeInMemorySelectionsAndGetTheOnesInDatabase(final Set<String> selectionIds)
+	{
+		final ImmutableSet.Builder<String> selectionIdsInDatabase = ImmutableSet.builder();
+		for (final String selectionId : selectionIds)
+		{
+			final InMemorySelection removed = removeInMemorySelection(selectionId);
+			if (removed == null || removed.isMaterialized())
+			{
+				selectionIdsInDatabase.add(selectionId);
+			}
+		}
+		return selectionIdsInDatabase.build();
+	}
+
+	@Nullable
+	private InMemorySelection removeInMemorySelection(@NonNull final String selectionId)
+	{
+		final InMemorySelection removed = selectionsById.remove(selectionId);
+		if (removed != null)
+		{
+			removed.setRemoved();
+		}
+		return removed;
+	}
+
+	@Override
+	@Nullable
+	public InMemoryViewRowIds getInMemoryRowIdsOrNull(@NonNull final String selectionId)
+	{
+		final InMemorySelection selection = selectionsById.get(selectionId);
+		return selection != null ? selection.getRowIds() : null;
+	}
+
+	/**
+	 * Inserts the given selection into <code>T_WEBUI_ViewSelection</code>, out of transaction.
+	 * <p>
+	 * NOTE: the selection is flagged as materialized right away, so the rows shall not be lost if the current transaction is rolled back.
+	 */
+	@Override
+	public void materializeSelection(@NonNull final String selectionId)
+	{
+		final InMemorySelection selection = selectionsById.get(selectionId);
+		if (selection == null)
+		{
+			return;
+		}
+
+		synchronized (selection)
+		{
+			if (selection.isRemoved() || selection.isMaterialized())
+			{
+				return;
+			}
+
+			final int[] rowIds = selection.getRowIds().toArray();
+			final int[] lines = IntStream.rangeClosed(1, rowIds.length).toArray();
+			final SqlAndParams sqlInsert = newSqlViewSelectionQueryBuilder().buildSqlInsertSelectionFromLinesAndRowIds(
+					selectionId,
+					toSqlArrayString(lines, lines.length),
+					toSqlArrayString(rowIds, rowIds.length));
+
+			final Stopwatch stopwatch = Stopwatch.createStarted();
+			final int rowsCount = statementsExecutor.executeUpdate(sqlInsert, ITrx.TRXNAME_None);
+			logger.trace("Materialized in-memory selection {}, rowsCount={}, duration={}", selectionId, rowsCount, stopwatch);
+
+			selection.setMaterialized();
+			countMaterialized.incrementAndGet();
+		}
+	}
+
+	@Override
+	public void spillSelectionsToDatabase(@NonNull final Set<String> selectionIds)
+	{
+		for (final String selectionId : selectionIds)
+		{
+			materializeSelection(selectionId);
+			if (removeInMemorySelection(selectionId) != null)
+			{
+				countSpilledToDatabase.incrementAndGet();
+			}
+		}
+	}
+
+	private static String toSqlArrayString(final int[] values, final int count)
+	{
+		final StringBuilder sql = new StringBuilder("{");
+		for (int i = 0; i < count; i++)
+		{
+			if (i > 0)
+			{
+				sql.append(",");
+			}
+			sql.append(values[i]);
+		}
+		return sql.append("}").toString();
+	}
+
+	public static Stats getStats()
+	{
+		final ImmutableList<InMemoryViewRowIdsOrderedSelectionFactory> factories;
+		synchronized (allFactories)
+		{
+			factories = ImmutableList.copyOf(allFactories);
+		}
+
+		int selectionsCount = 0;
+		long rowsCount = 0;
+		long estimatedMemoryBytes = 0;
+		for (final InMemoryViewRowIdsOrderedSelectionFactory factory : factories)
+		{
+			for (final InMemorySelection selection : factory.selectionsById.values())
+			{
+				final InMemoryViewRowIds rowIds = selection.getRowIds();
+				selectionsCount++;
+				rowsCount += rowIds.size();
+				estimatedMemoryBytes += rowIds.getEstimatedMemoryBytes();
+			}
+		}
+
+		final long countCreated = InMemoryViewRowIdsOrderedSelectionFactory.countCreated.get();
+		return Stats.builder()
+				.enabled(isEnabled())
+				.maxSize(getMaxSize())
+				.selectionsCount(selectionsCount)
+				.rowsCount(rowsCount)
+				.estimatedMemoryBytes(estimatedMemoryBytes)
+				.countCreated(countCreated)
+				.countFallbacksToDatabase(countFallbacks.get())
+				.countMaterialized(countMaterialized.get())
+				.countSpilledToDatabase(countSpilledToDatabase.get())
+				.lastBuildMillis(lastBuildMillis)
+				.maxBuildMillis(maxBuildMillis)
+				.avgBuildMillis(countCreated > 0 ? totalBuildMillis.get() / countCreated : 0)
+				.build();
+	}
+
+	@Value
+	@Builder
+	public static class Stats
+	{
+		boolean enabled;
+		int maxSize;
+
+		int selectionsCount;
+		long rowsCount;
+		long estimatedMemoryBytes;
+
+		long countCreated;
+		long countFallbacksToDatabase;
+		long countMaterialized;
+		long countSpilledToDatabase;
+
+		long lastBuildMillis;
+		long maxBuildMillis;
+		long avgBuildMillis;
+	}
+
+	/**
+	 * Collects the (Line, rowId) pairs of a new selection.
+	 * <p>
+	 * If the selection has more than <code>maxSize</code> rows, the rows collected so far and all the following ones are inserted into <code>T_WEBUI_ViewSelection</code>,
+	 * in chunks of at most <code>maxSize + 1</code> rows.
+	 */
+	private final class NewSelectionCollector
+	{
+		private final String selectionId;
+		@Getter
+		private final int maxSize;
+
+		private long[] lineAndRowIds = new long[256];
+		private int count = 0;
+		private int countInserted = 0;
+
+		private NewSelectionCollector(@NonNull final String selectionId, final int maxSize)
+		{
+			this.selectionId = selectionId;
+			this.maxSize = maxSize;
+		}
+
+		public void add(final int line, final int rowId)
+		{
+			if (count >= lineAndRowIds.length)
+			{
+				lineAndRowIds = Arrays.copyOf(lineAndRowIds, lineAndRowIds.length * 2);
+			}
+			lineAndRowIds[count] = ((long)line << 32) | (rowId & 0xFFFFFFFFL);
+			count++;
+
+			if (count > maxSize)
+			{
+				insertIntoDatabase();
+			}
+		}
+
+		public boolean isInsertingIntoDatabase()
+		{
+			return countInserted > 0;
+		}
+
+		/**
+		 * @return the size of the selection
+		 */
+		public int finishInsertingIntoDatabase()
+		{
+			insertIntoDatabase();
+			return countInserted;
+		}
+
+		private void insertIntoDatabase()
+		{
+			if (count <= 0)
+			{
+				return;
+			}
+
+			final int[] lines = new int[count];
+			final int[] rowIds = new int[count];
+			for (int i = 0; i < count; i++)
+			{
+				lines[i] = (int)(lineAndRowIds[i] >>> 32);
+				rowIds[i] = (int)lineAndRowIds[i];
+			}
+
+			final SqlAndParams sqlInsert = newSqlViewSelectionQueryBuilder().buildSqlInsertSelectionFromLinesAndRowIds(
+					selectionId,
+					toSqlArrayString(lines, count),
+					toSqlArrayString(rowIds, count));
+			statementsExecutor.executeUpdate(sqlInsert, ITrx.TRXNAME_ThreadInherited);
+
+			countInserted += count;
+			count = 0;
+		}
+
+		public InMemoryViewRowIds toInMemoryViewRowIds()
+		{
+			// NOTE: the rows are not ordered by Line, so we sort the (Line, rowId) pairs
+			Arrays.sort(lineAndRowIds, 0, count);
+
+			final int[] orderedRowIds = new int[count];
+			for (int i = 0; i < count; i++)
+			{
+				orderedRowIds[i] = (int)lineAndRowIds[i];
+			}
+			return InMemoryViewRowIds.ofOrderedRowIds(orderedRowIds);
+		}
+	}
+
+	/**
+	 * A selection which is kept in memory.
+	 * <p>
+	 * Changes are synchronized on the instance, including the database changes of a materialized selection, but never on {@link #selectionsById}.
+	 */
+	private static final class InMemorySelection
+	{
+		private InMemoryViewRowIds rowIds;
+
+		/** true if the rows were also inserted into T_WEBUI_ViewSelection */
+		private boolean materialized = false;
+
+		/** true if the selection was removed from memory, i.e. spilled to database or deleted */
+		private boolean removed = false;
+
+		private InMemorySelection(@NonNull final InMemoryViewRowIds rowIds)
+		{
+			this.rowIds = rowIds;
+		}
+
+		public synchronized InMemoryViewRowIds getRowIds()
+		{
+			return rowIds;
+		}
+
+		public synchronized void setRowIds(@NonNull final InMemoryViewRowIds rowIds)
+		{
+			this.rowIds = rowIds;
+		}
+
+		public synchronized boolean isMaterialized()
+		{
+			return materialized;
+		}
+
+		public synchronized void setMaterialized()
+		{
+			this.materialized = true;
+		}
+
+		public synchronized boolean isRemoved()
+		{
+			return removed;
+		}
+
+		public synchronized void setRemoved()
+		{
+			this.removed = true;
+		}
+	}
+
+	/**
+	 * Executes the SQL statements of {@link InMemoryViewRowIdsOrderedSelectionFactory}.
+	 */
+	@VisibleForTesting
+	interface StatementsExecutor
+	{
+		/**
+		 * Executes the given selection query (see {@link SqlViewSelectionQueryBuilder#buildSqlSelectSelection_WithoutGrouping}) and calls the consumer for each row.
+		 */
+		void forEachLineAndRowId(SqlAndParams sqlSelect, LineAndRowIdConsumer consumer);
+
+		int executeUpdate(SqlAndParams sql, String trxName);
+	}
+
+	@FunctionalInterface
+	@VisibleForTesting
+	interface LineAndRowIdConsumer
+	{
+		void accept(int line, int rowId);
+	}
+
+	private static final class DBStatementsExecutor implements StatementsExecutor
+	{
+		private static final DBStatementsExecutor instance = new DBStatementsExecutor();
+
+		/** NOTE: the postgresql driver fetches in chunks only if we run in a transaction; else it reads all rows at once */
+		private static final int FETCH_SIZE = 1000;
+
+		@Override
+		public void forEachLineAndRowId(@NonNull final SqlAndParams sqlSelect, @NonNull final LineAndRowIdConsumer consumer)
+		{
+			PreparedStatement pstmt = null;
+			ResultSet rs = null;
+			try
+			{
+				pstmt = DB.prepareStatement(sqlSelect.getSql(), ITrx.TRXNAME_ThreadInherited);
+				pstmt.setFetchSize(FETCH_SIZE);
+				DB.setParameters(pstmt, sqlSelect.getSqlParams());
+				rs = pstmt.executeQuery();
+				while (rs.next())
+				{
+					consumer.accept(rs.getInt(2), rs.getInt(3));
+				}
+			}
+			catch (final SQLException ex)
+			{
+				throw new DBException(ex, sqlSelect.getSql(), sqlSelect.getSqlParams());
+			}
+			finally
+			{
+				DB.close(rs, pstmt);
+			}
+		}
+
+		@Override
+		public int executeUpdate(@NonNull final SqlAndParams sql, final String trxName)
+		{
+			return DB.executeUpdateEx(sql.getSql(), sql.getSqlParamsArray(), trxName);
+		}
+	}
+}
@@ -4,12 +4,15 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import javax.annotation.Nullable;
+
 import org.adempiere.ad.dao.IQueryBL;
 import org.adempiere.ad.trx.api.ITrx;
 import org.adempiere.exceptions.AdempiereException;
@@ -20,9 +23,12 @@ import org.compiere.util.DisplayType;
 import org.slf4j.Logger;
 
 import com.google.common.base.MoreObjects;
+import com.google.common.base.Stopwatch;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Sets;
 
 import de.metas.logging.LogManager;
@@ -104,7 +110,7 @@ class SqlViewDataRepository implements IViewDataRepository
 		widgetTypesByFieldName = sqlBindings.getWidgetTypesByFieldName();
 		sqlViewSelect = sqlBindings.getSqlViewSelect();
 		viewFilterDescriptors = sqlBindings.getViewFilterDescriptors();
-		viewRowIdsOrderedSelectionFactory = SqlViewRowIdsOrderedSelectionFactory.of(sqlBindings);
+		viewRowIdsOrderedSelectionFactory = InMemoryViewRowIdsOrderedSelectionFactory.wrapIfApplicable(sqlBindings, SqlViewRowIdsOrderedSelectionFactory.of(sqlBindings));
 		defaultOrderBys = sqlBindings.getDefaultOrderBys();
 
 		this.hasIncludedRows = sqlBindings.hasGroupingFields();
@@ -205,14 +211,65 @@ class SqlViewDataRepository implements IViewDataRepository
 		viewRowIdsOrderedSelectionFactory.scheduleDeleteSelections(viewIds);
 	}
 
+	/**
+	 * @return estimated heap size of the given selections which are kept in memory
+	 */
+	public long getInMemorySelectionsEstimatedMemoryBytes(@NonNull final Set<String> selectionIds)
+	{
+		long bytes = 0;
+		for (final String selectionId : selectionIds)
+		{
+			final InMemoryViewRowIds rowIds = viewRowIdsOrderedSelectionFactory.getInMemoryRowIdsOrNull(selectionId);
+			bytes += rowIds != null ? rowIds.getEstimatedMemoryBytes() : 0;
+		}
+		return bytes;
+	}
+
+	public void spillSelectionsToDatabase(@NonNull final Set<String> selectionIds)
+	{
+		viewRowIdsOrderedSelectionFactory.spillSelectionsToDatabase(selectionIds);
+	}
+
+	/**
+	 * @return the in-memory row IDs of given view or <code>null</code> if the selection is in <code>T_WEBUI_ViewSelection</code>
+	 */
+	@Nullable
+	private InMemoryViewRowIds getInMemoryRowIdsOrNull(final ViewId viewId)
+	{
+		if (!sqlViewSelect.isSelectByPageFromRowIdsSupported())
+		{
+			return null;
+		}
+		return viewRowIdsOrderedSelectionFactory.getInMemoryRowIdsOrNull(viewId.getViewId());
+	}
+
 	@Override
 	public IViewRow retrieveById(final ViewEvaluationCtx viewEvalCtx, final ViewId viewId, final DocumentId rowId)
 	{
-		final SqlAndParams sqlAndParams = sqlViewSelect.selectById()
-				.viewEvalCtx(viewEvalCtx)
-				.viewId(viewId)
-				.rowId(rowId)
-				.build();
+		final SqlAndParams sqlAndParams;
+		final InMemoryViewRowIds inMemoryRowIds = getInMemoryRowIdsOrNull(viewId);
+		if (inMemoryRowIds != null)
+		{
+			if (!inMemoryRowIds.contains(rowId))
+			{
+				throw new EntityNotFoundException("No document found for rowId=" + rowId + " in viewId=" + viewId);
+			}
+
+			sqlAndParams = sqlViewSelect.selectByPageFromRowIds()
+					.viewEvalCtx(viewEvalCtx)
+					.viewId(viewId)
+					.firstRowZeroBased(0)
+					.pageRowIds(new int[] { rowId.toInt() })
+					.build();
+		}
+		else
+		{
+			sqlAndParams = sqlViewSelect.selectById()
+					.viewEvalCtx(viewEvalCtx)
+					.viewId(viewId)
+					.rowId(rowId)
+					.build();
+		}
 
 		PreparedStatement pstmt = null;
 		ResultSet rs = null;
@@ -480,12 +537,32 @@ class SqlViewDataRepository implements IViewDataRepository
 		logger.debug("Using: {}", orderedSelection);
 
 		final ViewId viewId = orderedSelection.getViewId();
-		final SqlAndParams sqlAndParams = sqlViewSelect.selectByPage()
-				.viewEvalCtx(viewEvalCtx)
-				.viewId(viewId)
-				.firstRowZeroBased(firstRow)
-				.pageLength(pageLength)
-				.build();
+		final SqlAndParams sqlAndParams;
+		final InMemoryViewRowIds inMemoryRowIds = getInMemoryRowIdsOrNull(viewId);
+		if (inMemoryRowIds != null)
+		{
+			final int[] pageRowIds = inMemoryRowIds.getPage(firstRow, pageLength);
+			if (pageRowIds.length == 0)
+			{
+				return ImmutableList.of();
+			}
+
+			sqlAndParams = sqlViewSelect.selectByPageFromRowIds()
+					.viewEvalCtx(viewEvalCtx)
+					.viewId(viewId)
+					.firstRowZeroBased(firstRow)
+					.pageRowIds(pageRowIds)
+					.build();
+		}
+		else
+		{
+			sqlAndParams = sqlViewSelect.selectByPage()
+					.viewEvalCtx(viewEvalCtx)
+					.viewId(viewId)
+					.firstRowZeroBased(firstRow)
+					.pageLength(pageLength)
+					.build();
+		}
 
 		PreparedStatement pstmt = null;
 		ResultSet rs = null;
@@ -495,8 +572,10 @@ class SqlViewDataRepository implements IViewDataRepository
 			pstmt.setMaxRows(pageLength);
 			DB.setParameters(pstmt, sqlAndParams.getSqlParams());
 
+			final Stopwatch stopwatch = Stopwatch.createStarted();
 			rs = pstmt.executeQuery();
 			final List<IViewRow> page = loadViewRows(rs, viewEvalCtx, viewId, pageLength);
+			logger.debug("Retrieved {} rows (firstRow={}) in {}", page.size(), firstRow, stopwatch);
 			return page;
 		}
 		catch (final SQLException | DBException e)
@@ -520,6 +599,14 @@ class SqlViewDataRepository implements IViewDataRepository
 		logger.debug("Using: {}", orderedSelection);
 
 		final ViewId viewId = orderedSelection.getViewId();
+		final InMemoryViewRowIds inMemoryRowIds = getInMemoryRowIdsOrNull(viewId);
+		if (inMemoryRowIds != null)
+		{
+			return Arrays.stream(inMemoryRowIds.getPage(firstRow, pageLength))
+					.mapToObj(DocumentId::of)
+					.collect(ImmutableList.toImmutableList());
+		}
+
 		final SqlAndParams sqlAndParams = sqlViewSelect.selectRowIdsByPage()
 				.viewEvalCtx(viewEvalCtx)
 				.viewId(viewId)
@@ -706,6 +793,8 @@ class SqlViewDataRepository implements IViewDataRepository
 			@NonNull final String fieldName,
 			final int limit)
 	{
+		viewRowIdsOrderedSelectionFactory.materializeSelection(selectionId);
+
 		final SqlViewRowFieldLoader fieldLoader = rowFieldLoaders.get(fieldName);
 		final SqlAndParams sql = sqlViewSelect.selectFieldValues(viewEvalCtx, selectionId, fieldName, limit);
 
@@ -715,4 +804,50 @@ class SqlViewDataRepository implements IViewDataRepository
 				sql.getSqlParams(),
 				rs -> fieldLoader.retrieveValue(rs, adLanguage));
 	}
+
+	@Override
+	public ImmutableListMultimap<String, ViewFieldValueCount> retrieveFieldValuesWithCounts(
+			@NonNull final ViewEvaluationCtx viewEvalCtx,
+			@NonNull final String selectionId,
+			@NonNull final Set<String> fieldNames,
+			final int limitPerField)
+	{
+		if (fieldNames.isEmpty())
+		{
+			return ImmutableListMultimap.of();
+		}
+
+		viewRowIdsOrderedSelectionFactory.materializeSelection(selectionId);
+
+		final String adLanguage = viewEvalCtx.getAdLanguage();
+		final ImmutableListMultimap.Builder<String, ViewFieldValueCount> result = ImmutableListMultimap.builder();
+		for (final List<String> fieldNamesChunk : Iterables.partition(fieldNames, SqlViewSelectData.MAX_FIELDS_PER_GROUPED_SELECT))
+		{
+			final SqlAndParams sql = sqlViewSelect.selectFieldValuesWithCounts(viewEvalCtx, selectionId, fieldNamesChunk, limitPerField);
+			final List<ViewFieldValueCount> valueCounts = DB.retrieveRows(
+					sql.getSql(),
+					sql.getSqlParams(),
+					rs -> retrieveFieldValueCount(rs, fieldNamesChunk, adLanguage));
+
+			valueCounts.forEach(valueCount -> result.put(valueCount.getFieldName(), valueCount));
+		}
+
+		return result.build();
+	}
+
+	private ViewFieldValueCount retrieveFieldValueCount(
+			@NonNull final ResultSet rs,
+			@NonNull final List<String> fieldNames,
+			final String adLanguage) throws SQLException
+	{
+		final int groupingSet = rs.getInt(SqlViewSelectData.COLUMNNAME_Facet_GroupingSet);
+		final String fieldName = fieldNames.get(SqlViewSelectData.getFieldIndexFromGroupingSet(groupingSet, fieldNames.size()));
+
+		final SqlViewRowFieldLoader fieldLoader = rowFieldLoaders.get(fieldName);
+		return ViewFieldValueCount.builder()
+				.fieldName(fieldName)
+				.value(fieldLoader.retrieveValue(rs, adLanguage))
+				.count(rs.getInt(SqlViewSelectData.COLUMNNAME_Facet_Count))
+				.build();
+	}
 }
@@ -132,7 +132,7 @@ public class SqlViewRowIdsOrderedSelectionFactory implements ViewRowIdsOrderedSe
 				.build();
 	}
 
-	private int extractQueryLimit(final ViewEvaluationCtx viewEvalCtx)
+	int extractQueryLimit(final ViewEvaluationCtx viewEvalCtx)
 	{
 		final UserRolePermissionsKey permissionsKey = viewEvalCtx.getPermissionsKey();
 		final IUserRolePermissions permissions = userRolePermissionsRepo.getUserRolePermissions(permissionsKey);
@@ -0,0 +1,176 @@
+package de.metas.ui.web.view;
+
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import com.google.common.collect.ImmutableList;
+
+import lombok.NonNull;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Remembers the last retrieved page of a view and holds the rows of the page which follows it, if they were already retrieved.
+ * <p>
+ * If the pages are requested one after the other (i.e. when scrolling or exporting), the next page is retrieved together with the requested one
+ * and the following request is served from memory.
+ */
+final class ViewNextPagePrefetcher
+{
+	@FunctionalInterface
+	interface PageRetriever
+	{
+		List<IViewRow> retrievePage(int firstRow, int pageLength);
+	}
+
+	private ViewRowIdsOrderedSelection orderedSelection;
+	private int nextFirstRow = -1;
+
+	private int prefetchedFirstRow = -1;
+	private ImmutableList<IViewRow> prefetchedRows;
+
+	/**
+	 * @param prefetchNextPage if false, the next page is never prefetched, but an already prefetched one is still used
+	 */
+	public List<IViewRow> retrievePage(
+			@NonNull final ViewRowIdsOrderedSelection orderedSelection,
+			final int firstRow,
+			final int pageLength,
+			final boolean prefetchNextPage,
+			@NonNull final PageRetriever pageRetriever)
+	{
+		final List<IViewRow> prefetchedRows = getPrefetchedPageOrNull(orderedSelection, firstRow, pageLength);
+		if (prefetchedRows != null)
+		{
+			return prefetchedRows;
+		}
+
+		final List<IViewRow> rows;
+		if (prefetchNextPage && isSequentialPageRequest(orderedSelection, firstRow))
+		{
+			final List<IViewRow> rowsIncludingNextPage = pageRetriever.retrievePage(firstRow, pageLength * 2);
+			if (rowsIncludingNextPage.size() > pageLength)
+			{
+				rows = ImmutableList.copyOf(rowsIncludingNextPage.subList(0, pageLength));
+
+				final ImmutableList<IViewRow> nextPageRows = ImmutableList.copyOf(rowsIncludingNextPage.subList(pageLength, rowsIncludingNextPage.size()));
+				setPrefetchedPage(orderedSelection, firstRow + pageLength, nextPageRows);
+			}
+			else
+			{
+				rows = rowsIncludingNextPage;
+			}
+		}
+		else
+		{
+			rows = pageRetriever.retrievePage(firstRow, pageLength);
+		}
+
+		setLastRetrievedPage(orderedSelection, firstRow, rows.size());
+
+		return rows;
+	}
+
+	/**
+	 * @return the prefetched rows if they were prefetched for exactly the given page, <code>null</code> otherwise
+	 */
+	@Nullable
+	private synchronized List<IViewRow> getPrefetchedPageOrNull(
+			@NonNull final ViewRowIdsOrderedSelection orderedSelection,
+			final int firstRow,
+			final int pageLength)
+	{
+		if (prefetchedRows == null
+				|| prefetchedFirstRow != firstRow
+				|| !ViewRowIdsOrderedSelection.equals(this.orderedSelection, orderedSelection))
+		{
+			return null;
+		}
+
+		// if the page is shorter than the prefetched one, it's fine; if it's longer, we have to retrieve it
+		if (prefetchedRows.size() < pageLength && firstRow + prefetchedRows.size() < orderedSelection.getSize())
+		{
+			return null;
+		}
+
+		final List<IViewRow> rows = prefetchedRows.size() > pageLength ? prefetchedRows.subList(0, pageLength) : prefetchedRows;
+
+		// the next page will be prefetched again, when it's requested
+		this.prefetchedRows = null;
+		this.prefetchedFirstRow = -1;
+		this.nextFirstRow = firstRow + rows.size();
+
+		return rows;
+	}
+
+	private synchronized boolean isSequentialPageRequest(
+			@NonNull final ViewRowIdsOrderedSelection orderedSelection,
+			final int firstRow)
+	{
+		return firstRow > 0
+				&& firstRow == nextFirstRow
+				&& ViewRowIdsOrderedSelection.equals(this.orderedSelection, orderedSelection);
+	}
+
+	private synchronized void setLastRetrievedPage(
+			@NonNull final ViewRowIdsOrderedSelection orderedSelection,
+			final int firstRow,
+			final int retrievedCount)
+	{
+		if (!ViewRowIdsOrderedSelection.equals(this.orderedSelection, orderedSelection))
+		{
+			this.prefetchedRows = null;
+			this.prefetchedFirstRow = -1;
+		}
+
+		this.orderedSelection = orderedSelection;
+		this.nextFirstRow = firstRow + retrievedCount;
+	}
+
+	private synchronized void setPrefetchedPage(
+			@NonNull final ViewRowIdsOrderedSelection orderedSelection,
+			final int firstRow,
+			@NonNull final ImmutableList<IViewRow> rows)
+	{
+		this.orderedSelection = orderedSelection;
+		this.prefetchedFirstRow = firstRow;
+		this.prefetchedRows = rows;
+	}
+
+	public synchronized int getPrefetchedRowsCount()
+	{
+		return prefetchedRows != null ? prefetchedRows.size() : 0;
+	}
+
+	/**
+	 * Forgets the last retrieved and the prefetched page. To be called when the view's rows changed.
+	 */
+	public synchronized void reset()
+	{
+		orderedSelection = null;
+		nextFirstRow = -1;
+		prefetchedFirstRow = -1;
+		prefetchedRows = null;
+	}
+}
@@ -2,6 +2,8 @@ package de.metas.ui.web.view;
 
 import java.util.Set;
 
+import javax.annotation.Nullable;
+
 import com.google.common.collect.ImmutableSet;
 
 import de.metas.ui.web.document.filter.DocumentFilterList;
@@ -68,4 +70,29 @@ public interface ViewRowIdsOrderedSelectionFactory
 	void deleteSelections(Set<String> selectionIds);
 
 	void scheduleDeleteSelections(Set<String> selectionIds);
+
+	/**
+	 * @return the rows of given selection if they are kept in memory; <code>null</code> if they are stored only in <code>T_WEBUI_ViewSelection</code>
+	 */
+	@Nullable
+	default InMemoryViewRowIds getInMemoryRowIdsOrNull(@NonNull final String selectionId)
+	{
+		return null;
+	}
+
+	/**
+	 * Makes sure the given selection is stored in <code>T_WEBUI_ViewSelection</code>, for code which is joining that table directly.
+	 */
+	default void materializeSelection(@NonNull final String selectionId)
+	{
+		// nothing to do: selections are stored in T_WEBUI_ViewSelection by default
+	}
+
+	/**
+	 * Moves the given selections from memory to <code>T_WEBUI_ViewSelection</code> (out of transaction), in order to release heap.
+	 */
+	default void spillSelectionsToDatabase(@NonNull final Set<String> selectionIds)
+	{
+		// nothing to do: selections are stored in T_WEBUI_ViewSelection by default
+	}
 }
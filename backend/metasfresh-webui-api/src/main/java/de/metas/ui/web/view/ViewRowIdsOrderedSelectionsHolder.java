@@ -53,7 +53,7 @@ final class ViewRowIdsOrderedSelectionsHolder
 	private final DocumentFilterList facetFilters;
 
 	private final AtomicBoolean selectionDeleteBeforeCreate = new AtomicBoolean(false);
-	private final SynchronizedMutable<ViewRowIdsOrderedSelections> currentSelectionsRef = SynchronizedMutable.of(null);
+	private final SynchronizedMutable<ViewRowIdsOrderedSelections> currentSelectionsRef;
 
 	@Builder
 	private ViewRowIdsOrderedSelectionsHolder(
@@ -62,12 +62,14 @@ final class ViewRowIdsOrderedSelectionsHolder
 			final boolean applySecurityRestrictions,
 			@NonNull final DocumentFilterList stickyFilters,
 			@NonNull final DocumentFilterList filters,
-			@NonNull final Supplier<ViewEvaluationCtx> viewEvaluationCtxSupplier)
+			@NonNull final Supplier<ViewEvaluationCtx> viewEvaluationCtxSupplier,
+			@Nullable final ViewRowIdsOrderedSelections initialSelections)
 	{
 		this.viewDataRepository = viewDataRepository;
 		this.viewId = viewId;
 		this.applySecurityRestrictions = applySecurityRestrictions;
 		this.viewEvaluationCtxSupplier = viewEvaluationCtxSupplier;
+		this.currentSelectionsRef = SynchronizedMutable.of(initialSelections);
 
 		final ArrayList<DocumentFilter> filtersExcludingFacetsList = new ArrayList<>();
 		final ArrayList<DocumentFilter> facetFiltersList = new ArrayList<>();
@@ -90,6 +92,20 @@ final class ViewRowIdsOrderedSelectionsHolder
 		facetFilters = DocumentFilterList.ofList(facetFiltersList);
 	}
 
+	public boolean isApplySecurityRestrictions()
+	{
+		return applySecurityRestrictions;
+	}
+
+	/**
+	 * @return current selections, without creating them if they were not created yet
+	 */
+	@Nullable
+	public ViewRowIdsOrderedSelections getCurrentSelectionsIfPresent()
+	{
+		return currentSelectionsRef.getValue();
+	}
+
 	public long getSize()
 	{
 		return getDefaultSelection().getSize();
@@ -181,7 +197,11 @@ final class ViewRowIdsOrderedSelectionsHolder
 		final ViewRowIdsOrderedSelections selections = currentSelectionsRef.setValueAndReturnPrevious(null);
 		if (selections != null)
 		{
-			final ImmutableSet<String> selectionIds = selections.getSelectionIds();
+			// NOTE: also delete the selection before facets filtering, else it would stay in memory if it's an in-memory selection
+			final ImmutableSet<String> selectionIds = ImmutableSet.<String> builder()
+					.add(selections.getDefaultSelectionBeforeFacetsFiltering().getSelectionId())
+					.addAll(selections.getSelectionIds())
+					.build();
 			viewDataRepository.scheduleDeleteSelections(selectionIds);
 		}
 	}
@@ -81,7 +81,7 @@ public class ViewsRepository implements IViewsRepository
 	private boolean truncateSelectionOnStartUp;
 
 	private final ImmutableMap<WindowId, IViewsIndexStorage> viewsIndexStorages;
-	private final IViewsIndexStorage defaultViewsIndexStorage;
+	private final DefaultViewsRepositoryStorage defaultViewsIndexStorage;
 
 	/**
 	 * @param DO_NOT_DELETE_neededForDBAccess not used in here, but we need to cause spring to initialize it <b>before</b> this component can be initialized.
@@ -105,8 +105,10 @@ public class ViewsRepository implements IViewsRepository
 		this.menuTreeRepo = menuTreeRepo;
 		this.websocketActiveSubscriptionsIndex = websocketActiveSubscriptionsIndex;
 
-		final Duration viewExpirationTimeout = Duration.ofMinutes(Services.get(ISysConfigBL.class).getIntValue("de.metas.ui.web.view.ViewExpirationTimeoutInMinutes", 60));
-		defaultViewsIndexStorage = new DefaultViewsRepositoryStorage(viewExpirationTimeout);
+		final ISysConfigBL sysConfigBL = Services.get(ISysConfigBL.class);
+		final Duration viewExpirationTimeout = Duration.ofMinutes(sysConfigBL.getIntValue("de.metas.ui.web.view.ViewExpirationTimeoutInMinutes", 60));
+		final int viewsMaxWeight = sysConfigBL.getIntValue("de.metas.ui.web.view.ViewsMaxWeight", 200000); // KB, see IView#getEstimatedWeight()
+		defaultViewsIndexStorage = new DefaultViewsRepositoryStorage(viewExpirationTimeout, viewsMaxWeight);
 	}
 
 	@PostConstruct
@@ -226,6 +228,11 @@ public class ViewsRepository implements IViewsRepository
 		return defaultViewsIndexStorage;
 	}
 
+	public DefaultViewsRepositoryStorage.Stats getDefaultViewsStorageStats()
+	{
+		return defaultViewsIndexStorage.getStats();
+	}
+
 	private Stream<IView> streamAllViews()
 	{
 		return Streams.concat(viewsIndexStorages.values().stream(), Stream.of(defaultViewsIndexStorage))
@@ -418,6 +425,7 @@ public class ViewsRepository implements IViewsRepository
 				notifyRecordsChanged(recordRefs, viewsIndexStorage);
 			}
 
+			defaultViewsIndexStorage.notifyEvictedViewsRecordsChanged(recordRefs);
 			notifyRecordsChanged(recordRefs, defaultViewsIndexStorage);
 		}
 	}
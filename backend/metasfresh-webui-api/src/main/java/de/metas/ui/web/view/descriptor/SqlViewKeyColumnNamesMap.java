@@ -174,6 +174,12 @@ public final class SqlViewKeyColumnNamesMap
 		return singleKeyColumnName != null;
 	}
 
+	public boolean isSingleIntKey()
+	{
+		return singleWebuiSelectionColumnName != null
+				&& I_T_WEBUI_ViewSelection.COLUMNNAME_IntKeys.contains(singleWebuiSelectionColumnName);
+	}
+
 	public String getWebuiSelectionColumnNameForKeyColumnName(@NonNull final String keyColumnName)
 	{
 		final String webuiSelectionColumnName = webuiSelectionColumnNamesByKeyColumnName.get(keyColumnName);
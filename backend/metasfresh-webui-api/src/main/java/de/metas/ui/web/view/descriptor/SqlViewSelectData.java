@@ -67,6 +67,12 @@ public class SqlViewSelectData
 	public static final String COLUMNNAME_Paging_Parent_Prefix = COLUMNNAME_Paging_Prefix + "parent_";
 	public static final String COLUMNNAME_IsRecordMissing = COLUMNNAME_Paging_Prefix + "IsRecordMissing";
 
+	public static final String COLUMNNAME_Facet_GroupingSet = "_facet_GroupingSet";
+	public static final String COLUMNNAME_Facet_Count = "_facet_Count";
+	private static final String COLUMNNAME_Facet_RowNo = "_facet_RowNo";
+	/** Postgres' <code>GROUPING(...)</code> supports at most 31 arguments */
+	public static final int MAX_FIELDS_PER_GROUPED_SELECT = 31;
+
 	private final String sqlTableName;
 	private final SqlViewKeyColumnNamesMap keyColumnNamesMap;
 	private final ImmutableSet<String> displayFieldNames;
@@ -78,6 +84,8 @@ public class SqlViewSelectData
 	private final IStringExpression sqlSelectRowIdsByPage;
 	@Getter(AccessLevel.PRIVATE)
 	private final IStringExpression sqlSelectById;
+	@Nullable
+	private final IStringExpression sqlSelectByPageFromRowIds;
 	private final IStringExpression sqlSelectLines;
 
 	@Builder
@@ -118,6 +126,16 @@ public class SqlViewSelectData
 						.append("\n ORDER BY " + COLUMNNAME_Paging_SeqNo_OneBased)
 						.build();
 
+		sqlSelectByPageFromRowIds = groupingBinding == null && keyColumnNamesMap.isSingleIntKey()
+				? buildSqlSelect_WithoutGrouping(sqlTableName, sqlTableAlias, keyColumnNamesMap, displayFieldNames, allFields, buildSqlSelectionFromRowIds(keyColumnNamesMap))
+						.toComposer()
+						.append("\n WHERE ")
+						// NOTE: already filtered by UUID
+						.append("\n " + COLUMNNAME_Paging_SeqNo_OneBased + " BETWEEN ? AND ?")
+						.append("\n ORDER BY " + COLUMNNAME_Paging_SeqNo_OneBased)
+						.build()
+				: null;
+
 		sqlSelectById = sqlSelect.toComposer()
 				.append("\n WHERE ")
 				// NOTE: already filtered by UUID
@@ -160,7 +178,7 @@ public class SqlViewSelectData
 	{
 		if (groupingBinding == null)
 		{
-			return buildSqlSelect_WithoutGrouping(sqlTableName, sqlTableAlias, keyColumnNamesMap, displayFieldNames, allFields);
+			return buildSqlSelect_WithoutGrouping(sqlTableName, sqlTableAlias, keyColumnNamesMap, displayFieldNames, allFields, I_T_WEBUI_ViewSelection.Table_Name);
 		}
 		else
 		{
@@ -173,7 +191,8 @@ public class SqlViewSelectData
 			@NonNull final String sqlTableAlias,
 			@NonNull final SqlViewKeyColumnNamesMap keyColumnNamesMap,
 			@NonNull final Collection<String> displayFieldNames,
-			@NonNull final Collection<SqlViewRowFieldBinding> allFields)
+			@NonNull final Collection<SqlViewRowFieldBinding> allFields,
+			@NonNull final String sqlSelectionFrom)
 	{
 		final List<String> sqlSelectValuesList = new ArrayList<>();
 		final List<IStringExpression> sqlSelectDisplayNamesList = new ArrayList<>();
@@ -212,7 +231,7 @@ public class SqlViewSelectData
 				.append("\n , sel." + I_T_WEBUI_ViewSelection.COLUMNNAME_UUID + " AS " + COLUMNNAME_Paging_UUID)
 				.append("\n , ").append(keyColumnNamesMap.getWebuiSelectionColumnNamesCommaSeparated(columnName -> "sel." + columnName + " AS " + COLUMNNAME_Paging_Prefix + columnName))
 				.append("\n , " + keyColumnNamesMap.getSqlIsNullExpression(sqlTableName) + " AS " + COLUMNNAME_IsRecordMissing)
-				.append("\n   FROM " + I_T_WEBUI_ViewSelection.Table_Name + " sel")
+				.append("\n   FROM " + sqlSelectionFrom + " sel")
 				.append("\n   LEFT OUTER JOIN " + sqlTableName + " ON (" + keyColumnNamesMap.getSqlJoinCondition(sqlTableName, "sel") + ")")
 				// Filter by UUID. Keep this closer to the source table, see https://github.com/metasfresh/metasfresh-webui-api/issues/437
 				.append("\n   WHERE sel." + I_T_WEBUI_ViewSelection.COLUMNNAME_UUID + "=?")
@@ -221,6 +240,21 @@ public class SqlViewSelectData
 		return sql.build().caching();
 	}
 
+	/**
+	 * Builds an SQL which can be used instead of <code>T_WEBUI_ViewSelection</code>, for rows which are not stored there but in memory.
+	 * <p>
+	 * SQL Parameters required: 1=UUID, 2=Line offset, 3=row IDs as SQL array string (e.g. <code>{1,2,3}</code>)
+	 */
+	private static String buildSqlSelectionFromRowIds(final SqlViewKeyColumnNamesMap keyColumnNamesMap)
+	{
+		return "(SELECT "
+				+ "?::varchar AS " + I_T_WEBUI_ViewSelection.COLUMNNAME_UUID
+				+ ", x.Line + ? AS " + I_T_WEBUI_ViewSelection.COLUMNNAME_Line
+				+ ", x.IntKey AS " + keyColumnNamesMap.getSingleWebuiSelectionColumnName()
+				+ " FROM unnest(?::numeric[]) WITH ORDINALITY AS x(IntKey, Line)"
+				+ ")";
+	}
+
 	private static IStringExpression buildSqlSelect_WithGrouping(
 			final String sqlTableName,
 			final String sqlTableAlias,
@@ -395,6 +429,50 @@ public class SqlViewSelectData
 		return SqlAndParams.of(sql, viewSelectionId, firstSeqNo, lastSeqNo);
 	}
 
+	/**
+	 * Same as {@link #selectByIdPageBuilder(ViewEvaluationCtx, ViewId, int, int)}, but for a selection which is kept in memory.
+	 *
+	 * @param pageRowIds the row IDs of the page, in order
+	 */
+	@Builder(builderMethodName = "selectByPageFromRowIds", builderClassName = "SelectByPageFromRowIdsBuilder")
+	private SqlAndParams selectByPageFromRowIdsBuilder(
+			@NonNull final ViewEvaluationCtx viewEvalCtx,
+			@NonNull final ViewId viewId,
+			final int firstRowZeroBased,
+			@NonNull final int[] pageRowIds)
+	{
+		Check.assume(firstRowZeroBased >= 0, "firstRow >= 0 but it was {}", firstRowZeroBased);
+		Check.assumeNotNull(sqlSelectByPageFromRowIds, "selecting from row IDs is supported only for views with a single integer key and without grouping");
+
+		final String viewSelectionId = viewId.getViewId();
+		final int firstSeqNo = firstRowZeroBased + 1; // NOTE: firstRow is 0-based while SeqNo are 1-based
+		final int lastSeqNo = firstRowZeroBased + pageRowIds.length;
+
+		final String sql = sqlSelectByPageFromRowIds.evaluate(viewEvalCtx.toEvaluatee(), OnVariableNotFound.Fail);
+		return SqlAndParams.of(sql,
+				viewSelectionId, firstRowZeroBased, toSqlArrayString(pageRowIds), // from row IDs
+				viewSelectionId, firstSeqNo, lastSeqNo);
+	}
+
+	public boolean isSelectByPageFromRowIdsSupported()
+	{
+		return sqlSelectByPageFromRowIds != null;
+	}
+
+	private static String toSqlArrayString(final int[] rowIds)
+	{
+		final StringBuilder sql = new StringBuilder("{");
+		for (int i = 0; i < rowIds.length; i++)
+		{
+			if (i > 0)
+			{
+				sql.append(",");
+			}
+			sql.append(rowIds[i]);
+		}
+		return sql.append("}").toString();
+	}
+
 	@Builder(builderMethodName = "selectRowIdsByPage", builderClassName = "SelectRowIdsByPageBuilder")
 	private SqlAndParams selectRowIdsByIdPageBuilder(
 			@NonNull final ViewEvaluationCtx viewEvalCtx,
@@ -461,23 +539,9 @@ public class SqlViewSelectData
 	{
 		Check.assumeGreaterThanZero(limit, "limit");
 
-		final SqlViewRowFieldBinding field = fieldsByFieldName.get(fieldName);
-		if (field == null)
-		{
-			throw new AdempiereException("Field `" + fieldName + "` not found. Available fields are: " + fieldsByFieldName.keySet());
-		}
-
+		final SqlViewRowFieldBinding field = getFieldByFieldName(fieldName);
 		final SqlSelectValue sqlValue = field.getSqlSelectValue();
-
-		final SqlSelectDisplayValue sqlDisplayValue;
-		if (field.getSqlSelectDisplayValue() != null && displayFieldNames.contains(fieldName))
-		{
-			sqlDisplayValue = field.getSqlSelectDisplayValue();
-		}
-		else
-		{
-			sqlDisplayValue = null;
-		}
+		final SqlSelectDisplayValue sqlDisplayValue = getSqlSelectDisplayValueOrNull(field);
 
 		final CompositeStringExpression.Builder sqlExpression = IStringExpression.composer()
 				.append("SELECT DISTINCT ")
@@ -509,4 +573,110 @@ public class SqlViewSelectData
 
 		return SqlAndParams.of(sql, selectionId, limit);
 	}
+
+	/**
+	 * Builds one SQL which fetches the distinct values of all given fields, together with their occurrence count, using <code>GROUPING SETS</code>.
+	 * <p>
+	 * Each result row belongs to exactly one field. Use {@link #getFieldIndexFromGroupingSet(int, int)} to find out which one.
+	 * For each field, at most <code>limitPerField</code> not null values are fetched. The rows are ordered by field and then by count, most frequent first.
+	 */
+	public SqlAndParams selectFieldValuesWithCounts(
+			@NonNull final ViewEvaluationCtx viewEvalCtx,
+			@NonNull final String selectionId,
+			@NonNull final List<String> fieldNames,
+			final int limitPerField)
+	{
+		Check.assumeNotEmpty(fieldNames, "fieldNames is not empty");
+		Check.assume(fieldNames.size() <= MAX_FIELDS_PER_GROUPED_SELECT, "At most {} fields are allowed but got {}", MAX_FIELDS_PER_GROUPED_SELECT, fieldNames);
+		Check.assumeGreaterThanZero(limitPerField, "limitPerField");
+
+		final List<String> sqlValueAliases = new ArrayList<>();
+		final List<String> sqlGroupingSets = new ArrayList<>();
+		final CompositeStringExpression.Builder sqlInnerSelect = IStringExpression.composer();
+		for (final String fieldName : fieldNames)
+		{
+			final SqlViewRowFieldBinding field = getFieldByFieldName(fieldName);
+			final SqlSelectValue sqlValue = field.getSqlSelectValue();
+			final SqlSelectDisplayValue sqlDisplayValue = getSqlSelectDisplayValueOrNull(field);
+
+			sqlInnerSelect.append(sqlInnerSelect.isEmpty() ? "\n " : "\n, ")
+					.append(sqlValue.withJoinOnTableNameOrAlias(sqlTableName).toSqlStringWithColumnNameAlias());
+			if (sqlDisplayValue != null)
+			{
+				sqlInnerSelect.append("\n, ").append(sqlDisplayValue.withJoinOnTableNameOrAlias(sqlTableName).toStringExpressionWithColumnNameAlias());
+				sqlGroupingSets.add("(" + sqlValue.getColumnNameAlias() + ", " + sqlDisplayValue.getColumnNameAlias() + ")");
+			}
+			else
+			{
+				sqlGroupingSets.add("(" + sqlValue.getColumnNameAlias() + ")");
+			}
+
+			sqlValueAliases.add(sqlValue.getColumnNameAlias());
+		}
+
+		final CompositeStringExpression.Builder sqlExpression = IStringExpression.composer()
+				.append("SELECT * FROM (")
+				.append("\n SELECT g.*, row_number() OVER (PARTITION BY g." + COLUMNNAME_Facet_GroupingSet + " ORDER BY g." + COLUMNNAME_Facet_Count + " DESC) AS " + COLUMNNAME_Facet_RowNo)
+				.append("\n FROM (")
+				.append("\n SELECT t.*")
+				.append("\n, GROUPING(" + Joiner.on(", ").join(sqlValueAliases) + ") AS " + COLUMNNAME_Facet_GroupingSet)
+				.append("\n, COUNT(*) AS " + COLUMNNAME_Facet_Count)
+				.append("\n FROM (")
+				.append("\n SELECT ")
+				.append(sqlInnerSelect.build())
+				.append("\n FROM " + I_T_WEBUI_ViewSelection.Table_Name + " sel")
+				.append("\n INNER JOIN " + sqlTableName + " ON (" + keyColumnNamesMap.getSqlJoinCondition(sqlTableName, "sel") + ")")
+				// Filter by UUID. Keep this closer to the source table, see https://github.com/metasfresh/metasfresh-webui-api/issues/437
+				.append("\n WHERE sel." + I_T_WEBUI_ViewSelection.COLUMNNAME_UUID + "=?")
+				.append("\n ) t")
+				.append("\n GROUP BY GROUPING SETS (" + Joiner.on(", ").join(sqlGroupingSets) + ")")
+				// Skip the NULL value groups, so they don't take the place of a real value; the not grouped fields are NULL anyways
+				.append("\n HAVING " + sqlValueAliases.stream().map(alias -> alias + " IS NOT NULL").collect(Collectors.joining(" OR ")))
+				.append("\n ) g")
+				.append("\n) f")
+				.append("\n WHERE f." + COLUMNNAME_Facet_RowNo + " <= ?")
+				.append("\n ORDER BY f." + COLUMNNAME_Facet_GroupingSet + ", f." + COLUMNNAME_Facet_RowNo);
+
+		final String sql = sqlExpression.build()
+				.evaluate(viewEvalCtx.toEvaluatee(), OnVariableNotFound.Fail);
+
+		return SqlAndParams.of(sql, selectionId, limitPerField);
+	}
+
+	/**
+	 * @param groupingSet value of {@link #COLUMNNAME_Facet_GroupingSet}, i.e. the <code>GROUPING(...)</code> bit mask, where the bits of the <i>not</i> grouped fields are set
+	 * @param fieldsCount how many fields were passed to {@link #selectFieldValuesWithCounts(ViewEvaluationCtx, String, List, int)}
+	 * @return index of the field the row belongs to
+	 */
+	public static int getFieldIndexFromGroupingSet(final int groupingSet, final int fieldsCount)
+	{
+		for (int fieldIndex = 0; fieldIndex < fieldsCount; fieldIndex++)
+		{
+			final int bit = 1 << (fieldsCount - 1 - fieldIndex);
+			if ((groupingSet & bit) == 0)
+			{
+				return fieldIndex;
+			}
+		}
+
+		throw new AdempiereException("No field found for groupingSet=" + groupingSet + ", fieldsCount=" + fieldsCount);
+	}
+
+	private SqlViewRowFieldBinding getFieldByFieldName(@NonNull final String fieldName)
+	{
+		final SqlViewRowFieldBinding field = fieldsByFieldName.get(fieldName);
+		if (field == null)
+		{
+			throw new AdempiereException("Field `" + fieldName + "` not found. Available fields are: " + fieldsByFieldName.keySet());
+		}
+		return field;
+	}
+
+	@Nullable
+	private SqlSelectDisplayValue getSqlSelectDisplayValueOrNull(@NonNull final SqlViewRowFieldBinding field)
+	{
+		return field.getSqlSelectDisplayValue() != null && displayFieldNames.contains(field.getFieldName())
+				? field.getSqlSelectDisplayValue()
+				: null;
+	}
 }
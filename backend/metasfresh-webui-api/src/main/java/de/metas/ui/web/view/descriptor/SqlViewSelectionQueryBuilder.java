@@ -239,18 +239,43 @@ public final class SqlViewSelectionQueryBuilder
 			final int queryLimit,
 			final SqlDocumentFilterConverterContext filterConverterCtx)
 	{
-		final String sqlTableName = getTableName();
-		final String sqlTableAlias = getTableAlias();
 		final SqlViewKeyColumnNamesMap keyColumnNamesMap = getSqlViewKeyColumnNamesMap();
 
 		//
 		// INSERT INTO T_WEBUI_ViewSelection[Line] (...)
-		final CompositeStringExpression.Builder sqlBuilder = IStringExpression.composer();
-		sqlBuilder.append("INSERT INTO " + I_T_WEBUI_ViewSelection.Table_Name + " ("
+		final String sqlInsert = "INSERT INTO " + I_T_WEBUI_ViewSelection.Table_Name + " ("
 				+ " " + I_T_WEBUI_ViewSelection.COLUMNNAME_UUID
 				+ ", " + I_T_WEBUI_ViewSelection.COLUMNNAME_Line // SeqNo
 				+ ", " + keyColumnNamesMap.getWebuiSelectionColumnNamesCommaSeparated() // keys: IntKey1... StringKey1...
-				+ ")");
+				+ ")";
+
+		//
+		// SELECT ... FROM ... WHERE 1=1
+		final SqlAndParams sqlSelect = buildSqlSelectSelection_WithoutGrouping(viewEvalCtx, newViewId, filters, orderBys, queryLimit, filterConverterCtx);
+
+		return SqlAndParams.of(sqlInsert + sqlSelect.getSql(), sqlSelect.getSqlParams());
+	}
+
+	/**
+	 * Builds the SQL which selects the rows of a new selection, i.e. <code>SELECT UUID, Line, keys FROM ... WHERE ... LIMIT ...</code>.
+	 * <p>
+	 * NOTE: the result is not ordered by Line.
+	 */
+	public SqlAndParams buildSqlSelectSelection_WithoutGrouping(
+			@NonNull final ViewEvaluationCtx viewEvalCtx,
+			@NonNull final ViewId newViewId,
+			final DocumentFilterList filters,
+			final DocumentQueryOrderByList orderBys,
+			final int queryLimit,
+			final SqlDocumentFilterConverterContext filterConverterCtx)
+	{
+		Check.assume(!hasGroupingFields(), "view shall not have grouping fields");
+
+		final String sqlTableName = getTableName();
+		final String sqlTableAlias = getTableAlias();
+		final SqlViewKeyColumnNamesMap keyColumnNamesMap = getSqlViewKeyColumnNamesMap();
+
+		final CompositeStringExpression.Builder sqlBuilder = IStringExpression.composer();
 
 		//
 		// SELECT ... FROM ... WHERE 1=1
@@ -310,6 +335,34 @@ public final class SqlViewSelectionQueryBuilder
 		return SqlAndParams.of(sql, sqlParams);
 	}
 
+	/**
+	 * Builds the SQL which inserts the given rows into <code>T_WEBUI_ViewSelection</code>.
+	 * Only views with one integer key column are supported.
+	 *
+	 * @param sqlLinesArray SQL array of the Line values, e.g. <code>{1,2,3}</code>
+	 * @param sqlRowIdsArray SQL array of the row IDs, in the same order as <code>sqlLinesArray</code>
+	 */
+	public SqlAndParams buildSqlInsertSelectionFromLinesAndRowIds(
+			@NonNull final String selectionId,
+			@NonNull final String sqlLinesArray,
+			@NonNull final String sqlRowIdsArray)
+	{
+		final SqlViewKeyColumnNamesMap keyColumnNamesMap = getSqlViewKeyColumnNamesMap();
+		Check.assume(keyColumnNamesMap.isSingleIntKey(), "view shall have a single integer key: {}", keyColumnNamesMap);
+
+		return SqlAndParams.of(
+				"INSERT INTO " + I_T_WEBUI_ViewSelection.Table_Name + " ("
+						+ " " + I_T_WEBUI_ViewSelection.COLUMNNAME_UUID
+						+ ", " + I_T_WEBUI_ViewSelection.COLUMNNAME_Line
+						+ ", " + keyColumnNamesMap.getSingleWebuiSelectionColumnName()
+						+ ")"
+						+ "\n SELECT ?, x.Line, x.IntKey"
+						+ "\n FROM unnest(?::numeric[], ?::numeric[]) AS x(Line, IntKey)",
+				selectionId,
+				sqlLinesArray,
+				sqlRowIdsArray);
+	}
+
 	private SqlAndParams buildSqlCreateSelectionLines_WithGrouping(
 			final ViewEvaluationCtx viewEvalCtx,
 			final ViewId newViewId,
@@ -5,13 +5,18 @@ import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.base.MoreObjects;
+import de.metas.ui.web.websocket.WebsocketCoalescableEvent;
 import de.metas.ui.web.window.datatypes.DocumentIdsSelection;
 import de.metas.ui.web.window.datatypes.WindowId;
 import lombok.NonNull;
 
 import java.io.Serializable;
+import java.util.HashSet;
+import java.util.Objects;
 import java.util.Set;
 
+import javax.annotation.Nullable;
+
 /*
  * #%L
  * metasfresh-webui-api
@@ -36,7 +41,7 @@ import java.util.Set;
 
 @SuppressWarnings("serial")
 @JsonAutoDetect(fieldVisibility = Visibility.ANY, getterVisibility = Visibility.NONE, setterVisibility = Visibility.NONE)
-public final class JSONViewChanges implements Serializable
+public final class JSONViewChanges implements Serializable, WebsocketCoalescableEvent
 {
 	public static JSONViewChanges of(@NonNull final ViewChanges changes)
 	{
@@ -87,6 +92,20 @@ public final class JSONViewChanges implements Serializable
 		headerPropertiesChanged = changes.isHeaderPropertiesChanged() ? true : null;
 	}
 
+	private JSONViewChanges(
+			@NonNull final String viewId,
+			@NonNull final WindowId windowId,
+			@Nullable final Boolean fullyChanged,
+			@Nullable final Set<String> changedIds,
+			@Nullable final Boolean headerPropertiesChanged)
+	{
+		this.viewId = viewId;
+		this.windowId = windowId;
+		this.fullyChanged = fullyChanged;
+		this.changedIds = changedIds;
+		this.headerPropertiesChanged = headerPropertiesChanged;
+	}
+
 	@Override
 	public String toString()
 	{
@@ -114,4 +133,59 @@ public final class JSONViewChanges implements Serializable
 	{
 		return fullyChanged;
 	}
+
+	@Nullable
+	@Override
+	public JSONViewChanges mergeWith(@NonNull final WebsocketCoalescableEvent next)
+	{
+		if (!(next instanceof JSONViewChanges))
+		{
+			return null;
+		}
+
+		final JSONViewChanges nextChanges = (JSONViewChanges)next;
+		if (!Objects.equals(viewId, nextChanges.viewId))
+		{
+			return null;
+		}
+
+		final Boolean headerPropertiesChangedNew = isTrue(headerPropertiesChanged) || isTrue(nextChanges.headerPropertiesChanged) ? Boolean.TRUE : null;
+		if (isTrue(fullyChanged) || isTrue(nextChanges.fullyChanged))
+		{
+			return new JSONViewChanges(viewId, windowId, Boolean.TRUE, null, headerPropertiesChangedNew);
+		}
+
+		final HashSet<String> changedIdsNew = new HashSet<>();
+		if (changedIds != null)
+		{
+			changedIdsNew.addAll(changedIds);
+		}
+		if (nextChanges.changedIds != null)
+		{
+			changedIdsNew.addAll(nextChanges.changedIds);
+		}
+
+		return changedIdsNew.isEmpty()
+				? new JSONViewChanges(viewId, windowId, null, null, headerPropertiesChangedNew)
+				: new JSONViewChanges(viewId, windowId, Boolean.FALSE, changedIdsNew, headerPropertiesChangedNew);
+	}
+
+	@Override
+	public int getChangedIdsCount()
+	{
+		return changedIds != null ? changedIds.size() : 0;
+	}
+
+	@Override
+	public JSONViewChanges toFullyChanged()
+	{
+		return isTrue(fullyChanged)
+				? this
+				: new JSONViewChanges(viewId, windowId, Boolean.TRUE, null, headerPropertiesChanged);
+	}
+
+	private static boolean isTrue(@Nullable final Boolean value)
+	{
+		return value != null && value;
+	}
 }
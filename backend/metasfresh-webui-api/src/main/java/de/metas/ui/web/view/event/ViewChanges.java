@@ -53,6 +53,11 @@ public class ViewChanges
 			fullyChanged = true;
 		}
 
+		if (changes.isHeaderPropertiesChanged())
+		{
+			headerPropertiesChanged = true;
+		}
+
 		if (changes.changedRowIds != null && !changes.changedRowIds.isEmpty())
 		{
 			if (changedRowIds == null)
@@ -0,0 +1,57 @@
+package de.metas.ui.web.websocket;
+
+import javax.annotation.Nullable;
+
+import lombok.NonNull;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Websocket event which can be merged with the following events sent to the same topic, in order to send fewer messages.
+ *
+ * @see WebsocketEventsCoalescer
+ */
+public interface WebsocketCoalescableEvent
+{
+	/**
+	 * @return a new event which contains the changes of both events, or <code>null</code> if the events cannot be merged
+	 */
+	@Nullable
+	WebsocketCoalescableEvent mergeWith(@NonNull WebsocketCoalescableEvent next);
+
+	/**
+	 * @return how many IDs (e.g. changed rows) this event carries
+	 */
+	default int getChangedIdsCount()
+	{
+		return 0;
+	}
+
+	/**
+	 * @return an event which tells the frontend to reload everything instead of carrying the individual changed IDs; or this if not supported
+	 */
+	default WebsocketCoalescableEvent toFullyChanged()
+	{
+		return this;
+	}
+}
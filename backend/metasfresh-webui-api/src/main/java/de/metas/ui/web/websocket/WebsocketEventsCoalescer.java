@@ -0,0 +1,234 @@
+package de.metas.ui.web.websocket;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import de.metas.logging.LogManager;
+import lombok.NonNull;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+/**
+ * Sends at most one message per topic and time window.
+ * <p>
+ * The first event of a topic is sent right away. The events which follow within the window are merged (see {@link WebsocketCoalescableEvent#mergeWith(WebsocketCoalescableEvent)})
+ * and sent as one message when the window ends. If the merged event carries more than <code>maxChangedIds</code> IDs, it's converted to a "fully changed" event.
+ */
+final class WebsocketEventsCoalescer
+{
+	private static final Logger logger = LogManager.getLogger(WebsocketEventsCoalescer.class);
+
+	private static final int MAX_TOPICS_BEFORE_CLEANUP = 1000;
+
+	private final BiConsumer<WebsocketTopicName, Object> sender;
+	private final WebsocketEventsLog eventsLog;
+
+	private volatile int windowMillis = 0;
+	private volatile int maxChangedIds = Integer.MAX_VALUE;
+
+	/** guarded by itself */
+	private final Map<WebsocketTopicName, TopicState> topics = new HashMap<>();
+
+	private final ScheduledExecutorService scheduler;
+	private final LongSupplier clock;
+
+	WebsocketEventsCoalescer(
+			@NonNull final BiConsumer<WebsocketTopicName, Object> sender,
+			@NonNull final WebsocketEventsLog eventsLog)
+	{
+		this(sender,
+				eventsLog,
+				Executors.newSingleThreadScheduledExecutor(
+						new ThreadFactoryBuilder()
+								.setNameFormat(WebsocketEventsCoalescer.class.getSimpleName() + "-%d")
+								.setDaemon(true)
+								.build()),
+				System::currentTimeMillis);
+	}
+
+	@VisibleForTesting
+	WebsocketEventsCoalescer(
+			@NonNull final BiConsumer<WebsocketTopicName, Object> sender,
+			@NonNull final WebsocketEventsLog eventsLog,
+			@NonNull final ScheduledExecutorService scheduler,
+			@NonNull final LongSupplier clock)
+	{
+		this.sender = sender;
+		this.eventsLog = eventsLog;
+		this.scheduler = scheduler;
+		this.clock = clock;
+	}
+
+	/**
+	 * @param windowMillis events sent to the same topic within this window are merged; if <= 0, events are sent directly
+	 */
+	public void setWindowMillis(final int windowMillis)
+	{
+		this.windowMillis = windowMillis;
+		logger.info("Set windowMillis={}", windowMillis);
+	}
+
+	public void setMaxChangedIds(final int maxChangedIds)
+	{
+		this.maxChangedIds = maxChangedIds > 0 ? maxChangedIds : Integer.MAX_VALUE;
+		logger.info("Set maxChangedIds={}", this.maxChangedIds);
+	}
+
+	public boolean isEnabled()
+	{
+		return windowMillis > 0;
+	}
+
+	public void send(@NonNull final WebsocketTopicName destination, @NonNull final WebsocketCoalescableEvent eventParam)
+	{
+		final WebsocketCoalescableEvent event = degradeIfTooManyIds(eventParam);
+
+		final int windowMillis = this.windowMillis;
+		if (windowMillis <= 0)
+		{
+			sender.accept(destination, event);
+			return;
+		}
+
+		final long now = clock.getAsLong();
+		final List<WebsocketCoalescableEvent> eventsToSend;
+		synchronized (topics)
+		{
+			if (topics.size() > MAX_TOPICS_BEFORE_CLEANUP)
+			{
+				removeIdleTopics(now);
+			}
+
+			final TopicState topic = topics.computeIfAbsent(destination, k -> new TopicState());
+			if (topic.pending == null && now - topic.lastSentMillis >= windowMillis)
+			{
+				topic.lastSentMillis = now;
+				eventsToSend = ImmutableList.of(event);
+			}
+			else if (topic.pending == null)
+			{
+				topic.pending = event;
+				scheduler.schedule(() -> flush(destination), topic.lastSentMillis + windowMillis - now, TimeUnit.MILLISECONDS);
+				eventsToSend = ImmutableList.of();
+			}
+			else
+			{
+				final WebsocketCoalescableEvent merged = topic.pending.mergeWith(event);
+				if (merged != null)
+				{
+					topic.pending = degradeIfTooManyIds(merged);
+					eventsLog.countCoalesced();
+					eventsToSend = ImmutableList.of();
+				}
+				else
+				{
+					// cannot merge => send the pending event now, to preserve the order
+					eventsToSend = ImmutableList.of(topic.pending, event);
+					topic.pending = null;
+					topic.lastSentMillis = now;
+				}
+			}
+		}
+
+		// NOTE: sending outside of the lock, so a slow websocket does not block the other topics
+		for (final WebsocketCoalescableEvent eventToSend : eventsToSend)
+		{
+			sender.accept(destination, eventToSend);
+		}
+	}
+
+	private WebsocketCoalescableEvent degradeIfTooManyIds(@NonNull final WebsocketCoalescableEvent event)
+	{
+		if (event.getChangedIdsCount() <= maxChangedIds)
+		{
+			return event;
+		}
+
+		final WebsocketCoalescableEvent fullyChangedEvent = event.toFullyChanged();
+		if (fullyChangedEvent != event)
+		{
+			eventsLog.countDegradedToFullyChanged();
+		}
+		return fullyChangedEvent;
+	}
+
+	private void flush(@NonNull final WebsocketTopicName destination)
+	{
+		final WebsocketCoalescableEvent event;
+		synchronized (topics)
+		{
+			final TopicState topic = topics.get(destination);
+			if (topic == null || topic.pending == null)
+			{
+				return;
+			}
+
+			event = topic.pending;
+			topic.pending = null;
+			topic.lastSentMillis = clock.getAsLong();
+
+			removeIdleTopics(topic.lastSentMillis);
+		}
+
+		try
+		{
+			sender.accept(destination, event);
+		}
+		catch (final Exception ex)
+		{
+			logger.warn("Failed sending to websocket {}: {}", destination, event, ex);
+		}
+	}
+
+	private void removeIdleTopics(final long now)
+	{
+		final int windowMillis = this.windowMillis;
+		for (final Iterator<TopicState> it = topics.values().iterator(); it.hasNext();)
+		{
+			final TopicState topic = it.next();
+			if (topic.pending == null && now - topic.lastSentMillis >= windowMillis)
+			{
+				it.remove();
+			}
+		}
+	}
+
+	private static final class TopicState
+	{
+		private long lastSentMillis = 0;
+		private WebsocketCoalescableEvent pending = null;
+	}
+}
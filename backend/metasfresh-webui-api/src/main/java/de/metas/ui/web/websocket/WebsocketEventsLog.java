@@ -5,6 +5,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 
@@ -42,8 +43,14 @@ final class WebsocketEventsLog
 	private final AtomicInteger logEventsMaxSize = new AtomicInteger(500);
 	private final List<WebsocketEventLogRecord> loggedEvents = new LinkedList<>();
 
+	private final AtomicLong countSent = new AtomicLong();
+	private final AtomicLong countCoalesced = new AtomicLong();
+	private final AtomicLong countDegradedToFullyChanged = new AtomicLong();
+
 	public void logEvent(final WebsocketTopicName destination, final Object event)
 	{
+		countSent.incrementAndGet();
+
 		if (!logEventsEnabled.get())
 		{
 			return;
@@ -62,6 +69,31 @@ final class WebsocketEventsLog
 		}
 	}
 
+	/**
+	 * Called when an event was merged into a pending one, i.e. it was not sent on its own.
+	 */
+	public void countCoalesced()
+	{
+		countCoalesced.incrementAndGet();
+	}
+
+	/**
+	 * Called when an event carried too many IDs and was converted to a "fully changed" event.
+	 */
+	public void countDegradedToFullyChanged()
+	{
+		countDegradedToFullyChanged.incrementAndGet();
+	}
+
+	public WebsocketEventsStats getStats()
+	{
+		return WebsocketEventsStats.builder()
+				.countSent(countSent.get())
+				.countCoalesced(countCoalesced.get())
+				.countDegradedToFullyChanged(countDegradedToFullyChanged.get())
+				.build();
+	}
+
 	public void setLogEventsEnabled(final boolean enabled)
 	{
 		final boolean enabledOld = logEventsEnabled.getAndSet(enabled);
@@ -59,21 +59,39 @@ public class WebsocketSender implements InitializingBean
 
 	private final SimpMessagingTemplate websocketMessagingTemplate;
 	private final WebsocketEventsLog eventsLog = new WebsocketEventsLog();
+	private final WebsocketEventsCoalescer coalescer;
 	private final WebsocketEventsQueue autoflushQueue;
 
 	@Value("${metasfresh.webui.websocket.logEventsEnabled:false}")
 	private boolean logEventsEnabledDefault;
 
+	/** Events sent to the same topic within this time window are merged into one message. Set to 0 to disable. */
+	@Value("${metasfresh.webui.websocket.coalesceWindowMillis:200}")
+	private int coalesceWindowMillis;
+
+	/** Events which carry more changed IDs than this are sent as "fully changed" events */
+	@Value("${metasfresh.webui.websocket.maxChangedIdsPerEvent:1000}")
+	private int maxChangedIdsPerEvent;
+
 	public WebsocketSender(final SimpMessagingTemplate websocketMessagingTemplate)
 	{
 		this.websocketMessagingTemplate = websocketMessagingTemplate;
-		autoflushQueue = new WebsocketEventsQueue("AUTOFLUSH", websocketMessagingTemplate, eventsLog, /* autoflush */true);
+		coalescer = new WebsocketEventsCoalescer(this::sendNow, eventsLog);
+		autoflushQueue = new WebsocketEventsQueue("AUTOFLUSH", websocketMessagingTemplate, eventsLog, coalescer, /* autoflush */true);
 	}
 
 	@Override
 	public void afterPropertiesSet() throws Exception
 	{
 		eventsLog.setLogEventsEnabled(logEventsEnabledDefault);
+		coalescer.setWindowMillis(coalesceWindowMillis);
+		coalescer.setMaxChangedIds(maxChangedIdsPerEvent);
+	}
+
+	private void sendNow(@NonNull final WebsocketTopicName destination, @Nullable final Object payload)
+	{
+		websocketMessagingTemplate.convertAndSend(destination.getAsString(), payload);
+		eventsLog.logEvent(destination, payload);
 	}
 
 	public void convertAndSend(final Collection<? extends WebsocketEndpointAware> events)
@@ -118,7 +136,7 @@ public class WebsocketSender implements InitializingBean
 	{
 		final String name = trx.getTrxName();
 		final boolean autoflush = false;
-		final WebsocketEventsQueue queue = new WebsocketEventsQueue(name, websocketMessagingTemplate, eventsLog, autoflush);
+		final WebsocketEventsQueue queue = new WebsocketEventsQueue(name, websocketMessagingTemplate, eventsLog, coalescer, autoflush);
 
 		// Bind
 		trx.getTrxListenerManager()
@@ -143,6 +161,11 @@ public class WebsocketSender implements InitializingBean
 		return eventsLog.getLoggedEvents(destinationFilter);
 	}
 
+	public WebsocketEventsStats getStats()
+	{
+		return eventsLog.getStats();
+	}
+
 	@lombok.Value
 	@lombok.Builder
 	private static final class WebsocketEvent
@@ -158,6 +181,7 @@ public class WebsocketSender implements InitializingBean
 		private final String name;
 		private final SimpMessagingTemplate websocketMessagingTemplate;
 		private final WebsocketEventsLog eventsLog;
+		private final WebsocketEventsCoalescer coalescer;
 		private final boolean autoflush;
 		private final List<WebsocketEvent> events = new ArrayList<>();
 
@@ -165,11 +189,13 @@ public class WebsocketSender implements InitializingBean
 				@NonNull final String name,
 				@NonNull final SimpMessagingTemplate websocketMessagingTemplate,
 				@NonNull final WebsocketEventsLog eventsLog,
+				@NonNull final WebsocketEventsCoalescer coalescer,
 				final boolean autoflush)
 		{
 			this.name = name;
 			this.websocketMessagingTemplate = websocketMessagingTemplate;
 			this.eventsLog = eventsLog;
+			this.coalescer = coalescer;
 			this.autoflush = autoflush;
 		}
 
@@ -243,6 +269,10 @@ public class WebsocketSender implements InitializingBean
 				final Message<?> message = (Message<?>)payload;
 				websocketMessagingTemplate.send(destination.getAsString(), message);
 			}
+			else if (payload instanceof WebsocketCoalescableEvent)
+			{
+				coalescer.send(destination, (WebsocketCoalescableEvent)payload);
+			}
 			else
 			{
 				websocketMessagingTemplate.convertAndSend(destination.getAsString(), payload);
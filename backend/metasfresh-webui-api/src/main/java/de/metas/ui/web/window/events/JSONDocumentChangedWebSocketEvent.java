@@ -5,6 +5,8 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
 
+import javax.annotation.Nullable;
+
 import org.adempiere.exceptions.AdempiereException;
 
 import com.fasterxml.jackson.annotation.JsonAutoDetect;
@@ -13,6 +15,7 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import de.metas.ui.web.websocket.WebsocketCoalescableEvent;
 import de.metas.ui.web.websocket.WebsocketEndpointAware;
 import de.metas.ui.web.websocket.WebsocketTopicName;
 import de.metas.ui.web.websocket.WebsocketTopicNames;
@@ -60,7 +63,7 @@ import lombok.ToString;
 @JsonAutoDetect(fieldVisibility = Visibility.ANY, getterVisibility = Visibility.NONE, isGetterVisibility = Visibility.NONE, setterVisibility = Visibility.NONE)
 @EqualsAndHashCode
 @ToString
-final class JSONDocumentChangedWebSocketEvent implements WebsocketEndpointAware
+final class JSONDocumentChangedWebSocketEvent implements WebsocketEndpointAware, WebsocketCoalescableEvent
 {
 	public static JSONDocumentChangedWebSocketEvent rootDocument(final WindowId windowId, final DocumentId documentId)
 	{
@@ -168,6 +171,27 @@ final class JSONDocumentChangedWebSocketEvent implements WebsocketEndpointAware
 		getIncludedTabInfo(tabId).staleRows(rowIds);
 	}
 
+	@Nullable
+	@Override
+	public JSONDocumentChangedWebSocketEvent mergeWith(@NonNull final WebsocketCoalescableEvent next)
+	{
+		if (!(next instanceof JSONDocumentChangedWebSocketEvent))
+		{
+			return null;
+		}
+
+		final JSONDocumentChangedWebSocketEvent nextEvent = (JSONDocumentChangedWebSocketEvent)next;
+		if (!Objects.equals(windowId, nextEvent.windowId)
+				|| !Objects.equals(id, nextEvent.id))
+		{
+			return null;
+		}
+
+		final JSONDocumentChangedWebSocketEvent merged = copy();
+		merged.mergeFrom(nextEvent);
+		return merged;
+	}
+
 	void mergeFrom(@NonNull final JSONDocumentChangedWebSocketEvent from)
 	{
 		if (!Objects.equals(windowId, from.windowId)
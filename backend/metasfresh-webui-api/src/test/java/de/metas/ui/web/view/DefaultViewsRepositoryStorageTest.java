@@ -0,0 +1,256 @@
+package de.metas.ui.web.view;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.stream.Collectors;
+
+import org.adempiere.util.lang.impl.TableRecordReferenceSet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.metas.ui.web.window.datatypes.WindowId;
+
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class DefaultViewsRepositoryStorageTest
+{
+	private static final long MAX_WEIGHT = 10;
+
+	private DefaultViewsRepositoryStorage storage;
+
+	@BeforeEach
+	public void init()
+	{
+		storage = new DefaultViewsRepositoryStorage(Duration.ofHours(1), MAX_WEIGHT);
+	}
+
+	private static IView newView(final ViewId viewId, final int weight)
+	{
+		final IView view = mock(IView.class);
+		when(view.getViewId()).thenReturn(viewId);
+		when(view.getEstimatedWeight()).thenReturn(weight);
+		return view;
+	}
+
+	private static IView newView(final int weight)
+	{
+		return newView(ViewId.random(WindowId.of(123)), weight);
+	}
+
+	/**
+	 * @return the state of given view, which restores a new view having the same ID and weight
+	 */
+	private static IViewRestorableState makeRestorable(final IView view)
+	{
+		final IView restoredView = newView(view.getViewId(), view.getEstimatedWeight());
+
+		final IViewRestorableState restorableState = mock(IViewRestorableState.class);
+		when(restorableState.getViewId()).thenReturn(view.getViewId());
+		when(restorableState.restore()).thenReturn(restoredView);
+
+		when(view.getRestorableStateOrNull()).thenReturn(restorableState);
+		when(restoredView.getRestorableStateOrNull()).thenReturn(restorableState);
+		return restorableState;
+	}
+
+	private Object[] getViewsInMemory()
+	{
+		return storage.streamAllViews().collect(Collectors.toList()).toArray();
+	}
+
+	@Test
+	public void leastRecentlyUsedView_isEvicted_andRestoredOnAccess()
+	{
+		final IView view1 = newView(6);
+		final IViewRestorableState view1State = makeRestorable(view1);
+		final IView view2 = newView(6);
+		final IViewRestorableState view2State = makeRestorable(view2);
+
+		storage.put(view1);
+		storage.put(view2);
+
+		verify(view1State).afterEvicted();
+		verify(view1, never()).afterDestroy();
+		assertThat(getViewsInMemory()).containsExactly(view2);
+		assertThat(storage.getStats().getEvictedViewsCount()).isEqualTo(1);
+
+		final IView restoredView1 = storage.getByIdOrNull(view1.getViewId());
+		assertThat(restoredView1).isNotNull().isNotSameAs(view1);
+		assertThat(restoredView1.getViewId()).isEqualTo(view1.getViewId());
+
+		// view2 had to make room for the restored view
+		verify(view2State).afterEvicted();
+		assertThat(getViewsInMemory()).containsExactly(restoredView1);
+
+		assertThat(storage.getStats().getCountEvicted()).isEqualTo(2);
+		assertThat(storage.getStats().getCountRestored()).isEqualTo(1);
+	}
+
+	@Test
+	public void notRestorableView_isNotEvicted()
+	{
+		final IView view1 = newView(6);
+		final IView view2 = newView(6);
+		final IView view3 = newView(6);
+		makeRestorable(view3);
+
+		storage.put(view1);
+		storage.put(view2);
+		storage.put(view3);
+
+		verify(view1, never()).afterDestroy();
+		verify(view2, never()).afterDestroy();
+		assertThat(getViewsInMemory()).containsExactlyInAnyOrder(view1, view2, view3);
+		assertThat(storage.getStats().getViewsWeight()).isEqualTo(6);
+	}
+
+	@Test
+	public void closeEvictedView_discardsWithoutRestoring()
+	{
+		final IView view1 = newView(6);
+		final IViewRestorableState view1State = makeRestorable(view1);
+		final IView view2 = newView(6);
+		makeRestorable(view2);
+
+		storage.put(view1);
+		storage.put(view2);
+		storage.closeById(view1.getViewId(), ViewCloseAction.DONE);
+
+		verify(view1State, never()).restore();
+		verify(view1State).discard();
+		assertThat(storage.getByIdOrNull(view1.getViewId())).isNull();
+		assertThat(getViewsInMemory()).containsExactly(view2);
+	}
+
+	@Test
+	public void invalidateEvictedView_doesNotRestore()
+	{
+		final IView view1 = newView(6);
+		final IViewRestorableState view1State = makeRestorable(view1);
+		final IView view2 = newView(6);
+		makeRestorable(view2);
+
+		storage.put(view1);
+		storage.put(view2);
+		storage.invalidateView(view1.getViewId());
+
+		verify(view1State, never()).restore();
+		assertThat(getViewsInMemory()).containsExactly(view2);
+	}
+
+	/**
+	 * Guava applies the maximum weight per cache segment, so the storage shall use only one segment, else views would be evicted way before the maximum weight is reached.
+	 */
+	@Test
+	public void maxWeightAppliesToAllViewsTogether()
+	{
+		final IView view1 = newView(3);
+		final IView view2 = newView(3);
+		final IView view3 = newView(3);
+		final IView view4 = newView(3);
+		makeRestorable(view1);
+		makeRestorable(view2);
+		makeRestorable(view3);
+		makeRestorable(view4);
+
+		storage.put(view1);
+		storage.put(view2);
+		storage.put(view3);
+		assertThat(getViewsInMemory()).containsExactlyInAnyOrder(view1, view2, view3);
+
+		storage.put(view4);
+		assertThat(getViewsInMemory()).containsExactlyInAnyOrder(view2, view3, view4);
+		assertThat(storage.getStats().getViewsWeight()).isEqualTo(9);
+	}
+
+	@Test
+	public void evictedView_isNotifiedAboutChangedRecords()
+	{
+		final IView view1 = newView(6);
+		final IViewRestorableState view1State = makeRestorable(view1);
+		final IView view2 = newView(6);
+		makeRestorable(view2);
+
+		storage.put(view1);
+		storage.put(view2);
+
+		final TableRecordReferenceSet recordRefs = TableRecordReferenceSet.of("C_BPartner", 1);
+		storage.notifyEvictedViewsRecordsChanged(recordRefs);
+
+		verify(view1State).notifyRecordsChanged(recordRefs);
+	}
+
+	@Test
+	public void evictedView_noChangedRecords_isNotNotified()
+	{
+		final IView view1 = newView(6);
+		final IViewRestorableState view1State = makeRestorable(view1);
+		final IView view2 = newView(6);
+		makeRestorable(view2);
+
+		storage.put(view1);
+		storage.put(view2);
+
+		storage.notifyEvictedViewsRecordsChanged(TableRecordReferenceSet.EMPTY);
+
+		verify(view1State, never()).notifyRecordsChanged(TableRecordReferenceSet.EMPTY);
+	}
+
+	@Test
+	public void putAgain_discardsEvictedState()
+	{
+		final IView view1 = newView(6);
+		final IViewRestorableState view1State = makeRestorable(view1);
+		final IView view2 = newView(6);
+		makeRestorable(view2);
+
+		storage.put(view1);
+		storage.put(view2);
+
+		final IView newView1 = newView(view1.getViewId(), 1);
+		storage.put(newView1);
+
+		assertThat(storage.getByIdOrNull(view1.getViewId())).isSameAs(newView1);
+		verify(view1State, never()).restore();
+		verify(view1State, never()).discard();
+	}
+
+	@Test
+	public void notBounded()
+	{
+		storage = new DefaultViewsRepositoryStorage(Duration.ofHours(1));
+		final IView view1 = newView(100);
+		final IView view2 = newView(100);
+
+		storage.put(view1);
+		storage.put(view2);
+
+		assertThat(getViewsInMemory()).containsExactlyInAnyOrder(view1, view2);
+	}
+}
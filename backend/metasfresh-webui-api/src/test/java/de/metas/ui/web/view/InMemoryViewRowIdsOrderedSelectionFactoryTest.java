@@ -0,0 +1,301 @@
+package de.metas.ui.web.view;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.adempiere.ad.trx.api.ITrx;
+import org.adempiere.service.ClientId;
+import org.adempiere.service.ISysConfigBL;
+import org.adempiere.test.AdempiereTestHelper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import de.metas.organization.OrgId;
+import de.metas.security.RoleId;
+import de.metas.security.UserRolePermissionsKey;
+import de.metas.ui.web.document.filter.DocumentFilterList;
+import de.metas.ui.web.document.filter.sql.SqlDocumentFilterConverterContext;
+import de.metas.ui.web.view.descriptor.SqlAndParams;
+import de.metas.ui.web.view.descriptor.SqlViewBinding;
+import de.metas.ui.web.view.descriptor.SqlViewRowFieldBinding;
+import de.metas.ui.web.window.datatypes.DocumentIdsSelection;
+import de.metas.ui.web.window.datatypes.WindowId;
+import de.metas.ui.web.window.descriptor.DocumentFieldWidgetType;
+import de.metas.ui.web.window.descriptor.sql.SqlSelectValue;
+import de.metas.ui.web.window.model.DocumentQueryOrderByList;
+import de.metas.user.UserId;
+import de.metas.util.Services;
+import lombok.Value;
+
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class InMemoryViewRowIdsOrderedSelectionFactoryTest
+{
+	private static final int MAX_SIZE = 5;
+	private static final int QUERY_LIMIT = 100;
+
+	@Value
+	private static class ExecutedUpdate
+	{
+		List<Object> sqlParams;
+		String trxName;
+	}
+
+	/** Returns the configured (Line, rowId) pairs for any selection query and records the updates instead of executing them */
+	private static class RecordingStatementsExecutor implements InMemoryViewRowIdsOrderedSelectionFactory.StatementsExecutor
+	{
+		private final List<int[]> linesAndRowIds = new ArrayList<>();
+		private final List<List<Object>> executedSelects = new ArrayList<>();
+		private final List<ExecutedUpdate> executedUpdates = new ArrayList<>();
+
+		@Override
+		public void forEachLineAndRowId(final SqlAndParams sqlSelect, final InMemoryViewRowIdsOrderedSelectionFactory.LineAndRowIdConsumer consumer)
+		{
+			executedSelects.add(sqlSelect.getSqlParams());
+			linesAndRowIds.forEach(lineAndRowId -> consumer.accept(lineAndRowId[0], lineAndRowId[1]));
+		}
+
+		@Override
+		public int executeUpdate(final SqlAndParams sql, final String trxName)
+		{
+			executedUpdates.add(new ExecutedUpdate(sql.getSqlParams(), trxName));
+			return 1;
+		}
+	}
+
+	private RecordingStatementsExecutor statementsExecutor;
+	private ViewRowIdsOrderedSelectionFactory sqlFactory;
+	private InMemoryViewRowIdsOrderedSelectionFactory factory;
+
+	@BeforeEach
+	public void init()
+	{
+		AdempiereTestHelper.get().init();
+
+		final ISysConfigBL sysConfigBL = Services.get(ISysConfigBL.class);
+		sysConfigBL.setValue("de.metas.ui.web.view.InMemorySelection.Enabled", true, ClientId.SYSTEM, OrgId.ANY);
+		sysConfigBL.setValue("de.metas.ui.web.view.InMemorySelection.MaxSize", MAX_SIZE, ClientId.SYSTEM, OrgId.ANY);
+
+		statementsExecutor = new RecordingStatementsExecutor();
+		sqlFactory = mock(ViewRowIdsOrderedSelectionFactory.class);
+		factory = newFactory();
+	}
+
+	private InMemoryViewRowIdsOrderedSelectionFactory newFactory()
+	{
+		return new InMemoryViewRowIdsOrderedSelectionFactory(createViewBinding(), sqlFactory, viewEvalCtx -> QUERY_LIMIT, statementsExecutor);
+	}
+
+	private static SqlViewBinding createViewBinding()
+	{
+		final SqlViewRowFieldBinding keyField = SqlViewRowFieldBinding.builder()
+				.fieldName("Test_ID")
+				.widgetType(DocumentFieldWidgetType.Integer)
+				.sqlValueClass(Integer.class)
+				.fieldLoader((rs, adLanguage) -> rs.getInt("Test_ID"))
+				.keyColumn(true)
+				.sqlSelectValue(SqlSelectValue.builder()
+						.columnName("Test_ID")
+						.columnNameAlias("Test_ID")
+						.build())
+				.build();
+
+		return SqlViewBinding.builder()
+				.tableName("Test")
+				.field(keyField)
+				.displayFieldNames("Test_ID")
+				.build();
+	}
+
+	/** @param rowIdsOrderedByLine the row IDs, returned by the selection query in reversed order, to make sure they are sorted by Line */
+	private void givenSelectionQueryReturns(final int... rowIdsOrderedByLine)
+	{
+		for (int i = rowIdsOrderedByLine.length - 1; i >= 0; i--)
+		{
+			statementsExecutor.linesAndRowIds.add(new int[] { i + 1, rowIdsOrderedByLine[i] });
+		}
+	}
+
+	private ViewRowIdsOrderedSelection createOrderedSelection(final ViewId viewId)
+	{
+		final ViewEvaluationCtx viewEvalCtx = ViewEvaluationCtx._builder()
+				.loggedUserId(Optional.empty())
+				.adLanguage("en_US")
+				.timeZone(ZoneId.of("UTC"))
+				.permissionsKey(UserRolePermissionsKey.of(RoleId.SYSTEM, UserId.SYSTEM, ClientId.SYSTEM, LocalDate.now()))
+				.build();
+
+		return factory.createOrderedSelection(
+				viewEvalCtx,
+				viewId,
+				DocumentFilterList.EMPTY,
+				DocumentQueryOrderByList.EMPTY,
+				false,
+				SqlDocumentFilterConverterContext.EMPTY);
+	}
+
+	private static ViewId newViewId()
+	{
+		return ViewId.random(WindowId.of(123));
+	}
+
+	@Test
+	public void smallSelection_isKeptInMemory()
+	{
+		givenSelectionQueryReturns(30, 10, 20);
+		final ViewId viewId = newViewId();
+
+		final ViewRowIdsOrderedSelection selection = createOrderedSelection(viewId);
+
+		assertThat(selection.getSize()).isEqualTo(3);
+		assertThat(selection.getQueryLimit()).isEqualTo(QUERY_LIMIT);
+		assertThat(factory.getInMemoryRowIdsOrNull(viewId.getViewId()).toArray()).containsExactly(30, 10, 20);
+
+		// selection query parameters: UUID, LIMIT
+		assertThat(statementsExecutor.executedSelects).containsExactly(ImmutableList.of(viewId.getViewId(), QUERY_LIMIT));
+		assertThat(statementsExecutor.executedUpdates).isEmpty();
+		verify(sqlFactory, never()).createOrderedSelection(any(), any(), any(), any(), anyBoolean(), any());
+	}
+
+	@Test
+	public void tooBigSelection_isInsertedIntoDatabase_withoutRunningTheQueryAgain()
+	{
+		givenSelectionQueryReturns(10, 20, 30, 40, 50, 60, 70);
+		final ViewId viewId = newViewId();
+
+		final ViewRowIdsOrderedSelection selection = createOrderedSelection(viewId);
+
+		assertThat(selection.getSize()).isEqualTo(7);
+		assertThat(factory.getInMemoryRowIdsOrNull(viewId.getViewId())).isNull();
+
+		assertThat(statementsExecutor.executedSelects).hasSize(1);
+		verify(sqlFactory, never()).createOrderedSelection(any(), any(), any(), any(), anyBoolean(), any());
+
+		// insert parameters: UUID, Lines, row IDs; the query returns the rows in reversed order
+		assertThat(statementsExecutor.executedUpdates).containsExactly(
+				new ExecutedUpdate(ImmutableList.of(viewId.getViewId(), "{7,6,5,4,3,2}", "{70,60,50,40,30,20}"), ITrx.TRXNAME_ThreadInherited),
+				new ExecutedUpdate(ImmutableList.of(viewId.getViewId(), "{1}", "{10}"), ITrx.TRXNAME_ThreadInherited));
+	}
+
+	@Test
+	public void materializeSelection_outOfTrx_onlyOnce()
+	{
+		givenSelectionQueryReturns(30, 10, 20);
+		final ViewId viewId = newViewId();
+		createOrderedSelection(viewId);
+
+		factory.materializeSelection(viewId.getViewId());
+		factory.materializeSelection(viewId.getViewId());
+
+		assertThat(statementsExecutor.executedUpdates).containsExactly(
+				new ExecutedUpdate(ImmutableList.of(viewId.getViewId(), "{1,2,3}", "{30,10,20}"), ITrx.TRXNAME_None));
+
+		// still kept in memory
+		assertThat(factory.getInMemoryRowIdsOrNull(viewId.getViewId()).toArray()).containsExactly(30, 10, 20);
+	}
+
+	@Test
+	public void addAndRemoveRowIds_areForwardedToDatabase_onlyIfMaterialized()
+	{
+		givenSelectionQueryReturns(30, 10, 20);
+		final ViewId viewId = newViewId();
+		final ViewRowIdsOrderedSelection selection = createOrderedSelection(viewId);
+
+		final ViewRowIdsOrderedSelection selectionWithAddedRow = factory.addRowIdsToSelection(selection, DocumentIdsSelection.ofIntSet(ImmutableSet.of(40)));
+		assertThat(selectionWithAddedRow.getSize()).isEqualTo(4);
+		verify(sqlFactory, never()).addRowIdsToSelection(any(), any());
+
+		factory.materializeSelection(viewId.getViewId());
+
+		final DocumentIdsSelection rowIdsToRemove = DocumentIdsSelection.ofIntSet(ImmutableSet.of(10));
+		final ViewRowIdsOrderedSelection selectionWithRemovedRow = factory.removeRowIdsFromSelection(selectionWithAddedRow, rowIdsToRemove);
+		assertThat(selectionWithRemovedRow.getSize()).isEqualTo(3);
+		assertThat(factory.getInMemoryRowIdsOrNull(viewId.getViewId()).toArray()).containsExactly(30, 20, 40);
+		verify(sqlFactory).removeRowIdsFromSelection(selectionWithAddedRow, rowIdsToRemove);
+	}
+
+	@Test
+	public void deleteSelections_deletesInDatabaseOnlyTheMaterializedOnes()
+	{
+		givenSelectionQueryReturns(30, 10, 20);
+		final ViewId notMaterializedViewId = newViewId();
+		createOrderedSelection(notMaterializedViewId);
+		final ViewId materializedViewId = newViewId();
+		createOrderedSelection(materializedViewId);
+		factory.materializeSelection(materializedViewId.getViewId());
+
+		factory.deleteSelections(ImmutableSet.of(notMaterializedViewId.getViewId(), materializedViewId.getViewId(), "unknownSelectionId"));
+
+		assertThat(factory.getInMemoryRowIdsOrNull(notMaterializedViewId.getViewId())).isNull();
+		assertThat(factory.getInMemoryRowIdsOrNull(materializedViewId.getViewId())).isNull();
+		verify(sqlFactory).deleteSelections(ImmutableSet.of(materializedViewId.getViewId(), "unknownSelectionId"));
+	}
+
+	@Test
+	public void spillSelectionsToDatabase()
+	{
+		givenSelectionQueryReturns(30, 10, 20);
+		final ViewId viewId = newViewId();
+		final ViewRowIdsOrderedSelection selection = createOrderedSelection(viewId);
+
+		factory.spillSelectionsToDatabase(ImmutableSet.of(viewId.getViewId()));
+
+		assertThat(factory.getInMemoryRowIdsOrNull(viewId.getViewId())).isNull();
+		assertThat(statementsExecutor.executedUpdates).containsExactly(
+				new ExecutedUpdate(ImmutableList.of(viewId.getViewId(), "{1,2,3}", "{30,10,20}"), ITrx.TRXNAME_None));
+
+		// from now on, the selection is handled by database
+		final DocumentIdsSelection rowIdsToAdd = DocumentIdsSelection.ofIntSet(ImmutableSet.of(40));
+		factory.addRowIdsToSelection(selection, rowIdsToAdd);
+		verify(sqlFactory).addRowIdsToSelection(selection, rowIdsToAdd);
+		verify(sqlFactory, never()).deleteSelections(anySet());
+	}
+
+	@Test
+	public void selectionsAreNotSharedBetweenFactories()
+	{
+		givenSelectionQueryReturns(30, 10, 20);
+		final ViewId viewId = newViewId();
+		createOrderedSelection(viewId);
+
+		final InMemoryViewRowIdsOrderedSelectionFactory otherFactory = newFactory();
+
+		assertThat(factory.getInMemoryRowIdsOrNull(viewId.getViewId())).isNotNull();
+		assertThat(otherFactory.getInMemoryRowIdsOrNull(viewId.getViewId())).isNull();
+	}
+}
@@ -0,0 +1,88 @@
+package de.metas.ui.web.view;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import de.metas.ui.web.window.datatypes.DocumentId;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class InMemoryViewRowIdsTest
+{
+	@Test
+	public void getPage()
+	{
+		final InMemoryViewRowIds rowIds = InMemoryViewRowIds.ofOrderedRowIds(new int[] { 50, 10, 40, 20, 30 });
+
+		assertThat(rowIds.size()).isEqualTo(5);
+		assertThat(rowIds.getPage(0, 2)).containsExactly(50, 10);
+		assertThat(rowIds.getPage(3, 10)).containsExactly(20, 30);
+		assertThat(rowIds.getPage(5, 10)).isEmpty();
+	}
+
+	@Test
+	public void contains()
+	{
+		final InMemoryViewRowIds rowIds = InMemoryViewRowIds.ofOrderedRowIds(new int[] { 50, 10, 40 });
+
+		assertThat(rowIds.contains(40)).isTrue();
+		assertThat(rowIds.contains(41)).isFalse();
+		assertThat(rowIds.contains(DocumentId.of(10))).isTrue();
+		assertThat(rowIds.contains(DocumentId.of("notAnInt"))).isFalse();
+		assertThat(rowIds.containsAny(ImmutableList.of(DocumentId.of(1), DocumentId.of(50)))).isTrue();
+		assertThat(rowIds.containsAny(ImmutableList.of(DocumentId.of(1), DocumentId.of(2)))).isFalse();
+	}
+
+	@Test
+	public void withRowIdsAdded_appendsOnlyMissingRowIds()
+	{
+		final InMemoryViewRowIds rowIds = InMemoryViewRowIds.ofOrderedRowIds(new int[] { 30, 10 })
+				.withRowIdsAdded(ImmutableSet.of(10, 20));
+
+		assertThat(rowIds.toArray()).containsExactly(30, 10, 20);
+		assertThat(rowIds.contains(20)).isTrue();
+	}
+
+	@Test
+	public void withRowIdsRemoved()
+	{
+		final InMemoryViewRowIds rowIds = InMemoryViewRowIds.ofOrderedRowIds(new int[] { 30, 10, 20 })
+				.withRowIdsRemoved(ImmutableSet.of(10, 99));
+
+		assertThat(rowIds.toArray()).containsExactly(30, 20);
+		assertThat(rowIds.contains(10)).isFalse();
+	}
+
+	@Test
+	public void noChanges_sameInstance()
+	{
+		final InMemoryViewRowIds rowIds = InMemoryViewRowIds.ofOrderedRowIds(new int[] { 30, 10 });
+
+		assertThat(rowIds.withRowIdsAdded(ImmutableSet.of(10))).isSameAs(rowIds);
+		assertThat(rowIds.withRowIdsRemoved(ImmutableSet.of(99))).isSameAs(rowIds);
+	}
+}
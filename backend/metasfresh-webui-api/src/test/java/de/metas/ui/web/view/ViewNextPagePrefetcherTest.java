@@ -0,0 +1,268 @@
+package de.metas.ui.web.view;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import de.metas.ui.web.window.datatypes.WindowId;
+import lombok.Value;
+
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class ViewNextPagePrefetcherTest
+{
+	@Value
+	private static class RetrieveCall
+	{
+		int firstRow;
+		int pageLength;
+	}
+
+	/** Serves the pages from a fixed list of rows and records the calls */
+	private static class RecordingPageRetriever implements ViewNextPagePrefetcher.PageRetriever
+	{
+		private final List<IViewRow> allRows;
+		private final List<RetrieveCall> calls = new ArrayList<>();
+
+		private RecordingPageRetriever(final List<IViewRow> allRows)
+		{
+			this.allRows = allRows;
+		}
+
+		@Override
+		public List<IViewRow> retrievePage(final int firstRow, final int pageLength)
+		{
+			calls.add(new RetrieveCall(firstRow, pageLength));
+
+			final int fromIndex = Math.min(firstRow, allRows.size());
+			final int toIndex = Math.min(firstRow + pageLength, allRows.size());
+			return ImmutableList.copyOf(allRows.subList(fromIndex, toIndex));
+		}
+	}
+
+	private ViewNextPagePrefetcher prefetcher;
+
+	@BeforeEach
+	public void init()
+	{
+		prefetcher = new ViewNextPagePrefetcher();
+	}
+
+	private static List<IViewRow> newRows(final int count)
+	{
+		return IntStream.range(0, count)
+				.mapToObj(i -> mock(IViewRow.class))
+				.collect(ImmutableList.toImmutableList());
+	}
+
+	private static ViewRowIdsOrderedSelection newSelection(final int size)
+	{
+		return ViewRowIdsOrderedSelection.builder()
+				.viewId(ViewId.random(WindowId.of(123)))
+				.size(size)
+				.build();
+	}
+
+	private List<IViewRow> retrievePage(
+			final ViewRowIdsOrderedSelection selection,
+			final int firstRow,
+			final int pageLength,
+			final RecordingPageRetriever retriever)
+	{
+		return prefetcher.retrievePage(selection, firstRow, pageLength, true, retriever);
+	}
+
+	@Test
+	public void firstPage_isNotPrefetched()
+	{
+		final List<IViewRow> allRows = newRows(30);
+		final ViewRowIdsOrderedSelection selection = newSelection(30);
+		final RecordingPageRetriever retriever = new RecordingPageRetriever(allRows);
+
+		assertThat(retrievePage(selection, 0, 10, retriever)).containsExactlyElementsOf(allRows.subList(0, 10));
+
+		assertThat(retriever.calls).containsExactly(new RetrieveCall(0, 10));
+		assertThat(prefetcher.getPrefetchedRowsCount()).isZero();
+	}
+
+	@Test
+	public void sequentialRequest_prefetchesNextPage_whichIsServedFromMemory()
+	{
+		final List<IViewRow> allRows = newRows(30);
+		final ViewRowIdsOrderedSelection selection = newSelection(30);
+		final RecordingPageRetriever retriever = new RecordingPageRetriever(allRows);
+
+		retrievePage(selection, 0, 10, retriever);
+		assertThat(retrievePage(selection, 10, 10, retriever)).containsExactlyElementsOf(allRows.subList(10, 20));
+		assertThat(prefetcher.getPrefetchedRowsCount()).isEqualTo(10);
+
+		assertThat(retrievePage(selection, 20, 10, retriever)).containsExactlyElementsOf(allRows.subList(20, 30));
+
+		assertThat(retriever.calls).containsExactly(
+				new RetrieveCall(0, 10),
+				new RetrieveCall(10, 20));
+		assertThat(prefetcher.getPrefetchedRowsCount()).isZero();
+	}
+
+	@Test
+	public void lastPartialPage_isServedFromMemory()
+	{
+		final List<IViewRow> allRows = newRows(25);
+		final ViewRowIdsOrderedSelection selection = newSelection(25);
+		final RecordingPageRetriever retriever = new RecordingPageRetriever(allRows);
+
+		retrievePage(selection, 0, 10, retriever);
+		retrievePage(selection, 10, 10, retriever);
+		assertThat(prefetcher.getPrefetchedRowsCount()).isEqualTo(5);
+
+		// the prefetched page is shorter than requested, but it reaches the end of the selection
+		assertThat(retrievePage(selection, 20, 10, retriever)).containsExactlyElementsOf(allRows.subList(20, 25));
+
+		assertThat(retriever.calls).containsExactly(
+				new RetrieveCall(0, 10),
+				new RetrieveCall(10, 20));
+	}
+
+	@Test
+	public void shortPrefetchedPage_notReachingSelectionEnd_isRetrievedAgain()
+	{
+		// the selection claims more rows than the retriever returns, e.g. because rows were deleted meanwhile
+		final List<IViewRow> allRows = newRows(25);
+		final ViewRowIdsOrderedSelection selection = newSelection(100);
+		final RecordingPageRetriever retriever = new RecordingPageRetriever(allRows);
+
+		retrievePage(selection, 0, 10, retriever);
+		retrievePage(selection, 10, 10, retriever);
+		assertThat(prefetcher.getPrefetchedRowsCount()).isEqualTo(5);
+
+		assertThat(retrievePage(selection, 20, 10, retriever)).containsExactlyElementsOf(allRows.subList(20, 25));
+
+		assertThat(retriever.calls).containsExactly(
+				new RetrieveCall(0, 10),
+				new RetrieveCall(10, 20),
+				new RetrieveCall(20, 20));
+	}
+
+	@Test
+	public void smallerPageThanPrefetched_isServedFromMemory()
+	{
+		final List<IViewRow> allRows = newRows(30);
+		final ViewRowIdsOrderedSelection selection = newSelection(30);
+		final RecordingPageRetriever retriever = new RecordingPageRetriever(allRows);
+
+		retrievePage(selection, 0, 10, retriever);
+		retrievePage(selection, 10, 10, retriever);
+
+		assertThat(retrievePage(selection, 20, 5, retriever)).containsExactlyElementsOf(allRows.subList(20, 25));
+
+		// the page after it is sequential again, so it's retrieved together with its next page
+		assertThat(retrievePage(selection, 25, 5, retriever)).containsExactlyElementsOf(allRows.subList(25, 30));
+		assertThat(retriever.calls).containsExactly(
+				new RetrieveCall(0, 10),
+				new RetrieveCall(10, 20),
+				new RetrieveCall(25, 10));
+	}
+
+	@Test
+	public void nonSequentialRequest_isNotPrefetched()
+	{
+		final List<IViewRow> allRows = newRows(100);
+		final ViewRowIdsOrderedSelection selection = newSelection(100);
+		final RecordingPageRetriever retriever = new RecordingPageRetriever(allRows);
+
+		retrievePage(selection, 0, 10, retriever);
+		assertThat(retrievePage(selection, 50, 10, retriever)).containsExactlyElementsOf(allRows.subList(50, 60));
+
+		assertThat(retriever.calls).containsExactly(
+				new RetrieveCall(0, 10),
+				new RetrieveCall(50, 10));
+		assertThat(prefetcher.getPrefetchedRowsCount()).isZero();
+	}
+
+	@Test
+	public void prefetchDisabled()
+	{
+		final List<IViewRow> allRows = newRows(30);
+		final ViewRowIdsOrderedSelection selection = newSelection(30);
+		final RecordingPageRetriever retriever = new RecordingPageRetriever(allRows);
+
+		prefetcher.retrievePage(selection, 0, 10, false, retriever);
+		prefetcher.retrievePage(selection, 10, 10, false, retriever);
+
+		assertThat(retriever.calls).containsExactly(
+				new RetrieveCall(0, 10),
+				new RetrieveCall(10, 10));
+		assertThat(prefetcher.getPrefetchedRowsCount()).isZero();
+	}
+
+	@Test
+	public void reset_dropsPrefetchedPage()
+	{
+		final List<IViewRow> allRows = newRows(30);
+		final ViewRowIdsOrderedSelection selection = newSelection(30);
+		final RecordingPageRetriever retriever = new RecordingPageRetriever(allRows);
+
+		retrievePage(selection, 0, 10, retriever);
+		retrievePage(selection, 10, 10, retriever);
+
+		// i.e. the view was invalidated
+		prefetcher.reset();
+		assertThat(prefetcher.getPrefetchedRowsCount()).isZero();
+
+		// the request is not considered sequential anymore
+		retrievePage(selection, 20, 10, retriever);
+		assertThat(retriever.calls).containsExactly(
+				new RetrieveCall(0, 10),
+				new RetrieveCall(10, 20),
+				new RetrieveCall(20, 10));
+	}
+
+	@Test
+	public void changedSelection_dropsPrefetchedPage()
+	{
+		final List<IViewRow> allRows = newRows(30);
+		final ViewRowIdsOrderedSelection selection = newSelection(30);
+		final RecordingPageRetriever retriever = new RecordingPageRetriever(allRows);
+
+		retrievePage(selection, 0, 10, retriever);
+		retrievePage(selection, 10, 10, retriever);
+
+		final ViewRowIdsOrderedSelection changedSelection = selection.withSize(29);
+		retrievePage(changedSelection, 20, 10, retriever);
+
+		assertThat(retriever.calls).containsExactly(
+				new RetrieveCall(0, 10),
+				new RetrieveCall(10, 20),
+				new RetrieveCall(20, 10));
+		assertThat(prefetcher.getPrefetchedRowsCount()).isZero();
+	}
+}
@@ -0,0 +1,55 @@
+package de.metas.ui.web.view.descriptor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.adempiere.exceptions.AdempiereException;
+import org.junit.jupiter.api.Test;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+
+public class SqlViewSelectDataTest
+{
+	@Test
+	public void getFieldIndexFromGroupingSet()
+	{
+		// GROUPING(f0, f1, f2): the bit of the grouped field is not set
+		assertThat(SqlViewSelectData.getFieldIndexFromGroupingSet(0b011, 3)).isEqualTo(0);
+		assertThat(SqlViewSelectData.getFieldIndexFromGroupingSet(0b101, 3)).isEqualTo(1);
+		assertThat(SqlViewSelectData.getFieldIndexFromGroupingSet(0b110, 3)).isEqualTo(2);
+	}
+
+	@Test
+	public void getFieldIndexFromGroupingSet_singleField()
+	{
+		assertThat(SqlViewSelectData.getFieldIndexFromGroupingSet(0, 1)).isEqualTo(0);
+	}
+
+	@Test
+	public void getFieldIndexFromGroupingSet_noFieldGrouped()
+	{
+		assertThatThrownBy(() -> SqlViewSelectData.getFieldIndexFromGroupingSet(0b11, 2))
+				.isInstanceOf(AdempiereException.class);
+	}
+}
@@ -0,0 +1,94 @@
+package de.metas.ui.web.view.event;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import de.metas.ui.web.view.ViewId;
+import de.metas.ui.web.window.datatypes.DocumentId;
+import de.metas.ui.web.window.datatypes.WindowId;
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class JSONViewChangesTest
+{
+	private final ViewId viewId = ViewId.random(WindowId.of(123));
+
+	private JSONViewChanges rowsChanged(final int... rowIds)
+	{
+		final ViewChanges changes = new ViewChanges(viewId);
+		for (final int rowId : rowIds)
+		{
+			changes.addChangedRowId(DocumentId.of(rowId));
+		}
+		return JSONViewChanges.of(changes);
+	}
+
+	private JSONViewChanges fullyChanged()
+	{
+		final ViewChanges changes = new ViewChanges(viewId);
+		changes.setFullyChanged();
+		return JSONViewChanges.of(changes);
+	}
+
+	@Test
+	public void mergeWith_unionOfChangedIds()
+	{
+		final JSONViewChanges merged = rowsChanged(1, 2).mergeWith(rowsChanged(2, 3));
+
+		assertThat(merged).isNotNull();
+		assertThat(merged.getFullyChanged()).isFalse();
+		assertThat(merged.getChangedIdsCount()).isEqualTo(3);
+	}
+
+	@Test
+	public void mergeWith_fullyChangedWins()
+	{
+		final JSONViewChanges merged = rowsChanged(1, 2).mergeWith(fullyChanged());
+
+		assertThat(merged).isNotNull();
+		assertThat(merged.getFullyChanged()).isTrue();
+		assertThat(merged.getChangedIdsCount()).isZero();
+	}
+
+	@Test
+	public void mergeWith_otherView()
+	{
+		final ViewChanges otherViewChanges = new ViewChanges(ViewId.random(WindowId.of(123)));
+		otherViewChanges.addChangedRowIds(ImmutableList.of(DocumentId.of(1)));
+
+		assertThat(rowsChanged(1).mergeWith(JSONViewChanges.of(otherViewChanges))).isNull();
+	}
+
+	@Test
+	public void toFullyChanged()
+	{
+		final JSONViewChanges fullyChanged = rowsChanged(1, 2, 3).toFullyChanged();
+
+		assertThat(fullyChanged.getFullyChanged()).isTrue();
+		assertThat(fullyChanged.getChangedIdsCount()).isZero();
+		assertThat(fullyChanged.getViewId()).isEqualTo(viewId.getViewId());
+	}
+}
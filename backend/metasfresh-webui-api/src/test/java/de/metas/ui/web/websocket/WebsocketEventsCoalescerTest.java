@@ -0,0 +1,262 @@
+package de.metas.ui.web.websocket;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.common.collect.ImmutableSet;
+
+import lombok.NonNull;
+import lombok.Value;
+
+
+/*
+ * #%L
+ * metasfresh-webui-api
+ * %%
+ * Copyright (C) 2020 metas GmbH
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 2 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program. If not, see
+ * <http://www.gnu.org/licenses/gpl-2.0.html>.
+ * #L%
+ */
+
+public class WebsocketEventsCoalescerTest
+{
+	private static final WebsocketTopicName TOPIC = WebsocketTopicName.ofString("/topic1");
+	private static final WebsocketTopicName OTHER_TOPIC = WebsocketTopicName.ofString("/topic2");
+	private static final int WINDOW_MILLIS = 100;
+
+	@Value
+	private static class TestEvent implements WebsocketCoalescableEvent
+	{
+		String type;
+		Set<Integer> ids;
+		boolean fullyChanged;
+
+		static TestEvent of(final String type, final Integer... ids)
+		{
+			return new TestEvent(type, ImmutableSet.copyOf(ids), false);
+		}
+
+		@Nullable
+		@Override
+		public WebsocketCoalescableEvent mergeWith(@NonNull final WebsocketCoalescableEvent next)
+		{
+			final TestEvent nextEvent = (TestEvent)next;
+			if (!type.equals(nextEvent.type))
+			{
+				return null;
+			}
+
+			final Set<Integer> mergedIds = new TreeSet<>(ids);
+			mergedIds.addAll(nextEvent.ids);
+			return new TestEvent(type, ImmutableSet.copyOf(mergedIds), fullyChanged || nextEvent.fullyChanged);
+		}
+
+		@Override
+		public int getChangedIdsCount()
+		{
+			return ids.size();
+		}
+
+		@Override
+		public WebsocketCoalescableEvent toFullyChanged()
+		{
+			return new TestEvent(type, ImmutableSet.of(), true);
+		}
+	}
+
+	@Value
+	private static class SentEvent
+	{
+		WebsocketTopicName topic;
+		Object event;
+	}
+
+	private List<SentEvent> sentEvents;
+	private List<Runnable> scheduledFlushes;
+	private List<Long> scheduledDelays;
+	private long now;
+	private boolean failSending;
+	private WebsocketEventsLog eventsLog;
+	private WebsocketEventsCoalescer coalescer;
+
+	@BeforeEach
+	public void init()
+	{
+		sentEvents = new ArrayList<>();
+		scheduledFlushes = new ArrayList<>();
+		scheduledDelays = new ArrayList<>();
+		now = 1000;
+		failSending = false;
+
+		final ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
+		when(scheduler.schedule(any(Runnable.class), anyLong(), any(TimeUnit.class)))
+				.thenAnswer(invocation -> {
+					scheduledFlushes.add(invocation.getArgument(0));
+					scheduledDelays.add(invocation.getArgument(1));
+					return null;
+				});
+
+		eventsLog = new WebsocketEventsLog();
+		coalescer = new WebsocketEventsCoalescer(
+				(topic, event) -> {
+					if (failSending)
+					{
+						throw new RuntimeException("test failure");
+					}
+					sentEvents.add(new SentEvent(topic, event));
+				},
+				eventsLog,
+				scheduler,
+				() -> now);
+		coalescer.setWindowMillis(WINDOW_MILLIS);
+	}
+
+	private void runScheduledFlushes()
+	{
+		final List<Runnable> flushes = new ArrayList<>(scheduledFlushes);
+		scheduledFlushes.clear();
+		flushes.forEach(Runnable::run);
+	}
+
+	@Test
+	public void disabled_sendsDirectly()
+	{
+		coalescer.setWindowMillis(0);
+		assertThat(coalescer.isEnabled()).isFalse();
+
+		coalescer.send(TOPIC, TestEvent.of("changed", 1));
+		coalescer.send(TOPIC, TestEvent.of("changed", 2));
+
+		assertThat(sentEvents).containsExactly(
+				new SentEvent(TOPIC, TestEvent.of("changed", 1)),
+				new SentEvent(TOPIC, TestEvent.of("changed", 2)));
+		assertThat(scheduledFlushes).isEmpty();
+	}
+
+	@Test
+	public void firstEventIsSentRightAway_followingEventsAreMergedAndFlushedAtWindowEnd()
+	{
+		coalescer.send(TOPIC, TestEvent.of("changed", 1));
+		assertThat(sentEvents).containsExactly(new SentEvent(TOPIC, TestEvent.of("changed", 1)));
+
+		now += 10;
+		coalescer.send(TOPIC, TestEvent.of("changed", 2));
+		now += 10;
+		coalescer.send(TOPIC, TestEvent.of("changed", 3));
+		assertThat(sentEvents).hasSize(1);
+		assertThat(scheduledFlushes).hasSize(1);
+		assertThat(scheduledDelays).containsExactly(WINDOW_MILLIS - 10L);
+		assertThat(eventsLog.getStats().getCountCoalesced()).isEqualTo(1);
+
+		now += 80;
+		runScheduledFlushes();
+		assertThat(sentEvents).containsExactly(
+				new SentEvent(TOPIC, TestEvent.of("changed", 1)),
+				new SentEvent(TOPIC, TestEvent.of("changed", 2, 3)));
+	}
+
+	@Test
+	public void eventAfterWindowIsSentRightAway()
+	{
+		coalescer.send(TOPIC, TestEvent.of("changed", 1));
+		now += WINDOW_MILLIS;
+		coalescer.send(TOPIC, TestEvent.of("changed", 2));
+
+		assertThat(sentEvents).hasSize(2);
+		assertThat(scheduledFlushes).isEmpty();
+	}
+
+	@Test
+	public void topicsHaveTheirOwnWindow()
+	{
+		coalescer.send(TOPIC, TestEvent.of("changed", 1));
+		coalescer.send(OTHER_TOPIC, TestEvent.of("changed", 2));
+
+		assertThat(sentEvents).containsExactly(
+				new SentEvent(TOPIC, TestEvent.of("changed", 1)),
+				new SentEvent(OTHER_TOPIC, TestEvent.of("changed", 2)));
+	}
+
+	@Test
+	public void notMergeableEvent_sendsPendingEventFirst()
+	{
+		coalescer.send(TOPIC, TestEvent.of("changed", 1));
+		now += 10;
+		coalescer.send(TOPIC, TestEvent.of("changed", 2));
+		now += 10;
+		coalescer.send(TOPIC, TestEvent.of("deleted", 3));
+
+		assertThat(sentEvents).containsExactly(
+				new SentEvent(TOPIC, TestEvent.of("changed", 1)),
+				new SentEvent(TOPIC, TestEvent.of("changed", 2)),
+				new SentEvent(TOPIC, TestEvent.of("deleted", 3)));
+
+		// the scheduled flush has nothing to send anymore
+		runScheduledFlushes();
+		assertThat(sentEvents).hasSize(3);
+	}
+
+	@Test
+	public void tooManyIds_degradedToFullyChanged()
+	{
+		coalescer.setMaxChangedIds(2);
+
+		coalescer.send(TOPIC, TestEvent.of("changed", 1));
+		now += 10;
+		coalescer.send(TOPIC, TestEvent.of("changed", 2, 3));
+		coalescer.send(TOPIC, TestEvent.of("changed", 4));
+		runScheduledFlushes();
+
+		assertThat(sentEvents).containsExactly(
+				new SentEvent(TOPIC, TestEvent.of("changed", 1)),
+				new SentEvent(TOPIC, new TestEvent("changed", ImmutableSet.of(), true)));
+		assertThat(eventsLog.getStats().getCountDegradedToFullyChanged()).isEqualTo(1);
+	}
+
+	@Test
+	public void failingFlush_isNotPropagated()
+	{
+		coalescer.send(TOPIC, TestEvent.of("changed", 1));
+		now += 10;
+		coalescer.send(TOPIC, TestEvent.of("changed", 2));
+
+		failSending = true;
+		runScheduledFlushes(); // shall not fail
+
+		// the topic is usable afterwards
+		failSending = false;
+		now += WINDOW_MILLIS;
+		coalescer.send(TOPIC, TestEvent.of("changed", 3));
+		assertThat(sentEvents).containsExactly(
+				new SentEvent(TOPIC, TestEvent.of("changed", 1)),
+				new SentEvent(TOPIC, TestEvent.of("changed", 3)));
+	}
+}